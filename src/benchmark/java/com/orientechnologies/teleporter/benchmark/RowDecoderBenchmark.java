@@ -0,0 +1,201 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.benchmark;
+
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterMessageHandler;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
+import com.orientechnologies.teleporter.importengine.rdbms.graphengine.ORowDecoder;
+import com.orientechnologies.teleporter.mapper.rdbms.OER2GraphMapper;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.model.graphmodel.OModelProperty;
+import com.orientechnologies.teleporter.model.graphmodel.OVertexType;
+import com.orientechnologies.teleporter.nameresolver.OJavaConventionNameResolver;
+import com.orientechnologies.teleporter.persistence.handler.OHSQLDBDataTypeHandler;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Microbenchmark of the decoding of the source records: the compiled {@link ORowDecoder} against
+ * the per-cell resolution it replaced (type resolved from the original type, column resolved
+ * through the mapper and value read by label for each cell). Each operation is a record, the scan
+ * of the table included: the scan alone is measured by {@link #scan(Blackhole)}, to be subtracted
+ * from the other two. Run through the "benchmark" profile, e.g. "mvn -Pbenchmark test-compile
+ * exec:exec".
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(RowDecoderBenchmark.RECORDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RowDecoderBenchmark {
+
+  static final int RECORDS = 200000;
+
+  private static final String DRIVER = "org.hsqldb.jdbc.JDBCDriver";
+  private static final String URL = "jdbc:hsqldb:mem:benchmark";
+
+  private Connection connection;
+  private Statement st;
+  private OER2GraphMapper mapper;
+  private OVertexType itemType;
+  private ORowDecoder decoder;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+
+    OTeleporterContext context = OTeleporterContext.newInstance("embedded:target/");
+    context.setDbQueryEngine(new ODBQueryEngine(DRIVER));
+    context.setMessageHandler(new OTeleporterMessageHandler(0));
+    context.setDataTypeHandler(new OHSQLDBDataTypeHandler());
+
+    Class.forName(DRIVER);
+    this.connection = DriverManager.getConnection(URL, "SA", "");
+    this.st = this.connection.createStatement();
+
+    this.st.execute(
+        "create memory table ITEM (ID integer not null, CODE varchar(32), NAME varchar(256),"
+            + " DESCRIPTION varchar(1024), ACTIVE boolean, QUANTITY integer, WEIGHT double,"
+            + " PRICE decimal(10,2), CREATED date, UPDATED timestamp, primary key (ID))");
+    try (PreparedStatement insert =
+        this.connection.prepareStatement(
+            "insert into ITEM values (?,?,?,?,?,?,?,?,current_date,current_timestamp)")) {
+      for (int i = 0; i < RECORDS; i++) {
+        insert.setInt(1, i);
+        insert.setString(2, "C" + i);
+        insert.setString(3, "Item " + i);
+        insert.setString(4, "Description of the item " + i);
+        insert.setBoolean(5, i % 2 == 0);
+        insert.setInt(6, i % 100);
+        insert.setDouble(7, i / 3.0);
+        insert.setBigDecimal(8, BigDecimal.valueOf(i, 2));
+        insert.addBatch();
+        if (i % 1000 == 999) {
+          insert.executeBatch();
+        }
+      }
+      insert.executeBatch();
+    }
+
+    OSourceDatabaseInfo sourceDBInfo = new OSourceDatabaseInfo("source", DRIVER, URL, "SA", "");
+    this.mapper = new OER2GraphMapper(sourceDBInfo, null, null, null);
+    this.mapper.buildSourceDatabaseSchema();
+    this.mapper.buildGraphModel(new OJavaConventionNameResolver());
+    this.itemType = this.mapper.getGraphModel().getVertexTypeByName("Item");
+    this.decoder =
+        ORowDecoder.forVertexType(this.itemType, this.mapper, new OHSQLDBDataTypeHandler());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    this.st.execute("drop schema public cascade");
+    this.st.close();
+    this.connection.close();
+  }
+
+  @Benchmark
+  public void scan(Blackhole blackhole) throws Exception {
+    try (ResultSet records = this.st.executeQuery("select * from ITEM")) {
+      while (records.next()) {
+        blackhole.consume(records);
+      }
+    }
+  }
+
+  @Benchmark
+  public void compiledDecoder(Blackhole blackhole) throws Exception {
+    try (ResultSet records = this.st.executeQuery("select * from ITEM")) {
+      while (records.next()) {
+        blackhole.consume(this.decoder.decode(records, null, null));
+      }
+    }
+  }
+
+  @Benchmark
+  public void perCellResolution(Blackhole blackhole) throws Exception {
+    try (ResultSet records = this.st.executeQuery("select * from ITEM")) {
+      while (records.next()) {
+        Map<String, Object> properties = new LinkedHashMap<String, Object>();
+        for (OModelProperty property : this.itemType.getAllProperties()) {
+          if (property.isIncludedInMigration()) {
+            String type =
+                OTeleporterContext.getInstance()
+                    .getDataTypeHandler()
+                    .resolveType(property.getOriginalType().toLowerCase(Locale.ENGLISH))
+                    .toString();
+            String column =
+                this.mapper.getAttributeNameByVertexTypeAndProperty(
+                    this.itemType, property.getName());
+            properties.put(property.getName(), readByLabel(records, column, type));
+          }
+        }
+        blackhole.consume(properties);
+      }
+    }
+  }
+
+  private static Object readByLabel(ResultSet record, String column, String type)
+      throws Exception {
+    switch (type) {
+      case "BOOLEAN":
+        return record.getBoolean(column);
+      case "INTEGER":
+        return record.getInt(column);
+      case "DOUBLE":
+        return record.getDouble(column);
+      case "DECIMAL":
+        return record.getBigDecimal(column);
+      case "DATE":
+        return record.getDate(column);
+      case "DATETIME":
+        return record.getTimestamp(column);
+      default:
+        return record.getString(column);
+    }
+  }
+}
@@ -0,0 +1,460 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.context;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import java.util.Map;
+
+/**
+ * Tuning settings of a single migration. They can be set through the command line arguments or
+ * through the configuration of a job submitted to the http handler.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OImportSettings {
+
+  // number of source records imported within a single OrientDB transaction, 1 means no batching
+  public static final int DEFAULT_BATCH_SIZE = 1;
+
+  // number of vertex classes imported concurrently, 1 means sequential import
+  public static final int DEFAULT_PARALLELISM = 1;
+
+  // number of key ranges the scan of a single table is split into, 1 means a single scan
+  public static final int DEFAULT_PARTITIONS = 1;
+
+  // number of rows fetched from the source DB per round trip while streaming the records
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+
+  // max number of vertex identities cached for all the classes, 0 means the cache is disabled
+  public static final int DEFAULT_KEY_CACHE_SIZE = 1000000;
+
+  // max number of edges tracked for all the edge classes, used to skip the edge existence checks,
+  // 0 means the tracking is disabled
+  public static final int DEFAULT_EDGE_SET_SIZE = 1000000;
+
+  // max number of keys preloaded for each hierarchy to resolve the type of its records, beyond
+  // it the types are resolved with a query per record; 0 means the keys are never preloaded
+  public static final int DEFAULT_TYPE_RESOLVER_CACHE_SIZE = 1000000;
+
+  // max number of chars of a JSON value converted into an embedded document, the longer ones are
+  // not imported; 0 means no limit
+  public static final int DEFAULT_MAX_JSON_SIZE = 16777216;
+
+  // how the LOB columns are imported: inline values, chunked binary records or not at all
+  public static final LobMode DEFAULT_LOB_MODE = LobMode.INLINE;
+
+  // max number of bytes of a binary value stored inline in chunked LOB mode, also the size of the
+  // chunks the longer ones are split into
+  public static final int DEFAULT_LOB_THRESHOLD = 1048576;
+
+  // when enabled all the vertices are imported first, then the edges are built from foreign keys
+  public static final boolean DEFAULT_TWO_PHASE_IMPORT = false;
+
+  // how the records of the source tables are counted for the progress of the import
+  public static final RecordCountMode DEFAULT_RECORD_COUNT_MODE = RecordCountMode.ESTIMATED;
+
+  // when enabled the source database schema is saved next to the migration config of the target
+  // database, and reloaded instead of discovered when the schema did not change since
+  public static final boolean DEFAULT_SCHEMA_SNAPSHOT = false;
+
+  private int batchSize;
+  private int parallelism;
+  private int partitions;
+  private int fetchSize;
+  private int keyCacheSize;
+  private int edgeSetSize;
+  private int typeResolverCacheSize;
+  private int maxJsonSize;
+  private LobMode lobMode;
+  private int lobThreshold;
+  private boolean twoPhaseImport;
+  private RecordCountMode recordCountMode;
+  private boolean schemaSnapshot;
+
+  public OImportSettings() {
+    this.batchSize = DEFAULT_BATCH_SIZE;
+    this.parallelism = DEFAULT_PARALLELISM;
+    this.partitions = DEFAULT_PARTITIONS;
+    this.fetchSize = DEFAULT_FETCH_SIZE;
+    this.keyCacheSize = DEFAULT_KEY_CACHE_SIZE;
+    this.edgeSetSize = DEFAULT_EDGE_SET_SIZE;
+    this.typeResolverCacheSize = DEFAULT_TYPE_RESOLVER_CACHE_SIZE;
+    this.maxJsonSize = DEFAULT_MAX_JSON_SIZE;
+    this.lobMode = DEFAULT_LOB_MODE;
+    this.lobThreshold = DEFAULT_LOB_THRESHOLD;
+    this.twoPhaseImport = DEFAULT_TWO_PHASE_IMPORT;
+    this.recordCountMode = DEFAULT_RECORD_COUNT_MODE;
+    this.schemaSnapshot = DEFAULT_SCHEMA_SNAPSHOT;
+  }
+
+  /**
+   * Builds the settings from the command line arguments (e.g. "-batchsize 1000 -partitions 8").
+   *
+   * @param arguments
+   * @return the settings, defaults are used for the missing arguments
+   * @throws IllegalArgumentException if an argument is not valid
+   */
+  public static OImportSettings fromArguments(Map<String, String> arguments) {
+
+    OImportSettings settings = new OImportSettings();
+    if (arguments.get("-batchsize") != null) {
+      settings.setBatchSize(parsePositiveInt("-batchsize", arguments.get("-batchsize")));
+    }
+    if (arguments.get("-parallelism") != null) {
+      settings.setParallelism(parsePositiveInt("-parallelism", arguments.get("-parallelism")));
+    }
+    if (arguments.get("-partitions") != null) {
+      settings.setPartitions(parsePositiveInt("-partitions", arguments.get("-partitions")));
+    }
+    if (arguments.get("-fetchsize") != null) {
+      settings.setFetchSize(parsePositiveInt("-fetchsize", arguments.get("-fetchsize")));
+    }
+    if (arguments.get("-keycachesize") != null) {
+      settings.setKeyCacheSize(
+          parseNonNegativeInt("-keycachesize", arguments.get("-keycachesize")));
+    }
+    if (arguments.get("-edgesetsize") != null) {
+      settings.setEdgeSetSize(parseNonNegativeInt("-edgesetsize", arguments.get("-edgesetsize")));
+    }
+    if (arguments.get("-typeresolvercachesize") != null) {
+      settings.setTypeResolverCacheSize(
+          parseNonNegativeInt("-typeresolvercachesize", arguments.get("-typeresolvercachesize")));
+    }
+    if (arguments.get("-maxjsonsize") != null) {
+      settings.setMaxJsonSize(parseNonNegativeInt("-maxjsonsize", arguments.get("-maxjsonsize")));
+    }
+    if (arguments.get("-lobmode") != null) {
+      settings.setLobMode(parseLobMode("-lobmode", arguments.get("-lobmode")));
+    }
+    if (arguments.get("-lobthreshold") != null) {
+      settings.setLobThreshold(parsePositiveInt("-lobthreshold", arguments.get("-lobthreshold")));
+    }
+    if (arguments.get("-twophase") != null) {
+      settings.setTwoPhaseImport(parseBoolean("-twophase", arguments.get("-twophase")));
+    }
+    if (arguments.get("-recordcount") != null) {
+      settings.setRecordCountMode(
+          parseRecordCountMode("-recordcount", arguments.get("-recordcount")));
+    }
+    if (arguments.get("-schemasnapshot") != null) {
+      settings.setSchemaSnapshot(
+          parseBoolean("-schemasnapshot", arguments.get("-schemasnapshot")));
+    }
+    return settings;
+  }
+
+  /**
+   * Builds the settings from the fields of a job configuration (e.g. "batchSize", "parallelism").
+   *
+   * @param cfg
+   * @return the settings, defaults are used for the missing fields
+   * @throws IllegalArgumentException if a field is not valid
+   */
+  public static OImportSettings fromConfiguration(ODocument cfg) {
+
+    OImportSettings settings = new OImportSettings();
+    if (cfg.field("batchSize") != null) {
+      settings.setBatchSize(parsePositiveInt("batchSize", cfg.field("batchSize").toString()));
+    }
+    if (cfg.field("parallelism") != null) {
+      settings.setParallelism(
+          parsePositiveInt("parallelism", cfg.field("parallelism").toString()));
+    }
+    if (cfg.field("partitions") != null) {
+      settings.setPartitions(parsePositiveInt("partitions", cfg.field("partitions").toString()));
+    }
+    if (cfg.field("fetchSize") != null) {
+      settings.setFetchSize(parsePositiveInt("fetchSize", cfg.field("fetchSize").toString()));
+    }
+    if (cfg.field("keyCacheSize") != null) {
+      settings.setKeyCacheSize(
+          parseNonNegativeInt("keyCacheSize", cfg.field("keyCacheSize").toString()));
+    }
+    if (cfg.field("edgeSetSize") != null) {
+      settings.setEdgeSetSize(
+          parseNonNegativeInt("edgeSetSize", cfg.field("edgeSetSize").toString()));
+    }
+    if (cfg.field("typeResolverCacheSize") != null) {
+      settings.setTypeResolverCacheSize(
+          parseNonNegativeInt(
+              "typeResolverCacheSize", cfg.field("typeResolverCacheSize").toString()));
+    }
+    if (cfg.field("maxJsonSize") != null) {
+      settings.setMaxJsonSize(
+          parseNonNegativeInt("maxJsonSize", cfg.field("maxJsonSize").toString()));
+    }
+    if (cfg.field("lobMode") != null) {
+      settings.setLobMode(parseLobMode("lobMode", cfg.field("lobMode").toString()));
+    }
+    if (cfg.field("lobThreshold") != null) {
+      settings.setLobThreshold(
+          parsePositiveInt("lobThreshold", cfg.field("lobThreshold").toString()));
+    }
+    if (cfg.field("twoPhaseImport") != null) {
+      settings.setTwoPhaseImport(
+          parseBoolean("twoPhaseImport", cfg.field("twoPhaseImport").toString()));
+    }
+    if (cfg.field("recordCount") != null) {
+      settings.setRecordCountMode(
+          parseRecordCountMode("recordCount", cfg.field("recordCount").toString()));
+    }
+    if (cfg.field("schemaSnapshot") != null) {
+      settings.setSchemaSnapshot(
+          parseBoolean("schemaSnapshot", cfg.field("schemaSnapshot").toString()));
+    }
+    return settings;
+  }
+
+  protected static int parsePositiveInt(String name, String value) {
+    int parsed = parseInt(name, value);
+    if (parsed < 1) {
+      throw new IllegalArgumentException(
+          "Not valid value for " + name + ": a positive number is expected.");
+    }
+    return parsed;
+  }
+
+  protected static int parseNonNegativeInt(String name, String value) {
+    int parsed = parseInt(name, value);
+    if (parsed < 0) {
+      throw new IllegalArgumentException(
+          "Not valid value for " + name + ": a not negative number is expected.");
+    }
+    return parsed;
+  }
+
+  protected static boolean parseBoolean(String name, String value) {
+    String trimmed = value.trim();
+    if (trimmed.equalsIgnoreCase("true")) {
+      return true;
+    } else if (trimmed.equalsIgnoreCase("false")) {
+      return false;
+    }
+    throw new IllegalArgumentException(
+        "Not valid value for " + name + ": " + value + " (true or false is expected).");
+  }
+
+  protected static LobMode parseLobMode(String name, String value) {
+    for (LobMode mode : LobMode.values()) {
+      if (mode.name().equalsIgnoreCase(value.trim())) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException(
+        "Not valid value for "
+            + name
+            + ": "
+            + value
+            + " (inline, chunked or exclude is expected).");
+  }
+
+  protected static RecordCountMode parseRecordCountMode(String name, String value) {
+    for (RecordCountMode mode : RecordCountMode.values()) {
+      if (mode.name().equalsIgnoreCase(value.trim())) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException(
+        "Not valid value for "
+            + name
+            + ": "
+            + value
+            + " (estimated, exact or background is expected).");
+  }
+
+  private static int parseInt(String name, String value) {
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Not valid value for " + name + ": " + value + ".");
+    }
+  }
+
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("The batch size must be positive.");
+    }
+    this.batchSize = batchSize;
+  }
+
+  public boolean isBatchImportEnabled() {
+    return this.batchSize > 1;
+  }
+
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  public void setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("The parallelism must be positive.");
+    }
+    this.parallelism = parallelism;
+  }
+
+  public boolean isParallelImportEnabled() {
+    return this.parallelism > 1;
+  }
+
+  public int getPartitions() {
+    return this.partitions;
+  }
+
+  public void setPartitions(int partitions) {
+    if (partitions < 1) {
+      throw new IllegalArgumentException("The number of partitions must be positive.");
+    }
+    this.partitions = partitions;
+  }
+
+  public boolean isPartitionedScanEnabled() {
+    return this.partitions > 1;
+  }
+
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
+  public void setFetchSize(int fetchSize) {
+    if (fetchSize < 1) {
+      throw new IllegalArgumentException("The fetch size must be positive.");
+    }
+    this.fetchSize = fetchSize;
+  }
+
+  public int getKeyCacheSize() {
+    return this.keyCacheSize;
+  }
+
+  public void setKeyCacheSize(int keyCacheSize) {
+    if (keyCacheSize < 0) {
+      throw new IllegalArgumentException("The key cache size cannot be negative.");
+    }
+    this.keyCacheSize = keyCacheSize;
+  }
+
+  public int getEdgeSetSize() {
+    return this.edgeSetSize;
+  }
+
+  public void setEdgeSetSize(int edgeSetSize) {
+    if (edgeSetSize < 0) {
+      throw new IllegalArgumentException("The edge set size cannot be negative.");
+    }
+    this.edgeSetSize = edgeSetSize;
+  }
+
+  public int getTypeResolverCacheSize() {
+    return this.typeResolverCacheSize;
+  }
+
+  public void setTypeResolverCacheSize(int typeResolverCacheSize) {
+    if (typeResolverCacheSize < 0) {
+      throw new IllegalArgumentException("The type resolver cache size cannot be negative.");
+    }
+    this.typeResolverCacheSize = typeResolverCacheSize;
+  }
+
+  public int getMaxJsonSize() {
+    return this.maxJsonSize;
+  }
+
+  public void setMaxJsonSize(int maxJsonSize) {
+    if (maxJsonSize < 0) {
+      throw new IllegalArgumentException("The max JSON size cannot be negative.");
+    }
+    this.maxJsonSize = maxJsonSize;
+  }
+
+  public LobMode getLobMode() {
+    return this.lobMode;
+  }
+
+  public void setLobMode(LobMode lobMode) {
+    if (lobMode == null) {
+      throw new IllegalArgumentException("The LOB mode cannot be null.");
+    }
+    this.lobMode = lobMode;
+  }
+
+  public int getLobThreshold() {
+    return this.lobThreshold;
+  }
+
+  public void setLobThreshold(int lobThreshold) {
+    if (lobThreshold < 1) {
+      throw new IllegalArgumentException("The LOB threshold must be positive.");
+    }
+    this.lobThreshold = lobThreshold;
+  }
+
+  public boolean isTwoPhaseImportEnabled() {
+    return this.twoPhaseImport;
+  }
+
+  public void setTwoPhaseImport(boolean twoPhaseImport) {
+    this.twoPhaseImport = twoPhaseImport;
+  }
+
+  public RecordCountMode getRecordCountMode() {
+    return this.recordCountMode;
+  }
+
+  public void setRecordCountMode(RecordCountMode recordCountMode) {
+    if (recordCountMode == null) {
+      throw new IllegalArgumentException("The record count mode cannot be null.");
+    }
+    this.recordCountMode = recordCountMode;
+  }
+
+  public boolean isSchemaSnapshotEnabled() {
+    return this.schemaSnapshot;
+  }
+
+  public void setSchemaSnapshot(boolean schemaSnapshot) {
+    this.schemaSnapshot = schemaSnapshot;
+  }
+
+  public enum LobMode {
+    // LOB values are read and stored as a whole
+    INLINE,
+    // binary values longer than the LOB threshold are streamed into chunk records linked by the
+    // element
+    CHUNKED,
+    // LOB columns are not imported
+    EXCLUDE
+  }
+
+  public enum RecordCountMode {
+    // records estimated from the optimizer statistics, counted only for the tables without them
+    ESTIMATED,
+    // records counted table by table while building the source database schema
+    EXACT,
+    // records counted in background while the migration goes on, as many tables at a time as the
+    // parallelism
+    BACKGROUND
+  }
+}
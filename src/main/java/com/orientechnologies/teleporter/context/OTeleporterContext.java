@@ -48,16 +48,21 @@ public class OTeleporterContext {
   private String driverDependencyPath;
   private String executionStrategy;
   private ODBQueryEngine dbQueryEngine;
+  private OImportSettings importSettings;
+  // snapshot of the source database schema of the current job, null if not kept
+  private String schemaSnapshotPath;
 
   public OTeleporterContext(OrientDB orientDBInstance) {
     this.statistics = new OTeleporterStatistics();
     this.orient = orientDBInstance;
     this.executionStrategy = "not_specified";
+    this.importSettings = new OImportSettings();
   }
 
   public OTeleporterContext(String url) {
     this.statistics = new OTeleporterStatistics();
     this.executionStrategy = "not_specified";
+    this.importSettings = new OImportSettings();
     this.initOrientDBInstance(url);
   }
 
@@ -156,6 +161,22 @@ public class OTeleporterContext {
     this.dbQueryEngine = dbQueryEngine;
   }
 
+  public OImportSettings getImportSettings() {
+    return this.importSettings;
+  }
+
+  public void setImportSettings(OImportSettings importSettings) {
+    this.importSettings = importSettings;
+  }
+
+  public String getSchemaSnapshotPath() {
+    return this.schemaSnapshotPath;
+  }
+
+  public void setSchemaSnapshotPath(String schemaSnapshotPath) {
+    this.schemaSnapshotPath = schemaSnapshotPath;
+  }
+
   /**
    * Prints the error message for a caught exception according to a level passed as argument. It's
    * composed of: - defined error message - exception message
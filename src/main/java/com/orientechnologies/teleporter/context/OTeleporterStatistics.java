@@ -22,6 +22,8 @@ package com.orientechnologies.teleporter.context;
 
 import com.orientechnologies.teleporter.ui.OStatisticsListener;
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Collects and updates statistics about the Drakkar execution state. It identifies and monitors 4
@@ -64,8 +66,8 @@ public class OTeleporterStatistics {
   public volatile Date startWork3Time;
 
   // OrientDB importing
-  public volatile int totalNumberOfRecords;
-  public volatile int analyzedRecords;
+  public volatile long totalNumberOfRecords;
+  public volatile long analyzedRecords;
   public volatile int orientAddedVertices;
   public volatile int orientUpdatedVertices;
   public volatile int orientAddedEdges;
@@ -78,17 +80,29 @@ public class OTeleporterStatistics {
   public volatile int doneLeftVerticesCurrentLogicalRelationship;
   public volatile Date startWork5Time;
 
+  // Source DB connections
+  public volatile int sourceConnectionPoolHits;
+  public volatile int sourceConnectionPoolMisses;
+
+  // Vertex lookups through the key cache
+  public volatile long vertexKeyCacheHits;
+  public volatile long vertexKeyCacheMisses;
+
   // Warnings and Error Messages
   public volatile Set<String> warningMessages;
   public volatile Set<String> errorMessages;
 
+  // Values of the original types not convertible into any OrientDB type, converted to String
+  public volatile Map<String, LongAdder> notConvertibleTypes;
+
   // Listeners
   private volatile List<OStatisticsListener> listeners;
 
   public OTeleporterStatistics() {
     this.init();
-    this.warningMessages = new HashSet<String>();
-    this.errorMessages = new HashSet<String>();
+    this.warningMessages = Collections.synchronizedSet(new HashSet<String>());
+    this.errorMessages = Collections.synchronizedSet(new HashSet<String>());
+    this.notConvertibleTypes = new ConcurrentSkipListMap<String, LongAdder>();
     this.listeners = new ArrayList<OStatisticsListener>();
   }
 
@@ -123,12 +137,85 @@ public class OTeleporterStatistics {
     this.doneLogicalRelationships = 0;
     this.leftVerticesCurrentLogicalRelationship = 0;
     this.doneLeftVerticesCurrentLogicalRelationship = 0;
+
+    this.sourceConnectionPoolHits = 0;
+    this.sourceConnectionPoolMisses = 0;
+
+    this.vertexKeyCacheHits = 0;
+    this.vertexKeyCacheMisses = 0;
   }
 
   public void reset() {
     this.init();
   }
 
+  /*
+   * Atomic updates of the schema building counters, as tables can be analyzed by several threads
+   */
+
+  public synchronized void incrementBuiltEntities() {
+    this.builtEntities++;
+  }
+
+  public synchronized void incrementEntitiesAnalyzedForRelationship() {
+    this.entitiesAnalyzedForRelationship++;
+  }
+
+  /*
+   * Atomic updates of the importing counters, as records can be imported by several threads
+   */
+
+  public synchronized void incrementTotalNumberOfRecords(long records) {
+    this.totalNumberOfRecords += records;
+  }
+
+  public synchronized void incrementAnalyzedRecords(int records) {
+    this.analyzedRecords += records;
+  }
+
+  public synchronized void incrementOrientAddedVertices() {
+    this.orientAddedVertices++;
+  }
+
+  public synchronized void incrementOrientUpdatedVertices() {
+    this.orientUpdatedVertices++;
+  }
+
+  public synchronized void incrementOrientAddedEdges() {
+    this.orientAddedEdges++;
+  }
+
+  public synchronized void incrementOrientWrites(
+      int addedVertices, int updatedVertices, int addedEdges) {
+    this.orientAddedVertices += addedVertices;
+    this.orientUpdatedVertices += updatedVertices;
+    this.orientAddedEdges += addedEdges;
+  }
+
+  public synchronized void incrementSourceConnectionPoolHits() {
+    this.sourceConnectionPoolHits++;
+  }
+
+  public synchronized void incrementSourceConnectionPoolMisses() {
+    this.sourceConnectionPoolMisses++;
+  }
+
+  public synchronized void incrementVertexKeyCacheHits() {
+    this.vertexKeyCacheHits++;
+  }
+
+  public synchronized void incrementVertexKeyCacheMisses() {
+    this.vertexKeyCacheMisses++;
+  }
+
+  /**
+   * @param type
+   * @return the counter of the values of the not convertible type converted to String
+   */
+  public LongAdder getNotConvertibleTypeCounter(String type) {
+    return this.notConvertibleTypes.computeIfAbsent(type, t -> new LongAdder());
+  }
+
   /*
    * Publisher-Subscribers
    */
@@ -175,10 +262,22 @@ public class OTeleporterStatistics {
     s += "\nAdded Vertices on OrientDB: " + this.orientAddedVertices;
     s += "\nUpdated Vertices on OrientDB: " + this.orientUpdatedVertices;
     s += "\nAdded Edges on OrientDB: " + this.orientAddedEdges;
+    s +=
+        "\nVertex Lookups Served by the Key Cache: "
+            + this.vertexKeyCacheHits
+            + "/"
+            + (this.vertexKeyCacheHits + this.vertexKeyCacheMisses);
 
     return s;
   }
 
+  public String sourceConnectionsProgress() {
+    String s = "Source DB Connections\n";
+    s += "Reused Connections: " + this.sourceConnectionPoolHits;
+    s += "\nOpened Connections: " + this.sourceConnectionPoolMisses;
+    return s;
+  }
+
   public String toString() {
     String s = "\n\nSUMMARY\n\n";
     s +=
@@ -187,6 +286,8 @@ public class OTeleporterStatistics {
             + this.orientSchemaWritingProgress()
             + "\n\n"
             + this.importingProgress()
+            + "\n\n"
+            + this.sourceConnectionsProgress()
             + "\n\n";
 
     // printing error messages
@@ -206,6 +307,14 @@ public class OTeleporterStatistics {
         s += message + "\n";
       }
     }
+
+    // printing the values converted to String, by not convertible type
+    if (this.notConvertibleTypes.size() > 0) {
+      s += "Not Convertible Types (values converted to String):\n";
+      for (Map.Entry<String, LongAdder> entry : this.notConvertibleTypes.entrySet()) {
+        s += entry.getKey() + ": " + entry.getValue().sum() + "\n";
+      }
+    }
     return s;
   }
 }
@@ -22,9 +22,12 @@ package com.orientechnologies.teleporter.factory;
 
 import com.orientechnologies.teleporter.context.OTeleporterContext;
 import com.orientechnologies.teleporter.importengine.rdbms.dbengine.OCommonQueryBuilder;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.OHSQLDBQueryBuilder;
 import com.orientechnologies.teleporter.importengine.rdbms.dbengine.OMysqlQueryBuilder;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.OOracleQueryBuilder;
 import com.orientechnologies.teleporter.importengine.rdbms.dbengine.OPostgreSQLQueryBuilder;
 import com.orientechnologies.teleporter.importengine.rdbms.dbengine.OQueryBuilder;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.OSQLServerQueryBuilder;
 
 /**
  * @author Gabriele Ponzi
@@ -37,11 +40,11 @@ public class OQueryBuilderFactory {
 
     switch (driver) {
       case "oracle.jdbc.driver.OracleDriver":
-        queryBuilder = new OCommonQueryBuilder();
+        queryBuilder = new OOracleQueryBuilder();
         break;
 
       case "com.microsoft.sqlserver.jdbc.SQLServerDriver":
-        queryBuilder = new OCommonQueryBuilder();
+        queryBuilder = new OSQLServerQueryBuilder();
         break;
 
       case "com.mysql.jdbc.Driver":
@@ -53,7 +56,7 @@ public class OQueryBuilderFactory {
         break;
 
       case "org.hsqldb.jdbc.JDBCDriver":
-        queryBuilder = new OCommonQueryBuilder();
+        queryBuilder = new OHSQLDBQueryBuilder();
         break;
 
       default:
@@ -25,6 +25,7 @@ import com.orientechnologies.orient.core.db.OrientDB;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.output.OPluginMessageHandler;
 import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.teleporter.context.OImportSettings;
 import com.orientechnologies.teleporter.context.OTeleporterMessageHandler;
 import com.orientechnologies.teleporter.exception.OTeleporterIOException;
 import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
@@ -82,6 +83,7 @@ public class OTeleporterJob implements Callable<ODocument> {
     final List<String> includedTables = cfg.field("includedTables");
     final List<String> excludedTable = null;
     final String migrationConfig = cfg.field("migrationConfig");
+    final OImportSettings importSettings = OImportSettings.fromConfiguration(cfg);
     status = Status.RUNNING;
 
     OrientDB orientDBInstance = currentServerInstance.getContext();
@@ -115,7 +117,8 @@ public class OTeleporterJob implements Callable<ODocument> {
                 excludedTable,
                 migrationConfig,
                 this.messageHandler,
-                orientDBInstance);
+                orientDBInstance,
+                importSettings);
 
         synchronized (listener) {
           status = Status.FINISHED;
@@ -146,7 +149,8 @@ public class OTeleporterJob implements Callable<ODocument> {
                           excludedTable,
                           migrationConfig,
                           new OTeleporterMessageHandler(stream, 2),
-                          orientDBInstance);
+                          orientDBInstance,
+                          importSettings);
                     } catch (OTeleporterIOException e) {
                       e.printStackTrace();
                     }
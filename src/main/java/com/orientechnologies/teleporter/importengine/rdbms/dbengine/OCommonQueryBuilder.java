@@ -23,6 +23,7 @@ package com.orientechnologies.teleporter.importengine.rdbms.dbengine;
 import com.orientechnologies.teleporter.model.dbschema.OAttribute;
 import com.orientechnologies.teleporter.model.dbschema.OEntity;
 import com.orientechnologies.teleporter.model.dbschema.OHierarchicalBag;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -59,43 +60,75 @@ public class OCommonQueryBuilder implements OQueryBuilder {
   }
 
   @Override
-  public String getRecordById(OEntity entity, String[] propertyOfKey, String[] valueOfKey) {
+  public String getRecordById(OEntity entity, String[] propertyOfKey) {
+    StringBuilder query = new StringBuilder("select * from ");
+    query.append(this.getTableReference(entity)).append(" where ");
+    this.appendKeyCondition(query, propertyOfKey);
+    return query.toString();
+  }
+
+  @Override
+  public String getRecordsByEntity(OEntity entity) {
     String query;
 
     String entityName = entity.getName();
     String entitySchema = entity.getSchemaName();
 
     if (entitySchema != null)
-      query =
-          "select * from " + entitySchema + "." + this.quote + entityName + this.quote + " where ";
-    else query = "select * from " + this.quote + entityName + this.quote + " where ";
+      query = "select * from " + entitySchema + "." + this.quote + entityName + this.quote;
+    else query = "select * from " + this.quote + entityName + this.quote;
 
-    query += this.quote + propertyOfKey[0] + this.quote + " = '" + valueOfKey[0] + "'";
+    return query;
+  }
 
-    if (propertyOfKey.length > 1) {
-      for (int i = 1; i < propertyOfKey.length; i++) {
-        query +=
-            " and " + this.quote + propertyOfKey[i] + this.quote + " = '" + valueOfKey[i] + "'";
+  @Override
+  public String getColumnsByEntity(OEntity entity, Collection<String> columns) {
+    StringBuilder query = new StringBuilder("select ");
+
+    boolean first = true;
+    for (String column : columns) {
+      if (!first) {
+        query.append(", ");
       }
+      query.append(this.quote).append(column).append(this.quote);
+      first = false;
     }
+    query.append(" from ").append(this.getTableReference(entity));
 
-    return query;
+    return query.toString();
   }
 
   @Override
-  public String getRecordsByEntity(OEntity entity) {
-    String query;
+  public String getKeyRange(OEntity entity, String keyColumn) {
+    String key = this.quote + keyColumn + this.quote;
+    return "select min(" + key + "), max(" + key + ") from " + this.getTableReference(entity);
+  }
 
-    String entityName = entity.getName();
-    String entitySchema = entity.getSchemaName();
+  /** The bucketing is not portable across DBMSs, so here the min/max split is used instead. */
+  @Override
+  public String getKeyBucketBoundaries(OEntity entity, String keyColumn, int buckets) {
+    return null;
+  }
 
-    if (entitySchema != null)
-      query = "select * from " + entitySchema + "." + this.quote + entityName + this.quote;
-    else query = "select * from " + this.quote + entityName + this.quote;
+  @Override
+  public String getRecordsByEntityInKeyRange(
+      OEntity entity, String keyColumn, boolean lowerBounded, boolean upperBounded) {
+    String query = this.getRecordsByEntity(entity);
+
+    String key = this.quote + keyColumn + this.quote;
+    if (lowerBounded && upperBounded) query += " where " + key + " > ? and " + key + " <= ?";
+    else if (lowerBounded) query += " where " + key + " > ?";
+    else if (upperBounded) query += " where " + key + " <= ?";
 
     return query;
   }
 
+  protected String getTableReference(OEntity entity) {
+    if (entity.getSchemaName() != null)
+      return entity.getSchemaName() + "." + this.quote + entity.getName() + this.quote;
+    else return this.quote + entity.getName() + this.quote;
+  }
+
   @Override
   public String getRecordsFromMultipleEntities(List<OEntity> mappedEntities, String[][] columns) {
     String query;
@@ -161,70 +194,68 @@ public class OCommonQueryBuilder implements OQueryBuilder {
 
   @Override
   public String getRecordsFromSingleTableByDiscriminatorValue(
-      String discriminatorColumn, String currentDiscriminatorValue, OEntity entity) {
-    String query;
-
-    String entityName = entity.getName();
-    String entitySchema = entity.getSchemaName();
-
-    if (entitySchema != null)
-      query = "select * from " + entitySchema + "." + this.quote + entityName + this.quote;
-    else query = "select * from " + this.quote + entityName + this.quote;
+      String discriminatorColumn, OEntity entity) {
+    return "select * from "
+        + this.getTableReference(entity)
+        + " where "
+        + this.quote
+        + discriminatorColumn
+        + this.quote
+        + " = ?";
+  }
 
-    query +=
-        " where "
-            + this.quote
-            + discriminatorColumn
-            + this.quote
-            + "='"
-            + currentDiscriminatorValue
-            + "'";
+  @Override
+  public String getEntityTypeFromSingleTable(
+      String discriminatorColumn, OEntity physicalEntity, String[] propertyOfKey) {
+    StringBuilder query = new StringBuilder("select ");
+    query.append(discriminatorColumn).append(" from ");
+    query.append(this.getTableReference(physicalEntity)).append(" where ");
+    this.appendKeyCondition(query, propertyOfKey);
+    return query.toString();
+  }
 
-    return query;
+  /**
+   * Appends the condition matching the record having a key, whose values are bound as parameters
+   * in the order of the key columns: "k1 = ? and k2 = ?".
+   */
+  protected void appendKeyCondition(StringBuilder query, String[] propertyOfKey) {
+    for (int i = 0; i < propertyOfKey.length; i++) {
+      if (i > 0) {
+        query.append(" and ");
+      }
+      query.append(this.quote).append(propertyOfKey[i]).append(this.quote).append(" = ?");
+    }
   }
 
+  /** The catalogs are not portable across DBMSs, so here DatabaseMetaData is used instead. */
   @Override
-  public String getEntityTypeFromSingleTable(
-      String discriminatorColumn,
-      OEntity physicalEntity,
-      String[] propertyOfKey,
-      String[] valueOfKey) {
-    String query;
+  public String getSchemaColumns(String schema) {
+    return null;
+  }
 
-    String physicalEntityName = physicalEntity.getName();
-    String entitySchema = physicalEntity.getSchemaName();
+  @Override
+  public String getSchemaPrimaryKeys(String schema) {
+    return null;
+  }
 
-    if (entitySchema != null)
-      query =
-          "select "
-              + discriminatorColumn
-              + " from "
-              + entitySchema
-              + "."
-              + this.quote
-              + physicalEntityName
-              + this.quote
-              + " where ";
-    else
-      query =
-          "select "
-              + discriminatorColumn
-              + " from "
-              + this.quote
-              + physicalEntityName
-              + this.quote
-              + " where ";
+  @Override
+  public String getSchemaForeignKeys(String schema) {
+    return null;
+  }
 
-    query += this.quote + propertyOfKey[0] + this.quote + " = '" + valueOfKey[0] + "'";
+  @Override
+  public String getSchemaRecordEstimates(String schema) {
+    return null;
+  }
 
-    if (propertyOfKey.length > 1) {
-      for (int i = 1; i < propertyOfKey.length; i++) {
-        query +=
-            " and " + this.quote + propertyOfKey[i] + this.quote + " = '" + valueOfKey[i] + "'";
-      }
-    }
+  @Override
+  public String[] getSchemaChangeMarkers(String schema) {
+    return null;
+  }
 
-    return query;
+  /** @return the condition on the schema column: the passed schema or the current one */
+  protected String getSchemaCondition(String schemaColumn, String schema, String currentSchema) {
+    return schemaColumn + " = " + (schema != null ? "?" : currentSchema);
   }
 
   @Override
@@ -324,4 +355,39 @@ public class OCommonQueryBuilder implements OQueryBuilder {
 
     return query;
   }
+
+  @Override
+  public String buildAggregateTableFromHierarchicalBag(OHierarchicalBag bag, OEntity entity) {
+    String query = this.buildAggregateTableFromHierarchicalBag(bag);
+
+    // the tables are aliased as t0 (the root), t1, t2... following the depth of the hierarchy
+    int thTable = 1;
+    for (int i = 1; i < bag.getDepth2entities().size(); i++) {
+      for (OEntity currentEntity : bag.getDepth2entities().get(i)) {
+        if (currentEntity.equals(entity)) {
+          // a record of the root is present in the table only if the outer join matched its key
+          StringBuilder filter = new StringBuilder(query).append("where ");
+          List<OAttribute> keyAttributes = currentEntity.getPrimaryKey().getInvolvedAttributes();
+          for (int k = 0; k < keyAttributes.size(); k++) {
+            if (k > 0) {
+              filter.append(" and ");
+            }
+            filter
+                .append("t")
+                .append(thTable)
+                .append(".")
+                .append(this.quote)
+                .append(keyAttributes.get(k).getName())
+                .append(this.quote)
+                .append(" is not null");
+          }
+          return filter.toString();
+        }
+        thTable++;
+      }
+    }
+
+    // the root entity contains all the records
+    return query;
+  }
 }
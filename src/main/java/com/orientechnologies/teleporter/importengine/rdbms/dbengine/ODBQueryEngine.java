@@ -20,19 +20,37 @@
 
 package com.orientechnologies.teleporter.importengine.rdbms.dbengine;
 
+import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterStatistics;
 import com.orientechnologies.teleporter.factory.OQueryBuilderFactory;
 import com.orientechnologies.teleporter.importengine.ODataSourceQueryEngine;
+import com.orientechnologies.teleporter.model.dbschema.OAttribute;
 import com.orientechnologies.teleporter.model.dbschema.OEntity;
 import com.orientechnologies.teleporter.model.dbschema.OHierarchicalBag;
 import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.persistence.handler.ODriverDataTypeHandler;
 import com.orientechnologies.teleporter.persistence.util.ODBSourceConnection;
 import com.orientechnologies.teleporter.persistence.util.OQueryResult;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Implementation of ODataSourceQueryEngine. It executes the necessary queries for the source DB
@@ -46,6 +64,9 @@ public class ODBQueryEngine implements ODataSourceQueryEngine {
   private OQueryBuilderFactory queryBuilderFactory;
   private OQueryBuilder queryBuilder;
 
+  // workers counting the records of the tables in background, null if no count was requested
+  private ExecutorService backgroundCounters;
+
   public ODBQueryEngine(String driver) {
     this.queryBuilderFactory = new OQueryBuilderFactory();
     this.queryBuilder = this.queryBuilderFactory.buildQueryBuilder(driver);
@@ -58,6 +79,153 @@ public class ODBQueryEngine implements ODataSourceQueryEngine {
     return this.executeQuery(query, sourceDBInfo);
   }
 
+  /**
+   * Counts the records of a table on a connection already owned by the caller, left open.
+   *
+   * @param connection
+   * @param currentTableName
+   * @param currentTableSchema
+   * @return the number of records of the table
+   * @throws SQLException
+   */
+  public long countTableRecords(
+      Connection connection, String currentTableName, String currentTableSchema)
+      throws SQLException {
+
+    String query = queryBuilder.countTableRecords(currentTableName, currentTableSchema);
+    try (Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery(query)) {
+      return result.next() ? result.getLong(1) : 0;
+    }
+  }
+
+  /**
+   * Reads the number of records of all the tables of a schema estimated by the optimizer
+   * statistics, in a single query.
+   *
+   * @param connection
+   * @param schema the schema, null for the current one
+   * @return the estimates by table name, without the tables never analyzed; null if the
+   *     statistics can't be read from the DBMS
+   * @throws SQLException
+   */
+  public Map<String, Long> estimateTableRecords(Connection connection, String schema)
+      throws SQLException {
+
+    String query = queryBuilder.getSchemaRecordEstimates(schema);
+    if (query == null) {
+      return null;
+    }
+
+    Map<String, Long> estimates = new HashMap<String, Long>();
+    try (PreparedStatement statement = connection.prepareStatement(query)) {
+      if (schema != null) {
+        statement.setString(1, schema);
+      }
+      try (ResultSet result = statement.executeQuery()) {
+        while (result.next()) {
+          // read as a double, as some DBMSs keep the estimates as floating point numbers
+          double estimate = result.getDouble("ROW_COUNT");
+          if (!result.wasNull() && estimate >= 0) {
+            estimates.put(result.getString("TABLE_NAME"), Math.round(estimate));
+          }
+        }
+      }
+    }
+    return estimates;
+  }
+
+  /**
+   * Reads the change markers of a schema, one query per marker.
+   *
+   * @param connection
+   * @param schema the schema, null for the current one
+   * @return the values of the markers joined in a string, null if the DBMS does not provide
+   *     change markers
+   * @throws SQLException
+   */
+  public String readSchemaChangeMarkers(Connection connection, String schema)
+      throws SQLException {
+
+    String[] queries = queryBuilder.getSchemaChangeMarkers(schema);
+    if (queries == null) {
+      return null;
+    }
+
+    StringBuilder markers = new StringBuilder();
+    for (String query : queries) {
+      try (PreparedStatement statement = connection.prepareStatement(query)) {
+        if (schema != null) {
+          statement.setString(1, schema);
+        }
+        try (ResultSet result = statement.executeQuery()) {
+          if (result.next()) {
+            for (int i = 1; i <= result.getMetaData().getColumnCount(); i++) {
+              markers.append(result.getString(i)).append('|');
+            }
+          }
+        }
+      }
+    }
+    return markers.toString();
+  }
+
+  /**
+   * Counts the records of a table in background, adding them to the total number of records in
+   * the statistics once counted. The counts run on a pool of workers created at the first request.
+   *
+   * @param sourceDBInfo
+   * @param currentTableName
+   * @param currentTableSchema
+   * @param parallelism max number of tables counted at the same time
+   */
+  public synchronized void countTableRecordsInBackground(
+      OSourceDatabaseInfo sourceDBInfo,
+      String currentTableName,
+      String currentTableSchema,
+      int parallelism) {
+
+    if (this.backgroundCounters == null) {
+      this.backgroundCounters =
+          Executors.newFixedThreadPool(
+              parallelism,
+              runnable -> {
+                Thread thread = new Thread(runnable, "Teleporter record counter");
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+    // the statistics of the current migration, the count can end after it
+    OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
+    this.backgroundCounters.execute(
+        () -> {
+          OQueryResult result = null;
+          try {
+            result = this.countTableRecords(sourceDBInfo, currentTableName, currentTableSchema);
+            ResultSet count = result.getResult();
+            if (count != null && count.next() && !Thread.currentThread().isInterrupted()) {
+              statistics.incrementTotalNumberOfRecords(count.getLong(1));
+            }
+          } catch (SQLException e) {
+            String mess = "Records of the table " + currentTableName + " not counted.";
+            OTeleporterContext.getInstance().printExceptionMessage(e, mess, "debug");
+            OTeleporterContext.getInstance().printExceptionStackTrace(e, "debug");
+          } finally {
+            if (result != null) {
+              result.closeAll();
+            }
+          }
+        });
+  }
+
+  /** Stops the counts running in background, the pending ones are discarded. */
+  public synchronized void stopBackgroundCounts() {
+    if (this.backgroundCounters != null) {
+      this.backgroundCounters.shutdownNow();
+      this.backgroundCounters = null;
+    }
+  }
+
   /**
    * @param entity
    * @param propertyOfKey
@@ -67,9 +235,9 @@ public class ODBQueryEngine implements ODataSourceQueryEngine {
   public OQueryResult getRecordById(OEntity entity, String[] propertyOfKey, String[] valueOfKey) {
 
     OSourceDatabaseInfo sourceDBInfo = entity.getSourceDataseInfo();
-    // TODO: queryBuilder fetching
-    String query = queryBuilder.getRecordById(entity, propertyOfKey, valueOfKey);
-    return this.executeQuery(query, sourceDBInfo);
+    String query = queryBuilder.getRecordById(entity, propertyOfKey);
+    return this.executeQuery(
+        query, sourceDBInfo, this.toParameters(entity, propertyOfKey, valueOfKey));
   }
 
   public OQueryResult getRecordsByEntity(OEntity entity) {
@@ -80,6 +248,208 @@ public class ODBQueryEngine implements ODataSourceQueryEngine {
     return this.executeQuery(query, sourceDBInfo);
   }
 
+  /**
+   * It fetches only the passed columns of all the records of the entity.
+   *
+   * @param entity
+   * @param columns
+   * @return
+   */
+  public OQueryResult getColumnsByEntity(OEntity entity, Collection<String> columns) {
+
+    OSourceDatabaseInfo sourceDBInfo = entity.getSourceDataseInfo();
+    String query = queryBuilder.getColumnsByEntity(entity, columns);
+    return this.executeQuery(query, sourceDBInfo);
+  }
+
+  /**
+   * It splits the records of the entity in ranges of its primary key, so that they can be fetched
+   * by concurrent scans. Only entities with a single-column numeric or temporal primary key are
+   * split.
+   *
+   * @param entity
+   * @param partitions the number of wished ranges
+   * @return the ranges covering all the records, a single unbounded range if the entity can't be
+   *     split
+   */
+  public List<OKeyRange> getKeyRanges(OEntity entity, int partitions) {
+
+    List<OKeyRange> keyRanges = new ArrayList<OKeyRange>();
+    String keyColumn = this.getPartitioningColumn(entity);
+
+    if (partitions > 1 && keyColumn != null) {
+      Object lowerBound = null;
+      for (Object cutPoint : this.getKeyCutPoints(entity, keyColumn, partitions)) {
+        keyRanges.add(new OKeyRange(lowerBound, cutPoint));
+        lowerBound = cutPoint;
+      }
+      keyRanges.add(new OKeyRange(lowerBound, null));
+    } else {
+      keyRanges.add(new OKeyRange(null, null));
+    }
+    return keyRanges;
+  }
+
+  public OQueryResult getRecordsByEntityInKeyRange(OEntity entity, OKeyRange keyRange) {
+
+    OSourceDatabaseInfo sourceDBInfo = entity.getSourceDataseInfo();
+    String keyColumn = this.getPartitioningColumn(entity);
+    String query =
+        queryBuilder.getRecordsByEntityInKeyRange(
+            entity, keyColumn, keyRange.isLowerBounded(), keyRange.isUpperBounded());
+
+    List<Object> parameters = new ArrayList<Object>(2);
+    if (keyRange.isLowerBounded()) {
+      parameters.add(keyRange.getLowerBound());
+    }
+    if (keyRange.isUpperBounded()) {
+      parameters.add(keyRange.getUpperBound());
+    }
+    return this.executeQuery(query, sourceDBInfo, parameters.toArray());
+  }
+
+  /** @return the name of the primary key column if the entity can be split in key ranges */
+  private String getPartitioningColumn(OEntity entity) {
+
+    if (entity.getPrimaryKey() == null
+        || entity.getPrimaryKey().getInvolvedAttributes().size() != 1) {
+      return null;
+    }
+    OAttribute keyAttribute = entity.getPrimaryKey().getInvolvedAttributes().get(0);
+    OType keyType = OTeleporterContext.getInstance().getDataTypeHandler().resolveType(keyAttribute);
+    switch (keyType) {
+      case BYTE:
+      case SHORT:
+      case INTEGER:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case DECIMAL:
+      case DATE:
+      case DATETIME:
+        return keyAttribute.getName();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * It computes the values splitting the key domain: through the buckets of the DBMS if supported,
+   * otherwise the interval between the min and the max key value is split in equal parts.
+   *
+   * @return the cut points in ascending order, empty if the records can't be split
+   */
+  private List<Object> getKeyCutPoints(OEntity entity, String keyColumn, int partitions) {
+
+    List<Object> cutPoints = new ArrayList<Object>();
+    OSourceDatabaseInfo sourceDBInfo = entity.getSourceDataseInfo();
+
+    String query = queryBuilder.getKeyBucketBoundaries(entity, keyColumn, partitions);
+    if (query != null) {
+      OQueryResult queryResult = this.executeQuery(query, sourceDBInfo);
+      try {
+        ResultSet result = queryResult.getResult();
+        while (result != null && result.next()) {
+          Object boundary = result.getObject(1);
+          if (boundary != null
+              && (cutPoints.isEmpty() || !boundary.equals(cutPoints.get(cutPoints.size() - 1)))) {
+            cutPoints.add(boundary);
+          }
+        }
+        // the last boundary is the max key value
+        if (!cutPoints.isEmpty()) {
+          cutPoints.remove(cutPoints.size() - 1);
+        }
+      } catch (SQLException e) {
+        String mess = "Not possible to split the records of '" + entity.getName() + "'.";
+        OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
+        OTeleporterContext.getInstance().printExceptionStackTrace(e, "debug");
+        cutPoints.clear();
+      } finally {
+        queryResult.closeAll();
+      }
+    } else {
+      query = queryBuilder.getKeyRange(entity, keyColumn);
+      OQueryResult queryResult = this.executeQuery(query, sourceDBInfo);
+      try {
+        ResultSet result = queryResult.getResult();
+        if (result != null && result.next()) {
+          cutPoints = interpolateCutPoints(result.getObject(1), result.getObject(2), partitions);
+        }
+      } catch (SQLException e) {
+        String mess = "Not possible to split the records of '" + entity.getName() + "'.";
+        OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
+        OTeleporterContext.getInstance().printExceptionStackTrace(e, "debug");
+      } finally {
+        queryResult.closeAll();
+      }
+    }
+
+    return cutPoints;
+  }
+
+  /**
+   * It splits the interval between the min and the max key value in equal parts.
+   *
+   * @return the strictly ascending cut points, lower than max
+   */
+  public static List<Object> interpolateCutPoints(Object min, Object max, int partitions) {
+
+    List<Object> cutPoints = new ArrayList<Object>();
+
+    if (min instanceof Number && max instanceof Number) {
+      BigDecimal lower = new BigDecimal(min.toString());
+      BigDecimal upper = new BigDecimal(max.toString());
+      boolean integral =
+          !(min instanceof Double || min instanceof Float)
+              && lower.scale() <= 0
+              && upper.scale() <= 0;
+      BigDecimal width = upper.subtract(lower);
+      BigDecimal lastCutPoint = lower.subtract(BigDecimal.ONE);
+
+      for (int i = 1; i < partitions; i++) {
+        BigDecimal cutPoint =
+            lower.add(
+                width
+                    .multiply(BigDecimal.valueOf(i))
+                    .divide(BigDecimal.valueOf(partitions), MathContext.DECIMAL64));
+        if (integral) {
+          cutPoint = cutPoint.setScale(0, RoundingMode.FLOOR);
+        }
+        if (cutPoint.compareTo(lastCutPoint) > 0 && cutPoint.compareTo(upper) < 0) {
+          // the cut point keeps the type of the key, so that the DBMS can still use its index
+          if (min instanceof Double || min instanceof Float) {
+            cutPoints.add(cutPoint.doubleValue());
+          } else if (min instanceof BigDecimal || min instanceof BigInteger) {
+            cutPoints.add(cutPoint);
+          } else {
+            cutPoints.add(cutPoint.longValue());
+          }
+          lastCutPoint = cutPoint;
+        }
+      }
+    } else if (min instanceof Date && max instanceof Date) {
+      long lower = ((Date) min).getTime();
+      long upper = ((Date) max).getTime();
+      long lastCutPoint = Long.MIN_VALUE;
+
+      for (int i = 1; i < partitions; i++) {
+        long cutPoint = lower + (long) ((double) (upper - lower) * i / partitions);
+        if (cutPoint > lastCutPoint && cutPoint < upper) {
+          // dates are compared with dates, timestamps with timestamps
+          if (min instanceof java.sql.Date) {
+            cutPoints.add(new java.sql.Date(cutPoint));
+          } else {
+            cutPoints.add(new Timestamp(cutPoint));
+          }
+          lastCutPoint = cutPoint;
+        }
+      }
+    }
+
+    return cutPoints;
+  }
+
   public OQueryResult getRecordsFromMultipleEntities(
       List<OEntity> mappedEntities, String[][] columns) {
 
@@ -97,22 +467,71 @@ public class ODBQueryEngine implements ODataSourceQueryEngine {
       String discriminatorColumn, String currentDiscriminatorValue, OEntity entity) {
 
     OSourceDatabaseInfo sourceDBInfo = entity.getSourceDataseInfo();
-    // TODO: queryBuilder fetching
     String query =
-        queryBuilder.getRecordsFromSingleTableByDiscriminatorValue(
-            discriminatorColumn, currentDiscriminatorValue, entity);
-    return this.executeQuery(query, sourceDBInfo);
+        queryBuilder.getRecordsFromSingleTableByDiscriminatorValue(discriminatorColumn, entity);
+    return this.executeQuery(
+        query,
+        sourceDBInfo,
+        this.toParameter(entity, discriminatorColumn, currentDiscriminatorValue));
   }
 
   public OQueryResult getEntityTypeFromSingleTable(
       String discriminatorColumn, OEntity entity, String[] propertyOfKey, String[] valueOfKey) {
 
     OSourceDatabaseInfo sourceDBInfo = entity.getSourceDataseInfo();
-    // TODO: queryBuilder fetching
     String query =
-        queryBuilder.getEntityTypeFromSingleTable(
-            discriminatorColumn, entity, propertyOfKey, valueOfKey);
-    return this.executeQuery(query, sourceDBInfo);
+        queryBuilder.getEntityTypeFromSingleTable(discriminatorColumn, entity, propertyOfKey);
+    return this.executeQuery(
+        query, sourceDBInfo, this.toParameters(entity, propertyOfKey, valueOfKey));
+  }
+
+  private Object[] toParameters(OEntity entity, String[] columns, String[] values) {
+    Object[] parameters = new Object[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      parameters[i] = this.toParameter(entity, columns[i], values[i]);
+    }
+    return parameters;
+  }
+
+  /**
+   * Converts a value read as a string into the Java type of its column, so that the DBMS compares
+   * it with the column without casts (strictly typed DBMSs such as PostgreSQL don't compare
+   * numbers or dates with strings). Values that can't be converted are bound as strings, with the
+   * SQL type the data type handler gives for their column.
+   */
+  private Object toParameter(OEntity entity, String column, String value) {
+
+    OAttribute attribute = entity.getAttributeByNameIgnoreCase(column);
+    if (attribute == null) {
+      attribute = entity.getInheritedAttributeByNameIgnoreCase(column);
+    }
+    if (value == null || attribute == null) {
+      return value;
+    }
+
+    ODriverDataTypeHandler handler = OTeleporterContext.getInstance().getDataTypeHandler();
+    try {
+      switch (handler.resolveType(attribute)) {
+        case BYTE:
+        case SHORT:
+        case INTEGER:
+        case LONG:
+          return Long.valueOf(value.trim());
+        case FLOAT:
+        case DOUBLE:
+        case DECIMAL:
+          return new BigDecimal(value.trim());
+        case DATE:
+          return java.sql.Date.valueOf(value.trim());
+        case DATETIME:
+          return Timestamp.valueOf(value.trim());
+        default:
+          int sqlType = handler.getStringParameterType(attribute);
+          return sqlType == Types.VARCHAR ? value : new OTypedParameter(value, sqlType);
+      }
+    } catch (IllegalArgumentException e) {
+      return value;
+    }
   }
 
   /**
@@ -127,7 +546,44 @@ public class ODBQueryEngine implements ODataSourceQueryEngine {
     return this.executeQuery(query, sourceDBInfo);
   }
 
+  /**
+   * It fetches the records of an entity belonging to a "table per type" hierarchy, each one joined
+   * with the records of the other tables of the hierarchy having the same key.
+   *
+   * @param bag
+   * @param entity
+   * @return
+   */
+  public OQueryResult buildAggregateTableFromHierarchicalBag(OHierarchicalBag bag, OEntity entity) {
+
+    OSourceDatabaseInfo sourceDBInfo = bag.getSourceDataseInfo();
+    String query = queryBuilder.buildAggregateTableFromHierarchicalBag(bag, entity);
+    return this.executeQuery(query, sourceDBInfo);
+  }
+
+  /**
+   * Reads columns, primary keys and foreign keys of all the tables of a schema in bulk.
+   *
+   * @param connection
+   * @param schema the schema, null for the current one
+   * @return the catalog, null if the bulk introspection is not supported by the DBMS
+   * @throws SQLException
+   */
+  public OSchemaCatalog readSchemaCatalog(Connection connection, String schema)
+      throws SQLException {
+    return OSchemaCatalog.read(connection, this.queryBuilder, schema);
+  }
+
   public OQueryResult executeQuery(String query, OSourceDatabaseInfo sourceDBInfo) {
+    return this.executeQuery(query, sourceDBInfo, new Object[0]);
+  }
+
+  /**
+   * Executes the query binding the passed parameters: a prepared statement is used when there's
+   * at least one parameter.
+   */
+  public OQueryResult executeQuery(
+      String query, OSourceDatabaseInfo sourceDBInfo, Object... parameters) {
 
     ResultSet result = null;
     Connection dbConnection = null;
@@ -141,17 +597,74 @@ public class ODBQueryEngine implements ODataSourceQueryEngine {
         OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
         OTeleporterContext.getInstance().printExceptionStackTrace(e, "debug");
       }
-      statement =
-          dbConnection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-      result = statement.executeQuery(query);
+      if (parameters.length == 0) {
+        statement =
+            dbConnection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        this.configureStreaming(dbConnection, statement);
+        result = statement.executeQuery(query);
+      } else {
+        PreparedStatement preparedStatement =
+            dbConnection.prepareStatement(
+                query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement = preparedStatement;
+        this.configureStreaming(dbConnection, statement);
+        for (int i = 0; i < parameters.length; i++) {
+          if (parameters[i] instanceof OTypedParameter) {
+            OTypedParameter parameter = (OTypedParameter) parameters[i];
+            preparedStatement.setObject(i + 1, parameter.getValue(), parameter.getSqlType());
+          } else {
+            preparedStatement.setObject(i + 1, parameters[i]);
+          }
+        }
+        result = preparedStatement.executeQuery();
+      }
 
     } catch (SQLException e) {
       String mess = "";
       OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
       OTeleporterContext.getInstance().printExceptionStackTrace(e, "debug");
+
+      // giving the connection back to the pool, no result will be consumed
+      new OQueryResult(dbConnection, statement, null).closeAll();
     }
 
     OQueryResult queryResult = new OQueryResult(dbConnection, statement, result);
     return queryResult;
   }
+
+  /**
+   * The records are streamed from the source DB according to the driver: the fetch size comes from
+   * the import settings.
+   */
+  private void configureStreaming(Connection dbConnection, Statement statement)
+      throws SQLException {
+
+    OTeleporterContext context = OTeleporterContext.getInstance();
+    int fetchSize = context.getImportSettings().getFetchSize();
+    if (context.getDataTypeHandler() != null) {
+      context.getDataTypeHandler().configureStreaming(dbConnection, statement, fetchSize);
+    } else {
+      statement.setFetchSize(fetchSize);
+    }
+  }
+
+  /** A query parameter bound with an explicit SQL type, one of the {@link Types} constants. */
+  public static class OTypedParameter {
+
+    private final Object value;
+    private final int sqlType;
+
+    public OTypedParameter(Object value, int sqlType) {
+      this.value = value;
+      this.sqlType = sqlType;
+    }
+
+    public Object getValue() {
+      return this.value;
+    }
+
+    public int getSqlType() {
+      return this.sqlType;
+    }
+  }
 }
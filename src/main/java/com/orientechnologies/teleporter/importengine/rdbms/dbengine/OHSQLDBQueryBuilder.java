@@ -0,0 +1,58 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.importengine.rdbms.dbengine;
+
+/**
+ * Query Builder for HyperSQL DBMS. It extends the OCommonQueryBuilder class and overrides only the
+ * needed methods.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OHSQLDBQueryBuilder extends OCommonQueryBuilder {
+
+  private static final String CURRENT_SCHEMA = "CURRENT_SCHEMA";
+
+  /** The system tables are the same ones the HSQLDB driver reads in DatabaseMetaData. */
+  @Override
+  public String getSchemaColumns(String schema) {
+    return "select TABLE_NAME, COLUMN_NAME, ORDINAL_POSITION, TYPE_NAME, COLUMN_SIZE,"
+        + " DECIMAL_DIGITS from INFORMATION_SCHEMA.SYSTEM_COLUMNS where "
+        + this.getSchemaCondition("TABLE_SCHEM", schema, CURRENT_SCHEMA)
+        + " order by TABLE_NAME, ORDINAL_POSITION";
+  }
+
+  @Override
+  public String getSchemaPrimaryKeys(String schema) {
+    return "select TABLE_NAME, COLUMN_NAME, KEY_SEQ"
+        + " from INFORMATION_SCHEMA.SYSTEM_PRIMARYKEYS where "
+        + this.getSchemaCondition("TABLE_SCHEM", schema, CURRENT_SCHEMA)
+        + " order by TABLE_NAME, KEY_SEQ";
+  }
+
+  @Override
+  public String getSchemaForeignKeys(String schema) {
+    return "select FKTABLE_NAME, FKCOLUMN_NAME, PKTABLE_NAME, PKCOLUMN_NAME, KEY_SEQ, FK_NAME"
+        + " from INFORMATION_SCHEMA.SYSTEM_CROSSREFERENCE where "
+        + this.getSchemaCondition("FKTABLE_SCHEM", schema, CURRENT_SCHEMA)
+        + " order by FKTABLE_NAME, PKTABLE_NAME, KEY_SEQ, FK_NAME";
+  }
+}
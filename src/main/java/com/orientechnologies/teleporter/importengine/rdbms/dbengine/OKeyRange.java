@@ -0,0 +1,65 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.importengine.rdbms.dbengine;
+
+/**
+ * A range of values of the single-column primary key of an entity, used to split the scan of the
+ * entity's records in several partitions. The lower bound is exclusive, the upper bound is
+ * inclusive, a null bound means the range is not bounded on that side.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OKeyRange {
+
+  private final Object lowerBound;
+  private final Object upperBound;
+
+  public OKeyRange(Object lowerBound, Object upperBound) {
+    this.lowerBound = lowerBound;
+    this.upperBound = upperBound;
+  }
+
+  public Object getLowerBound() {
+    return this.lowerBound;
+  }
+
+  public Object getUpperBound() {
+    return this.upperBound;
+  }
+
+  public boolean isLowerBounded() {
+    return this.lowerBound != null;
+  }
+
+  public boolean isUpperBounded() {
+    return this.upperBound != null;
+  }
+
+  @Override
+  public String toString() {
+    return "("
+        + (this.lowerBound != null ? this.lowerBound : "-inf")
+        + ", "
+        + (this.upperBound != null ? this.upperBound : "+inf")
+        + (this.upperBound != null ? "]" : ")");
+  }
+}
@@ -163,4 +163,62 @@ public class OMysqlQueryBuilder extends OCommonQueryBuilder {
 
     return query;
   }
+
+  /** Type names are reported as the MySQL driver does: upper case, tinyint(1) as BIT. */
+  @Override
+  public String getSchemaColumns(String schema) {
+    return "select TABLE_NAME, COLUMN_NAME, ORDINAL_POSITION,"
+        + " case when COLUMN_TYPE like 'tinyint(1)%' then 'BIT'"
+        + " when COLUMN_TYPE like '% unsigned%' then concat(upper(DATA_TYPE), ' UNSIGNED')"
+        + " else upper(DATA_TYPE) end as TYPE_NAME,"
+        + " case when COLUMN_TYPE like 'tinyint(1)%' then 1"
+        + " else coalesce(CHARACTER_MAXIMUM_LENGTH, NUMERIC_PRECISION, DATETIME_PRECISION) end"
+        + " as COLUMN_SIZE, NUMERIC_SCALE as DECIMAL_DIGITS"
+        + " from information_schema.COLUMNS where "
+        + this.getSchemaCondition("TABLE_SCHEMA", schema, "database()")
+        + " order by TABLE_NAME, ORDINAL_POSITION";
+  }
+
+  /** TABLE_ROWS is exact for MyISAM tables, estimated for InnoDB ones. */
+  @Override
+  public String getSchemaRecordEstimates(String schema) {
+    return "select TABLE_NAME, TABLE_ROWS as ROW_COUNT from information_schema.TABLES"
+        + " where TABLE_TYPE = 'BASE TABLE' and "
+        + this.getSchemaCondition("TABLE_SCHEMA", schema, "database()");
+  }
+
+  /**
+   * Checksums of the columns and of the key columns, as information_schema does not keep reliable
+   * DDL times for all the storage engines.
+   */
+  @Override
+  public String[] getSchemaChangeMarkers(String schema) {
+    return new String[] {
+      "select count(*), sum(crc32(concat_ws('|', TABLE_NAME, COLUMN_NAME, ORDINAL_POSITION,"
+          + " COLUMN_TYPE, COLUMN_KEY))) from information_schema.COLUMNS where "
+          + this.getSchemaCondition("TABLE_SCHEMA", schema, "database()"),
+      "select count(*), sum(crc32(concat_ws('|', TABLE_NAME, COLUMN_NAME, CONSTRAINT_NAME,"
+          + " ORDINAL_POSITION, REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME)))"
+          + " from information_schema.KEY_COLUMN_USAGE where "
+          + this.getSchemaCondition("TABLE_SCHEMA", schema, "database()")
+    };
+  }
+
+  @Override
+  public String getSchemaPrimaryKeys(String schema) {
+    return "select TABLE_NAME, COLUMN_NAME, ORDINAL_POSITION as KEY_SEQ"
+        + " from information_schema.KEY_COLUMN_USAGE where CONSTRAINT_NAME = 'PRIMARY' and "
+        + this.getSchemaCondition("TABLE_SCHEMA", schema, "database()")
+        + " order by TABLE_NAME, ORDINAL_POSITION";
+  }
+
+  @Override
+  public String getSchemaForeignKeys(String schema) {
+    return "select TABLE_NAME as FKTABLE_NAME, COLUMN_NAME as FKCOLUMN_NAME,"
+        + " REFERENCED_TABLE_NAME as PKTABLE_NAME, REFERENCED_COLUMN_NAME as PKCOLUMN_NAME,"
+        + " ORDINAL_POSITION as KEY_SEQ, CONSTRAINT_NAME as FK_NAME"
+        + " from information_schema.KEY_COLUMN_USAGE where REFERENCED_TABLE_NAME is not null and "
+        + this.getSchemaCondition("TABLE_SCHEMA", schema, "database()")
+        + " order by TABLE_NAME, REFERENCED_TABLE_NAME, ORDINAL_POSITION, CONSTRAINT_NAME";
+  }
 }
@@ -0,0 +1,97 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.importengine.rdbms.dbengine;
+
+/**
+ * Query Builder for Oracle DBMS. It extends the OCommonQueryBuilder class and overrides only the
+ * needed methods.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OOracleQueryBuilder extends OCommonQueryBuilder {
+
+  private static final String CURRENT_SCHEMA = "sys_context('USERENV', 'CURRENT_SCHEMA')";
+
+  /**
+   * The size is computed as the Oracle driver does in DatabaseMetaData.getColumns: the precision
+   * of the numbers, the length in characters of the character types.
+   */
+  @Override
+  public String getSchemaColumns(String schema) {
+    return "select table_name as TABLE_NAME, column_name as COLUMN_NAME,"
+        + " column_id as ORDINAL_POSITION, data_type as TYPE_NAME,"
+        + " decode(data_precision, null, decode(data_type,"
+        + " 'NUMBER', decode(data_scale, null, 0, 38), 'CHAR', char_length,"
+        + " 'VARCHAR', char_length, 'VARCHAR2', char_length,"
+        + " 'NCHAR', char_length, 'NVARCHAR2', char_length, data_length), data_precision)"
+        + " as COLUMN_SIZE, data_scale as DECIMAL_DIGITS"
+        + " from all_tab_columns where "
+        + this.getSchemaCondition("owner", schema, CURRENT_SCHEMA)
+        + " order by table_name, column_id";
+  }
+
+  /** NUM_ROWS is NULL for the tables whose statistics were never gathered. */
+  @Override
+  public String getSchemaRecordEstimates(String schema) {
+    return "select table_name as TABLE_NAME, num_rows as ROW_COUNT from all_tables where "
+        + this.getSchemaCondition("owner", schema, CURRENT_SCHEMA);
+  }
+
+  /** Adding or dropping a column or a constraint updates the LAST_DDL_TIME of the table. */
+  @Override
+  public String[] getSchemaChangeMarkers(String schema) {
+    return new String[] {
+      "select count(*), to_char(max(last_ddl_time), 'YYYYMMDDHH24MISS') from all_objects"
+          + " where object_type = 'TABLE' and "
+          + this.getSchemaCondition("owner", schema, CURRENT_SCHEMA)
+    };
+  }
+
+  @Override
+  public String getSchemaPrimaryKeys(String schema) {
+    return "select c.table_name as TABLE_NAME, cc.column_name as COLUMN_NAME,"
+        + " cc.position as KEY_SEQ"
+        + " from all_constraints c join all_cons_columns cc"
+        + " on cc.owner = c.owner and cc.constraint_name = c.constraint_name"
+        + " where c.constraint_type = 'P' and "
+        + this.getSchemaCondition("c.owner", schema, CURRENT_SCHEMA)
+        + " order by c.table_name, cc.position";
+  }
+
+  @Override
+  public String getSchemaForeignKeys(String schema) {
+    return "select f.table_name as FKTABLE_NAME, fc.column_name as FKCOLUMN_NAME,"
+        + " p.table_name as PKTABLE_NAME, pc.column_name as PKCOLUMN_NAME,"
+        + " fc.position as KEY_SEQ, f.constraint_name as FK_NAME"
+        + " from all_constraints f"
+        + " join all_cons_columns fc"
+        + " on fc.owner = f.owner and fc.constraint_name = f.constraint_name"
+        + " join all_constraints p"
+        + " on p.owner = f.r_owner and p.constraint_name = f.r_constraint_name"
+        + " join all_cons_columns pc"
+        + " on pc.owner = p.owner and pc.constraint_name = p.constraint_name"
+        + " and pc.position = fc.position"
+        + " where f.constraint_type = 'R' and "
+        + this.getSchemaCondition("f.owner", schema, CURRENT_SCHEMA)
+        + " order by f.table_name, p.table_name, fc.position, f.constraint_name";
+  }
+}
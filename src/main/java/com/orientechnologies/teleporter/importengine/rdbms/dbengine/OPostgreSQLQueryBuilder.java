@@ -20,10 +20,7 @@
 
 package com.orientechnologies.teleporter.importengine.rdbms.dbengine;
 
-import com.orientechnologies.teleporter.context.OTeleporterContext;
-import com.orientechnologies.teleporter.model.dbschema.OAttribute;
 import com.orientechnologies.teleporter.model.dbschema.OEntity;
-import java.util.List;
 
 /**
  * Query Builder for PostgreSQL DBMS. It extends the OCommonQueryBuilder class and overrides only
@@ -34,36 +31,107 @@ import java.util.List;
  */
 public class OPostgreSQLQueryBuilder extends OCommonQueryBuilder {
 
-  public String buildGeospatialQuery(
-      OEntity entity, List<String> geospatialTypes, OTeleporterContext context) {
-
-    String query = "select ";
-
-    for (OAttribute currentAttribute : entity.getAllAttributes()) {
-      if (this.isGeospatial(geospatialTypes, currentAttribute.getDataType()))
-        query +=
-            "ST_AsText("
-                + quote
-                + currentAttribute.getName()
-                + quote
-                + ") as "
-                + currentAttribute.getName()
-                + ",";
-      else query += quote + currentAttribute.getName() + quote + ",";
-    }
+  /**
+   * Buckets of equal size are computed through the NTILE window function, so skewed keys are split
+   * evenly too.
+   */
+  @Override
+  public String getKeyBucketBoundaries(OEntity entity, String keyColumn, int buckets) {
+    String key = quote + keyColumn + quote;
+    return "select max("
+        + key
+        + ") from (select "
+        + key
+        + ", ntile("
+        + buckets
+        + ") over (order by "
+        + key
+        + ") as bucket from "
+        + this.getTableReference(entity)
+        + ") as buckets group by bucket order by bucket";
+  }
 
-    query = query.substring(0, query.length() - 1);
+  /** Serial columns are reported with their pseudo-type, as the PostgreSQL driver does. */
+  @Override
+  public String getSchemaColumns(String schema) {
+    return "select table_name as TABLE_NAME, column_name as COLUMN_NAME,"
+        + " ordinal_position as ORDINAL_POSITION,"
+        + " case when column_default like 'nextval(%' and udt_name = 'int4' then 'serial'"
+        + " when column_default like 'nextval(%' and udt_name = 'int8' then 'bigserial'"
+        + " when column_default like 'nextval(%' and udt_name = 'int2' then 'smallserial'"
+        + " else coalesce(domain_name, udt_name) end as TYPE_NAME,"
+        + " coalesce(character_maximum_length, numeric_precision, datetime_precision)"
+        + " as COLUMN_SIZE, numeric_scale as DECIMAL_DIGITS"
+        + " from information_schema.columns where "
+        + this.getSchemaCondition("table_schema", schema, "current_schema()")
+        + " order by table_name, ordinal_position";
+  }
 
-    String entitySchema = entity.getSchemaName();
+  /** RELTUPLES is -1 for the tables never vacuumed or analyzed. */
+  @Override
+  public String getSchemaRecordEstimates(String schema) {
+    return "select c.relname as TABLE_NAME, c.reltuples as ROW_COUNT"
+        + " from pg_catalog.pg_class c"
+        + " join pg_catalog.pg_namespace ns on ns.oid = c.relnamespace"
+        + " where c.relkind in ('r', 'p') and "
+        + this.getSchemaCondition("ns.nspname", schema, "current_schema()");
+  }
 
-    if (entitySchema != null)
-      query += " from " + entitySchema + "." + quote + entity.getName() + quote;
-    else query += " from " + quote + entity.getName() + quote;
+  /** Checksums of the columns and of the primary and foreign keys, as no DDL time is kept. */
+  @Override
+  public String[] getSchemaChangeMarkers(String schema) {
+    return new String[] {
+      "select count(*), md5(string_agg(c.relname || '.' || a.attname || ':' || a.attnum || ':'"
+          + " || format_type(a.atttypid, a.atttypmod), ',' order by c.relname, a.attnum))"
+          + " from pg_catalog.pg_attribute a"
+          + " join pg_catalog.pg_class c on c.oid = a.attrelid"
+          + " join pg_catalog.pg_namespace ns on ns.oid = c.relnamespace"
+          + " where c.relkind in ('r', 'p') and a.attnum > 0 and not a.attisdropped and "
+          + this.getSchemaCondition("ns.nspname", schema, "current_schema()"),
+      "select count(*), md5(string_agg(t.relname || '.' || k.conname || ':'"
+          + " || pg_get_constraintdef(k.oid), ',' order by t.relname, k.conname))"
+          + " from pg_catalog.pg_constraint k"
+          + " join pg_catalog.pg_class t on t.oid = k.conrelid"
+          + " join pg_catalog.pg_namespace ns on ns.oid = t.relnamespace"
+          + " where k.contype in ('p', 'f') and "
+          + this.getSchemaCondition("ns.nspname", schema, "current_schema()")
+    };
+  }
 
-    return query;
+  @Override
+  public String getSchemaPrimaryKeys(String schema) {
+    return "select k.table_name as TABLE_NAME, k.column_name as COLUMN_NAME,"
+        + " k.ordinal_position as KEY_SEQ"
+        + " from information_schema.table_constraints c"
+        + " join information_schema.key_column_usage k"
+        + " on k.constraint_schema = c.constraint_schema and k.constraint_name = c.constraint_name"
+        + " and k.table_name = c.table_name"
+        + " where c.constraint_type = 'PRIMARY KEY' and "
+        + this.getSchemaCondition("c.table_schema", schema, "current_schema()")
+        + " order by k.table_name, k.ordinal_position";
   }
 
-  public boolean isGeospatial(List<String> geospatialTypes, String type) {
-    return geospatialTypes.contains(type);
+  /**
+   * Read from pg_catalog, as information_schema does not bind the foreign key columns to the
+   * referenced ones when the constraint names are not unique in the schema.
+   */
+  @Override
+  public String getSchemaForeignKeys(String schema) {
+    return "select ft.relname as FKTABLE_NAME, fa.attname as FKCOLUMN_NAME,"
+        + " pt.relname as PKTABLE_NAME, pa.attname as PKCOLUMN_NAME,"
+        + " k.n as KEY_SEQ, k.conname as FK_NAME"
+        + " from (select c.conname, c.conrelid, c.confrelid, c.conkey, c.confkey, c.connamespace,"
+        + " generate_series(1, array_length(c.conkey, 1)) as n"
+        + " from pg_catalog.pg_constraint c where c.contype = 'f') k"
+        + " join pg_catalog.pg_namespace ns on ns.oid = k.connamespace"
+        + " join pg_catalog.pg_class ft on ft.oid = k.conrelid"
+        + " join pg_catalog.pg_attribute fa"
+        + " on fa.attrelid = k.conrelid and fa.attnum = k.conkey[k.n]"
+        + " join pg_catalog.pg_class pt on pt.oid = k.confrelid"
+        + " join pg_catalog.pg_attribute pa"
+        + " on pa.attrelid = k.confrelid and pa.attnum = k.confkey[k.n]"
+        + " where "
+        + this.getSchemaCondition("ns.nspname", schema, "current_schema()")
+        + " order by ft.relname, pt.relname, k.n, k.conname";
   }
 }
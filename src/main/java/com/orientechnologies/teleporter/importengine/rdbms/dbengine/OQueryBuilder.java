@@ -22,6 +22,7 @@ package com.orientechnologies.teleporter.importengine.rdbms.dbengine;
 
 import com.orientechnologies.teleporter.model.dbschema.OEntity;
 import com.orientechnologies.teleporter.model.dbschema.OHierarchicalBag;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -35,17 +36,95 @@ public interface OQueryBuilder {
 
   String countTableRecords(String currentTableName, String currentTableSchema);
 
-  String getRecordById(OEntity entity, String[] propertyOfKey, String[] valueOfKey);
+  /** Query returning the record having a key, whose values are passed as parameters. */
+  String getRecordById(OEntity entity, String[] propertyOfKey);
 
   String getRecordsByEntity(OEntity entity);
 
+  /** Query returning only the passed columns of all the records of the entity. */
+  String getColumnsByEntity(OEntity entity, Collection<String> columns);
+
+  /** Query returning the min and the max value of the key column. */
+  String getKeyRange(OEntity entity, String keyColumn);
+
+  /**
+   * Query returning, ordered by bucket, the max value of the key column in each of the buckets of
+   * equal size the records are split into.
+   *
+   * @return the query, null if the bucketing is not supported by the DBMS
+   */
+  String getKeyBucketBoundaries(OEntity entity, String keyColumn, int buckets);
+
+  /**
+   * Query returning the records whose key value falls in a range, the bounds are passed as
+   * parameters: first the exclusive lower bound (if present), then the inclusive upper bound (if
+   * present).
+   */
+  String getRecordsByEntityInKeyRange(
+      OEntity entity, String keyColumn, boolean lowerBounded, boolean upperBounded);
+
   String getRecordsFromMultipleEntities(List<OEntity> mappedEntities, String[][] columns);
 
-  String getRecordsFromSingleTableByDiscriminatorValue(
-      String discriminatorColumn, String currentDiscriminatorValue, OEntity entity);
+  /** Query returning the records having a discriminator value, passed as parameter. */
+  String getRecordsFromSingleTableByDiscriminatorValue(String discriminatorColumn, OEntity entity);
 
+  /** Query returning the discriminator value of the record having a key, passed as parameters. */
   String getEntityTypeFromSingleTable(
-      String discriminatorColumn, OEntity entity, String[] propertyOfKey, String[] valueOfKey);
+      String discriminatorColumn, OEntity entity, String[] propertyOfKey);
+
+  /**
+   * Query returning the columns of all the tables of a schema, named as the ones returned by
+   * DatabaseMetaData.getColumns: TABLE_NAME, COLUMN_NAME, ORDINAL_POSITION, TYPE_NAME, COLUMN_SIZE
+   * and DECIMAL_DIGITS. The schema is passed as parameter, unless null: in that case the current
+   * schema is read.
+   *
+   * @return the query, null if the bulk introspection is not supported by the DBMS
+   */
+  String getSchemaColumns(String schema);
+
+  /**
+   * Query returning the primary key columns of all the tables of a schema: TABLE_NAME, COLUMN_NAME
+   * and KEY_SEQ. The schema is passed as in {@link #getSchemaColumns(String)}.
+   *
+   * @return the query, null if the bulk introspection is not supported by the DBMS
+   */
+  String getSchemaPrimaryKeys(String schema);
+
+  /**
+   * Query returning the foreign key columns of all the tables of a schema, named as the ones
+   * returned by DatabaseMetaData.getImportedKeys: FKTABLE_NAME, FKCOLUMN_NAME, PKTABLE_NAME,
+   * PKCOLUMN_NAME, KEY_SEQ and FK_NAME, ordered by foreign table, parent table and key sequence.
+   * The schema is passed as in {@link #getSchemaColumns(String)}.
+   *
+   * @return the query, null if the bulk introspection is not supported by the DBMS
+   */
+  String getSchemaForeignKeys(String schema);
+
+  /**
+   * Query returning the number of records of all the tables of a schema estimated by the optimizer
+   * statistics: TABLE_NAME and ROW_COUNT, NULL or negative when not estimated. The schema is
+   * passed as in {@link #getSchemaColumns(String)}.
+   *
+   * @return the query, null if the statistics can't be read from the DBMS
+   */
+  String getSchemaRecordEstimates(String schema);
+
+  /**
+   * Queries returning a single row of cheap change markers of a schema (e.g. last DDL time, number
+   * of objects, checksum of the catalog): the values change when a table, column or key of the
+   * schema is created, altered or dropped. The schema is passed as in {@link
+   * #getSchemaColumns(String)}.
+   *
+   * @return the queries, null if the DBMS does not provide change markers
+   */
+  String[] getSchemaChangeMarkers(String schema);
 
   String buildAggregateTableFromHierarchicalBag(OHierarchicalBag bag);
+
+  /**
+   * Query joining the tables of the hierarchy as {@link
+   * #buildAggregateTableFromHierarchicalBag(OHierarchicalBag)}, restricted to the records present
+   * in the table of the passed entity.
+   */
+  String buildAggregateTableFromHierarchicalBag(OHierarchicalBag bag, OEntity entity);
 }
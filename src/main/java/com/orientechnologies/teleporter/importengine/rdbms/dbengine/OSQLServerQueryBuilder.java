@@ -0,0 +1,103 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.importengine.rdbms.dbengine;
+
+/**
+ * Query Builder for SQL Server DBMS. It extends the OCommonQueryBuilder class and overrides only
+ * the needed methods.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OSQLServerQueryBuilder extends OCommonQueryBuilder {
+
+  private static final String CURRENT_SCHEMA = "schema_name()";
+
+  /** Identity columns are reported as "<type> identity", as the SQL Server driver does. */
+  @Override
+  public String getSchemaColumns(String schema) {
+    return "select TABLE_NAME, COLUMN_NAME, ORDINAL_POSITION,"
+        + " DATA_TYPE + case when columnproperty(object_id(quotename(TABLE_SCHEMA) + '.'"
+        + " + quotename(TABLE_NAME)), COLUMN_NAME, 'IsIdentity') = 1 then ' identity' else '' end"
+        + " as TYPE_NAME,"
+        + " coalesce(CHARACTER_MAXIMUM_LENGTH, NUMERIC_PRECISION, DATETIME_PRECISION)"
+        + " as COLUMN_SIZE, NUMERIC_SCALE as DECIMAL_DIGITS"
+        + " from INFORMATION_SCHEMA.COLUMNS where "
+        + this.getSchemaCondition("TABLE_SCHEMA", schema, CURRENT_SCHEMA)
+        + " order by TABLE_NAME, ORDINAL_POSITION";
+  }
+
+  /** Rows of the heap or of the clustered index, summed over the partitions. */
+  @Override
+  public String getSchemaRecordEstimates(String schema) {
+    return "select t.name as TABLE_NAME, sum(p.rows) as ROW_COUNT"
+        + " from sys.tables t join sys.partitions p"
+        + " on p.object_id = t.object_id and p.index_id in (0, 1)"
+        + " where "
+        + this.getSchemaCondition("schema_name(t.schema_id)", schema, CURRENT_SCHEMA)
+        + " group by t.name";
+  }
+
+  /** Tables, primary keys and foreign keys, whose MODIFY_DATE is updated by any ALTER. */
+  @Override
+  public String[] getSchemaChangeMarkers(String schema) {
+    return new String[] {
+      "select count(*), convert(varchar(23), max(modify_date), 126) from sys.objects"
+          + " where type in ('U', 'PK', 'F') and "
+          + this.getSchemaCondition("schema_name(schema_id)", schema, CURRENT_SCHEMA)
+    };
+  }
+
+  @Override
+  public String getSchemaPrimaryKeys(String schema) {
+    return "select k.TABLE_NAME, k.COLUMN_NAME, k.ORDINAL_POSITION as KEY_SEQ"
+        + " from INFORMATION_SCHEMA.TABLE_CONSTRAINTS c"
+        + " join INFORMATION_SCHEMA.KEY_COLUMN_USAGE k"
+        + " on k.CONSTRAINT_SCHEMA = c.CONSTRAINT_SCHEMA and k.CONSTRAINT_NAME = c.CONSTRAINT_NAME"
+        + " and k.TABLE_NAME = c.TABLE_NAME"
+        + " where c.CONSTRAINT_TYPE = 'PRIMARY KEY' and "
+        + this.getSchemaCondition("c.TABLE_SCHEMA", schema, CURRENT_SCHEMA)
+        + " order by k.TABLE_NAME, k.ORDINAL_POSITION";
+  }
+
+  /**
+   * Read from the catalog views, as INFORMATION_SCHEMA does not bind the foreign key columns to
+   * the referenced ones when the constraint names are not unique in the schema.
+   */
+  @Override
+  public String getSchemaForeignKeys(String schema) {
+    return "select ft.name as FKTABLE_NAME, fcol.name as FKCOLUMN_NAME,"
+        + " pt.name as PKTABLE_NAME, pcol.name as PKCOLUMN_NAME,"
+        + " fkc.constraint_column_id as KEY_SEQ, fk.name as FK_NAME"
+        + " from sys.foreign_keys fk"
+        + " join sys.foreign_key_columns fkc on fkc.constraint_object_id = fk.object_id"
+        + " join sys.tables ft on ft.object_id = fkc.parent_object_id"
+        + " join sys.columns fcol"
+        + " on fcol.object_id = fkc.parent_object_id and fcol.column_id = fkc.parent_column_id"
+        + " join sys.tables pt on pt.object_id = fkc.referenced_object_id"
+        + " join sys.columns pcol"
+        + " on pcol.object_id = fkc.referenced_object_id"
+        + " and pcol.column_id = fkc.referenced_column_id"
+        + " where "
+        + this.getSchemaCondition("schema_name(ft.schema_id)", schema, CURRENT_SCHEMA)
+        + " order by ft.name, pt.name, fkc.constraint_column_id, fk.name";
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.importengine.rdbms.dbengine;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Columns, primary keys and foreign keys of all the tables of a schema, read from the catalog of
+ * the source DBMS through three queries, instead of three DatabaseMetaData calls per table.
+ * Columns and keys are reported as DatabaseMetaData does, so the two ways can be used in turn:
+ * the tables not found in the catalog are read through DatabaseMetaData.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OSchemaCatalog {
+
+  private final Map<String, List<OCatalogColumn>> table2columns;
+  private final Map<String, List<String>> table2primaryKey;
+  private final Map<String, List<LinkedHashMap<String, String>>> table2foreignKeys;
+
+  private OSchemaCatalog() {
+    this.table2columns = new HashMap<String, List<OCatalogColumn>>();
+    this.table2primaryKey = new HashMap<String, List<String>>();
+    this.table2foreignKeys = new HashMap<String, List<LinkedHashMap<String, String>>>();
+  }
+
+  /**
+   * Reads the catalog of a schema.
+   *
+   * @param connection
+   * @param queryBuilder
+   * @param schema the schema, null for the current one
+   * @return the catalog, null if the bulk introspection is not supported by the DBMS
+   * @throws SQLException
+   */
+  public static OSchemaCatalog read(
+      Connection connection, OQueryBuilder queryBuilder, String schema) throws SQLException {
+
+    String columnsQuery = queryBuilder.getSchemaColumns(schema);
+    String primaryKeysQuery = queryBuilder.getSchemaPrimaryKeys(schema);
+    String foreignKeysQuery = queryBuilder.getSchemaForeignKeys(schema);
+    if (columnsQuery == null || primaryKeysQuery == null || foreignKeysQuery == null) {
+      return null;
+    }
+
+    OSchemaCatalog catalog = new OSchemaCatalog();
+
+    try (PreparedStatement statement = prepare(connection, columnsQuery, schema);
+        ResultSet result = statement.executeQuery()) {
+      while (result.next()) {
+        OCatalogColumn column =
+            new OCatalogColumn(
+                result.getString("COLUMN_NAME"),
+                result.getInt("ORDINAL_POSITION"),
+                result.getString("TYPE_NAME"));
+        int columnSize = result.getInt("COLUMN_SIZE");
+        if (!result.wasNull()) {
+          column.columnSize = columnSize;
+        }
+        int decimalDigits = result.getInt("DECIMAL_DIGITS");
+        if (!result.wasNull()) {
+          column.decimalDigits = decimalDigits;
+        }
+        catalog
+            .table2columns
+            .computeIfAbsent(result.getString("TABLE_NAME"), k -> new ArrayList<OCatalogColumn>())
+            .add(column);
+      }
+    }
+
+    try (PreparedStatement statement = prepare(connection, primaryKeysQuery, schema);
+        ResultSet result = statement.executeQuery()) {
+      while (result.next()) {
+        catalog
+            .table2primaryKey
+            .computeIfAbsent(result.getString("TABLE_NAME"), k -> new ArrayList<String>())
+            .add(result.getString("COLUMN_NAME"));
+      }
+    }
+
+    try (PreparedStatement statement = prepare(connection, foreignKeysQuery, schema);
+        ResultSet result = statement.executeQuery()) {
+      ResultSetMetaData metaData = result.getMetaData();
+      String[] labels = new String[metaData.getColumnCount()];
+      for (int i = 0; i < labels.length; i++) {
+        labels[i] = metaData.getColumnLabel(i + 1).toLowerCase(Locale.ENGLISH);
+      }
+      while (result.next()) {
+        LinkedHashMap<String, String> row = new LinkedHashMap<String, String>();
+        for (int i = 0; i < labels.length; i++) {
+          row.put(labels[i], result.getString(i + 1));
+        }
+        catalog
+            .table2foreignKeys
+            .computeIfAbsent(
+                row.get("fktable_name"), k -> new ArrayList<LinkedHashMap<String, String>>())
+            .add(row);
+      }
+    }
+
+    return catalog;
+  }
+
+  /**
+   * @param tableName
+   * @return true if the columns of the table were found in the catalog
+   */
+  public boolean containsTable(String tableName) {
+    return this.table2columns.containsKey(tableName);
+  }
+
+  /**
+   * @param tableName
+   * @return the columns of the table in ordinal order, null if the table is not in the catalog
+   */
+  public List<OCatalogColumn> getColumns(String tableName) {
+    return this.table2columns.get(tableName);
+  }
+
+  /**
+   * @param tableName
+   * @return the names of the primary key columns of the table, in key order
+   */
+  public List<String> getPrimaryKey(String tableName) {
+    List<String> primaryKey = this.table2primaryKey.get(tableName);
+    return primaryKey != null ? primaryKey : Collections.<String>emptyList();
+  }
+
+  /**
+   * @param tableName
+   * @return the foreign key columns of the table, as the rows of DatabaseMetaData.getImportedKeys
+   *     with lower case keys, ordered by parent table and key sequence
+   */
+  public List<LinkedHashMap<String, String>> getForeignKeys(String tableName) {
+    List<LinkedHashMap<String, String>> foreignKeys = this.table2foreignKeys.get(tableName);
+    return foreignKeys != null
+        ? foreignKeys
+        : Collections.<LinkedHashMap<String, String>>emptyList();
+  }
+
+  private static PreparedStatement prepare(Connection connection, String query, String schema)
+      throws SQLException {
+    PreparedStatement statement = connection.prepareStatement(query);
+    if (schema != null) {
+      statement.setString(1, schema);
+    }
+    return statement;
+  }
+
+  /** Column of a table, as described by DatabaseMetaData.getColumns. */
+  public static class OCatalogColumn {
+
+    private final String name;
+    private final int ordinalPosition;
+    private final String typeName;
+    private Integer columnSize;
+    private Integer decimalDigits;
+
+    private OCatalogColumn(String name, int ordinalPosition, String typeName) {
+      this.name = name;
+      this.ordinalPosition = ordinalPosition;
+      this.typeName = typeName;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    public int getOrdinalPosition() {
+      return this.ordinalPosition;
+    }
+
+    public String getTypeName() {
+      return this.typeName;
+    }
+
+    /** @return the size of the column, null if not applicable */
+    public Integer getColumnSize() {
+      return this.columnSize;
+    }
+
+    /** @return the fractional digits of the column, null if not applicable */
+    public Integer getDecimalDigits() {
+      return this.decimalDigits;
+    }
+  }
+}
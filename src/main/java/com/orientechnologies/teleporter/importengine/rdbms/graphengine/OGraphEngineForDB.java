@@ -22,13 +22,14 @@ package com.orientechnologies.teleporter.importengine.rdbms.graphengine;
 
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.exception.OValidationException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ODirection;
 import com.orientechnologies.orient.core.record.OEdge;
 import com.orientechnologies.orient.core.record.OElement;
 import com.orientechnologies.orient.core.record.OVertex;
 import com.orientechnologies.orient.core.record.impl.ODocument;
-import com.orientechnologies.orient.core.sql.executor.OResultSet;
 import com.orientechnologies.orient.output.OOutputStreamManager;
+import com.orientechnologies.teleporter.context.OImportSettings;
 import com.orientechnologies.teleporter.context.OTeleporterContext;
 import com.orientechnologies.teleporter.context.OTeleporterStatistics;
 import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
@@ -42,12 +43,15 @@ import com.orientechnologies.teleporter.model.graphmodel.OEdgeType;
 import com.orientechnologies.teleporter.model.graphmodel.OModelProperty;
 import com.orientechnologies.teleporter.model.graphmodel.OVertexType;
 import com.orientechnologies.teleporter.persistence.handler.ODBMSDataTypeHandler;
+import com.orientechnologies.teleporter.persistence.util.OColumnOrdinals;
+import com.orientechnologies.teleporter.persistence.util.OLobChunks;
 import com.orientechnologies.teleporter.util.OFunctionsHandler;
 import com.orientechnologies.teleporter.util.OGraphCommands;
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -60,10 +64,238 @@ public class OGraphEngineForDB {
 
   private OER2GraphMapper mapper;
   private ODBMSDataTypeHandler handler;
+  private OVertexKeyCache vertexKeyCache;
+  private OSeenEdges seenEdges;
+
+  // row decoders compiled on first use, by type name
+  private final Map<String, ORowDecoder> vertexDecoders;
+  private final Map<String, ORowDecoder> edgeDecoders;
+  private final Map<String, ORowDecoder> aggregatorEdgeDecoders;
+
+  // keys reused by each thread for all the records, by vertex type and relationship
+  private final ThreadLocal<Map<OVertexType, OVertexKey>> externalKeys;
+  private final ThreadLocal<Map<OVertexType, Map<OCanonicalRelationship, OVertexKey>>> foreignKeys;
+  private final ThreadLocal<Map<OCanonicalRelationship, OVertexKey>> aggregatorKeys;
+
+  // vertices and edges written by each thread within its current transaction, counted in the
+  // statistics only once the transaction is committed
+  private final ThreadLocal<OPendingStatistics> pendingStatistics;
 
   public OGraphEngineForDB(OER2GraphMapper mapper, ODBMSDataTypeHandler handler) {
     this.mapper = mapper;
     this.handler = handler;
+
+    int keyCacheSize = OImportSettings.DEFAULT_KEY_CACHE_SIZE;
+    int edgeSetSize = OImportSettings.DEFAULT_EDGE_SET_SIZE;
+    if (OTeleporterContext.getInstance() != null) {
+      keyCacheSize = OTeleporterContext.getInstance().getImportSettings().getKeyCacheSize();
+      edgeSetSize = OTeleporterContext.getInstance().getImportSettings().getEdgeSetSize();
+    }
+    this.vertexKeyCache = new OVertexKeyCache(keyCacheSize);
+    this.seenEdges = new OSeenEdges(edgeSetSize);
+    this.vertexDecoders = new ConcurrentHashMap<String, ORowDecoder>();
+    this.edgeDecoders = new ConcurrentHashMap<String, ORowDecoder>();
+    this.aggregatorEdgeDecoders = new ConcurrentHashMap<String, ORowDecoder>();
+    this.externalKeys = ThreadLocal.withInitial(IdentityHashMap::new);
+    this.foreignKeys = ThreadLocal.withInitial(IdentityHashMap::new);
+    this.aggregatorKeys = ThreadLocal.withInitial(IdentityHashMap::new);
+    this.pendingStatistics = ThreadLocal.withInitial(OPendingStatistics::new);
+  }
+
+  public OVertexKeyCache getVertexKeyCache() {
+    return this.vertexKeyCache;
+  }
+
+  public OSeenEdges getSeenEdges() {
+    return this.seenEdges;
+  }
+
+  /**
+   * Records the edges and the statistics of the transaction just committed by the current thread.
+   */
+  public void commitPending() {
+    this.seenEdges.commitPending();
+    OPendingStatistics pending = this.pendingStatistics.get();
+    OTeleporterContext.getInstance()
+        .getStatistics()
+        .incrementOrientWrites(pending.addedVertices, pending.updatedVertices, pending.addedEdges);
+    pending.clear();
+  }
+
+  /**
+   * Forgets the edges and the statistics of the transaction just rolled back by the current thread,
+   * so that a retried transaction doesn't count its writes twice.
+   */
+  public void discardPending() {
+    this.seenEdges.discardPending();
+    this.pendingStatistics.get().clear();
+  }
+
+  /**
+   * @param vertexType
+   * @return the decoder of the records of the vertex type, compiled on first use
+   */
+  public ORowDecoder getVertexDecoder(OVertexType vertexType) {
+    return this.vertexDecoders.computeIfAbsent(
+        vertexType.getName(),
+        name -> ORowDecoder.forVertexType(vertexType, this.mapper, this.handler));
+  }
+
+  /**
+   * @param edgeType
+   * @return the decoder of the records of the edge type, compiled on first use
+   */
+  public ORowDecoder getEdgeDecoder(OEdgeType edgeType) {
+    return this.edgeDecoders.computeIfAbsent(
+        edgeType.getName(), name -> ORowDecoder.forEdgeType(edgeType, this.mapper, this.handler));
+  }
+
+  /**
+   * It looks up a vertex by its key: the key cache is checked first, then the index of the class is
+   * queried and the found vertex is cached.
+   *
+   * @param orientGraph
+   * @param key
+   * @param className
+   * @return the vertex, null if not present
+   */
+  public OVertex lookupVertex(ODatabaseDocument orientGraph, OVertexKey key, String className) {
+
+    ORID rid = this.vertexKeyCache.get(className, key);
+    if (rid != null) {
+      OVertex vertex = OGraphCommands.loadVertex(orientGraph, rid);
+      if (vertex != null) {
+        return vertex;
+      }
+    }
+
+    rid = this.lookupVertexRid(orientGraph, key, className);
+    return rid != null ? OGraphCommands.loadVertex(orientGraph, rid) : null;
+  }
+
+  /**
+   * It looks up the identity of a vertex by its key, without loading the vertex: the key cache is
+   * checked first, then the index of the class is queried and the found identity is cached.
+   *
+   * @param orientGraph
+   * @param key
+   * @param className
+   * @return the identity of the vertex, null if not present
+   */
+  public ORID lookupVertexRid(ODatabaseDocument orientGraph, OVertexKey key, String className) {
+
+    ORID rid = this.vertexKeyCache.get(className, key);
+    if (rid == null) {
+      rid =
+          OGraphCommands.getVertexRidByIndexedKey(
+              orientGraph, key.getProperties(), key.getValues(), className);
+      if (rid != null && rid.isPersistent()) {
+        this.vertexKeyCache.put(className, key, rid);
+      }
+    }
+    return rid;
+  }
+
+  /**
+   * Reads the external key of the vertex type from the record. The key is reused by the current
+   * thread for all the records of the vertex type.
+   *
+   * @param record
+   * @param vertexType
+   * @param propertiesOfIndex
+   * @return the key, valid until the next record of the vertex type is read
+   * @throws SQLException
+   */
+  public OVertexKey readExternalKey(
+      ResultSet record, OVertexType vertexType, Set<String> propertiesOfIndex)
+      throws SQLException {
+
+    Map<OVertexType, OVertexKey> keys = this.externalKeys.get();
+    OVertexKey key = keys.get(vertexType);
+    if (key == null || !key.hasProperties(propertiesOfIndex)) {
+      key = this.buildExternalKey(vertexType, propertiesOfIndex);
+      keys.put(vertexType, key);
+    }
+    key.read(record);
+    return key;
+  }
+
+  /**
+   * Reads from the record the foreign key involved in the relationship, as key of the referenced
+   * vertex. The key is reused by the current thread for all the records of the relationship.
+   *
+   * @param foreignRecord the record correspondent to the current-out-vertex
+   * @param relation the relation between two entities
+   * @param inVertexType the type of the referenced vertex
+   * @return the key, valid until the next record of the relationship is read
+   * @throws SQLException
+   */
+  public OVertexKey readForeignKey(
+      ResultSet foreignRecord, OCanonicalRelationship relation, OVertexType inVertexType)
+      throws SQLException {
+
+    Map<OCanonicalRelationship, OVertexKey> keys = this.foreignKeys.get().get(inVertexType);
+    if (keys == null) {
+      keys = new IdentityHashMap<OCanonicalRelationship, OVertexKey>();
+      this.foreignKeys.get().put(inVertexType, keys);
+    }
+    OVertexKey key = keys.get(relation);
+    if (key == null) {
+      String[] propertyOfKey = new String[relation.getFromColumns().size()];
+      for (int i = 0; i < propertyOfKey.length; i++) {
+        propertyOfKey[i] =
+            this.mapper.getPropertyNameByVertexTypeAndAttribute(
+                inVertexType, relation.getToColumns().get(i).getName());
+      }
+      key = this.buildForeignKey(relation, inVertexType, propertyOfKey);
+      keys.put(relation, key);
+    }
+    key.read(foreignRecord);
+    return key;
+  }
+
+  private OVertexKey buildExternalKey(OVertexType vertexType, Set<String> propertiesOfIndex) {
+
+    ORowDecoder decoder = this.getVertexDecoder(vertexType);
+    String[] propertyOfKey = propertiesOfIndex.toArray(new String[propertiesOfIndex.size()]);
+    String[] columns = new String[propertyOfKey.length];
+    boolean[] integralColumns = new boolean[propertyOfKey.length];
+    boolean[] booleanColumns = new boolean[propertyOfKey.length];
+    for (int i = 0; i < propertyOfKey.length; i++) {
+      columns[i] = decoder.getColumnName(propertyOfKey[i]);
+      integralColumns[i] = isIntegralType(decoder.getPropertyType(propertyOfKey[i]));
+      booleanColumns[i] = "boolean".equalsIgnoreCase(decoder.getOriginalType(propertyOfKey[i]));
+    }
+    return OVertexKey.forColumns(propertyOfKey, columns, integralColumns, booleanColumns);
+  }
+
+  /**
+   * Values are read as numbers only if both the foreign key column and the property of the
+   * referenced vertex are integral.
+   */
+  private OVertexKey buildForeignKey(
+      OCanonicalRelationship relation, OVertexType inVertexType, String[] propertyOfKey) {
+
+    ORowDecoder decoder = inVertexType != null ? this.getVertexDecoder(inVertexType) : null;
+    String[] columns = new String[propertyOfKey.length];
+    boolean[] integralColumns = new boolean[propertyOfKey.length];
+    for (int i = 0; i < propertyOfKey.length; i++) {
+      OAttribute foreignAttribute = relation.getFromColumns().get(i);
+      columns[i] = foreignAttribute.getName();
+      integralColumns[i] =
+          decoder != null
+              && isIntegralType(decoder.getPropertyType(propertyOfKey[i]))
+              && isIntegralType(this.handler.resolveType(foreignAttribute).toString());
+    }
+    return OVertexKey.forColumns(
+        propertyOfKey, columns, integralColumns, new boolean[propertyOfKey.length]);
+  }
+
+  private static boolean isIntegralType(String orientdbType) {
+    return "INTEGER".equals(orientdbType)
+        || "LONG".equals(orientdbType)
+        || "SHORT".equals(orientdbType)
+        || "BYTE".equals(orientdbType);
   }
 
   /**
@@ -80,7 +312,7 @@ public class OGraphEngineForDB {
       Set<String> propertiesOfIndex)
       throws SQLException {
 
-    String propsAndValuesOfKey = "";
+    OVertexKey key = null;
 
     try {
 
@@ -105,26 +337,16 @@ public class OGraphEngineForDB {
         propertyOfKey[cont] = property;
         if (toResolveNames)
           valueOfKey[cont] =
-              record.getString(
-                  this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, property));
-        else valueOfKey[cont] = record.getString(property);
+              OColumnOrdinals.getString(
+                  record, this.getVertexDecoder(vertexType).getColumnName(property));
+        else valueOfKey[cont] = OColumnOrdinals.getString(record, property);
 
         cont++;
       }
-
-      String s = "Keys and values in the lookup (upsertVisitedVertex):\t";
-      for (int i = 0; i < propertyOfKey.length; i++) {
-        propsAndValuesOfKey += propertyOfKey[i] + ":" + valueOfKey[i] + ",";
-      }
-      if (propsAndValuesOfKey.length() > 0)
-        propsAndValuesOfKey = propsAndValuesOfKey.substring(0, propsAndValuesOfKey.length() - 1);
-      else propsAndValuesOfKey = "no identifier for the current record.";
-      s += propsAndValuesOfKey;
+      key = OVertexKey.of(propertyOfKey, valueOfKey);
 
       // lookup
-      OVertex vertex =
-          OGraphCommands.getVertexByIndexedKey(
-              orientGraph, propertyOfKey, valueOfKey, vertexType.getName());
+      OVertex vertex = this.lookupVertex(orientGraph, key, vertexType.getName());
 
       if (vertex != null
           && vertexType.getAllProperties().size()
@@ -138,7 +360,7 @@ public class OGraphEngineForDB {
           "Problem encountered during the visit of an inserted vertex. Vertex Type: "
               + vertexType.getName()
               + ";\tOriginal Record: "
-              + propsAndValuesOfKey;
+              + (key != null ? key : "");
       OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
       OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
       throw new OTeleporterRuntimeException(e);
@@ -154,107 +376,149 @@ public class OGraphEngineForDB {
       Set<String> propertiesOfIndex) {
 
     OVertex vertex = null;
-    String[] propertyOfKey = null;
-    String[] valueOfKey = null;
-    String propsAndValuesOfKey = "";
+    OVertexKey key = null;
+    Map<String, Object> currentProperties = null;
 
     try {
 
-      OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
+      // reading the key for the lookup
+      key = this.readExternalKey(record, vertexType, propertiesOfIndex);
 
-      // building keys and values for the lookup
-      propertyOfKey = new String[propertiesOfIndex.size()];
-      valueOfKey = new String[propertiesOfIndex.size()];
-      String currentValue;
+      if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+          == OOutputStreamManager.DEBUG_LEVEL) {
+        String s = "Keys and values in the lookup (upsertVisitedVertex):\t" + key;
+        OTeleporterContext.getInstance().getMessageHandler().debug(this, "\n" + s + "\n");
+      }
 
-      int cont = 0;
-      for (String property : propertiesOfIndex) {
-        propertyOfKey[cont] = property;
-        String attributeName =
-            this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, property);
-        currentValue = record.getString(attributeName);
-
-        // converting eventual "t" or "f" values in "true" and "false"
-        OModelProperty prop = vertexType.getPropertyByNameAmongAll(property);
-        if (prop.getOriginalType().equalsIgnoreCase("boolean")) {
-          switch (currentValue) {
-            case "t":
-              currentValue = "true";
-              break;
-            case "f":
-              currentValue = "false";
-              break;
-            default:
-              break;
-          }
-        }
+      // lookup (only if properties and values are different from null)
+      if (key.size() > 0) vertex = this.lookupVertex(orientGraph, key, vertexType.getName());
 
-        valueOfKey[cont] = currentValue;
-        cont++;
-      }
+      // extraction of inherited and not inherited properties from the record
+      currentProperties = this.extractVertexProperties(record, vertexType, key);
 
-      String s = "Keys and values in the lookup (upsertVisitedVertex):\t";
-      for (int i = 0; i < propertyOfKey.length; i++) {
-        propsAndValuesOfKey += propertyOfKey[i] + ":" + valueOfKey[i] + ",";
+      vertex =
+          this.writeVisitedVertex(
+              orientGraph, vertexType, propertiesOfIndex, vertex, currentProperties);
+      if (vertex != null) {
+        this.vertexKeyCache.put(vertexType.getName(), key, vertex.getIdentity());
       }
-      if (propsAndValuesOfKey.length() > 0)
-        propsAndValuesOfKey = propsAndValuesOfKey.substring(0, propsAndValuesOfKey.length() - 1);
-      else propsAndValuesOfKey = "no identifier for the current record.";
-      s += propsAndValuesOfKey;
+
+    } catch (Exception e) {
+      String mess =
+          "Problem encountered during the migration of the records. Vertex Type: "
+              + vertexType.getName()
+              + ";\tRecord: "
+              + (key != null ? key : "");
+      OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
+      OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
+      this.discardLobChunks(orientGraph, currentProperties);
+      throw new OTeleporterRuntimeException(e);
+    }
+
+    return vertex;
+  }
+
+  /**
+   * Deletes the chunks of the LOB values of properties not written: the chunks are saved out of the
+   * transactions, so they are deleted only once the transaction writing the element (if any) is
+   * rolled back. A failure is just reported, not to hide the one that prevented the write.
+   *
+   * @param orientGraph
+   * @param properties the properties read from a record, null if none
+   */
+  public void discardLobChunks(ODatabaseDocument orientGraph, Map<String, Object> properties) {
+
+    if (properties == null || orientGraph.getTransaction().isActive()) {
+      return;
+    }
+    try {
+      OLobChunks.deleteChunksOfProperties(properties);
+    } catch (RuntimeException e) {
+      OTeleporterContext.getInstance()
+          .getStatistics()
+          .warningMessages
+          .add("Chunks of LOB values not imported could not be deleted: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Extracts from the record the values of all the properties (inherited ones included) of the
+   * vertex type included in the migration.
+   *
+   * @param record
+   * @param vertexType
+   * @param key key of the record, described in the error messages
+   * @return the properties to set on the vertex
+   */
+  public Map<String, Object> extractVertexProperties(
+      ResultSet record, OVertexType vertexType, OVertexKey key) {
+    return this.getVertexDecoder(vertexType).decode(record, "Record", key);
+  }
+
+  /**
+   * Writes a visited vertex: it's inserted if the lookup didn't find it, otherwise the vertex is
+   * updated when it was just reached or when its properties changed.
+   *
+   * @param orientGraph
+   * @param vertexType
+   * @param propertiesOfIndex
+   * @param vertex the vertex found through the lookup, null if not present
+   * @param currentProperties the properties extracted from the source record
+   * @return the inserted or updated vertex
+   */
+  public OVertex writeVisitedVertex(
+      ODatabaseDocument orientGraph,
+      OVertexType vertexType,
+      Set<String> propertiesOfIndex,
+      OVertex vertex,
+      Map<String, Object> currentProperties) {
+
+    OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
+    String currentPropertyType;
+
+    if (vertex == null) {
+      String classAndClusterName = vertexType.getName();
+      vertex = this.addVertexToGraph(orientGraph, classAndClusterName, currentProperties);
+      this.countWrite(orientGraph, statistics, OWriteKind.ADDED_VERTEX);
       if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
           == OOutputStreamManager.DEBUG_LEVEL) {
-        OTeleporterContext.getInstance().getMessageHandler().debug(this, "\n" + s + "\n");
+        OTeleporterContext.getInstance()
+            .getMessageHandler()
+            .debug(this, "\nLoaded properties: %s\n", currentProperties.toString());
+        OTeleporterContext.getInstance()
+            .getMessageHandler()
+            .debug(this, "\nNew vertex inserted (all props set): %s\n", vertex.toString());
       }
+    } else {
 
-      // lookup (only if properties and values are different from null)
-      if (propertyOfKey.length > 0 && valueOfKey.length > 0)
-        vertex =
-            OGraphCommands.getVertexByIndexedKey(
-                orientGraph, propertyOfKey, valueOfKey, vertexType.getName());
-
-      // extraction of inherited and not inherited properties from the record (through
-      // "getAllProperties()" method)
-      Map<String, Object> currentProperties = new LinkedHashMap<String, Object>();
-      String currentPropertyType;
-      String currentPropertyName = null;
-
-      for (OModelProperty currentProperty : vertexType.getAllProperties()) {
-
-        if (currentProperty.isIncludedInMigration()) {
-          currentPropertyName = currentProperty.getName();
-          currentPropertyType =
-              OTeleporterContext.getInstance()
-                  .getDataTypeHandler()
-                  .resolveType(currentProperty.getOriginalType().toLowerCase(Locale.ENGLISH))
-                  .toString();
-          String currentOriginalType = currentProperty.getOriginalType();
-
-          try {
-            extractPropertiesFromRecordIntoVertex(
-                record,
-                currentProperties,
-                currentPropertyType,
-                currentPropertyName,
-                currentOriginalType,
-                vertexType);
-          } catch (Exception e) {
-            String mess =
-                "Problem encountered during the extraction of the values from the records. Vertex Type: "
-                    + vertexType.getName()
-                    + ";\tProperty: "
-                    + currentPropertyName
-                    + ";\tRecord: "
-                    + propsAndValuesOfKey;
-            OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
-            OTeleporterContext.getInstance().printExceptionStackTrace(e, "debug");
+      // discerning between a reached-vertex updating (only original primary key's properties are
+      // present) and a full-vertex updating
+      boolean justReachedVertex = true;
+
+      // first check: if the current vertex has less properties then the correspondent vertex type
+      // then it's justReached
+      if (vertex.getPropertyNames().size() >= vertexType.getAllProperties().size()) {
+        justReachedVertex = false;
+      }
+
+      // second check: the set properties on the current vertex are only those correspondent to
+      // the primary key's attributes
+      if (justReachedVertex) {
+        for (String property : vertex.getPropertyNames()) {
+          if (!property.startsWith("in_") && !property.startsWith("out_")) {
+            if (!this.containsProperty(propertiesOfIndex, property)) {
+              justReachedVertex = false;
+              break;
+            }
           }
         }
       }
 
-      if (vertex == null) {
-        String classAndClusterName = vertexType.getName();
-        vertex = this.addVertexToGraph(orientGraph, classAndClusterName, currentProperties);
-        statistics.orientAddedVertices++;
+      // UPDATING A REACHED VERTEX (only original primary key's properties are present)
+      if (justReachedVertex) {
+
+        // setting new properties and save
+        this.setElementProperties(vertex, currentProperties);
         if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
             == OOutputStreamManager.DEBUG_LEVEL) {
           OTeleporterContext.getInstance()
@@ -264,362 +528,108 @@ public class OGraphEngineForDB {
               .getMessageHandler()
               .debug(this, "\nNew vertex inserted (all props set): %s\n", vertex.toString());
         }
-      } else {
+      }
 
-        // discerning between a reached-vertex updating (only original primary key's properties are
-        // present) and a full-vertex updating
-        boolean justReachedVertex = true;
+      // UPDATING A FULL VERTEX
+      else {
 
-        // first check: if the current vertex has less properties then the correspondent vertex type
-        // then it's justReached
-        if (vertex.getPropertyNames().size() >= vertexType.getAllProperties().size()) {
-          justReachedVertex = false;
-        }
+        // comparing old version of vertex with the new one: if the two versions are equals no
+        // rewriting is performed
 
-        // second check: the set properties on the current vertex are only those correspondent to
-        // the primary key's attributes
-        if (justReachedVertex) {
-          for (String property : vertex.getPropertyNames()) {
-            if (!property.startsWith("in_") && !property.startsWith("out_")) {
-              if (!this.containsProperty(propertiesOfIndex, property)) {
-                justReachedVertex = false;
-                break;
-              }
-            }
-          }
-        }
+        boolean equalVersions = true;
+        boolean equalProperties = true;
 
-        // UPDATING A REACHED VERTEX (only original primary key's properties are present)
-        if (justReachedVertex) {
+        Set<String> propertyNames = vertex.getPropertyNames();
 
-          // setting new properties and save
-          this.setElementProperties(vertex, currentProperties);
-          if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
-              == OOutputStreamManager.DEBUG_LEVEL) {
-            OTeleporterContext.getInstance()
-                .getMessageHandler()
-                .debug(this, "\nLoaded properties: %s\n", currentProperties.toString());
-            OTeleporterContext.getInstance()
-                .getMessageHandler()
-                .debug(this, "\nNew vertex inserted (all props set): %s\n", vertex.toString());
+        // counting number of properties, edges excluded
+        Iterator<String> it = propertyNames.iterator();
+        while (it.hasNext()) {
+          String property = it.next();
+          if (property.startsWith("out_") || property.startsWith("in_")) {
+            it.remove();
           }
         }
 
-        // UPDATING A FULL VERTEX
-        else {
+        if (propertyNames.size() == currentProperties.size()) {
 
-          // comparing old version of vertex with the new one: if the two versions are equals no
-          // rewriting is performed
-
-          boolean equalVersions = true;
-          boolean equalProperties = true;
-
-          Set<String> propertyNames = vertex.getPropertyNames();
-
-          // counting number of properties, edges excluded
-          Iterator<String> it = propertyNames.iterator();
-          while (it.hasNext()) {
-            String property = it.next();
-            if (property.startsWith("out_") || property.startsWith("in_")) {
-              it.remove();
+          // comparing properties
+          for (String propertyName : propertyNames) {
+            if (!currentProperties.keySet().contains(propertyName)) {
+              equalProperties = false;
+              equalVersions = false;
+              break;
             }
           }
 
-          if (propertyNames.size() == currentProperties.size()) {
-
-            // comparing properties
+          if (equalProperties) {
+            // comparing values of the properties
             for (String propertyName : propertyNames) {
-              if (!currentProperties.keySet().contains(propertyName)) {
-                equalProperties = false;
-                equalVersions = false;
-                break;
-              }
-            }
-
-            if (equalProperties) {
-              // comparing values of the properties
-              for (String propertyName : propertyNames) {
-                if (!(vertex.getProperty(propertyName) == null
-                    && currentProperties.get(propertyName) == null)) {
+              if (!(vertex.getProperty(propertyName) == null
+                  && currentProperties.get(propertyName) == null)) {
 
+                currentPropertyType =
+                    vertexType.getPropertyByName(propertyName).getOrientdbType();
+                if (currentPropertyType == null) {
                   currentPropertyType =
-                      vertexType.getPropertyByName(propertyName).getOrientdbType();
-                  if (currentPropertyType == null) {
-                    currentPropertyType =
-                        OTeleporterContext.getInstance()
-                            .getDataTypeHandler()
-                            .resolveType(
-                                vertexType
-                                    .getPropertyByName(propertyName)
-                                    .getOriginalType()
-                                    .toLowerCase(Locale.ENGLISH))
-                            .toString();
-                  }
-
-                  if (!this.areEquals(
-                      vertex.getProperty(propertyName),
-                      currentProperties.get(propertyName),
-                      currentPropertyType)) {
-                    equalVersions = false;
-                    break;
-                  }
+                      this.getVertexDecoder(vertexType).getPropertyType(propertyName);
+                }
+
+                if (!this.areEquals(
+                    vertex.getProperty(propertyName),
+                    currentProperties.get(propertyName),
+                    currentPropertyType)) {
+                  equalVersions = false;
+                  break;
                 }
               }
-            } else {
-              equalVersions = false;
             }
           } else {
             equalVersions = false;
           }
+        } else {
+          equalVersions = false;
+        }
 
-          if (!equalVersions) {
-            // removing old eventual properties
-            for (String propertyKey : vertex.getPropertyNames()) {
-              if (!propertyKey.startsWith("out_") && !propertyKey.startsWith("in_")) {
-                vertex.removeProperty(propertyKey);
+        if (!equalVersions) {
+          // removing old eventual properties, with the chunks of their LOB values
+          for (String propertyKey : vertex.getPropertyNames()) {
+            if (!propertyKey.startsWith("out_") && !propertyKey.startsWith("in_")) {
+              if (this.isBinaryProperty(vertexType, propertyKey)) {
+                OLobChunks.deleteChunks(vertex.getProperty(propertyKey));
               }
+              vertex.removeProperty(propertyKey);
             }
+          }
 
-            // setting new properties and save
-            this.setElementProperties(vertex, currentProperties);
-            statistics.orientUpdatedVertices++;
-            if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
-                == OOutputStreamManager.DEBUG_LEVEL) {
-              OTeleporterContext.getInstance()
-                  .getMessageHandler()
-                  .debug(this, "\nLoaded properties: %s\n", currentProperties.toString());
-              OTeleporterContext.getInstance()
-                  .getMessageHandler()
-                  .debug(this, "\nNew vertex upserted (all props set): %s\n", vertex.toString());
-            }
+          // setting new properties and save
+          this.setElementProperties(vertex, currentProperties);
+          this.countWrite(orientGraph, statistics, OWriteKind.UPDATED_VERTEX);
+          if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+              == OOutputStreamManager.DEBUG_LEVEL) {
+            OTeleporterContext.getInstance()
+                .getMessageHandler()
+                .debug(this, "\nLoaded properties: %s\n", currentProperties.toString());
+            OTeleporterContext.getInstance()
+                .getMessageHandler()
+                .debug(this, "\nNew vertex upserted (all props set): %s\n", vertex.toString());
           }
+        } else {
+          // the vertex keeps its LOB values: the chunks just read are not needed
+          OLobChunks.deleteChunksOfProperties(currentProperties);
         }
       }
-    } catch (Exception e) {
-      String mess =
-          "Problem encountered during the migration of the records. Vertex Type: "
-              + vertexType.getName()
-              + ";\tRecord: "
-              + propsAndValuesOfKey;
-      OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
-      OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
-      throw new OTeleporterRuntimeException(e);
     }
 
     return vertex;
   }
 
-  public void extractPropertiesFromRecordIntoVertex(
-      ResultSet record,
-      Map<String, Object> properties,
-      String currentPropertyType,
-      String currentPropertyName,
-      String currentOriginalType,
-      OVertexType vertexType)
-      throws SQLException {
-
-    Date currentDateValue;
-    byte[] currentBinaryValue;
-    String currentAttributeValue;
-
-    // disambiguation on OrientDB Schema type
-
-    if (currentPropertyType.equals("DATE")) {
-      currentDateValue =
-          record.getDate(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      properties.put(currentPropertyName, currentDateValue);
-    } else if (currentPropertyType.equals("DATETIME")) {
-      currentDateValue =
-          record.getTimestamp(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      properties.put(currentPropertyName, currentDateValue);
-    } else if (currentPropertyType.equals("BINARY")) {
-      currentBinaryValue =
-          record.getBytes(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      properties.put(currentPropertyName, currentBinaryValue);
-    } else if (currentPropertyType.equals("BOOLEAN")) {
-      currentAttributeValue =
-          record.getString(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-
-      switch (currentAttributeValue) {
-        case "t":
-          properties.put(currentPropertyName, "true");
-          break;
-        case "f":
-          properties.put(currentPropertyName, "false");
-          break;
-        default:
-          break;
-      }
-    }
-
-    // JSON
-    else if (handler.jsonImplemented && currentPropertyType.equals("EMBEDDED")) {
-      currentAttributeValue =
-          record.getString(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      ODocument currentEmbeddedValue =
-          this.handler.convertJSONToDocument(currentPropertyName, currentAttributeValue);
-      properties.put(currentPropertyName, currentEmbeddedValue);
-    }
-
-    // Numeric
-    else if (currentPropertyType.equals("DECIMAL")) {
-      BigDecimal currentDecimalValue =
-          record.getBigDecimal(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      properties.put(currentPropertyName, currentDecimalValue);
-    } else if (currentPropertyType.equals("DOUBLE")) {
-      Double currentDoubleValue =
-          record.getDouble(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      properties.put(currentPropertyName, currentDoubleValue);
-    } else if (currentPropertyType.equals("FLOAT")) {
-      Float currentFloatValue =
-          record.getFloat(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      properties.put(currentPropertyName, currentFloatValue);
-    } else if (currentPropertyType.equals("INTEGER")) {
-      Integer currentIntegerValue =
-          record.getInt(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      properties.put(currentPropertyName, currentIntegerValue);
-    } else if (currentPropertyType.equals("LONG")) {
-      Long currentLongValue =
-          record.getLong(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      properties.put(currentPropertyName, currentLongValue);
-    } else if (currentPropertyType.equals("SHORT")) {
-      Short currentShortValue =
-          record.getShort(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      properties.put(currentPropertyName, currentShortValue);
-    }
-
-    // GEOSPATIAL
-    else if (handler.geospatialImplemented && handler.isGeospatial(currentOriginalType)) {
-      currentAttributeValue =
-          record.getString(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      //						currentEmbeddedValue = OShapeFactory.INSTANCE.toDoc(currentAttributeValue);  // to
-      // change with transformation from wkt (currentAttrValue) into embedded
-      ODocument currentEmbeddedValue = null;
-      properties.put(currentPropertyName, currentEmbeddedValue);
-    } else {
-      currentAttributeValue =
-          record.getString(
-              this.mapper.getAttributeNameByVertexTypeAndProperty(vertexType, currentPropertyName));
-      properties.put(currentPropertyName, currentAttributeValue);
-    }
-  }
-
-  public void extractPropertiesFromRecordIntoEdge(
-      ResultSet record,
-      Map<String, Object> properties,
-      String currentPropertyType,
-      String currentPropertyName,
-      String currentOriginalType,
-      OEdgeType edgeType)
-      throws SQLException {
-
-    String currentAttributeValue;
-
-    // disambiguation on OrientDB Schema type
-
-    if (currentPropertyType.equals("DATE")) {
-      Date currentDateValue =
-          record.getDate(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      properties.put(currentPropertyName, currentDateValue);
-    } else if (currentPropertyType.equals("DATETIME")) {
-      Date currentDateValue =
-          record.getTimestamp(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      properties.put(currentPropertyName, currentDateValue);
-    } else if (currentPropertyType.equals("BINARY")) {
-      byte[] currentBinaryValue =
-          record.getBytes(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      properties.put(currentPropertyName, currentBinaryValue);
-    } else if (currentPropertyType.equals("BOOLEAN")) {
-      currentAttributeValue =
-          record.getString(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-
-      switch (currentAttributeValue) {
-        case "t":
-          properties.put(currentPropertyName, "true");
-          break;
-        case "f":
-          properties.put(currentPropertyName, "false");
-          break;
-        default:
-          break;
-      }
-      properties.put(currentPropertyName, currentAttributeValue);
-    }
-
-    // JSON
-    else if (handler.jsonImplemented && currentPropertyType.equals("EMBEDDED")) {
-      currentAttributeValue =
-          record.getString(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      ODocument currentEmbeddedValue =
-          this.handler.convertJSONToDocument(currentPropertyName, currentAttributeValue);
-      properties.put(currentPropertyName, currentEmbeddedValue);
-    }
-
-    // Numeric
-    else if (currentPropertyType.equals("DECIMAL")) {
-      BigDecimal currentDecimalValue =
-          record.getBigDecimal(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      properties.put(currentPropertyName, currentDecimalValue);
-    } else if (currentPropertyType.equals("DOUBLE")) {
-      Double currentDoubleValue =
-          record.getDouble(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      properties.put(currentPropertyName, currentDoubleValue);
-    } else if (currentPropertyType.equals("FLOAT")) {
-      Float currentFloatValue =
-          record.getFloat(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      properties.put(currentPropertyName, currentFloatValue);
-    } else if (currentPropertyType.equals("INTEGER")) {
-      Integer currentIntegerValue =
-          record.getInt(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      properties.put(currentPropertyName, currentIntegerValue);
-    } else if (currentPropertyType.equals("LONG")) {
-      Long currentLongValue =
-          record.getLong(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      properties.put(currentPropertyName, currentLongValue);
-    } else if (currentPropertyType.equals("SHORT")) {
-      Short currentShortValue =
-          record.getShort(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      properties.put(currentPropertyName, currentShortValue);
-    }
-
-    // GEOSPATIAL
-    else if (handler.geospatialImplemented && handler.isGeospatial(currentOriginalType)) {
-      currentAttributeValue =
-          record.getString(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      //						currentEmbeddedValue = OShapeFactory.INSTANCE.toDoc(currentAttributeValue);  // to
-      // change with transformation from wkt (currentAttrValue) into embedded
-      ODocument currentEmbeddedValue = null;
-      properties.put(currentPropertyName, currentEmbeddedValue);
-    } else {
-      currentAttributeValue =
-          record.getString(
-              this.mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, currentPropertyName));
-      properties.put(currentPropertyName, currentAttributeValue);
-    }
+  /**
+   * @param vertexType
+   * @param propertyName
+   * @return true if the values of the property are binary, inline or chunked
+   */
+  private boolean isBinaryProperty(OVertexType vertexType, String propertyName) {
+    return "BINARY".equals(this.getVertexDecoder(vertexType).getPropertyType(propertyName));
   }
 
   /**
@@ -647,9 +657,8 @@ public class OGraphEngineForDB {
     if (oldProperty != null && newProperty != null) {
 
       if (currentPropertyType.equals("BINARY")) {
-        byte[] oldPropertyBinary = (byte[]) oldProperty;
-        byte[] newPropertyBinary = (byte[]) newProperty;
-        return Arrays.equals(oldPropertyBinary, newPropertyBinary);
+        // inline or chunked values
+        return OLobChunks.haveSameContent(oldProperty, newProperty);
       } else if (currentPropertyType.equals("BOOLEAN")) {
 
         if (oldProperty.toString().equalsIgnoreCase(newProperty.toString())) return true;
@@ -723,58 +732,44 @@ public class OGraphEngineForDB {
       String edgeTypeName)
       throws SQLException {
 
+    OVertexKey key = this.readForeignKey(foreignRecord, relation, currentInVertexType);
+    return this.upsertReachedVertexWithEdge(
+        orientGraph, key, relation, currentOutVertex, currentInVertexType, edgeTypeName);
+  }
+
+  /**
+   * Same as {@link #upsertReachedVertexWithEdge(ODatabaseDocument, ResultSet,
+   * OCanonicalRelationship, OVertex, OVertexType, String)}, starting from the foreign key already
+   * read from the record.
+   *
+   * @param key the foreign key, as key of the referenced vertex
+   */
+  public OVertex upsertReachedVertexWithEdge(
+      ODatabaseDocument orientGraph,
+      OVertexKey key,
+      OCanonicalRelationship relation,
+      OVertex currentOutVertex,
+      OVertexType currentInVertexType,
+      String edgeTypeName) {
+
     OVertex currentInVertex = null;
-    String propsAndValuesOfKey = "";
     String direction = relation.getDirection();
 
     try {
 
       OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
 
-      // building keys and values for the lookup
-      List<OAttribute> fromColumns = relation.getFromColumns();
-      String[] propertyOfKey = new String[fromColumns.size()];
-      String[] valueOfKey = new String[fromColumns.size()];
-
-      int index = 0;
-      for (OAttribute foreignAttribute : fromColumns) {
-        String attributeName = relation.getToColumns().get(index).getName();
-        propertyOfKey[index] =
-            mapper.getPropertyNameByVertexTypeAndAttribute(currentInVertexType, attributeName);
-        valueOfKey[index] = foreignRecord.getString((foreignAttribute.getName()));
-        index++;
-      }
-
       if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
           == OOutputStreamManager.DEBUG_LEVEL) {
-        String s = "Keys and values in the lookup (upsertVisitedVertex):\t";
-        for (int i = 0; i < propertyOfKey.length; i++) {
-          propsAndValuesOfKey += propertyOfKey[i] + ":" + valueOfKey[i] + ",";
-        }
-        if (propsAndValuesOfKey.length() > 0)
-          propsAndValuesOfKey = propsAndValuesOfKey.substring(0, propsAndValuesOfKey.length() - 1);
-        else propsAndValuesOfKey = "no identifier for the current record.";
-        s += propsAndValuesOfKey;
+        String s = "Keys and values in the lookup (upsertVisitedVertex):\t" + key;
         OTeleporterContext.getInstance().getMessageHandler().debug(this, "\n" + s + "\n");
       }
 
-      // new vertex is added only if all the values in the foreign key are different from null
-      boolean ok = true;
-
-      for (int i = 0; i < valueOfKey.length; i++) {
-        if (valueOfKey[i] == null) {
-          ok = false;
-          break;
-        }
-      }
-
-      // all values are different from null, thus vertex is searched in the graph and in case is
-      // added if not found.
-      if (ok) {
+      // new vertex is added only if all the values in the foreign key are different from null,
+      // thus vertex is searched in the graph and in case is added if not found.
+      if (!key.hasNullValues()) {
 
-        currentInVertex =
-            OGraphCommands.getVertexByIndexedKey(
-                orientGraph, propertyOfKey, valueOfKey, currentInVertexType.getName());
+        currentInVertex = this.lookupVertex(orientGraph, key, currentInVertexType.getName());
 
         /*
          *  if the vertex is not already present in the graph it's built, set and inserted to the graph,
@@ -786,14 +781,15 @@ public class OGraphEngineForDB {
 
           // for each attribute in the foreign key belonging to the relationship, attribute name and
           // correspondent value are added to a 'properties map'
-          for (int i = 0; i < propertyOfKey.length; i++) {
-            partialProperties.put(propertyOfKey[i], valueOfKey[i]);
+          for (int i = 0; i < key.size(); i++) {
+            partialProperties.put(key.getProperties()[i], key.getValue(i));
           }
 
           String classAndClusterName = currentInVertexType.getName();
           currentInVertex =
               this.addVertexToGraph(orientGraph, classAndClusterName, partialProperties);
-          statistics.orientAddedVertices++;
+          this.vertexKeyCache.put(classAndClusterName, key, currentInVertex.getIdentity());
+          this.countWrite(orientGraph, statistics, OWriteKind.ADDED_VERTEX);
           if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
               == OOutputStreamManager.DEBUG_LEVEL) {
             OTeleporterContext.getInstance()
@@ -801,8 +797,8 @@ public class OGraphEngineForDB {
                 .debug(
                     this,
                     "\nNEW Reached vertex (id:value) --> %s:%s\n",
-                    Arrays.toString(propertyOfKey),
-                    Arrays.toString(valueOfKey));
+                    Arrays.toString(key.getProperties()),
+                    Arrays.toString(key.getValues()));
             OTeleporterContext.getInstance()
                 .getMessageHandler()
                 .debug(
@@ -819,8 +815,8 @@ public class OGraphEngineForDB {
                 .debug(
                     this,
                     "\nNOT NEW Reached vertex, vertex %s:%s already present in the Orient Graph.\n",
-                    Arrays.toString(propertyOfKey),
-                    Arrays.toString(valueOfKey));
+                    Arrays.toString(key.getProperties()),
+                    Arrays.toString(key.getValues()));
           }
         }
 
@@ -834,7 +830,7 @@ public class OGraphEngineForDB {
           "Problem encountered during the upsert of a reached vertex. Vertex Type: "
               + currentInVertexType.getName()
               + ";\tOriginal Record: "
-              + propsAndValuesOfKey;
+              + key;
       OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
       OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
       throw new OTeleporterRuntimeException(e);
@@ -843,6 +839,74 @@ public class OGraphEngineForDB {
     return currentInVertex;
   }
 
+  /**
+   * Adds the edge between the out-vertex and the vertex referenced by the foreign key values, used
+   * when the edges are built after the import of all the vertices: the referenced vertex is only
+   * looked up, no vertex is added to the graph.
+   *
+   * @param orientGraph
+   * @param key the foreign key, as key of the referenced vertex
+   * @param relation
+   * @param currentOutVertex
+   * @param currentInVertexType
+   * @param edgeTypeName
+   * @return true if the edge was added or already present, false if the foreign key is null or
+   *     the referenced vertex is not present in the graph
+   */
+  public boolean connectToReferencedVertex(
+      ODatabaseDocument orientGraph,
+      OVertexKey key,
+      OCanonicalRelationship relation,
+      OVertex currentOutVertex,
+      OVertexType currentInVertexType,
+      String edgeTypeName) {
+
+    // the edge is added only if all the values in the foreign key are different from null
+    if (key.hasNullValues()) {
+      return false;
+    }
+
+    try {
+
+      OVertex currentInVertex = this.lookupVertex(orientGraph, key, currentInVertexType.getName());
+
+      if (currentInVertex == null) {
+        OTeleporterContext.getInstance()
+            .getStatistics()
+            .warningMessages
+            .add(
+                "Edges of the class '"
+                    + edgeTypeName
+                    + "' towards not present '"
+                    + currentInVertexType.getName()
+                    + "' vertices were skipped.");
+        return false;
+      }
+
+      // the edges in classes empty at start are checked through the seen edges, not the graph
+      this.upsertEdge(
+          orientGraph,
+          currentOutVertex,
+          currentInVertex,
+          edgeTypeName,
+          null,
+          relation.getDirection());
+      return true;
+
+    } catch (Exception e) {
+      String mess =
+          "Problem encountered during the insert of an edge. Edge Type: "
+              + edgeTypeName
+              + ";\tVertex-out: "
+              + currentOutVertex
+              + ";\tReferenced key: "
+              + key;
+      OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
+      OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
+      throw new OTeleporterRuntimeException(e);
+    }
+  }
+
   /**
    * Dead!
    *
@@ -861,7 +925,6 @@ public class OGraphEngineForDB {
       OVertexType currentInVertexType,
       String edgeTypeName) {
 
-    String propsAndValuesOfKey = "";
     String direction = relation.getDirection();
 
     try {
@@ -869,7 +932,7 @@ public class OGraphEngineForDB {
       // building keys and values for the lookup
       List<OAttribute> fromColumns = relation.getFromColumns();
       String[] propertyOfKey = new String[fromColumns.size()];
-      String[] valueOfKey = new String[fromColumns.size()];
+      Object[] valueOfKey = new Object[fromColumns.size()];
 
       int index = 0;
       for (OAttribute foreignAttribute : fromColumns) {
@@ -886,14 +949,9 @@ public class OGraphEngineForDB {
 
       if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
           == OOutputStreamManager.DEBUG_LEVEL) {
-        String s = "Keys and values in the lookup (upsertVisitedVertex):\t";
-        for (int i = 0; i < propertyOfKey.length; i++) {
-          propsAndValuesOfKey += propertyOfKey[i] + ":" + valueOfKey[i] + ",";
-        }
-        if (propsAndValuesOfKey.length() > 0)
-          propsAndValuesOfKey = propsAndValuesOfKey.substring(0, propsAndValuesOfKey.length() - 1);
-        else propsAndValuesOfKey = "no identifier for the current record.";
-        s += propsAndValuesOfKey;
+        String s =
+            "Keys and values in the lookup (upsertVisitedVertex):\t"
+                + OVertexKey.of(propertyOfKey, valueOfKey);
         OTeleporterContext.getInstance().getMessageHandler().debug(this, "\n" + s + "\n");
       }
 
@@ -913,18 +971,15 @@ public class OGraphEngineForDB {
         int verticesCount = (int) orientGraph.countClass(currentInVertexType.getName());
         OTeleporterContext.getInstance().getStatistics().leftVerticesCurrentLogicalRelationship =
             verticesCount;
-        OResultSet inVertices =
-            OGraphCommands.getVertices(
-                orientGraph, currentInVertexType.getName(), propertyOfKey, valueOfKey);
-
-        while (inVertices.hasNext()) {
-          OVertex currentInVertex = inVertices.next().getVertex().get();
-          this.insertEdge(
-              orientGraph, currentOutVertex, currentInVertex, edgeTypeName, null, direction);
+        for (ORID inVertexRid :
+            OGraphCommands.getVertexRids(
+                orientGraph, currentInVertexType.getName(), propertyOfKey, valueOfKey)) {
+          OVertex currentInVertex = OGraphCommands.loadVertex(orientGraph, inVertexRid);
+          if (currentInVertex != null) {
+            this.insertEdge(
+                orientGraph, currentOutVertex, currentInVertex, edgeTypeName, null, direction);
+          }
         }
-
-        // closing ResultSet
-        inVertices.close();
       }
 
     } catch (Exception e) {
@@ -950,65 +1005,60 @@ public class OGraphEngineForDB {
     try {
 
       boolean edgeAlreadyPresent = false;
-      Iterator<OEdge> it = currentOutVertex.getEdges(ODirection.OUT, edgeType).iterator();
       OEdge currentEdge = null;
 
       OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
 
-      if (it.hasNext()) {
-        while (it.hasNext()) {
-          currentEdge = it.next();
-          if (currentEdge
-              .getVertex(ODirection.IN)
-              .getIdentity()
-              .equals(currentInVertex.getIdentity())) {
+      // vertices of the edge according to the direction of the relationship
+      boolean inverse = direction != null && direction.equals("inverse");
+      OVertex edgeOutVertex = inverse ? currentInVertex : currentOutVertex;
+      OVertex edgeInVertex = inverse ? currentOutVertex : currentInVertex;
+
+      // the edges of the vertex are scanned only when the seen edges can't tell whether the edge is
+      // present, or when the present edge is needed to update its properties
+      boolean scanEdges;
+      if (this.seenEdges.contains(edgeType, edgeOutVertex, edgeInVertex)) {
+        edgeAlreadyPresent = true;
+        scanEdges = properties != null && !properties.isEmpty();
+      } else {
+        scanEdges = !this.seenEdges.isComplete(orientGraph, edgeType);
+      }
+
+      if (scanEdges) {
+        for (OEdge edge : edgeOutVertex.getEdges(ODirection.OUT, edgeType)) {
+          if (edge.getVertex(ODirection.IN).getIdentity().equals(edgeInVertex.getIdentity())) {
             edgeAlreadyPresent = true;
+            currentEdge = edge;
             break;
           }
         }
-        if (edgeAlreadyPresent) {
-          if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
-              == OOutputStreamManager.DEBUG_LEVEL) {
-            OTeleporterContext.getInstance()
-                .getMessageHandler()
-                .debug(
-                    this,
-                    "\nEdge between '%s' and '%s' already present.\n",
-                    currentOutVertex.toString(),
-                    currentInVertex.toString());
-          }
-          this.setElementProperties(currentEdge, properties);
+      }
+
+      if (edgeAlreadyPresent) {
+        if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+            == OOutputStreamManager.DEBUG_LEVEL) {
+          OTeleporterContext.getInstance()
+              .getMessageHandler()
+              .debug(
+                  this,
+                  "\nEdge between '%s' and '%s' already present.\n",
+                  currentOutVertex.toString(),
+                  currentInVertex.toString());
+        }
+        if (currentEdge != null && properties != null) {
+          this.updateEdgeProperties(currentEdge, properties);
         } else {
-          OEdge edge = null;
-          if (direction != null && direction.equals("direct")) {
-            edge =
-                this.addEdgeToGraph(
-                    orientGraph, currentOutVertex, currentInVertex, edgeType, properties);
-          } else if (direction != null && direction.equals("inverse")) {
-            edge =
-                this.addEdgeToGraph(
-                    orientGraph, currentInVertex, currentOutVertex, edgeType, properties);
-          }
-          statistics.orientAddedEdges++;
-          if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
-              == OOutputStreamManager.DEBUG_LEVEL) {
-            OTeleporterContext.getInstance()
-                .getMessageHandler()
-                .debug(this, "\nNew edge inserted: %s\n", edge.toString());
-          }
+          // the properties are not written: the chunks just read are not needed
+          OLobChunks.deleteChunksOfProperties(properties);
         }
       } else {
         OEdge edge = null;
-        if (direction != null && direction.equals("direct")) {
-          edge =
-              this.addEdgeToGraph(
-                  orientGraph, currentOutVertex, currentInVertex, edgeType, properties);
-        } else if (direction != null && direction.equals("inverse")) {
+        if (direction != null && (direction.equals("direct") || inverse)) {
           edge =
               this.addEdgeToGraph(
-                  orientGraph, currentInVertex, currentOutVertex, edgeType, properties);
+                  orientGraph, edgeOutVertex, edgeInVertex, edgeType, properties);
         }
-        statistics.orientAddedEdges++;
+        this.countWrite(orientGraph, statistics, OWriteKind.ADDED_EDGE);
         if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
             == OOutputStreamManager.DEBUG_LEVEL) {
           OTeleporterContext.getInstance()
@@ -1028,6 +1078,32 @@ public class OGraphEngineForDB {
     }
   }
 
+  /**
+   * Sets the properties read from a record on a present edge. The LOB values are replaced only when
+   * their content changed, deleting the chunks of the replaced value, otherwise the edge keeps its
+   * value and the chunks just read are deleted.
+   *
+   * @param edge
+   * @param properties
+   */
+  private void updateEdgeProperties(OEdge edge, Map<String, Object> properties) {
+
+    Map<String, Object> changedProperties = new LinkedHashMap<String, Object>();
+    for (Map.Entry<String, Object> property : properties.entrySet()) {
+      Object oldValue = edge.getProperty(property.getKey());
+      Object newValue = property.getValue();
+      if (OLobChunks.isChunked(oldValue) || OLobChunks.isChunked(newValue)) {
+        if (OLobChunks.haveSameContent(oldValue, newValue)) {
+          OLobChunks.deleteChunks(newValue);
+          continue;
+        }
+        OLobChunks.deleteChunks(oldValue);
+      }
+      changedProperties.put(property.getKey(), newValue);
+    }
+    this.setElementProperties(edge, changedProperties);
+  }
+
   /**
    * Dead!
    *
@@ -1059,7 +1135,7 @@ public class OGraphEngineForDB {
             this.addEdgeToGraph(
                 orientGraph, currentInVertex, currentOutVertex, edgeType, properties);
       }
-      statistics.orientAddedEdges++;
+      this.countWrite(orientGraph, statistics, OWriteKind.ADDED_EDGE);
       statistics.doneLeftVerticesCurrentLogicalRelationship++;
       if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
           == OOutputStreamManager.DEBUG_LEVEL) {
@@ -1087,6 +1163,8 @@ public class OGraphEngineForDB {
       OAggregatorEdge aggregatorEdge)
       throws SQLException {
 
+    Map<String, Object> properties = null;
+
     try {
 
       OCanonicalRelationship relationship1 = null;
@@ -1115,33 +1193,9 @@ public class OGraphEngineForDB {
         relationship2 = it.next();
       }
 
-      // Building keys and values for out-vertex lookup
-
-      String[] keysOutVertex = new String[relationship1.getFromColumns().size()];
-      String[] valuesOutVertex = new String[relationship1.getFromColumns().size()];
-
-      int index = 0;
-      for (OAttribute foreignKeyAttribute : relationship1.getFromColumns()) {
-        keysOutVertex[index] =
-            this.mapper.getPropertyNameByEntityAndAttribute(
-                relationship1.getParentEntity(), relationship1.getToColumns().get(index).getName());
-        valuesOutVertex[index] = jointTableRecord.getString(foreignKeyAttribute.getName());
-        index++;
-      }
-
-      // Building keys and values for in-vertex lookup
-
-      String[] keysInVertex = new String[relationship2.getToColumns().size()];
-      String[] valuesInVertex = new String[relationship2.getToColumns().size()];
-
-      index = 0;
-      for (OAttribute foreignKeyAttribute : relationship2.getFromColumns()) {
-        keysInVertex[index] =
-            this.mapper.getPropertyNameByEntityAndAttribute(
-                relationship2.getParentEntity(), relationship2.getToColumns().get(index).getName());
-        valuesInVertex[index] = jointTableRecord.getString(foreignKeyAttribute.getName());
-        index++;
-      }
+      // reading keys for out-vertex and in-vertex lookups
+      OVertexKey outVertexKey = this.readAggregatorKey(jointTableRecord, relationship1);
+      OVertexKey inVertexKey = this.readAggregatorKey(jointTableRecord, relationship2);
 
       // String direction
       String direction = joinTable.getDirectionOfN2NRepresentedRelationship();
@@ -1150,62 +1204,28 @@ public class OGraphEngineForDB {
       OVertex currentInVertex;
       if (direction.equals("direct")) {
         currentOutVertex =
-            OGraphCommands.getVertexByIndexedKey(
-                orientGraph,
-                keysOutVertex,
-                valuesOutVertex,
-                aggregatorEdge.getOutVertexClassName());
+            this.lookupVertex(orientGraph, outVertexKey, aggregatorEdge.getOutVertexClassName());
         currentInVertex =
-            OGraphCommands.getVertexByIndexedKey(
-                orientGraph, keysInVertex, valuesInVertex, aggregatorEdge.getInVertexClassName());
+            this.lookupVertex(orientGraph, inVertexKey, aggregatorEdge.getInVertexClassName());
       } else {
         currentOutVertex =
-            OGraphCommands.getVertexByIndexedKey(
-                orientGraph, keysOutVertex, valuesOutVertex, aggregatorEdge.getInVertexClassName());
+            this.lookupVertex(orientGraph, outVertexKey, aggregatorEdge.getInVertexClassName());
         currentInVertex =
-            OGraphCommands.getVertexByIndexedKey(
-                orientGraph, keysInVertex, valuesInVertex, aggregatorEdge.getOutVertexClassName());
+            this.lookupVertex(orientGraph, inVertexKey, aggregatorEdge.getOutVertexClassName());
       }
 
       // extracting edge properties from the join table
-      Map<String, Object> properties = new LinkedHashMap<String, Object>();
       OEdgeType edgeType = aggregatorEdge.getEdgeType();
-
-      for (OModelProperty currentProperty : edgeType.getAllProperties()) {
-
-        String currentPropertyName = currentProperty.getName();
-        String currentPropertyType = currentProperty.getOrientdbType();
-        if (currentProperty.getOrientdbType() == null) { // superfluous ?!
-          currentPropertyType =
-              OTeleporterContext.getInstance()
-                  .getDataTypeHandler()
-                  .resolveType(currentProperty.getOriginalType().toLowerCase(Locale.ENGLISH))
-                  .toString();
-        }
-        String currentOriginalType = currentProperty.getOriginalType();
-        OVertexType joinVertexType =
-            this.mapper.getJoinVertexTypeByAggregatorEdge(edgeType.getName());
-
-        try {
-          extractPropertiesFromRecordIntoVertex(
-              jointTableRecord,
-              properties,
-              currentPropertyType,
-              currentPropertyName,
-              currentOriginalType,
-              joinVertexType);
-        } catch (Exception e) {
-          String mess =
-              "Problem encountered during the extraction of the values from the records. Edge Type: "
-                  + edgeType.getName()
-                  + ";\tProperty: "
-                  + currentProperty.getName()
-                  + ";\tOriginal join table: "
-                  + joinTable.getName();
-          OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
-          OTeleporterContext.getInstance().printExceptionStackTrace(e, "debug");
-        }
-      }
+      ORowDecoder decoder =
+          this.aggregatorEdgeDecoders.computeIfAbsent(
+              edgeType.getName(),
+              name ->
+                  ORowDecoder.forAggregatorEdge(
+                      edgeType,
+                      this.mapper.getJoinVertexTypeByAggregatorEdge(name),
+                      this.mapper,
+                      this.handler));
+      properties = decoder.decode(jointTableRecord, "Original join table", joinTable.getName());
 
       this.upsertEdge(
           orientGraph,
@@ -1219,10 +1239,35 @@ public class OGraphEngineForDB {
       String mess = "";
       OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
       OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
+      this.discardLobChunks(orientGraph, properties);
       throw new OTeleporterRuntimeException(e);
     }
   }
 
+  /**
+   * Reads from the join table record the foreign key of one of the aggregated relationships, as
+   * key of the referenced vertex. The key is reused by the current thread for all the records.
+   */
+  private OVertexKey readAggregatorKey(ResultSet jointTableRecord, OCanonicalRelationship relation)
+      throws SQLException {
+
+    Map<OCanonicalRelationship, OVertexKey> keys = this.aggregatorKeys.get();
+    OVertexKey key = keys.get(relation);
+    if (key == null) {
+      String[] propertyOfKey = new String[relation.getFromColumns().size()];
+      for (int i = 0; i < propertyOfKey.length; i++) {
+        propertyOfKey[i] =
+            this.mapper.getPropertyNameByEntityAndAttribute(
+                relation.getParentEntity(), relation.getToColumns().get(i).getName());
+      }
+      OVertexType parentVertexType = this.mapper.getVertexTypeByEntity(relation.getParentEntity());
+      key = this.buildForeignKey(relation, parentVertexType, propertyOfKey);
+      keys.put(relation, key);
+    }
+    key.read(jointTableRecord);
+    return key;
+  }
+
   private boolean keysMatch(OCanonicalRelationship relationship, List<String> columns) {
     Set<String> relColumns =
         relationship.getForeignKey().getInvolvedAttributes().stream()
@@ -1275,6 +1320,7 @@ public class OGraphEngineForDB {
 
     OEdge edge = null;
     boolean alreadySaved = false;
+    this.seenEdges.track(orientGraph, edgeType);
     try {
       edge = orientGraph.newEdge(currentOutVertex, currentInVertex, edgeType);
       if (properties != null) {
@@ -1287,6 +1333,7 @@ public class OGraphEngineForDB {
     if (!alreadySaved) {
       edge.save();
     }
+    this.seenEdges.add(orientGraph, edgeType, currentOutVertex, currentInVertex);
     return edge;
   }
 
@@ -1318,4 +1365,59 @@ public class OGraphEngineForDB {
     }
     this.setElementProperties(currentOutVertex, updatedProps);
   }
+
+  /**
+   * Counts a written vertex or edge: within a transaction it's counted only when the transaction is
+   * committed (see {@link #commitPending()}).
+   */
+  private void countWrite(
+      ODatabaseDocument orientGraph, OTeleporterStatistics statistics, OWriteKind kind) {
+
+    if (orientGraph.getTransaction().isActive()) {
+      OPendingStatistics pending = this.pendingStatistics.get();
+      switch (kind) {
+        case ADDED_VERTEX:
+          pending.addedVertices++;
+          break;
+        case UPDATED_VERTEX:
+          pending.updatedVertices++;
+          break;
+        case ADDED_EDGE:
+          pending.addedEdges++;
+          break;
+      }
+      return;
+    }
+
+    switch (kind) {
+      case ADDED_VERTEX:
+        statistics.incrementOrientAddedVertices();
+        break;
+      case UPDATED_VERTEX:
+        statistics.incrementOrientUpdatedVertices();
+        break;
+      case ADDED_EDGE:
+        statistics.incrementOrientAddedEdges();
+        break;
+    }
+  }
+
+  private enum OWriteKind {
+    ADDED_VERTEX,
+    UPDATED_VERTEX,
+    ADDED_EDGE
+  }
+
+  private static class OPendingStatistics {
+
+    private int addedVertices;
+    private int updatedVertices;
+    private int addedEdges;
+
+    void clear() {
+      this.addedVertices = 0;
+      this.updatedVertices = 0;
+      this.addedEdges = 0;
+    }
+  }
 }
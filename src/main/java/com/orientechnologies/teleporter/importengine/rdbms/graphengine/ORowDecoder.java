@@ -0,0 +1,303 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.importengine.rdbms.graphengine;
+
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
+import com.orientechnologies.teleporter.mapper.rdbms.OER2GraphMapper;
+import com.orientechnologies.teleporter.model.graphmodel.OEdgeType;
+import com.orientechnologies.teleporter.model.graphmodel.OModelProperty;
+import com.orientechnologies.teleporter.model.graphmodel.OVertexType;
+import com.orientechnologies.teleporter.persistence.handler.OColumnExtractor;
+import com.orientechnologies.teleporter.persistence.handler.ODBMSDataTypeHandler;
+import com.orientechnologies.teleporter.persistence.util.OColumnOrdinals;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decoder of the source records of a vertex or edge type, compiled once per type: the column, the
+ * OrientDB type and the extractor of each property are resolved when the decoder is built, so
+ * decoding a record does not resolve types, compare type names or walk the class mappers.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class ORowDecoder {
+
+  private final String typeKind;
+  private final String typeName;
+  private final String[] propertyNames;
+  private final String[] columnNames;
+  private final OColumnExtractor[] extractors;
+
+  // ordinals of the columns in the result set last decoded by each thread
+  private final ThreadLocal<OColumnOrdinalsCache> ordinals;
+
+  // OrientDB type, original type and column of each property of the type, migrated or not
+  private final Map<String, String> property2type;
+  private final Map<String, String> property2originalType;
+  private final Map<String, String> property2column;
+
+  private ORowDecoder(
+      String typeKind,
+      String typeName,
+      List<String> propertyNames,
+      List<String> columnNames,
+      List<OColumnExtractor> extractors,
+      Map<String, String> property2type,
+      Map<String, String> property2originalType,
+      Map<String, String> property2column) {
+    this.typeKind = typeKind;
+    this.typeName = typeName;
+    this.propertyNames = propertyNames.toArray(new String[propertyNames.size()]);
+    this.columnNames = columnNames.toArray(new String[columnNames.size()]);
+    this.extractors = extractors.toArray(new OColumnExtractor[extractors.size()]);
+    this.property2type = property2type;
+    this.property2originalType = property2originalType;
+    this.property2column = property2column;
+    this.ordinals = ThreadLocal.withInitial(OColumnOrdinalsCache::new);
+  }
+
+  /**
+   * Compiles the decoder of the records of a vertex type, inherited properties included.
+   *
+   * @param vertexType
+   * @param mapper
+   * @param handler
+   * @return
+   */
+  public static ORowDecoder forVertexType(
+      OVertexType vertexType, OER2GraphMapper mapper, ODBMSDataTypeHandler handler) {
+
+    Builder builder = new Builder("Vertex Type", vertexType.getName(), handler);
+    for (OModelProperty property : vertexType.getAllProperties()) {
+      String columnName =
+          mapper.getAttributeNameByVertexTypeAndProperty(vertexType, property.getName());
+      builder.add(property, getType(property), columnName, property.isIncludedInMigration());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Compiles the decoder of the records an edge type is built from (split entities).
+   *
+   * @param edgeType
+   * @param mapper
+   * @param handler
+   * @return
+   */
+  public static ORowDecoder forEdgeType(
+      OEdgeType edgeType, OER2GraphMapper mapper, ODBMSDataTypeHandler handler) {
+
+    Builder builder = new Builder("Edge Type", edgeType.getName(), handler);
+    for (OModelProperty property : edgeType.getAllProperties()) {
+      String columnName =
+          mapper.getAttributeNameByEdgeTypeAndProperty(edgeType, property.getName());
+      builder.add(property, getType(property), columnName, property.isIncludedInMigration());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Compiles the decoder of the records of a join table aggregated into an edge type: the columns
+   * are the ones of the vertex type the join table was mapped to.
+   *
+   * @param edgeType
+   * @param joinVertexType
+   * @param mapper
+   * @param handler
+   * @return
+   */
+  public static ORowDecoder forAggregatorEdge(
+      OEdgeType edgeType,
+      OVertexType joinVertexType,
+      OER2GraphMapper mapper,
+      ODBMSDataTypeHandler handler) {
+
+    Builder builder = new Builder("Edge Type", edgeType.getName(), handler);
+    for (OModelProperty property : edgeType.getAllProperties()) {
+      String columnName =
+          mapper.getAttributeNameByVertexTypeAndProperty(joinVertexType, property.getName());
+      builder.add(property, getType(property), columnName, true);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Decodes the migrated properties of a record. A value that can't be extracted is reported and
+   * skipped.
+   *
+   * @param record
+   * @param contextLabel label of the context printed in the error messages, null if none
+   * @param contextValue value of the context printed in the error messages, converted into a
+   *     string only if an error occurs
+   * @return the properties, in the order of the type
+   */
+  public Map<String, Object> decode(ResultSet record, String contextLabel, Object contextValue) {
+
+    Map<String, Object> properties =
+        new LinkedHashMap<String, Object>(this.propertyNames.length * 4 / 3 + 1);
+    int[] columns = this.getColumnOrdinals(record, contextLabel, contextValue);
+    for (int i = 0; i < this.extractors.length; i++) {
+      try {
+        int column = columns[i];
+        if (column == 0) {
+          // not in the result set: the driver raises its own error
+          column = record.findColumn(this.columnNames[i]);
+        }
+        properties.put(this.propertyNames[i], this.extractors[i].extract(record, column));
+      } catch (Exception e) {
+        String mess =
+            "Problem encountered during the extraction of the values from the records. "
+                + this.typeKind
+                + ": "
+                + this.typeName
+                + ";\tProperty: "
+                + this.propertyNames[i]
+                + (contextLabel != null ? ";\t" + contextLabel + ": " + contextValue : "");
+        OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
+        OTeleporterContext.getInstance().printExceptionStackTrace(e, "debug");
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * @param propertyName
+   * @return the OrientDB type the property is decoded to, null if not a property of the type
+   */
+  public String getPropertyType(String propertyName) {
+    return this.property2type.get(propertyName);
+  }
+
+  /**
+   * @param propertyName
+   * @return the original type of the property, null if not a property of the type
+   */
+  public String getOriginalType(String propertyName) {
+    return this.property2originalType.get(propertyName);
+  }
+
+  /**
+   * @param propertyName
+   * @return the source column of the property, null if not a property of the type
+   */
+  public String getColumnName(String propertyName) {
+    return this.property2column.get(propertyName);
+  }
+
+  /**
+   * @return the ordinals of the columns of the migrated properties in the record, resolved once
+   *     per result set
+   */
+  private int[] getColumnOrdinals(ResultSet record, String contextLabel, Object contextValue) {
+
+    OColumnOrdinalsCache cached = this.ordinals.get();
+    if (cached.resultSet != record) {
+      try {
+        cached.columns = OColumnOrdinals.of(record).getOrdinals(this.columnNames);
+      } catch (SQLException e) {
+        String mess =
+            "Problem encountered while reading the columns of the records. "
+                + this.typeKind
+                + ": "
+                + this.typeName
+                + (contextLabel != null ? ";\t" + contextLabel + ": " + contextValue : "");
+        OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
+        OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
+        throw new OTeleporterRuntimeException(e);
+      }
+      cached.resultSet = record;
+    }
+    return cached.columns;
+  }
+
+  /**
+   * @return the OrientDB type of the property: the one set in the graph model (e.g. by the
+   *     configuration or from the precision of the source column), otherwise the one resolved
+   *     from the original type
+   */
+  private static String getType(OModelProperty property) {
+    if (property.getOrientdbType() != null) {
+      return property.getOrientdbType().toUpperCase(Locale.ENGLISH);
+    }
+    return OTeleporterContext.getInstance()
+        .getDataTypeHandler()
+        .resolveType(property.getOriginalType().toLowerCase(Locale.ENGLISH))
+        .toString();
+  }
+
+  private static class OColumnOrdinalsCache {
+
+    private ResultSet resultSet;
+    private int[] columns;
+  }
+
+  private static class Builder {
+
+    private final String typeKind;
+    private final String typeName;
+    private final ODBMSDataTypeHandler handler;
+    private final List<String> propertyNames = new ArrayList<String>();
+    private final List<String> columnNames = new ArrayList<String>();
+    private final List<OColumnExtractor> extractors = new ArrayList<OColumnExtractor>();
+    private final Map<String, String> property2type = new HashMap<String, String>();
+    private final Map<String, String> property2originalType = new HashMap<String, String>();
+    private final Map<String, String> property2column = new HashMap<String, String>();
+
+    Builder(String typeKind, String typeName, ODBMSDataTypeHandler handler) {
+      this.typeKind = typeKind;
+      this.typeName = typeName;
+      this.handler = handler;
+    }
+
+    void add(OModelProperty property, String type, String columnName, boolean migrated) {
+      String propertyName = property.getName();
+      this.property2type.put(propertyName, type);
+      this.property2originalType.put(propertyName, property.getOriginalType());
+      this.property2column.put(propertyName, columnName);
+      if (migrated && !this.handler.isExcludedLob(type, property.getOriginalType())) {
+        this.propertyNames.add(propertyName);
+        this.columnNames.add(columnName);
+        this.extractors.add(
+            this.handler.buildExtractor(propertyName, type, property.getOriginalType()));
+      }
+    }
+
+    ORowDecoder build() {
+      return new ORowDecoder(
+          this.typeKind,
+          this.typeName,
+          this.propertyNames,
+          this.columnNames,
+          this.extractors,
+          this.property2type,
+          this.property2originalType,
+          this.property2column);
+    }
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.importengine.rdbms.graphengine;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.teleporter.persistence.util.OLongPairMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Edges added during the migration, tracked for each edge class by the identities of their
+ * vertices. It makes the check of the existence of an edge a lookup instead of a scan of all the
+ * edges of the out-vertex:
+ *
+ * <ul>
+ *   <li>an edge added during the migration is found in the set;
+ *   <li>if the edge class was empty when the migration started adding edges to it, and its set
+ *       never overflowed, an edge not in the set is not present at all.
+ * </ul>
+ *
+ * All the edge classes share a single bound: when it's reached, the class receiving the edge
+ * overflows, its set is dropped (releasing its share of the bound) and the existence of its edges
+ * goes back to be checked by scanning the edges of the out-vertex.
+ *
+ * Edges added within a transaction are kept aside, for the thread running it, until the
+ * transaction is committed (their vertices get their final identities only then) or rolled back.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OSeenEdges {
+
+  private static final long MAX_CLUSTER_POSITION = 1L << 48;
+
+  // max number of edges tracked for all the edge classes, 0 means the tracking is disabled
+  private final int maxEdges;
+
+  // guarded by "this"
+  private final Map<String, OClassEdges> classEdges;
+  private int trackedEdges;
+
+  private final ThreadLocal<OPendingEdges> pendingEdges;
+
+  public OSeenEdges(int maxEdges) {
+    this.maxEdges = maxEdges;
+    this.classEdges = new HashMap<String, OClassEdges>();
+    this.trackedEdges = 0;
+    this.pendingEdges = ThreadLocal.withInitial(OPendingEdges::new);
+  }
+
+  public boolean isEnabled() {
+    return this.maxEdges > 0;
+  }
+
+  /**
+   * Starts tracking the edge class, if not tracked yet: it must be called before adding an edge to
+   * the class, so that the class is still empty if no edge was added before the migration.
+   *
+   * @param orientGraph
+   * @param edgeClassName
+   */
+  public void track(ODatabaseDocument orientGraph, String edgeClassName) {
+    if (this.isEnabled()) {
+      this.getClassEdges(orientGraph, edgeClassName);
+    }
+  }
+
+  /**
+   * @param orientGraph
+   * @param edgeClassName
+   * @return true if all the edges of the class are tracked, so that an edge not found in the set is
+   *     not present in the graph
+   */
+  public boolean isComplete(ODatabaseDocument orientGraph, String edgeClassName) {
+    if (!this.isEnabled()) {
+      return false;
+    }
+    OClassEdges edges = this.getClassEdges(orientGraph, edgeClassName);
+    synchronized (this) {
+      return edges.emptyAtStart && !edges.overflowed;
+    }
+  }
+
+  /**
+   * @param edgeClassName
+   * @param outVertex
+   * @param inVertex
+   * @return true if the edge between the two vertices was added during the migration
+   */
+  public boolean contains(String edgeClassName, OVertex outVertex, OVertex inVertex) {
+
+    if (!this.isEnabled()) {
+      return false;
+    }
+
+    ORID outRid = outVertex.getIdentity();
+    ORID inRid = inVertex.getIdentity();
+    if (this.pendingEdges.get().contains(edgeClassName, outRid, inRid)) {
+      return true;
+    }
+
+    if (!isEncodable(outRid) || !isEncodable(inRid)) {
+      return false;
+    }
+    synchronized (this) {
+      OClassEdges edges = this.classEdges.get(edgeClassName);
+      return edges != null && edges.ridPairs.containsKey(encode(outRid), encode(inRid));
+    }
+  }
+
+  /**
+   * Records an edge just added to the graph.
+   *
+   * @param orientGraph
+   * @param edgeClassName
+   * @param outVertex
+   * @param inVertex
+   */
+  public void add(
+      ODatabaseDocument orientGraph, String edgeClassName, OVertex outVertex, OVertex inVertex) {
+
+    if (!this.isEnabled()) {
+      return;
+    }
+    if (orientGraph.getTransaction().isActive()) {
+      this.pendingEdges.get().add(edgeClassName, outVertex, inVertex);
+    } else {
+      this.addCommitted(edgeClassName, outVertex.getIdentity(), inVertex.getIdentity());
+    }
+  }
+
+  /** Records the edges added within the transaction just committed by the current thread. */
+  public void commitPending() {
+    OPendingEdges pending = this.pendingEdges.get();
+    for (OPendingEdge pendingEdge : pending.edges) {
+      this.addCommitted(
+          pendingEdge.edgeClassName,
+          pendingEdge.outVertex.getIdentity(),
+          pendingEdge.inVertex.getIdentity());
+    }
+    pending.clear();
+  }
+
+  /** Forgets the edges added within the transaction just rolled back by the current thread. */
+  public void discardPending() {
+    this.pendingEdges.get().clear();
+  }
+
+  private synchronized void addCommitted(String edgeClassName, ORID outRid, ORID inRid) {
+
+    OClassEdges edges = this.classEdges.get(edgeClassName);
+    if (edges == null || edges.overflowed) {
+      return;
+    }
+    if (!isEncodable(outRid) || !isEncodable(inRid) || this.trackedEdges >= this.maxEdges) {
+      // the edge can't be tracked, so the set can't tell anymore whether an edge is present
+      this.overflow(edges);
+      return;
+    }
+    if (edges.ridPairs.add(encode(outRid), encode(inRid))) {
+      this.trackedEdges++;
+    }
+  }
+
+  /** @return the number of edges tracked for all the edge classes */
+  public synchronized int size() {
+    return this.trackedEdges;
+  }
+
+  private void overflow(OClassEdges edges) {
+    this.trackedEdges -= edges.ridPairs.size();
+    edges.overflowed = true;
+    edges.ridPairs = new OLongPairMap(false);
+  }
+
+  private OClassEdges getClassEdges(ODatabaseDocument orientGraph, String edgeClassName) {
+
+    synchronized (this) {
+      OClassEdges edges = this.classEdges.get(edgeClassName);
+      if (edges != null) {
+        return edges;
+      }
+    }
+
+    // counted outside the lock, only the first count is kept
+    boolean emptyAtStart = orientGraph.countClass(edgeClassName) == 0;
+    synchronized (this) {
+      OClassEdges edges = this.classEdges.get(edgeClassName);
+      if (edges == null) {
+        edges = new OClassEdges(emptyAtStart);
+        this.classEdges.put(edgeClassName, edges);
+      }
+      return edges;
+    }
+  }
+
+  static boolean isEncodable(ORID rid) {
+    return rid.isPersistent() && rid.getClusterPosition() < MAX_CLUSTER_POSITION;
+  }
+
+  /** Packs a persistent identity in a long: 16 bits for the cluster id, 48 for the position. */
+  static long encode(ORID rid) {
+    return ((long) rid.getClusterId() << 48) | rid.getClusterPosition();
+  }
+
+  private static class OClassEdges {
+
+    private final boolean emptyAtStart;
+    private boolean overflowed;
+    private OLongPairMap ridPairs;
+
+    OClassEdges(boolean emptyAtStart) {
+      this.emptyAtStart = emptyAtStart;
+      this.overflowed = false;
+      this.ridPairs = new OLongPairMap(false);
+    }
+  }
+
+  /**
+   * Edges added by a thread within its current transaction, indexed by the identities their
+   * vertices have within the transaction.
+   */
+  private static class OPendingEdges {
+
+    private final List<OPendingEdge> edges = new ArrayList<OPendingEdge>();
+    private final Set<List<Object>> keys = new HashSet<List<Object>>();
+
+    void add(String edgeClassName, OVertex outVertex, OVertex inVertex) {
+      this.edges.add(new OPendingEdge(edgeClassName, outVertex, inVertex));
+      this.keys.add(key(edgeClassName, outVertex.getIdentity(), inVertex.getIdentity()));
+    }
+
+    boolean contains(String edgeClassName, ORID outRid, ORID inRid) {
+      return !this.edges.isEmpty() && this.keys.contains(key(edgeClassName, outRid, inRid));
+    }
+
+    void clear() {
+      this.edges.clear();
+      this.keys.clear();
+    }
+
+    // the identities are copied, as the ones of the new vertices change on commit
+    private static List<Object> key(String edgeClassName, ORID outRid, ORID inRid) {
+      return Arrays.<Object>asList(edgeClassName, outRid.copy(), inRid.copy());
+    }
+  }
+
+  private static class OPendingEdge {
+
+    private final String edgeClassName;
+    private final OVertex outVertex;
+    private final OVertex inVertex;
+
+    OPendingEdge(String edgeClassName, OVertex outVertex, OVertex inVertex) {
+      this.edgeClassName = edgeClassName;
+      this.outVertex = outVertex;
+      this.inVertex = inVertex;
+    }
+  }
+}
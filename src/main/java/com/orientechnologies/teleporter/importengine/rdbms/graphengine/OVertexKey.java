@@ -0,0 +1,332 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.importengine.rdbms.graphengine;
+
+import com.orientechnologies.teleporter.persistence.util.OColumnOrdinals;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Composite key of a vertex: the key properties and their values. A key reading its values from
+ * the source records is built once per vertex type (or relationship) and then refilled for each
+ * record, so no array is allocated per record:
+ *
+ * <ul>
+ *   <li>the values of integral columns are read as numbers, the other ones as strings;
+ *   <li>a key made of a single integral column keeps its value as a primitive long.
+ * </ul>
+ *
+ * The description of the key printed in the messages is built only when requested. A key kept
+ * beyond the current record (e.g. buffered in a batch) must be copied.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OVertexKey {
+
+  private final String[] properties;
+  // positions of the properties in alphabetical order
+  private final int[] sortedPositions;
+  // properties joined in alphabetical order, the same whatever the order of the properties
+  private final String signature;
+
+  // source columns, null if the values are not read from the records
+  private final String[] columns;
+  private final boolean[] integralColumns;
+  private final boolean[] booleanColumns;
+
+  private final Object[] values;
+  // single integral key: value and nullity kept as primitives
+  private final boolean numeric;
+  private long numericValue;
+  private boolean numericNull;
+
+  // result set the ordinals of the columns were resolved from
+  private ResultSet resultSet;
+  private int[] ordinals;
+
+  private OVertexKey(
+      String[] properties,
+      int[] sortedPositions,
+      String signature,
+      String[] columns,
+      boolean[] integralColumns,
+      boolean[] booleanColumns,
+      boolean numeric) {
+    this.properties = properties;
+    this.sortedPositions = sortedPositions;
+    this.signature = signature;
+    this.columns = columns;
+    this.integralColumns = integralColumns;
+    this.booleanColumns = booleanColumns;
+    this.values = new Object[properties.length];
+    this.numeric = numeric;
+    this.numericNull = true;
+  }
+
+  /**
+   * Builds a key reading its values from the source records.
+   *
+   * @param properties the key properties
+   * @param columns the source column of each property
+   * @param integralColumns true for the columns whose values are integral numbers
+   * @param booleanColumns true for the boolean columns, whose "t" and "f" values are normalized
+   * @return the key, to be filled through {@link #read(ResultSet)}
+   */
+  public static OVertexKey forColumns(
+      String[] properties,
+      String[] columns,
+      boolean[] integralColumns,
+      boolean[] booleanColumns) {
+    return new OVertexKey(
+        properties,
+        sortPositions(properties),
+        buildSignature(properties),
+        columns,
+        integralColumns,
+        booleanColumns,
+        properties.length == 1 && integralColumns[0]);
+  }
+
+  /**
+   * Builds a key with the passed values.
+   *
+   * @param properties
+   * @param values
+   * @return
+   */
+  public static OVertexKey of(String[] properties, Object[] values) {
+    OVertexKey key =
+        new OVertexKey(
+            properties,
+            sortPositions(properties),
+            buildSignature(properties),
+            null,
+            null,
+            null,
+            false);
+    System.arraycopy(values, 0, key.values, 0, values.length);
+    return key;
+  }
+
+  /**
+   * Reads the values of the key from the current record of a result set.
+   *
+   * @param record
+   * @return false if some value of the key is null
+   * @throws SQLException
+   */
+  public boolean read(ResultSet record) throws SQLException {
+
+    if (this.resultSet != record) {
+      this.ordinals = OColumnOrdinals.of(record).getOrdinals(this.columns);
+      this.resultSet = record;
+    }
+
+    boolean complete = true;
+    for (int i = 0; i < this.columns.length; i++) {
+      int column = this.ordinals[i];
+      if (column == 0) {
+        // not in the result set: the driver raises its own error
+        column = record.findColumn(this.columns[i]);
+      }
+
+      if (this.integralColumns[i]) {
+        long value = record.getLong(column);
+        boolean isNull = record.wasNull();
+        if (this.numeric) {
+          this.numericValue = value;
+          this.numericNull = isNull;
+        } else {
+          this.values[i] = isNull ? null : Long.valueOf(value);
+        }
+        complete &= !isNull;
+      } else {
+        String value = record.getString(column);
+        if (value != null && this.booleanColumns[i]) {
+          // converting eventual "t" or "f" values in "true" and "false"
+          if (value.equals("t")) {
+            value = "true";
+          } else if (value.equals("f")) {
+            value = "false";
+          }
+        }
+        this.values[i] = value;
+        complete &= value != null;
+      }
+    }
+    return complete;
+  }
+
+  /**
+   * @param position
+   * @param value
+   */
+  public void set(int position, Object value) {
+    if (this.numeric) {
+      this.numericNull = value == null;
+      if (value != null) {
+        this.numericValue = ((Number) value).longValue();
+      }
+    } else {
+      this.values[position] = value;
+    }
+  }
+
+  /** @return a copy of the key holding its current values, not bound to the source columns */
+  public OVertexKey copy() {
+    OVertexKey copy =
+        new OVertexKey(
+            this.properties,
+            this.sortedPositions,
+            this.signature,
+            null,
+            null,
+            null,
+            this.numeric);
+    System.arraycopy(this.values, 0, copy.values, 0, this.values.length);
+    copy.numericValue = this.numericValue;
+    copy.numericNull = this.numericNull;
+    return copy;
+  }
+
+  public String[] getProperties() {
+    return this.properties;
+  }
+
+  public int size() {
+    return this.properties.length;
+  }
+
+  /** @return the properties joined in alphabetical order */
+  public String getSignature() {
+    return this.signature;
+  }
+
+  /**
+   * @param properties
+   * @return true if the key is made of the passed properties, in the same order
+   */
+  public boolean hasProperties(Collection<String> properties) {
+    if (properties.size() != this.properties.length) {
+      return false;
+    }
+    int i = 0;
+    for (String property : properties) {
+      if (!property.equals(this.properties[i++])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return true if the key is made of a single integral value, kept as a primitive long */
+  public boolean isNumeric() {
+    return this.numeric;
+  }
+
+  public long getNumericValue() {
+    return this.numericValue;
+  }
+
+  /**
+   * @param position
+   * @return the value of the property at the position, null if NULL
+   */
+  public Object getValue(int position) {
+    if (this.numeric) {
+      return this.numericNull ? null : Long.valueOf(this.numericValue);
+    }
+    return this.values[position];
+  }
+
+  /** @return a new array with the values of the key */
+  public Object[] getValues() {
+    if (this.numeric) {
+      return new Object[] {this.getValue(0)};
+    }
+    return this.values.clone();
+  }
+
+  public boolean hasNullValues() {
+    if (this.numeric) {
+      return this.numericNull;
+    }
+    for (Object value : this.values) {
+      if (value == null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param rank
+   * @return the position of the property with the rank in the alphabetical order of the properties
+   */
+  int getSortedPosition(int rank) {
+    return this.sortedPositions[rank];
+  }
+
+  /** @return the description of the key, in the "property:value,..." form */
+  @Override
+  public String toString() {
+
+    if (this.properties.length == 0) {
+      return "no identifier for the current record.";
+    }
+    StringBuilder description = new StringBuilder();
+    for (int i = 0; i < this.properties.length; i++) {
+      if (i > 0) {
+        description.append(',');
+      }
+      description.append(this.properties[i]).append(':');
+      if (this.numeric && !this.numericNull) {
+        description.append(this.numericValue);
+      } else {
+        description.append(this.getValue(i));
+      }
+    }
+    return description.toString();
+  }
+
+  private static int[] sortPositions(String[] properties) {
+    Integer[] order = new Integer[properties.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> properties[a].compareTo(properties[b]));
+
+    int[] sortedPositions = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedPositions[i] = order[i];
+    }
+    return sortedPositions;
+  }
+
+  private static String buildSignature(String[] properties) {
+    String[] sortedProperties = properties.clone();
+    Arrays.sort(sortedProperties);
+    return String.join(",", sortedProperties);
+  }
+}
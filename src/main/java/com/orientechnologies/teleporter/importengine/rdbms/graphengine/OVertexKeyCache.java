@@ -0,0 +1,255 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.importengine.rdbms.graphengine;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterStatistics;
+import com.orientechnologies.teleporter.persistence.util.OLongPairMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of the identities of the vertices imported so far, indexed by the values of their external
+ * key: a hit avoids the lookup query against the index of the class. The entries of all the classes
+ * share a single bound, so that the memory taken by the cache doesn't grow with the number of
+ * classes. The least recently used entries are evicted a generation at a time: when the current
+ * generation holds half of the entries, the previous one is dropped and the entries found there are
+ * promoted back to the current one. Single numeric keys are stored in primitive arrays (see {@link
+ * OLongPairMap}), the other keys in a hash map.
+ *
+ * <p>The evicted entries are not lost: they are still found through the index lookup, which is the
+ * on-disk fallback of the cache. Only persistent identities are cached, so that vertices created
+ * within a transaction not committed yet are never returned.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OVertexKeyCache {
+
+  // max number of entries cached for all the classes, 0 means the cache is disabled
+  private final int maxEntries;
+
+  // guarded by "this"
+  private OGeneration currentGeneration;
+  private OGeneration previousGeneration;
+
+  public OVertexKeyCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+    this.currentGeneration = new OGeneration();
+    this.previousGeneration = new OGeneration();
+  }
+
+  public boolean isEnabled() {
+    return this.maxEntries > 0;
+  }
+
+  /**
+   * @param className
+   * @param propertyOfKey
+   * @param valueOfKey
+   * @return the identity of the vertex with the passed key, null if not cached
+   */
+  public ORID get(String className, String[] propertyOfKey, String[] valueOfKey) {
+    return this.get(className, OVertexKey.of(propertyOfKey, valueOfKey));
+  }
+
+  /**
+   * @param className
+   * @param key
+   * @return the identity of the vertex with the passed key, null if not cached
+   */
+  public ORID get(String className, OVertexKey key) {
+
+    if (!this.isEnabled() || !isCacheable(key)) {
+      return null;
+    }
+
+    String cacheName = buildCacheName(className, key);
+    Long numericKey = key.isNumeric() ? Long.valueOf(key.getNumericValue()) : toNumericKey(key);
+    String otherKey = numericKey == null ? buildKey(key) : null;
+
+    ORID rid;
+    synchronized (this) {
+      rid = this.currentGeneration.get(cacheName, numericKey, otherKey);
+      if (rid == null) {
+        rid = this.previousGeneration.get(cacheName, numericKey, otherKey);
+        if (rid != null) {
+          // recently used: promoted to the current generation
+          this.putInCurrentGeneration(cacheName, numericKey, otherKey, rid);
+        }
+      }
+    }
+
+    OTeleporterStatistics statistics = getStatistics();
+    if (statistics != null) {
+      if (rid != null) {
+        statistics.incrementVertexKeyCacheHits();
+      } else {
+        statistics.incrementVertexKeyCacheMisses();
+      }
+    }
+    return rid;
+  }
+
+  /**
+   * Caches the identity of a vertex. Temporary identities (vertices created within a transaction
+   * not committed yet) are ignored.
+   *
+   * @param className
+   * @param propertyOfKey
+   * @param valueOfKey
+   * @param rid
+   */
+  public void put(String className, String[] propertyOfKey, String[] valueOfKey, ORID rid) {
+    this.put(className, OVertexKey.of(propertyOfKey, valueOfKey), rid);
+  }
+
+  /**
+   * Caches the identity of a vertex. Temporary identities (vertices created within a transaction
+   * not committed yet) are ignored.
+   *
+   * @param className
+   * @param key
+   * @param rid
+   */
+  public void put(String className, OVertexKey key, ORID rid) {
+
+    if (!this.isEnabled() || rid == null || !rid.isPersistent() || !isCacheable(key)) {
+      return;
+    }
+
+    String cacheName = buildCacheName(className, key);
+    Long numericKey = key.isNumeric() ? Long.valueOf(key.getNumericValue()) : toNumericKey(key);
+    String otherKey = numericKey == null ? buildKey(key) : null;
+
+    synchronized (this) {
+      this.putInCurrentGeneration(cacheName, numericKey, otherKey, rid);
+    }
+  }
+
+  /** Removes all the cached identities. */
+  public synchronized void clear() {
+    this.currentGeneration = new OGeneration();
+    this.previousGeneration = new OGeneration();
+  }
+
+  /** @return the number of cached identities, the ones of the previous generation included */
+  public synchronized int size() {
+    return this.currentGeneration.size + this.previousGeneration.size;
+  }
+
+  private void putInCurrentGeneration(
+      String cacheName, Long numericKey, String otherKey, ORID rid) {
+    if (this.currentGeneration.size >= Math.max(1, this.maxEntries / 2)) {
+      this.previousGeneration = this.currentGeneration;
+      this.currentGeneration = new OGeneration();
+    }
+    this.currentGeneration.put(cacheName, numericKey, otherKey, rid);
+  }
+
+  private static boolean isCacheable(OVertexKey key) {
+    return key.size() > 0 && !key.hasNullValues();
+  }
+
+  private static OTeleporterStatistics getStatistics() {
+    OTeleporterContext context = OTeleporterContext.getInstance();
+    return context != null ? context.getStatistics() : null;
+  }
+
+  // the signature lists the properties sorted, so the same key is found whatever their order
+  private static String buildCacheName(String className, OVertexKey key) {
+    return className + '\u0000' + key.getSignature();
+  }
+
+  // values are joined in the order of the sorted properties
+  private static String buildKey(OVertexKey key) {
+    if (key.size() == 1) {
+      return key.getValue(0).toString();
+    }
+    StringBuilder joinedKey = new StringBuilder();
+    for (int rank = 0; rank < key.size(); rank++) {
+      if (rank > 0) {
+        joinedKey.append('\u0000');
+      }
+      joinedKey.append(key.getValue(key.getSortedPosition(rank)));
+    }
+    return joinedKey.toString();
+  }
+
+  /**
+   * @return the value as a long if the key is a single integral number, read as such or in its
+   *     canonical string form, otherwise null
+   */
+  private static Long toNumericKey(OVertexKey key) {
+    if (key.size() != 1) {
+      return null;
+    }
+    Object value = key.getValue(0);
+    if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+      return ((Number) value).longValue();
+    }
+    return value instanceof String ? OLongPairMap.toCanonicalLong((String) value) : null;
+  }
+
+  private static ORID decode(long packedRid) {
+    return new ORecordId((int) (packedRid >>> 48), packedRid & ((1L << 48) - 1));
+  }
+
+  /** The entries cached in a generation, by class name and signature of the key properties. */
+  private static class OGeneration {
+
+    // identities packed as the seen edges do, the ones that can't be packed are not cached
+    private final Map<String, OLongPairMap> numericKeys = new HashMap<String, OLongPairMap>();
+    private final Map<String, Map<String, ORID>> otherKeys =
+        new HashMap<String, Map<String, ORID>>();
+    private int size;
+
+    ORID get(String cacheName, Long numericKey, String otherKey) {
+      if (numericKey != null) {
+        OLongPairMap entries = this.numericKeys.get(cacheName);
+        long packedRid = entries != null ? entries.get(numericKey, 0L, -1L) : -1L;
+        return packedRid >= 0 ? decode(packedRid) : null;
+      }
+      Map<String, ORID> entries = this.otherKeys.get(cacheName);
+      return entries != null ? entries.get(otherKey) : null;
+    }
+
+    void put(String cacheName, Long numericKey, String otherKey, ORID rid) {
+      if (numericKey != null) {
+        if (OSeenEdges.isEncodable(rid)) {
+          OLongPairMap entries =
+              this.numericKeys.computeIfAbsent(cacheName, name -> new OLongPairMap(true));
+          if (entries.put(numericKey, 0L, OSeenEdges.encode(rid))) {
+            this.size++;
+          }
+        }
+      } else {
+        Map<String, ORID> entries =
+            this.otherKeys.computeIfAbsent(cacheName, name -> new HashMap<String, ORID>());
+        if (entries.put(otherKey, rid) == null) {
+          this.size++;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,548 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.importengine.rdbms.graphengine;
+
+import com.orientechnologies.common.concur.ONeedRetryException;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
+import com.orientechnologies.orient.output.OOutputStreamManager;
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
+import com.orientechnologies.teleporter.model.dbschema.OCanonicalRelationship;
+import com.orientechnologies.teleporter.model.graphmodel.OVertexType;
+import com.orientechnologies.teleporter.util.OGraphCommands;
+import com.orientechnologies.teleporter.util.OVertexLookup;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Buffers the records visited for a vertex type and writes them in batches: the external keys of
+ * all the buffered records are resolved together (through the index on the key or a single bulk
+ * lookup) and all the inserts and updates (reached vertices and edges included) are committed in a
+ * single transaction.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OVertexUpsertBatch {
+
+  // max number of composite keys resolved by a single lookup query
+  private static final int COMPOSITE_KEYS_PER_LOOKUP = 100;
+
+  // max number of attempts to commit a batch conflicting with concurrent writers
+  private static final int MAX_COMMIT_ATTEMPTS = 10;
+
+  // bounds of the random wait before retrying a conflicting batch, doubled at each attempt
+  private static final long MIN_RETRY_WAIT_MILLIS = 10;
+  private static final long MAX_RETRY_WAIT_MILLIS = 2000;
+
+  private final OGraphEngineForDB graphEngine;
+  private final ODatabaseDocument orientGraph;
+  private final OVertexType vertexType;
+  private final Set<String> propertiesOfIndex;
+  private final String[] propertyOfKey;
+  private final List<OReachedRelationship> reachedRelationships;
+  private final int batchSize;
+
+  // types of the key properties in the OrientDB schema, null if the keys can't be resolved in bulk
+  private final OType[] typesOfKey;
+  // true if the records can reach vertices of the same class (or of a class in the same hierarchy)
+  private final boolean selfReaching;
+
+  private final List<OPendingRecord> pendingRecords;
+
+  public OVertexUpsertBatch(
+      OGraphEngineForDB graphEngine,
+      ODatabaseDocument orientGraph,
+      OVertexType vertexType,
+      Set<String> propertiesOfIndex,
+      List<OReachedRelationship> reachedRelationships,
+      int batchSize) {
+    this.graphEngine = graphEngine;
+    this.orientGraph = orientGraph;
+    this.vertexType = vertexType;
+    this.propertiesOfIndex = propertiesOfIndex;
+    this.propertyOfKey = propertiesOfIndex.toArray(new String[propertiesOfIndex.size()]);
+    this.reachedRelationships = reachedRelationships;
+    this.batchSize = batchSize;
+    this.pendingRecords = new ArrayList<OPendingRecord>(batchSize);
+
+    OSchema schema = orientGraph.getMetadata().getSchema();
+    this.typesOfKey = this.resolveTypesOfKey(schema);
+    this.selfReaching = this.isSelfReaching(schema);
+  }
+
+  /**
+   * Buffers the current record of the result set. When the batch is full all the buffered records
+   * are written.
+   *
+   * @param record
+   */
+  public void add(ResultSet record) {
+
+    OPendingRecord pendingRecord = new OPendingRecord();
+
+    try {
+      // the keys are kept until the batch is written, so they are copied
+      pendingRecord.key =
+          this.graphEngine
+              .readExternalKey(record, this.vertexType, this.propertiesOfIndex)
+              .copy();
+      pendingRecord.lookupKey = this.buildLookupKey(pendingRecord.key);
+      pendingRecord.properties =
+          this.graphEngine.extractVertexProperties(record, this.vertexType, pendingRecord.key);
+
+      pendingRecord.foreignKeys = new OVertexKey[this.reachedRelationships.size()];
+      for (int i = 0; i < this.reachedRelationships.size(); i++) {
+        OReachedRelationship reachedRelationship = this.reachedRelationships.get(i);
+        pendingRecord.foreignKeys[i] =
+            this.graphEngine
+                .readForeignKey(
+                    record,
+                    reachedRelationship.getRelationship(),
+                    reachedRelationship.getInVertexType())
+                .copy();
+      }
+    } catch (Exception e) {
+      String mess =
+          "Problem encountered during the migration of the records. Vertex Type: "
+              + this.vertexType.getName()
+              + ";\tRecord: "
+              + (pendingRecord.key != null ? pendingRecord.key : "");
+      OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
+      OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
+      this.discardPendingRecords();
+      this.pendingRecords.clear();
+      throw new OTeleporterRuntimeException(e);
+    }
+
+    this.pendingRecords.add(pendingRecord);
+    if (this.pendingRecords.size() >= this.batchSize) {
+      this.flush();
+    }
+  }
+
+  /**
+   * Writes all the buffered records within a single transaction. If the transaction conflicts with
+   * a concurrent one (e.g. two partitions of the same table reaching the same vertex) it's retried:
+   * the upsert of the records is idempotent. The retries wait a random, growing time, so that the
+   * writers conflicting on the same vertices (e.g. a hub vertex) don't collide again. If the records
+   * are not written at all, the chunks of their LOB values are deleted.
+   */
+  public void flush() {
+
+    if (this.pendingRecords.isEmpty()) {
+      return;
+    }
+
+    boolean written = false;
+    try {
+      for (int attempt = 1; ; attempt++) {
+        try {
+          this.writePendingRecords();
+          written = true;
+          break;
+        } catch (ONeedRetryException | ORecordDuplicatedException e) {
+          if (attempt >= MAX_COMMIT_ATTEMPTS) {
+            throw e;
+          }
+          if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+              == OOutputStreamManager.DEBUG_LEVEL) {
+            OTeleporterContext.getInstance()
+                .getMessageHandler()
+                .debug(
+                    this,
+                    "\nConflict while committing a batch into '%s', retrying (%s)...\n",
+                    this.vertexType.getName(),
+                    e.getMessage());
+          }
+          waitBeforeRetry(attempt, e);
+        }
+      }
+    } finally {
+      if (!written) {
+        this.discardPendingRecords();
+      }
+      this.pendingRecords.clear();
+    }
+  }
+
+  /** Deletes the chunks of the LOB values of the buffered records, as they are not written. */
+  private void discardPendingRecords() {
+    for (OPendingRecord pendingRecord : this.pendingRecords) {
+      this.graphEngine.discardLobChunks(this.orientGraph, pendingRecord.properties);
+    }
+  }
+
+  /**
+   * Waits a random time, with an upper bound exponentially growing with the failed attempts.
+   *
+   * @param failedAttempts
+   * @param conflict the conflict to rethrow if the wait is interrupted
+   */
+  private static void waitBeforeRetry(int failedAttempts, RuntimeException conflict) {
+    long maxWait =
+        Math.min(MAX_RETRY_WAIT_MILLIS, MIN_RETRY_WAIT_MILLIS << Math.min(failedAttempts, 16));
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(MIN_RETRY_WAIT_MILLIS, maxWait + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw conflict;
+    }
+  }
+
+  private void writePendingRecords() {
+
+    this.orientGraph.begin();
+    try {
+
+      Map<List<Object>, OIdentifiable> key2vertex = this.lookupVertices();
+
+      for (OPendingRecord pendingRecord : this.pendingRecords) {
+
+        // the found vertices are loaded only now, when they are going to be updated
+        OVertex vertex = null;
+        OIdentifiable found = null;
+        if (pendingRecord.lookupKey != null) {
+          found = key2vertex.get(pendingRecord.lookupKey);
+          if (found instanceof OVertex) {
+            vertex = (OVertex) found;
+          } else if (found != null) {
+            vertex = OGraphCommands.loadVertex(this.orientGraph, found.getIdentity());
+          }
+        }
+
+        // vertices inserted while writing the current batch as reached ones are not in the bulk
+        // lookup result, so in that case the single lookup is still needed (as for identities
+        // no longer pointing to a vertex)
+        if (vertex == null
+            && (pendingRecord.lookupKey == null || this.selfReaching || found != null)
+            && this.propertyOfKey.length > 0) {
+          vertex =
+              this.graphEngine.lookupVertex(
+                  this.orientGraph, pendingRecord.key, this.vertexType.getName());
+        }
+
+        try {
+          vertex =
+              this.graphEngine.writeVisitedVertex(
+                  this.orientGraph,
+                  this.vertexType,
+                  this.propertiesOfIndex,
+                  vertex,
+                  pendingRecord.properties);
+        } catch (Exception e) {
+          String mess =
+              "Problem encountered during the migration of the records. Vertex Type: "
+                  + this.vertexType.getName()
+                  + ";\tRecord: "
+                  + pendingRecord.key;
+          OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
+          OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
+          throw new OTeleporterRuntimeException(e);
+        }
+
+        if (pendingRecord.lookupKey != null) {
+          key2vertex.put(pendingRecord.lookupKey, vertex);
+        }
+        pendingRecord.vertex = vertex;
+
+        // edges towards the reached vertices
+        for (int i = 0; i < this.reachedRelationships.size(); i++) {
+          OReachedRelationship reachedRelationship = this.reachedRelationships.get(i);
+          this.graphEngine.upsertReachedVertexWithEdge(
+              this.orientGraph,
+              pendingRecord.foreignKeys[i],
+              reachedRelationship.getRelationship(),
+              vertex,
+              reachedRelationship.getInVertexType(),
+              reachedRelationship.getEdgeTypeName());
+        }
+      }
+
+      this.orientGraph.commit();
+      this.graphEngine.commitPending();
+
+      // the identities of the written vertices are final only now
+      for (OPendingRecord pendingRecord : this.pendingRecords) {
+        if (pendingRecord.vertex != null) {
+          this.graphEngine
+              .getVertexKeyCache()
+              .put(
+                  this.vertexType.getName(),
+                  pendingRecord.key,
+                  pendingRecord.vertex.getIdentity());
+        }
+      }
+
+      if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+          == OOutputStreamManager.DEBUG_LEVEL) {
+        OTeleporterContext.getInstance()
+            .getMessageHandler()
+            .debug(
+                this,
+                "\nCommitted a batch of %s records into '%s'.\n",
+                this.pendingRecords.size(),
+                this.vertexType.getName());
+      }
+    } catch (RuntimeException e) {
+      this.orientGraph.rollback();
+      this.graphEngine.discardPending();
+      throw e;
+    }
+  }
+
+  /**
+   * Resolves the keys of all the pending records: through the index on the key properties when
+   * present, otherwise through bulk lookups.
+   *
+   * @return the identities of the found vertices (or the vertices themselves when already loaded),
+   *     indexed by their typed key
+   */
+  private Map<List<Object>, OIdentifiable> lookupVertices() {
+
+    Map<List<Object>, OIdentifiable> key2vertex = new HashMap<List<Object>, OIdentifiable>();
+
+    OVertexKeyCache vertexKeyCache = this.graphEngine.getVertexKeyCache();
+
+    List<Object[]> keysToResolve = new ArrayList<Object[]>();
+    for (OPendingRecord pendingRecord : this.pendingRecords) {
+      if (pendingRecord.lookupKey != null && !key2vertex.containsKey(pendingRecord.lookupKey)) {
+
+        // cached identities are not looked up again
+        ORID rid = vertexKeyCache.get(this.vertexType.getName(), pendingRecord.key);
+        if (rid != null) {
+          key2vertex.put(pendingRecord.lookupKey, rid);
+          continue;
+        }
+        keysToResolve.add(pendingRecord.lookupKey.toArray());
+      }
+    }
+    if (keysToResolve.isEmpty()) {
+      return key2vertex;
+    }
+
+    OVertexLookup lookup =
+        OVertexLookup.of(this.orientGraph, this.vertexType.getName(), this.propertyOfKey);
+    if (lookup.isIndexed(this.orientGraph)) {
+      for (Object[] key : keysToResolve) {
+        ORID rid = lookup.getRid(this.orientGraph, key);
+        if (rid != null) {
+          key2vertex.put(Arrays.asList(key), rid);
+        }
+      }
+      return key2vertex;
+    }
+
+    int keysPerLookup =
+        this.propertyOfKey.length == 1 ? keysToResolve.size() : COMPOSITE_KEYS_PER_LOOKUP;
+
+    for (int from = 0; from < keysToResolve.size(); from += keysPerLookup) {
+      List<Object[]> currentKeys =
+          keysToResolve.subList(from, Math.min(from + keysPerLookup, keysToResolve.size()));
+
+      OResultSet vertices =
+          OGraphCommands.getVerticesByIndexedKeys(
+              this.orientGraph, this.vertexType.getName(), this.propertyOfKey, currentKeys);
+
+      while (vertices.hasNext()) {
+        OResult result = vertices.next();
+        OVertex vertex = result.getVertex().orElse(null);
+        if (vertex != null) {
+          Object[] foundKey = new Object[this.propertyOfKey.length];
+          for (int i = 0; i < this.propertyOfKey.length; i++) {
+            foundKey[i] = vertex.getProperty(this.propertyOfKey[i]);
+          }
+          key2vertex.putIfAbsent(Arrays.asList(foundKey), vertex);
+        }
+      }
+      vertices.close();
+    }
+
+    return key2vertex;
+  }
+
+  /**
+   * Converts the key values of a record to the types of the key properties, so that they can be
+   * compared with the values of the found vertices.
+   *
+   * @param key
+   * @return the typed key, null if the key can't be resolved in bulk
+   */
+  private List<Object> buildLookupKey(OVertexKey key) {
+
+    if (this.typesOfKey == null || key.size() == 0) {
+      return null;
+    }
+
+    Object[] typedKey = new Object[key.size()];
+    try {
+      for (int i = 0; i < key.size(); i++) {
+        Object value = key.getValue(i);
+        if (value == null) {
+          return null;
+        }
+        // integral columns are already read as numbers
+        Number number = value instanceof Number ? (Number) value : null;
+        switch (this.typesOfKey[i]) {
+          case STRING:
+            typedKey[i] = value.toString();
+            break;
+          case INTEGER:
+            typedKey[i] =
+                number != null ? number.intValue() : Integer.valueOf(value.toString().trim());
+            break;
+          case LONG:
+            typedKey[i] =
+                number != null ? number.longValue() : Long.valueOf(value.toString().trim());
+            break;
+          case SHORT:
+            typedKey[i] =
+                number != null ? number.shortValue() : Short.valueOf(value.toString().trim());
+            break;
+          case BYTE:
+            typedKey[i] =
+                number != null ? number.byteValue() : Byte.valueOf(value.toString().trim());
+            break;
+          default:
+            return null;
+        }
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    return Arrays.asList(typedKey);
+  }
+
+  /**
+   * Only keys whose values can be compared without loss after the type conversion (strings and
+   * integral numbers) are resolved in bulk.
+   */
+  private OType[] resolveTypesOfKey(OSchema schema) {
+
+    OClass vertexClass = schema.getClass(this.vertexType.getName());
+    if (vertexClass == null || this.propertyOfKey.length == 0) {
+      return null;
+    }
+
+    OType[] types = new OType[this.propertyOfKey.length];
+    for (int i = 0; i < this.propertyOfKey.length; i++) {
+      OProperty property = vertexClass.getProperty(this.propertyOfKey[i]);
+      if (property == null) {
+        return null;
+      }
+      switch (property.getType()) {
+        case STRING:
+        case INTEGER:
+        case LONG:
+        case SHORT:
+        case BYTE:
+          types[i] = property.getType();
+          break;
+        default:
+          return null;
+      }
+    }
+    return types;
+  }
+
+  private boolean isSelfReaching(OSchema schema) {
+
+    OClass vertexClass = schema.getClass(this.vertexType.getName());
+
+    for (OReachedRelationship reachedRelationship : this.reachedRelationships) {
+      String inVertexTypeName = reachedRelationship.getInVertexType().getName();
+      if (inVertexTypeName.equals(this.vertexType.getName())) {
+        return true;
+      }
+      OClass inVertexClass = schema.getClass(inVertexTypeName);
+      if (vertexClass == null
+          || inVertexClass == null
+          || vertexClass.isSubClassOf(inVertexClass)
+          || inVertexClass.isSubClassOf(vertexClass)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  public int getPendingRecordsCount() {
+    return this.pendingRecords.size();
+  }
+
+  /** A source record waiting to be written. */
+  private static class OPendingRecord {
+    private OVertexKey key;
+    private List<Object> lookupKey;
+    private Map<String, Object> properties;
+    private OVertexKey[] foreignKeys;
+    private OVertex vertex;
+  }
+
+  /**
+   * A relationship outgoing from the entities mapped with the vertex type, with the vertex type and
+   * the edge type it's mapped to.
+   */
+  public static class OReachedRelationship {
+
+    private final OCanonicalRelationship relationship;
+    private final OVertexType inVertexType;
+    private final String edgeTypeName;
+
+    public OReachedRelationship(
+        OCanonicalRelationship relationship, OVertexType inVertexType, String edgeTypeName) {
+      this.relationship = relationship;
+      this.inVertexType = inVertexType;
+      this.edgeTypeName = edgeTypeName;
+    }
+
+    public OCanonicalRelationship getRelationship() {
+      return this.relationship;
+    }
+
+    public OVertexType getInVertexType() {
+      return this.inVertexType;
+    }
+
+    public String getEdgeTypeName() {
+      return this.edgeTypeName;
+    }
+  }
+}
@@ -32,6 +32,7 @@ import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
 import com.orientechnologies.orient.server.network.OServerNetworkListener;
 import com.orientechnologies.orient.server.network.protocol.http.ONetworkProtocolHttpAbstract;
 import com.orientechnologies.orient.server.plugin.OServerPluginAbstract;
+import com.orientechnologies.teleporter.context.OImportSettings;
 import com.orientechnologies.teleporter.context.OTeleporterContext;
 import com.orientechnologies.teleporter.context.OTeleporterMessageHandler;
 import com.orientechnologies.teleporter.exception.OTeleporterIOException;
@@ -40,10 +41,12 @@ import com.orientechnologies.teleporter.factory.OStrategyFactory;
 import com.orientechnologies.teleporter.http.OServerCommandTeleporter;
 import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
 import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.persistence.util.ODBSourceConnection;
 import com.orientechnologies.teleporter.strategy.OWorkflowStrategy;
 import com.orientechnologies.teleporter.ui.OProgressMonitor;
 import com.orientechnologies.teleporter.util.ODriverConfigurator;
 import com.orientechnologies.teleporter.util.OMigrationConfigManager;
+import com.orientechnologies.teleporter.util.OVertexLookup;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
@@ -193,6 +196,14 @@ public class OTeleporter extends OServerPluginAbstract {
       }
     }
 
+    OImportSettings importSettings;
+    try {
+      importSettings = OImportSettings.fromArguments(arguments);
+    } catch (IllegalArgumentException e) {
+      messageHandler.error(OTeleporter.class, e.getMessage() + "\n");
+      throw new OTeleporterIOException(e);
+    }
+
     // Mandatory arguments
     String driver = arguments.get("-jdriver");
     String jurl = arguments.get("-jurl");
@@ -243,7 +254,8 @@ public class OTeleporter extends OServerPluginAbstract {
         includedTables,
         excludedTables,
         configurationPath,
-        messageHandler);
+        messageHandler,
+        importSettings);
   }
 
   /**
@@ -281,6 +293,51 @@ public class OTeleporter extends OServerPluginAbstract {
       OPluginMessageHandler messageHandler)
       throws OTeleporterIOException {
 
+    execute(
+        driver,
+        jurl,
+        username,
+        password,
+        outDbUrl,
+        chosenStrategy,
+        chosenMapper,
+        xmlPath,
+        nameResolver,
+        outputLevel,
+        includedTables,
+        excludedTables,
+        configurationPath,
+        messageHandler,
+        new OImportSettings());
+  }
+
+  /**
+   * Executes the import of the source DB in a OrientDB Graph through different parameters.
+   *
+   * @param configurationPath
+   * @param importSettings tuning settings of the migration (e.g. the batch size)
+   * @throws OTeleporterIOException
+   * @see #execute(String, String, String, String, String, String, String, String, String, String,
+   *     List, List, String, OPluginMessageHandler)
+   */
+  public static void execute(
+      String driver,
+      String jurl,
+      String username,
+      String password,
+      String outDbUrl,
+      String chosenStrategy,
+      String chosenMapper,
+      String xmlPath,
+      String nameResolver,
+      String outputLevel,
+      List<String> includedTables,
+      List<String> excludedTables,
+      String configurationPath,
+      OPluginMessageHandler messageHandler,
+      OImportSettings importSettings)
+      throws OTeleporterIOException {
+
     // trying to load the configuration starting from the input configurationPath
     ODocument migrationConfigDoc = null;
     String jsonMigrationConfig = null;
@@ -313,7 +370,8 @@ public class OTeleporter extends OServerPluginAbstract {
         excludedTables,
         jsonMigrationConfig,
         messageHandler,
-        null);
+        null,
+        importSettings);
   }
 
   /**
@@ -352,6 +410,53 @@ public class OTeleporter extends OServerPluginAbstract {
       OrientDB orientDBInstance)
       throws OTeleporterIOException {
 
+    return executeJob(
+        driver,
+        jurl,
+        username,
+        password,
+        outDbUrl,
+        chosenStrategy,
+        chosenMapper,
+        xmlPath,
+        nameResolver,
+        outputLevel,
+        includedTables,
+        excludedTables,
+        jsonMigrationConfig,
+        messageHandler,
+        orientDBInstance,
+        new OImportSettings());
+  }
+
+  /**
+   * Executes the import of the source DB in a OrientDB Graph through different parameters.
+   *
+   * @param orientDBInstance
+   * @param importSettings tuning settings of the migration (e.g. the batch size)
+   * @throws OTeleporterIOException
+   * @see #executeJob(String, String, String, String, String, String, String, String, String,
+   *     String, List, List, String, OPluginMessageHandler, OrientDB)
+   */
+  public static ODocument executeJob(
+      String driver,
+      String jurl,
+      String username,
+      String password,
+      String outDbUrl,
+      String chosenStrategy,
+      String chosenMapper,
+      String xmlPath,
+      String nameResolver,
+      String outputLevel,
+      List<String> includedTables,
+      List<String> excludedTables,
+      String jsonMigrationConfig,
+      OPluginMessageHandler messageHandler,
+      OrientDB orientDBInstance,
+      OImportSettings importSettings)
+      throws OTeleporterIOException {
+
     // REGISTER THE BINARY RECORD SERIALIZER TO SUPPORT ANY OF THE EXTERNAL FIELDS
     ORecordSerializerFactory.instance()
         .register("ORecordSerializerBinary", new ORecordSerializerBinary());
@@ -386,6 +491,9 @@ public class OTeleporter extends OServerPluginAbstract {
       OTeleporterContext.newInstance(orientDBInstance);
     }
     OTeleporterContext.getInstance().setMessageHandler(messageHandler);
+    if (importSettings != null) {
+      OTeleporterContext.getInstance().setImportSettings(importSettings);
+    }
 
     /**
      * Checking if the execution is allowed: - in EE it's always allowed - in CE it's allowed if we
@@ -554,6 +662,9 @@ public class OTeleporter extends OServerPluginAbstract {
 
     } finally {
       timer.cancel();
+      dbQueryEngine.stopBackgroundCounts();
+      ODBSourceConnection.closeAllConnectionPools();
+      OVertexLookup.clear();
     }
     return executionResult;
   }
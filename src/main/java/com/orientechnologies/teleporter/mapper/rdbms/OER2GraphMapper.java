@@ -20,12 +20,16 @@
 
 package com.orientechnologies.teleporter.mapper.rdbms;
 
+import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.output.OOutputStreamManager;
 import com.orientechnologies.teleporter.configuration.api.*;
+import com.orientechnologies.teleporter.context.OImportSettings;
 import com.orientechnologies.teleporter.context.OTeleporterContext;
 import com.orientechnologies.teleporter.context.OTeleporterStatistics;
 import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
 import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.OSchemaCatalog;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.OSchemaCatalog.OCatalogColumn;
 import com.orientechnologies.teleporter.mapper.OSource2GraphMapper;
 import com.orientechnologies.teleporter.mapper.rdbms.classmapper.OEEClassMapper;
 import com.orientechnologies.teleporter.mapper.rdbms.classmapper.OEVClassMapper;
@@ -33,10 +37,14 @@ import com.orientechnologies.teleporter.model.dbschema.*;
 import com.orientechnologies.teleporter.model.graphmodel.*;
 import com.orientechnologies.teleporter.nameresolver.ONameResolver;
 import com.orientechnologies.teleporter.persistence.util.ODBSourceConnection;
-import com.orientechnologies.teleporter.persistence.util.OQueryResult;
+import com.orientechnologies.teleporter.util.OSchemaSnapshotManager;
 import java.sql.*;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Implementation of OSource2GraphMapper that manages the source DB schema and the destination graph
@@ -72,6 +80,9 @@ public class OER2GraphMapper extends OSource2GraphMapper {
   // supplementary migrationConfigDoc
   protected OConfiguration migrationConfig;
 
+  // catalogs of the source schemas, read in bulk while building the source database schema
+  private Map<String, OSchemaCatalog> schema2catalog;
+
   public static final int DEFAULT_CLASS_MAPPER_INDEX = 0;
 
   public OER2GraphMapper(
@@ -235,17 +246,36 @@ public class OER2GraphMapper extends OSource2GraphMapper {
       this.dataBaseSchema.setProductName(productName);
       this.dataBaseSchema.setProductVersion(productVersion);
 
+      Map<String, String> tablesName2schema = this.readTables(databaseMetaData);
+
       /*
-       *  Entity building
+       *  Loading the snapshot of the schema, if kept and taken from the same source schema
        */
 
-      int numberOfTables = this.buildEntities(databaseMetaData, connection);
+      String snapshotPath = OTeleporterContext.getInstance().getSchemaSnapshotPath();
+      String fingerprint = null;
+      if (snapshotPath != null) {
+        fingerprint = this.computeSchemaFingerprint(connection, tablesName2schema);
+      }
 
-      /*
-       *  Building Out-relationships
-       */
+      if (fingerprint == null || !this.restoreSchemaSnapshot(snapshotPath, fingerprint)) {
 
-      buildOutRelationships(databaseMetaData, numberOfTables);
+        /*
+         *  Entity building
+         */
+
+        int numberOfTables = this.buildEntities(databaseMetaData, connection, tablesName2schema);
+
+        /*
+         *  Building Out-relationships
+         */
+
+        buildOutRelationships(databaseMetaData, numberOfTables);
+
+        if (fingerprint != null) {
+          this.writeSchemaSnapshot(snapshotPath, fingerprint);
+        }
+      }
 
       /*
        *  Building In-relationships
@@ -259,6 +289,7 @@ public class OER2GraphMapper extends OSource2GraphMapper {
       OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
       throw new OTeleporterRuntimeException(e);
     } finally {
+      this.schema2catalog = null;
       try {
         if (connection != null) {
           connection.close();
@@ -291,16 +322,13 @@ public class OER2GraphMapper extends OSource2GraphMapper {
   }
 
   /**
-   * MICRO EXECUTION BLOCK: BUILD SOURCE DATABASE SCHEMA - BUILD ENTITIES Builds the Entities
-   * starting from the source database metadata.
+   * Reads the tables of the source database allowed by the "include/exclude-lists".
    *
    * @param databaseMetaData
-   * @param sourceDBConnection
-   * @return
+   * @return the schema of each table, in the order of the tables
    * @throws SQLException
    */
-  private int buildEntities(DatabaseMetaData databaseMetaData, Connection sourceDBConnection)
-      throws SQLException {
+  private Map<String, String> readTables(DatabaseMetaData databaseMetaData) throws SQLException {
 
     OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
     Map<String, String> tablesName2schema = new LinkedHashMap<String, String>();
@@ -342,42 +370,149 @@ public class OER2GraphMapper extends OSource2GraphMapper {
           .getMessageHandler()
           .debug(this, "\n%s tables found.\n", numberOfTables);
     }
+    return tablesName2schema;
+  }
+
+  /**
+   * MICRO EXECUTION BLOCK: BUILD SOURCE DATABASE SCHEMA - BUILD ENTITIES Builds the Entities
+   * starting from the source database metadata.
+   *
+   * @param databaseMetaData
+   * @param sourceDBConnection
+   * @param tablesName2schema the tables to build the entities from
+   * @return
+   * @throws SQLException
+   */
+  private int buildEntities(
+      DatabaseMetaData databaseMetaData,
+      Connection sourceDBConnection,
+      Map<String, String> tablesName2schema)
+      throws SQLException {
+
+    OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
+    int numberOfTables = tablesName2schema.size();
+
+    // reading in bulk the catalog of each schema, DatabaseMetaData is used where not available
+    this.readSchemaCatalogs(sourceDBConnection, tablesName2schema.values());
 
     // Variables for records counting
     Statement statement = sourceDBConnection.createStatement();
     ODBQueryEngine dbQueryEngine = OTeleporterContext.getInstance().getDbQueryEngine();
-    int totalNumberOfRecord = 0;
+    OImportSettings importSettings = OTeleporterContext.getInstance().getImportSettings();
+    OImportSettings.RecordCountMode recordCountMode = importSettings.getRecordCountMode();
+    Map<String, Map<String, Long>> schema2estimates =
+        recordCountMode == OImportSettings.RecordCountMode.ESTIMATED
+            ? this.readRecordEstimates(sourceDBConnection, tablesName2schema.values())
+            : new HashMap<String, Map<String, Long>>();
+    dbQueryEngine.stopBackgroundCounts();
+    statistics.totalNumberOfRecords = 0;
+
+    // building the entities, concurrently if enabled: they are added to the schema in the order of
+    // the tables whatever the order of completion, so the schema is the same at each run
+    List<String> tableNames = new ArrayList<String>(tablesName2schema.keySet());
+    List<OEntity> entities =
+        this.executeForEachTable(
+            tableNames.size(),
+            databaseMetaData,
+            (metaData, index) -> {
+              String currentTableName = tableNames.get(index);
+              String currentTableSchema = tablesName2schema.get(currentTableName);
+              return this.buildEntity(
+                  metaData,
+                  currentTableName,
+                  currentTableSchema,
+                  index + 1,
+                  numberOfTables,
+                  schema2estimates.get(currentTableSchema),
+                  recordCountMode);
+            });
+    this.dataBaseSchema.getEntities().addAll(entities);
+    statement.close();
 
-    int iteration = 1;
-    for (String currentTableName : tablesName2schema.keySet()) {
+    return numberOfTables;
+  }
 
-      if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
-          == OOutputStreamManager.DEBUG_LEVEL) {
-        OTeleporterContext.getInstance()
-            .getMessageHandler()
-            .debug(
-                "\nBuilding '%s' entity (%s/%s)...\n", currentTableName, iteration, numberOfTables);
-      }
+  /**
+   * Builds the entity of a table, with its attributes and primary key, and counts its records.
+   *
+   * @param databaseMetaData metadata of the connection owned by the current thread
+   * @param currentTableName
+   * @param currentTableSchema
+   * @param iteration
+   * @param numberOfTables
+   * @param estimates the estimates of the records of the tables of the schema, null if none
+   * @param recordCountMode
+   * @return the entity, not yet added to the schema
+   * @throws SQLException
+   */
+  private OEntity buildEntity(
+      DatabaseMetaData databaseMetaData,
+      String currentTableName,
+      String currentTableSchema,
+      int iteration,
+      int numberOfTables,
+      Map<String, Long> estimates,
+      OImportSettings.RecordCountMode recordCountMode)
+      throws SQLException {
+
+    OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
+    ODBQueryEngine dbQueryEngine = OTeleporterContext.getInstance().getDbQueryEngine();
+    OImportSettings importSettings = OTeleporterContext.getInstance().getImportSettings();
 
-      // Counting current-table's record
-      String currentTableSchema = tablesName2schema.get(currentTableName);
-      String sql;
+    if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+        == OOutputStreamManager.DEBUG_LEVEL) {
+      OTeleporterContext.getInstance()
+          .getMessageHandler()
+          .debug(
+              "\nBuilding '%s' entity (%s/%s)...\n", currentTableName, iteration, numberOfTables);
+    }
 
-      OQueryResult result =
-          dbQueryEngine.countTableRecords(sourceDBInfo, currentTableName, currentTableSchema);
+    // Counting current-table's record: estimated, counted in background or counted now
+    Long estimate = estimates != null ? estimates.get(currentTableName) : null;
 
-      ResultSet currentTableRecordAmount = result.getResult();
-      if (currentTableRecordAmount.next()) {
-        totalNumberOfRecord += currentTableRecordAmount.getInt(1);
-      }
-      this.closeCursor(currentTableRecordAmount);
+    if (estimate != null) {
+      statistics.incrementTotalNumberOfRecords(estimate);
+    } else if (recordCountMode == OImportSettings.RecordCountMode.BACKGROUND) {
+      dbQueryEngine.countTableRecordsInBackground(
+          sourceDBInfo, currentTableName, currentTableSchema, importSettings.getParallelism());
+    } else {
+      // counted on the connection of the metadata, so a worker never holds two connections
+      long records =
+          dbQueryEngine.countTableRecords(
+              databaseMetaData.getConnection(), currentTableName, currentTableSchema);
+      statistics.incrementTotalNumberOfRecords(records);
+    }
 
-      // creating entity
-      OEntity currentEntity = new OEntity(currentTableName, currentTableSchema, this.sourceDBInfo);
+    // creating entity
+    OEntity currentEntity = new OEntity(currentTableName, currentTableSchema, this.sourceDBInfo);
 
-      // adding attributes and primary keys
-      OPrimaryKey pKey = new OPrimaryKey(currentEntity);
+    // adding attributes and primary keys
+    OPrimaryKey pKey = new OPrimaryKey(currentEntity);
 
+    OSchemaCatalog catalog = this.getSchemaCatalog(currentTableSchema, currentTableName);
+    if (catalog != null) {
+      List<String> currentPrimaryKeys = catalog.getPrimaryKey(currentTableName);
+
+      for (OCatalogColumn column : catalog.getColumns(currentTableName)) {
+        OAttribute currentAttribute =
+            new OAttribute(
+                column.getName(),
+                column.getOrdinalPosition(),
+                column.getTypeName(),
+                currentEntity);
+        if (column.getColumnSize() != null) {
+          currentAttribute.setColumnSize(column.getColumnSize());
+        }
+        if (column.getDecimalDigits() != null) {
+          currentAttribute.setDecimalDigits(column.getDecimalDigits());
+        }
+        currentEntity.addAttribute(currentAttribute);
+
+        if (currentPrimaryKeys.contains(currentAttribute.getName())) {
+          pKey.addAttribute(currentAttribute);
+        }
+      }
+    } else {
       String columnCatalog = null;
       String columnSchemaPattern = null;
       String columnNamePattern = null;
@@ -399,6 +534,14 @@ public class OER2GraphMapper extends OSource2GraphMapper {
                 resultColumns.getInt("ORDINAL_POSITION"),
                 resultColumns.getString("TYPE_NAME"),
                 currentEntity);
+        int columnSize = resultColumns.getInt("COLUMN_SIZE");
+        if (!resultColumns.wasNull()) {
+          currentAttribute.setColumnSize(columnSize);
+        }
+        int decimalDigits = resultColumns.getInt("DECIMAL_DIGITS");
+        if (!resultColumns.wasNull()) {
+          currentAttribute.setDecimalDigits(decimalDigits);
+        }
         currentEntity.addAttribute(currentAttribute);
 
         // if the current attribute is involved in the primary key, it will be added to the
@@ -409,36 +552,182 @@ public class OER2GraphMapper extends OSource2GraphMapper {
       }
       this.closeCursor(resultColumns);
       this.closeCursor(resultPrimaryKeys);
+    }
 
-      currentEntity.setPrimaryKey(pKey);
+    currentEntity.setPrimaryKey(pKey);
+    this.checkPrimaryKey(currentEntity);
 
-      // if the primary key doesn't involve any attribute, a warning message is generated
-      if (pKey.getInvolvedAttributes().size() == 0)
-        OTeleporterContext.getInstance()
-            .getStatistics()
-            .warningMessages
-            .add(
-                "It's not declared a primary key for the Entity "
-                    + currentEntity.getName()
-                    + ", this might lead to issues during the migration or the sync executions "
-                    + "(the first importing is quite safe).");
+    if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+        == OOutputStreamManager.DEBUG_LEVEL) {
+      OTeleporterContext.getInstance()
+          .getMessageHandler()
+          .debug(this, "\nEntity %s built.\n", currentTableName);
+    }
+    statistics.incrementBuiltEntities();
 
-      // adding entity to db schema
-      this.dataBaseSchema.getEntities().add(currentEntity);
+    return currentEntity;
+  }
 
-      iteration++;
+  /**
+   * If the primary key of the entity doesn't involve any attribute, a warning message is generated.
+   *
+   * @param entity
+   */
+  private void checkPrimaryKey(OEntity entity) {
+    if (entity.getPrimaryKey().getInvolvedAttributes().size() == 0)
+      OTeleporterContext.getInstance()
+          .getStatistics()
+          .warningMessages
+          .add(
+              "It's not declared a primary key for the Entity "
+                  + entity.getName()
+                  + ", this might lead to issues during the migration or the sync executions "
+                  + "(the first importing is quite safe).");
+  }
+
+  /**
+   * Computes the fingerprint of the source database schema: the source, the filters, the tables
+   * and the change markers of their schemas, all read through a few catalog queries.
+   *
+   * @param sourceDBConnection
+   * @param tablesName2schema
+   * @return the fingerprint, null if the DBMS does not provide change markers or they are not
+   *     readable
+   */
+  private String computeSchemaFingerprint(
+      Connection sourceDBConnection, Map<String, String> tablesName2schema) {
+
+    List<String> parts = new ArrayList<String>();
+    parts.add(this.sourceDBInfo.getDriverName());
+    parts.add(this.sourceDBInfo.getUrl());
+    parts.add(this.sourceDBInfo.getUsername());
+    parts.add(this.includedTables.toString());
+    parts.add(this.excludedTables.toString());
+    parts.add(this.dataBaseSchema.getProductVersion());
+    parts.add(
+        this.dataBaseSchema.getDriverMajorVersion()
+            + "."
+            + this.dataBaseSchema.getDriverMinorVersion());
+    for (Map.Entry<String, String> table : tablesName2schema.entrySet()) {
+      parts.add(table.getValue() + "." + table.getKey());
+    }
+
+    ODBQueryEngine dbQueryEngine = OTeleporterContext.getInstance().getDbQueryEngine();
+    for (String schema : new LinkedHashSet<String>(tablesName2schema.values())) {
+      try {
+        String markers = dbQueryEngine.readSchemaChangeMarkers(sourceDBConnection, schema);
+        if (markers == null) {
+          return null;
+        }
+        parts.add(schema + ":" + markers);
+      } catch (SQLException e) {
+        if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+            == OOutputStreamManager.DEBUG_LEVEL) {
+          OTeleporterContext.getInstance()
+              .getMessageHandler()
+              .debug(
+                  this,
+                  "\nChange markers of schema %s not readable (%s), schema discovered.\n",
+                  schema,
+                  e.getMessage());
+        }
+        return null;
+      }
+    }
+    return OSchemaSnapshotManager.buildFingerprint(parts);
+  }
+
+  /**
+   * Restores the entities and the out-relationships from the snapshot of the source database
+   * schema, when taken from a source schema with the same fingerprint. The records of the tables
+   * are the ones counted when the snapshot was taken, or counted again in background if the
+   * snapshot was taken before all the counts completed.
+   *
+   * @param snapshotPath
+   * @param fingerprint
+   * @return true if the schema was restored, false if it must be discovered
+   */
+  private boolean restoreSchemaSnapshot(String snapshotPath, String fingerprint) {
+
+    ODataBaseSchema restoredSchema = new ODataBaseSchema();
+    Long totalNumberOfRecords;
+    try {
+      ODocument snapshot = OSchemaSnapshotManager.loadSnapshot(snapshotPath, fingerprint);
+      if (snapshot == null) {
+        return false;
+      }
+      OSchemaSnapshotManager.restoreSchema(snapshot, restoredSchema, this.sourceDBInfo);
+      totalNumberOfRecords = OSchemaSnapshotManager.getTotalNumberOfRecords(snapshot);
+    } catch (Exception e) {
       if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
           == OOutputStreamManager.DEBUG_LEVEL) {
         OTeleporterContext.getInstance()
             .getMessageHandler()
-            .debug(this, "\nEntity %s built.\n", currentTableName);
+            .debug(
+                this,
+                "\nSchema snapshot %s not loaded (%s), schema discovered.\n",
+                snapshotPath,
+                e.getMessage());
       }
-      statistics.builtEntities++;
-      statistics.totalNumberOfRecords = totalNumberOfRecord;
+      return false;
     }
-    statement.close();
 
-    return numberOfTables;
+    this.dataBaseSchema.getEntities().addAll(restoredSchema.getEntities());
+    this.dataBaseSchema
+        .getCanonicalRelationships()
+        .addAll(restoredSchema.getCanonicalRelationships());
+    for (OEntity entity : this.dataBaseSchema.getEntities()) {
+      this.checkPrimaryKey(entity);
+    }
+
+    // updating statistics
+    OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
+    ODBQueryEngine dbQueryEngine = OTeleporterContext.getInstance().getDbQueryEngine();
+    dbQueryEngine.stopBackgroundCounts();
+    if (totalNumberOfRecords != null) {
+      statistics.totalNumberOfRecords = totalNumberOfRecords;
+    } else {
+      statistics.totalNumberOfRecords = 0;
+      int parallelism = OTeleporterContext.getInstance().getImportSettings().getParallelism();
+      for (OEntity entity : this.dataBaseSchema.getEntities()) {
+        dbQueryEngine.countTableRecordsInBackground(
+            this.sourceDBInfo, entity.getName(), entity.getSchemaName(), parallelism);
+      }
+    }
+    statistics.builtEntities = this.dataBaseSchema.getEntities().size();
+    statistics.entitiesAnalyzedForRelationship = this.dataBaseSchema.getEntities().size();
+    statistics.builtRelationships = this.dataBaseSchema.getCanonicalRelationships().size();
+    statistics.totalNumberOfRelationships = this.dataBaseSchema.getCanonicalRelationships().size();
+
+    OTeleporterContext.getInstance()
+        .getMessageHandler()
+        .info(this, "Source database schema unchanged, loaded from %s.\n", snapshotPath);
+    return true;
+  }
+
+  /**
+   * Writes the snapshot of the source database schema just discovered. The import goes on if the
+   * snapshot can't be written, the schema will be discovered again at the next execution. The
+   * records counted in background are not kept, as the counts may be still running.
+   *
+   * @param snapshotPath
+   * @param fingerprint
+   */
+  private void writeSchemaSnapshot(String snapshotPath, String fingerprint) {
+    OImportSettings.RecordCountMode recordCountMode =
+        OTeleporterContext.getInstance().getImportSettings().getRecordCountMode();
+    Long totalNumberOfRecords =
+        recordCountMode == OImportSettings.RecordCountMode.BACKGROUND
+            ? null
+            : OTeleporterContext.getInstance().getStatistics().totalNumberOfRecords;
+    try {
+      OSchemaSnapshotManager.writeSnapshot(
+          this.dataBaseSchema, fingerprint, totalNumberOfRecords, snapshotPath);
+    } catch (Exception e) {
+      String mess = "Schema snapshot not written in " + snapshotPath + ".";
+      OTeleporterContext.getInstance().printExceptionMessage(e, mess, "warn");
+      OTeleporterContext.getInstance().printExceptionStackTrace(e, "debug");
+    }
   }
 
   /**
@@ -454,100 +743,143 @@ public class OER2GraphMapper extends OSource2GraphMapper {
 
     OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
 
-    int iteration = 1;
-    for (OEntity currentForeignEntity : this.dataBaseSchema.getEntities()) {
+    // building the relationships of the entities, concurrently if enabled: they are added to the
+    // schema in the order of the entities whatever the order of completion
+    List<OEntity> entities = new ArrayList<OEntity>(this.dataBaseSchema.getEntities());
+    List<List<OCanonicalRelationship>> entitiesRelationships =
+        this.executeForEachTable(
+            entities.size(),
+            databaseMetaData,
+            (metaData, index) ->
+                this.buildEntityOutRelationships(
+                    metaData, entities.get(index), index + 1, numberOfTables));
 
-      String currentForeignEntityName = currentForeignEntity.getName();
-      String foreignSchema = currentForeignEntity.getSchemaName();
-      if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
-          == OOutputStreamManager.DEBUG_LEVEL) {
-        OTeleporterContext.getInstance()
-            .getMessageHandler()
-            .debug(
-                "\nBuilding OUT relationships starting from '%s' entity (%s/%s)...\n",
-                currentForeignEntityName, iteration, numberOfTables);
-      }
+    for (List<OCanonicalRelationship> relationships : entitiesRelationships) {
+      // adding the relationships to the db schema
+      this.dataBaseSchema.getCanonicalRelationships().addAll(relationships);
+      // updating statistics
+      statistics.builtRelationships += relationships.size();
+    }
+
+    statistics.totalNumberOfRelationships = this.dataBaseSchema.getCanonicalRelationships().size();
+  }
+
+  /**
+   * Builds the relationships from an entity to the entities it references through its foreign
+   * keys.
+   *
+   * @param databaseMetaData metadata of the connection owned by the current thread
+   * @param currentForeignEntity
+   * @param iteration
+   * @param numberOfTables
+   * @return the relationships, added to the entity but not yet to the schema
+   * @throws SQLException
+   */
+  private List<OCanonicalRelationship> buildEntityOutRelationships(
+      DatabaseMetaData databaseMetaData,
+      OEntity currentForeignEntity,
+      int iteration,
+      int numberOfTables)
+      throws SQLException {
 
+    OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
+    List<OCanonicalRelationship> relationships = new ArrayList<OCanonicalRelationship>();
+
+    String currentForeignEntityName = currentForeignEntity.getName();
+    String foreignSchema = currentForeignEntity.getSchemaName();
+    if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+        == OOutputStreamManager.DEBUG_LEVEL) {
+      OTeleporterContext.getInstance()
+          .getMessageHandler()
+          .debug(
+              "\nBuilding OUT relationships starting from '%s' entity (%s/%s)...\n",
+              currentForeignEntityName, iteration, numberOfTables);
+    }
+
+    List<LinkedHashMap<String, String>> currentEntityRelationships1;
+    OSchemaCatalog catalog = this.getSchemaCatalog(foreignSchema, currentForeignEntityName);
+    if (catalog != null) {
+      currentEntityRelationships1 = new LinkedList<LinkedHashMap<String, String>>();
+      for (LinkedHashMap<String, String> row : catalog.getForeignKeys(currentForeignEntityName)) {
+        if (this.isParentTableMapped(row.get("pktable_name"))) {
+          currentEntityRelationships1.add(row);
+        }
+      }
+    } else {
       String foreignCatalog = null;
       ResultSet resultForeignKeys =
           databaseMetaData.getImportedKeys(foreignCatalog, foreignSchema, currentForeignEntityName);
 
       // copy of Resultset in a HashLinkedMap
-      List<LinkedHashMap<String, String>> currentEntityRelationships1 =
-          this.fromResultSetToList(resultForeignKeys);
-      List<LinkedHashMap<String, String>> currentEntityRelationships2 =
-          new LinkedList<LinkedHashMap<String, String>>();
-
-      for (LinkedHashMap<String, String> row : currentEntityRelationships1) {
-        currentEntityRelationships2.add(row);
-      }
-
+      currentEntityRelationships1 = this.fromResultSetToList(resultForeignKeys);
       this.closeCursor(resultForeignKeys);
+    }
+    List<LinkedHashMap<String, String>> currentEntityRelationships2 =
+        new LinkedList<LinkedHashMap<String, String>>();
 
-      Iterator<LinkedHashMap<String, String>> it1 = currentEntityRelationships1.iterator();
-      Iterator<LinkedHashMap<String, String>> it2 = currentEntityRelationships2.iterator();
+    for (LinkedHashMap<String, String> row : currentEntityRelationships1) {
+      currentEntityRelationships2.add(row);
+    }
 
-      while (it1.hasNext()) {
-        LinkedHashMap<String, String> currentExternalRow = it1.next();
+    Iterator<LinkedHashMap<String, String>> it1 = currentEntityRelationships1.iterator();
+    Iterator<LinkedHashMap<String, String>> it2 = currentEntityRelationships2.iterator();
 
-        // current row has Key_Seq equals to '2' then algorithm is finished and is stopped
-        if (currentExternalRow.get("key_seq").equals("2")) {
-          break;
-        }
+    while (it1.hasNext()) {
+      LinkedHashMap<String, String> currentExternalRow = it1.next();
 
-        // the original relationship is fetched from the record through the 'parent table' and the
-        // 'key sequence numbers'
-        String currentParentTableName = currentExternalRow.get("pktable_name");
-        int currentKeySeq = Integer.parseInt(currentExternalRow.get("key_seq"));
+      // current row has Key_Seq equals to '2' then algorithm is finished and is stopped
+      if (currentExternalRow.get("key_seq").equals("2")) {
+        break;
+      }
 
-        // building each single relationship from each correspondent foreign key
-        OEntity currentParentTable = this.dataBaseSchema.getEntityByName(currentParentTableName);
-        OCanonicalRelationship currentRelationship =
-            new OCanonicalRelationship(currentForeignEntity, currentParentTable);
-        OForeignKey currentFk = new OForeignKey(currentForeignEntity);
-        while (it2.hasNext()) {
-          LinkedHashMap<String, String> row = it2.next();
-          if (row.get("pktable_name").equals(currentParentTableName)
-              && Integer.parseInt(row.get("key_seq")) == currentKeySeq) {
-            currentFk.addAttribute(
-                currentForeignEntity.getAttributeByName((String) row.get("fkcolumn_name")));
-            it2.remove();
-            currentKeySeq++;
-          }
+      // the original relationship is fetched from the record through the 'parent table' and the
+      // 'key sequence numbers'
+      String currentParentTableName = currentExternalRow.get("pktable_name");
+      int currentKeySeq = Integer.parseInt(currentExternalRow.get("key_seq"));
+
+      // building each single relationship from each correspondent foreign key
+      OEntity currentParentTable = this.dataBaseSchema.getEntityByName(currentParentTableName);
+      OCanonicalRelationship currentRelationship =
+          new OCanonicalRelationship(currentForeignEntity, currentParentTable);
+      OForeignKey currentFk = new OForeignKey(currentForeignEntity);
+      while (it2.hasNext()) {
+        LinkedHashMap<String, String> row = it2.next();
+        if (row.get("pktable_name").equals(currentParentTableName)
+            && Integer.parseInt(row.get("key_seq")) == currentKeySeq) {
+          currentFk.addAttribute(
+              currentForeignEntity.getAttributeByName((String) row.get("fkcolumn_name")));
+          it2.remove();
+          currentKeySeq++;
         }
+      }
 
-        // iterator reset
-        it2 = currentEntityRelationships2.iterator();
+      // iterator reset
+      it2 = currentEntityRelationships2.iterator();
 
-        // searching correspondent primary key
-        OPrimaryKey currentPk =
-            this.dataBaseSchema.getEntityByName(currentParentTableName).getPrimaryKey();
+      // searching correspondent primary key
+      OPrimaryKey currentPk =
+          this.dataBaseSchema.getEntityByName(currentParentTableName).getPrimaryKey();
 
-        // adding foreign key to the entity and the relationship, and adding the foreign key to the
-        // 'foreign entity'
-        currentRelationship.setPrimaryKey(currentPk);
-        currentRelationship.setForeignKey(currentFk);
-        currentForeignEntity.getForeignKeys().add(currentFk);
+      // adding foreign key to the entity and the relationship, and adding the foreign key to the
+      // 'foreign entity'
+      currentRelationship.setPrimaryKey(currentPk);
+      currentRelationship.setForeignKey(currentFk);
+      currentForeignEntity.getForeignKeys().add(currentFk);
 
-        // adding the relationship to the db schema
-        this.dataBaseSchema.getCanonicalRelationships().add(currentRelationship);
-        // adding relationship to the current entity
-        currentForeignEntity.getOutCanonicalRelationships().add(currentRelationship);
-        // updating statistics
-        statistics.builtRelationships += 1;
-      }
+      // adding relationship to the current entity, the db schema is updated by the caller
+      currentForeignEntity.getOutCanonicalRelationships().add(currentRelationship);
+      relationships.add(currentRelationship);
+    }
 
-      iteration++;
-      if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
-          == OOutputStreamManager.DEBUG_LEVEL) {
-        OTeleporterContext.getInstance()
-            .getMessageHandler()
-            .debug(this, "\nOUT Relationships from %s built.\n", currentForeignEntityName);
-      }
-      statistics.entitiesAnalyzedForRelationship++;
+    if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+        == OOutputStreamManager.DEBUG_LEVEL) {
+      OTeleporterContext.getInstance()
+          .getMessageHandler()
+          .debug(this, "\nOUT Relationships from %s built.\n", currentForeignEntityName);
     }
+    statistics.incrementEntitiesAnalyzedForRelationship();
 
-    statistics.totalNumberOfRelationships = this.dataBaseSchema.getCanonicalRelationships().size();
+    return relationships;
   }
 
   /**
@@ -580,6 +912,164 @@ public class OER2GraphMapper extends OSource2GraphMapper {
     }
   }
 
+  /**
+   * Reads the catalog of each schema the tables belong to. The catalogs not supported by the DBMS
+   * or not readable are skipped, so the tables of the schema are read through DatabaseMetaData.
+   *
+   * @param sourceDBConnection
+   * @param schemas
+   */
+  private void readSchemaCatalogs(Connection sourceDBConnection, Collection<String> schemas) {
+
+    this.schema2catalog = new HashMap<String, OSchemaCatalog>();
+    ODBQueryEngine dbQueryEngine = OTeleporterContext.getInstance().getDbQueryEngine();
+    for (String schema : new LinkedHashSet<String>(schemas)) {
+      try {
+        OSchemaCatalog catalog = dbQueryEngine.readSchemaCatalog(sourceDBConnection, schema);
+        if (catalog != null) {
+          this.schema2catalog.put(schema, catalog);
+        }
+      } catch (SQLException e) {
+        if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+            == OOutputStreamManager.DEBUG_LEVEL) {
+          OTeleporterContext.getInstance()
+              .getMessageHandler()
+              .debug(
+                  this,
+                  "\nCatalog of schema %s not readable (%s), metadata read per table.\n",
+                  schema,
+                  e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the estimates of the records of the tables of each schema from the optimizer statistics.
+   * The schemas whose statistics are not available or not readable are skipped, so the records of
+   * their tables are counted.
+   *
+   * @param sourceDBConnection
+   * @param schemas
+   * @return the estimates of the records by table name, by schema
+   */
+  private Map<String, Map<String, Long>> readRecordEstimates(
+      Connection sourceDBConnection, Collection<String> schemas) {
+
+    Map<String, Map<String, Long>> schema2estimates = new HashMap<String, Map<String, Long>>();
+    ODBQueryEngine dbQueryEngine = OTeleporterContext.getInstance().getDbQueryEngine();
+    for (String schema : new LinkedHashSet<String>(schemas)) {
+      try {
+        Map<String, Long> estimates =
+            dbQueryEngine.estimateTableRecords(sourceDBConnection, schema);
+        if (estimates != null) {
+          schema2estimates.put(schema, estimates);
+        }
+      } catch (SQLException e) {
+        if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+            == OOutputStreamManager.DEBUG_LEVEL) {
+          OTeleporterContext.getInstance()
+              .getMessageHandler()
+              .debug(
+                  this,
+                  "\nStatistics of schema %s not readable (%s), records will be counted.\n",
+                  schema,
+                  e.getMessage());
+        }
+      }
+    }
+    return schema2estimates;
+  }
+
+  /**
+   * @param schema
+   * @param tableName
+   * @return the catalog of the schema, null if the table must be read through DatabaseMetaData
+   */
+  private OSchemaCatalog getSchemaCatalog(String schema, String tableName) {
+    OSchemaCatalog catalog = this.schema2catalog != null ? this.schema2catalog.get(schema) : null;
+    return catalog != null && catalog.containsTable(tableName) ? catalog : null;
+  }
+
+  /**
+   * @param parentTableName
+   * @return true if the parent table of a foreign key is allowed by the "include/exclude-lists" and
+   *     mapped to an entity
+   */
+  private boolean isParentTableMapped(String parentTableName) {
+    return this.isTableAllowed(parentTableName)
+        && this.dataBaseSchema.getEntityByName(parentTableName) != null;
+  }
+
+  /**
+   * Executes a task for each table: on the connection of the mapper, or on a pool of source
+   * connections when the import runs in parallel, one connection per task. A task uses only the
+   * connection of the passed metadata, so the workers never hold more than one pooled connection
+   * each. The results are returned in the order of the tables, whatever the order of completion.
+   *
+   * @param tables number of tables
+   * @param databaseMetaData metadata of the connection of the mapper
+   * @param task
+   * @return the results of the tasks, in the order of the tables
+   * @throws SQLException the first error in the order of the tables
+   */
+  private <T> List<T> executeForEachTable(
+      int tables, DatabaseMetaData databaseMetaData, OTableTask<T> task) throws SQLException {
+
+    int parallelism =
+        Math.min(OTeleporterContext.getInstance().getImportSettings().getParallelism(), tables);
+    List<T> results = new ArrayList<T>(tables);
+    if (parallelism <= 1) {
+      for (int i = 0; i < tables; i++) {
+        results.add(task.execute(databaseMetaData, i));
+      }
+      return results;
+    }
+
+    ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+    try {
+      List<Future<T>> futures = new ArrayList<Future<T>>(tables);
+      for (int i = 0; i < tables; i++) {
+        int index = i;
+        futures.add(
+            workers.submit(
+                () -> {
+                  try (Connection connection = ODBSourceConnection.getConnection(sourceDBInfo)) {
+                    return task.execute(connection.getMetaData(), index);
+                  }
+                }));
+      }
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OTeleporterRuntimeException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new OTeleporterRuntimeException(cause);
+    } finally {
+      workers.shutdownNow();
+    }
+    return results;
+  }
+
+  /** Work on a single table of the source database. */
+  @FunctionalInterface
+  private interface OTableTask<T> {
+
+    /**
+     * @param databaseMetaData metadata of a connection owned by the current thread
+     * @param index index of the table
+     */
+    T execute(DatabaseMetaData databaseMetaData, int index) throws SQLException;
+  }
+
   private List<String> getPrimaryKeysFromResulset(ResultSet resultPrimaryKeys) throws SQLException {
 
     List<String> currentPrimaryKeys = new LinkedList<String>();
@@ -614,9 +1104,7 @@ public class OER2GraphMapper extends OSource2GraphMapper {
 
       while (resultForeignKeys.next()) {
 
-        if (this.isTableAllowed(resultForeignKeys.getString("pktable_name"))
-            && this.dataBaseSchema.getEntityByName(resultForeignKeys.getString("pktable_name"))
-                != null) {
+        if (this.isParentTableMapped(resultForeignKeys.getString("pktable_name"))) {
           //          if(this.isTableAllowed(resultForeignKeys.getString("pktable_name")) &&
           // this.dataBaseSchema.getEntityByName(resultForeignKeys.getString("pktable_name")) !=
           // null) {
@@ -724,7 +1212,7 @@ public class OER2GraphMapper extends OSource2GraphMapper {
         String orientdbDataType =
             OTeleporterContext.getInstance()
                 .getDataTypeHandler()
-                .resolveType(currentAttribute.getDataType().toLowerCase(Locale.ENGLISH))
+                .resolveType(currentAttribute)
                 .toString();
         OModelProperty currentProperty =
             new OModelProperty(
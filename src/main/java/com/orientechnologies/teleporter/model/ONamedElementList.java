@@ -0,0 +1,189 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.model;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * List of the named elements of a model (entities, vertex and edge types, properties) with
+ * case-sensitive and case-insensitive indexes by name. The indexes are rebuilt at the first lookup
+ * after the list is modified or one of its elements is renamed, so they stay consistent whatever
+ * the way the model is changed while the lookups done during the import are O(1). As the linear
+ * scans they replace, lookups return the first element with the name in the order of the list.
+ *
+ * <p>Each element holds the {@link OContainingLists} it was indexed in, notified when it is
+ * renamed: a rename rebuilds only the indexes of the lists containing the element.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+@SuppressWarnings("serial") // not serialized, the functions are not serializable
+public class ONamedElementList<T> extends ArrayList<T> {
+
+  private final Function<T, String> nameFunction;
+  private final Function<T, OContainingLists> containingListsFunction;
+  // renames of the elements of the list, the index built before is not valid
+  private final AtomicLong renames = new AtomicLong();
+  private volatile ONameIndex<T> index;
+
+  public ONamedElementList(
+      Function<T, String> nameFunction, Function<T, OContainingLists> containingListsFunction) {
+    this.nameFunction = nameFunction;
+    this.containingListsFunction = containingListsFunction;
+  }
+
+  public ONamedElementList(
+      Function<T, String> nameFunction,
+      Function<T, OContainingLists> containingListsFunction,
+      Collection<? extends T> elements) {
+    super(elements);
+    this.nameFunction = nameFunction;
+    this.containingListsFunction = containingListsFunction;
+  }
+
+  /**
+   * @param name
+   * @return the first element with the name, null if not present
+   */
+  public T getByName(String name) {
+    if (name == null) {
+      return null;
+    }
+    return this.getIndex().name2element.get(name);
+  }
+
+  /**
+   * @param name
+   * @return the first element with the name ignoring the case, null if not present
+   */
+  public T getByNameIgnoreCase(String name) {
+    if (name == null) {
+      return null;
+    }
+    return this.getIndex().foldedName2element.get(foldCase(name));
+  }
+
+  @Override
+  public T set(int index, T element) {
+    // replacing an element is not a structural modification, tracked to rebuild the indexes
+    this.modCount++;
+    return super.set(index, element);
+  }
+
+  private ONameIndex<T> getIndex() {
+    ONameIndex<T> current = this.index;
+    long currentRenames = this.renames.get();
+    if (current == null
+        || current.modCount != this.modCount
+        || current.renames != currentRenames) {
+      synchronized (this) {
+        current = this.index;
+        if (current == null
+            || current.modCount != this.modCount
+            || current.renames != currentRenames) {
+          current = new ONameIndex<T>(this.modCount, currentRenames);
+          for (T element : this) {
+            this.containingListsFunction.apply(element).add(this);
+            String name = this.nameFunction.apply(element);
+            if (name != null) {
+              current.name2element.putIfAbsent(name, element);
+              current.foldedName2element.putIfAbsent(foldCase(name), element);
+            }
+          }
+          this.index = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * @param name
+   * @return the name with each char folded as {@link String#equalsIgnoreCase(String)} compares
+   *     them, so two names are equal ignoring the case if and only if their folded forms are equal
+   */
+  private static String foldCase(String name) {
+    char[] chars = name.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+    }
+    return new String(chars);
+  }
+
+  /**
+   * The lists a named element was indexed in, held by the element. The lists the element was
+   * removed from are notified too, their indexes are just rebuilt once more.
+   */
+  public static class OContainingLists {
+
+    // weak references, so the lists dropped by the models are not kept by their elements
+    private final List<WeakReference<ONamedElementList<?>>> lists =
+        new ArrayList<WeakReference<ONamedElementList<?>>>(2);
+
+    private synchronized void add(ONamedElementList<?> list) {
+      Iterator<WeakReference<ONamedElementList<?>>> it = this.lists.iterator();
+      while (it.hasNext()) {
+        ONamedElementList<?> current = it.next().get();
+        if (current == list) {
+          return;
+        }
+        if (current == null) {
+          it.remove();
+        }
+      }
+      this.lists.add(new WeakReference<ONamedElementList<?>>(list));
+    }
+
+    /** Must be called when the element is renamed, so the indexes of its lists are rebuilt. */
+    public synchronized void nameChanged() {
+      Iterator<WeakReference<ONamedElementList<?>>> it = this.lists.iterator();
+      while (it.hasNext()) {
+        ONamedElementList<?> current = it.next().get();
+        if (current == null) {
+          it.remove();
+        } else {
+          current.renames.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  private static class ONameIndex<T> {
+
+    private final int modCount;
+    private final long renames;
+    private final Map<String, T> name2element = new HashMap<String, T>();
+    private final Map<String, T> foldedName2element = new HashMap<String, T>();
+
+    ONameIndex(int modCount, long renames) {
+      this.modCount = modCount;
+      this.renames = renames;
+    }
+  }
+}
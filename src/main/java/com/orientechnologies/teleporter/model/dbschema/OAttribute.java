@@ -31,12 +31,17 @@ public class OAttribute implements Comparable<OAttribute> {
   private String name;
   private int ordinalPosition;
   private String dataType;
+  // size and decimal digits of the column, -1 when not known
+  private int columnSize;
+  private int decimalDigits;
   private OEntity belongingEntity;
 
   public OAttribute(String name, int ordinalPosition, String dataType, OEntity belongingEntity) {
     this.name = name;
     this.ordinalPosition = ordinalPosition;
     this.dataType = dataType;
+    this.columnSize = -1;
+    this.decimalDigits = -1;
     this.belongingEntity = belongingEntity;
   }
 
@@ -64,6 +69,22 @@ public class OAttribute implements Comparable<OAttribute> {
     this.dataType = dataType;
   }
 
+  public int getColumnSize() {
+    return this.columnSize;
+  }
+
+  public void setColumnSize(int columnSize) {
+    this.columnSize = columnSize;
+  }
+
+  public int getDecimalDigits() {
+    return this.decimalDigits;
+  }
+
+  public void setDecimalDigits(int decimalDigits) {
+    this.decimalDigits = decimalDigits;
+  }
+
   public OEntity getBelongingEntity() {
     return this.belongingEntity;
   }
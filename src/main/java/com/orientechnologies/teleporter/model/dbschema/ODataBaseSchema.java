@@ -21,6 +21,7 @@
 package com.orientechnologies.teleporter.model.dbschema;
 
 import com.orientechnologies.teleporter.model.ODataSourceSchemaInfo;
+import com.orientechnologies.teleporter.model.ONamedElementList;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,7 +39,7 @@ public class ODataBaseSchema implements ODataSourceSchemaInfo {
   private int driverMinorVersion;
   private String productName;
   private String productVersion;
-  private List<OEntity> entities;
+  private ONamedElementList<OEntity> entities;
   private List<OCanonicalRelationship> canonicalRelationships;
   private List<OLogicalRelationship> logicalRelationships;
   private List<OHierarchicalBag> hierarchicalBags;
@@ -56,14 +57,16 @@ public class ODataBaseSchema implements ODataSourceSchemaInfo {
     this.driverMinorVersion = driverMinorVersion;
     this.productName = productName;
     this.productVersion = productVersion;
-    this.entities = new ArrayList<OEntity>();
+    this.entities =
+        new ONamedElementList<OEntity>(OEntity::getName, OEntity::getContainingLists);
     this.canonicalRelationships = new ArrayList<OCanonicalRelationship>();
     this.logicalRelationships = new ArrayList<OLogicalRelationship>();
     this.hierarchicalBags = new ArrayList<OHierarchicalBag>();
   }
 
   public ODataBaseSchema() {
-    this.entities = new ArrayList<OEntity>();
+    this.entities =
+        new ONamedElementList<OEntity>(OEntity::getName, OEntity::getContainingLists);
     this.canonicalRelationships = new ArrayList<OCanonicalRelationship>();
     this.logicalRelationships = new ArrayList<OLogicalRelationship>();
     this.hierarchicalBags = new ArrayList<OHierarchicalBag>();
@@ -122,7 +125,8 @@ public class ODataBaseSchema implements ODataSourceSchemaInfo {
   }
 
   public void setEntities(List<OEntity> entitiess) {
-    this.entities = entitiess;
+    this.entities =
+        new ONamedElementList<OEntity>(OEntity::getName, OEntity::getContainingLists, entitiess);
   }
 
   public List<OCanonicalRelationship> getCanonicalRelationships() {
@@ -150,21 +154,11 @@ public class ODataBaseSchema implements ODataSourceSchemaInfo {
   }
 
   public OEntity getEntityByName(String entityName) {
-
-    for (OEntity currentEntity : this.entities) {
-      if (currentEntity.getName().equals(entityName)) return currentEntity;
-    }
-
-    return null;
+    return this.entities.getByName(entityName);
   }
 
   public OEntity getEntityByNameIgnoreCase(String entityName) {
-
-    for (OEntity currentEntity : this.entities) {
-      if (currentEntity.getName().equalsIgnoreCase(entityName)) return currentEntity;
-    }
-
-    return null;
+    return this.entities.getByNameIgnoreCase(entityName);
   }
 
   public ORelationship getRelationshipByInvolvedEntitiesAndAttributes(
@@ -20,6 +20,7 @@
 
 package com.orientechnologies.teleporter.model.dbschema;
 
+import com.orientechnologies.teleporter.model.ONamedElementList;
 import java.util.*;
 
 /**
@@ -64,6 +65,9 @@ public class OEntity implements Comparable<OEntity> {
   private OEntity parentEntity;
   private int inheritanceLevel;
   private OHierarchicalBag hierarchicalBag;
+  // lists indexing the entity by name, notified when it is renamed
+  private final ONamedElementList.OContainingLists containingLists =
+      new ONamedElementList.OContainingLists();
 
   public OEntity(String name, String schemaName, OSourceDatabaseInfo sourceDbInfo) {
     this.name = name;
@@ -177,6 +181,11 @@ public class OEntity implements Comparable<OEntity> {
 
   public void setName(String name) {
     this.name = name;
+    this.containingLists.nameChanged();
+  }
+
+  public ONamedElementList.OContainingLists getContainingLists() {
+    return this.containingLists;
   }
 
   public OSourceDatabaseInfo getSourceDataseInfo() {
@@ -20,9 +20,9 @@
 
 package com.orientechnologies.teleporter.model.graphmodel;
 
+import com.orientechnologies.teleporter.model.ONamedElementList;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -35,16 +35,25 @@ import java.util.Set;
 public class OElementType implements Comparable<OElementType> {
 
   protected String name;
-  protected List<OModelProperty> properties;
-  protected List<OModelProperty> inheritedProperties;
+  protected ONamedElementList<OModelProperty> properties;
+  protected ONamedElementList<OModelProperty> inheritedProperties;
   protected Set<OModelProperty> allProperties;
+  // properties and inherited properties indexed by name, built with the set of all the properties
+  private volatile ONamedElementList<OModelProperty> allPropertiesByName;
   protected OElementType parentType;
   protected int inheritanceLevel;
+  // lists indexing the type by name, notified when it is renamed
+  private final ONamedElementList.OContainingLists containingLists =
+      new ONamedElementList.OContainingLists();
 
   public OElementType(String type) {
     this.name = type;
-    this.properties = new LinkedList<OModelProperty>();
-    this.inheritedProperties = new LinkedList<OModelProperty>();
+    this.properties =
+        new ONamedElementList<OModelProperty>(
+            OModelProperty::getName, OModelProperty::getContainingLists);
+    this.inheritedProperties =
+        new ONamedElementList<OModelProperty>(
+            OModelProperty::getName, OModelProperty::getContainingLists);
     this.allProperties = null;
   }
 
@@ -54,6 +63,11 @@ public class OElementType implements Comparable<OElementType> {
 
   public void setName(String type) {
     this.name = type;
+    this.containingLists.nameChanged();
+  }
+
+  public ONamedElementList.OContainingLists getContainingLists() {
+    return this.containingLists;
   }
 
   public List<OModelProperty> getProperties() {
@@ -61,7 +75,9 @@ public class OElementType implements Comparable<OElementType> {
   }
 
   public void setProperties(List<OModelProperty> properties) {
-    this.properties = properties;
+    this.properties =
+        new ONamedElementList<OModelProperty>(
+            OModelProperty::getName, OModelProperty::getContainingLists, properties);
   }
 
   public List<OModelProperty> getInheritedProperties() {
@@ -69,7 +85,9 @@ public class OElementType implements Comparable<OElementType> {
   }
 
   public void setInheritedProperties(List<OModelProperty> inheritedProperties) {
-    this.inheritedProperties = inheritedProperties;
+    this.inheritedProperties =
+        new ONamedElementList<OModelProperty>(
+            OModelProperty::getName, OModelProperty::getContainingLists, inheritedProperties);
   }
 
   public OElementType getParentType() {
@@ -108,30 +126,23 @@ public class OElementType implements Comparable<OElementType> {
   }
 
   public OModelProperty getPropertyByName(String name) {
-    for (OModelProperty property : this.properties) {
-      if (property.getName().equals(name)) {
-        return property;
-      }
-    }
-    return null;
+    return this.properties.getByName(name);
   }
 
   public OModelProperty getInheritedPropertyByName(String name) {
-    for (OModelProperty property : this.inheritedProperties) {
-      if (property.getName().equals(name)) {
-        return property;
-      }
-    }
-    return null;
+    return this.inheritedProperties.getByName(name);
   }
 
   public OModelProperty getPropertyByNameAmongAll(String name) {
-    for (OModelProperty property : this.getAllProperties()) {
-      if (property.getName().equals(name)) {
-        return property;
-      }
+    Set<OModelProperty> all = this.getAllProperties();
+    ONamedElementList<OModelProperty> index = this.allPropertiesByName;
+    if (index == null || index.size() != all.size()) {
+      index =
+          new ONamedElementList<OModelProperty>(
+              OModelProperty::getName, OModelProperty::getContainingLists, all);
+      this.allPropertiesByName = index;
     }
-    return null;
+    return index.getByName(name);
   }
 
   // Returns properties and inherited properties
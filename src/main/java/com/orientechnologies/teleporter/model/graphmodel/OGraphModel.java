@@ -20,7 +20,7 @@
 
 package com.orientechnologies.teleporter.model.graphmodel;
 
-import java.util.ArrayList;
+import com.orientechnologies.teleporter.model.ONamedElementList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -32,36 +32,22 @@ import java.util.List;
  */
 public class OGraphModel {
 
-  private List<OVertexType> verticesType;
-  private List<OEdgeType> edgesType;
+  private ONamedElementList<OVertexType> verticesType;
+  private ONamedElementList<OEdgeType> edgesType;
 
   public OGraphModel() {
-    this.verticesType = new ArrayList<OVertexType>();
-    this.edgesType = new ArrayList<OEdgeType>();
+    this.verticesType =
+        new ONamedElementList<OVertexType>(OVertexType::getName, OVertexType::getContainingLists);
+    this.edgesType =
+        new ONamedElementList<OEdgeType>(OEdgeType::getName, OEdgeType::getContainingLists);
   }
 
   public OVertexType getVertexTypeByName(String name) {
-    OVertexType vertex = null;
-
-    for (OVertexType currentVertex : this.verticesType) {
-      if (currentVertex.getName().equals(name)) {
-        vertex = currentVertex;
-        break;
-      }
-    }
-    return vertex;
+    return this.verticesType.getByName(name);
   }
 
   public OVertexType getVertexTypeByNameIgnoreCase(String name) {
-    OVertexType vertex = null;
-
-    for (OVertexType currentVertex : this.verticesType) {
-      if (currentVertex.getName().equalsIgnoreCase(name)) {
-        vertex = currentVertex;
-        break;
-      }
-    }
-    return vertex;
+    return this.verticesType.getByNameIgnoreCase(name);
   }
 
   public List<OVertexType> getVerticesType() {
@@ -69,7 +55,9 @@ public class OGraphModel {
   }
 
   public void setVerticesType(List<OVertexType> verticesType) {
-    this.verticesType = verticesType;
+    this.verticesType =
+        new ONamedElementList<OVertexType>(
+            OVertexType::getName, OVertexType::getContainingLists, verticesType);
   }
 
   public List<OEdgeType> getEdgesType() {
@@ -77,25 +65,17 @@ public class OGraphModel {
   }
 
   public void setEdgesType(List<OEdgeType> edgesType) {
-    this.edgesType = edgesType;
+    this.edgesType =
+        new ONamedElementList<OEdgeType>(
+            OEdgeType::getName, OEdgeType::getContainingLists, edgesType);
   }
 
   public OEdgeType getEdgeTypeByName(String name) {
-    for (OEdgeType currentEdgetype : this.edgesType) {
-      if (currentEdgetype.getName().equals(name)) {
-        return currentEdgetype;
-      }
-    }
-    return null;
+    return this.edgesType.getByName(name);
   }
 
   public OEdgeType getEdgeTypeByNameIgnoreCase(String name) {
-    for (OEdgeType currentEdgetype : this.edgesType) {
-      if (currentEdgetype.getName().equalsIgnoreCase(name)) {
-        return currentEdgetype;
-      }
-    }
-    return null;
+    return this.edgesType.getByNameIgnoreCase(name);
   }
 
   public boolean removeVertexTypeByName(String vertexName) {
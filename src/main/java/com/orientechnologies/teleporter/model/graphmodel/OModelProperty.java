@@ -20,6 +20,8 @@
 
 package com.orientechnologies.teleporter.model.graphmodel;
 
+import com.orientechnologies.teleporter.model.ONamedElementList;
+
 /**
  * Class which holds all the attributes of a vertex property obtained from the transformation of an
  * attribute belonging to an entity of the source DB schema.
@@ -36,6 +38,9 @@ public class OModelProperty {
   private boolean fromPrimaryKey;
   private OElementType belongingElementType;
   private boolean includedInMigration;
+  // lists indexing the property by name, notified when it is renamed
+  private final ONamedElementList.OContainingLists containingLists =
+      new ONamedElementList.OContainingLists();
 
   // costraints
   private Boolean mandatory;
@@ -85,6 +90,11 @@ public class OModelProperty {
 
   public void setName(String name) {
     this.name = name;
+    this.containingLists.nameChanged();
+  }
+
+  public ONamedElementList.OContainingLists getContainingLists() {
+    return this.containingLists;
   }
 
   public int getOrdinalPosition() {
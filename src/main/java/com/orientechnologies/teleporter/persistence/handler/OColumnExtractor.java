@@ -0,0 +1,46 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.persistence.handler;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Extracts the value of a single column of a source record, already converted into the value
+ * stored in OrientDB. Extractors are built once per property by the data type handler of the
+ * source DBMS.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+@FunctionalInterface
+public interface OColumnExtractor {
+
+  /**
+   * @param record
+   * @param column the ordinal of the column in the record
+   * @return the value to store, null if the column is NULL
+   * @throws SQLException
+   * @throws IOException if the column is read as a stream
+   */
+  Object extract(ResultSet record, int column) throws SQLException, IOException;
+}
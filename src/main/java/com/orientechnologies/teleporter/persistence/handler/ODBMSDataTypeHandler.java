@@ -22,11 +22,27 @@ package com.orientechnologies.teleporter.persistence.handler;
 
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.teleporter.context.OImportSettings;
 import com.orientechnologies.teleporter.context.OTeleporterContext;
-import com.orientechnologies.teleporter.model.dbschema.OEntity;
+import com.orientechnologies.teleporter.context.OTeleporterStatistics;
+import com.orientechnologies.teleporter.model.dbschema.OAttribute;
+import com.orientechnologies.teleporter.persistence.util.OJSONStreamReader;
+import com.orientechnologies.teleporter.persistence.util.OLobChunks;
+import com.orientechnologies.teleporter.persistence.util.OWKBReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Generic Handler that executes generic type conversions to the OrientDB types.
@@ -37,38 +53,205 @@ import java.util.Map;
 public class ODBMSDataTypeHandler implements ODriverDataTypeHandler {
 
   protected Map<String, OType> dbmsType2OrientType;
+  // types of the text columns stored out of the row (e.g. clob), by normalized type
+  protected Set<String> largeTextTypes;
+  // types of the geospatial columns, by normalized type
+  protected Set<String> geospatialTypes;
   public boolean jsonImplemented;
   public boolean geospatialImplemented;
 
+  // resolutions of the original types, by the type passed to resolveType
+  private final Map<String, OTypeResolution> resolvedTypes;
+
   public ODBMSDataTypeHandler() {
     this.dbmsType2OrientType = this.fillTypesMap();
+    this.largeTextTypes =
+        new HashSet<String>(
+            Arrays.asList("clob", "nclob", "mediumtext", "longtext", "ntext", "long"));
+    this.geospatialTypes = new HashSet<String>();
     this.jsonImplemented = false;
     this.geospatialImplemented = false;
+    this.resolvedTypes = new ConcurrentHashMap<String, OTypeResolution>();
   }
 
   /**
    * The method returns the Orient Type starting from the string name type of the original DBMS. If
-   * the starting type is not mapped, OType.STRING is returned.
+   * the starting type is not mapped, OType.STRING is returned. Each original type is resolved once:
+   * the not mapped ones are reported with a single warning, their values are counted by the
+   * extractors as they are converted.
    */
   public OType resolveType(String type) {
+    return this.getResolution(type).type;
+  }
+
+  private OTypeResolution getResolution(String type) {
+    OTypeResolution resolution = this.resolvedTypes.get(type);
+    if (resolution == null) {
+      resolution = this.resolvedTypes.computeIfAbsent(type, this::resolveNotCachedType);
+    }
+    return resolution;
+  }
+
+  /** By default only the type name of the column is considered. */
+  @Override
+  public OType resolveType(OAttribute attribute) {
+    return this.resolveType(attribute.getDataType().toLowerCase(Locale.ENGLISH));
+  }
+
+  /**
+   * Builds the extractor of the values of a property, converting them straight into values of its
+   * OrientDB type: NULL values are extracted as null. DBMS specific types are handled by
+   * overriding this method.
+   *
+   * @param propertyName
+   * @param orientdbType the OrientDB type of the property
+   * @param originalType the type of the source column
+   * @return
+   */
+  public OColumnExtractor buildExtractor(
+      String propertyName, String orientdbType, String originalType) {
+
+    // GEOSPATIAL, converted into shapes
+    if (orientdbType.equals("EMBEDDED") && this.isGeospatial(originalType)) {
+      return this.buildGeospatialExtractor(originalType);
+    }
+
+    switch (orientdbType) {
+      case "DATE":
+        return (record, column) -> record.getDate(column);
+      case "DATETIME":
+        return (record, column) -> record.getTimestamp(column);
+      case "BINARY":
+        if (this.getImportSettings().getLobMode() == OImportSettings.LobMode.CHUNKED) {
+          int threshold = this.getImportSettings().getLobThreshold();
+          return (record, column) -> OLobChunks.read(record.getBinaryStream(column), threshold);
+        }
+        return (record, column) -> record.getBytes(column);
+      case "BOOLEAN":
+        return (record, column) -> {
+          boolean value = record.getBoolean(column);
+          return record.wasNull() ? null : value;
+        };
+      case "DECIMAL":
+        return (record, column) -> record.getBigDecimal(column);
+      case "DOUBLE":
+        return (record, column) -> {
+          double value = record.getDouble(column);
+          return record.wasNull() ? null : value;
+        };
+      case "FLOAT":
+        return (record, column) -> {
+          float value = record.getFloat(column);
+          return record.wasNull() ? null : value;
+        };
+      case "INTEGER":
+        return (record, column) -> {
+          int value = record.getInt(column);
+          return record.wasNull() ? null : value;
+        };
+      case "LONG":
+        return (record, column) -> {
+          long value = record.getLong(column);
+          return record.wasNull() ? null : value;
+        };
+      case "SHORT":
+        return (record, column) -> {
+          short value = record.getShort(column);
+          return record.wasNull() ? null : value;
+        };
+      default:
+        break;
+    }
+
+    // JSON, streamed from the column
+    if (this.jsonImplemented && orientdbType.equals("EMBEDDED")) {
+      int maxSize = this.getImportSettings().getMaxJsonSize();
+      return (record, column) ->
+          this.convertJSONToDocument(propertyName, record.getCharacterStream(column), maxSize);
+    }
+
+    // not convertible types, the values converted to String are counted
+    LongAdder convertedValues =
+        this.getResolution(originalType.toLowerCase(Locale.ENGLISH)).convertedValues;
+    if (convertedValues != null) {
+      return (record, column) -> {
+        String value = record.getString(column);
+        if (value != null) {
+          convertedValues.increment();
+        }
+        return value;
+      };
+    }
+
+    return (record, column) -> record.getString(column);
+  }
+
+  /**
+   * @param orientdbType the OrientDB type of the property
+   * @param originalType the type of the source column
+   * @return true if the column is a LOB: a binary one or a large text one
+   */
+  public boolean isLob(String orientdbType, String originalType) {
+    return orientdbType.equals("BINARY")
+        || this.largeTextTypes.contains(this.normalizeType(originalType));
+  }
+
+  /**
+   * @param orientdbType the OrientDB type of the property
+   * @param originalType the type of the source column
+   * @return true if the values of the column are not imported, according to the LOB mode
+   */
+  public boolean isExcludedLob(String orientdbType, String originalType) {
+    return this.getImportSettings().getLobMode() == OImportSettings.LobMode.EXCLUDE
+        && this.isLob(orientdbType, originalType);
+  }
+
+  private OImportSettings getImportSettings() {
+    OImportSettings importSettings = OTeleporterContext.getInstance().getImportSettings();
+    return importSettings != null ? importSettings : new OImportSettings();
+  }
+
+  /**
+   * @param type
+   * @return the type normalized as the keys of the types map
+   */
+  protected String normalizeType(String type) {
+    return type.toLowerCase(Locale.ENGLISH);
+  }
+
+  private OTypeResolution resolveNotCachedType(String type) {
 
     // normalization
-    type = type.toLowerCase(Locale.ENGLISH);
+    String normalizedType = this.normalizeType(type);
 
     // Defined Types
-    if (this.dbmsType2OrientType.keySet().contains(type)) return this.dbmsType2OrientType.get(type);
+    OType orientType = this.dbmsType2OrientType.get(normalizedType);
+    if (orientType != null) {
+      return new OTypeResolution(orientType, null);
+    }
 
     // Undefined Types
-    else {
-      OTeleporterContext.getInstance()
-          .getStatistics()
-          .warningMessages
-          .add(
-              "The original type '"
-                  + type
-                  + "' is not convertible into any OrientDB type thus, in order to prevent data loss, it will be converted to the OrientDB Type String.");
-      return OType.STRING;
-    }
+    OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
+    statistics.warningMessages.add(
+        "The original type '"
+            + normalizedType
+            + "' is not convertible into any OrientDB type thus, in order to prevent data loss, "
+            + "it will be converted to the OrientDB Type String.");
+    return new OTypeResolution(
+        OType.STRING, statistics.getNotConvertibleTypeCounter(normalizedType));
+  }
+
+  /** By default the fetch size is just passed to the driver, which is expected to honour it. */
+  @Override
+  public void configureStreaming(Connection connection, Statement statement, int fetchSize)
+      throws SQLException {
+    statement.setFetchSize(fetchSize);
+  }
+
+  /** By default the values are bound as VARCHAR, DBMS specific types are handled by overriding. */
+  @Override
+  public int getStringParameterType(OAttribute attribute) {
+    return Types.VARCHAR;
   }
 
   private Map<String, OType> fillTypesMap() {
@@ -138,22 +321,73 @@ public class ODBMSDataTypeHandler implements ODriverDataTypeHandler {
     return document;
   }
 
+  /**
+   * Converts a JSON value read as a character stream, building the document while reading it. A
+   * value longer than the max size is not imported: its reading stops once the max size is
+   * exceeded and null is returned, so it is never held in memory as a whole.
+   *
+   * @param currentProperty
+   * @param json the JSON text, null for NULL values; it is closed once read
+   * @param maxSize max number of chars converted into a document, 0 means no limit
+   * @return the document, null if the value is longer than the max size
+   * @throws IOException
+   */
+  public ODocument convertJSONToDocument(String currentProperty, Reader json, int maxSize)
+      throws IOException {
+
+    if (json == null) {
+      return this.convertJSONToDocument(currentProperty, (String) null);
+    }
+    try (Reader reader = json) {
+      ODocument document = OJSONStreamReader.read(reader, currentProperty, maxSize);
+      if (document == null) {
+        OTeleporterContext.getInstance()
+            .getStatistics()
+            .warningMessages
+            .add(
+                "The JSON values of the property '"
+                    + currentProperty
+                    + "' longer than "
+                    + maxSize
+                    + " chars are not imported.");
+      }
+      return document;
+    }
+  }
+
   /**
    * @param currentOriginalType
-   * @return
+   * @return true if the columns of the type are geospatial and imported as shapes
    */
+  @Override
   public boolean isGeospatial(String currentOriginalType) {
-    // TODO Auto-generated method stub
-    return false;
+    return this.geospatialImplemented
+        && this.geospatialTypes.contains(this.normalizeType(currentOriginalType));
   }
 
   /**
-   * @param entity
-   * @param context
+   * Builds the extractor of the values of a geospatial column. By default the columns are read as
+   * WKB; DBMS specific formats are handled by overriding this method.
+   *
+   * @param originalType
    * @return
    */
-  public String buildGeospatialQuery(OEntity entity, OTeleporterContext context) {
-    // TODO Auto-generated method stub
-    return null;
+  protected OColumnExtractor buildGeospatialExtractor(String originalType) {
+    return (record, column) -> {
+      byte[] wkb = record.getBytes(column);
+      return wkb != null ? OWKBReader.read(wkb) : null;
+    };
+  }
+
+  private static class OTypeResolution {
+
+    private final OType type;
+    // values of a not convertible type converted to String, null for the mapped ones
+    private final LongAdder convertedValues;
+
+    OTypeResolution(OType type, LongAdder convertedValues) {
+      this.type = type;
+      this.convertedValues = convertedValues;
+    }
   }
 }
@@ -21,6 +21,10 @@
 package com.orientechnologies.teleporter.persistence.handler;
 
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.teleporter.model.dbschema.OAttribute;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * Interface that executes the right type conversions between DBMS and OrientDB types according to
@@ -32,4 +36,37 @@ import com.orientechnologies.orient.core.metadata.schema.OType;
 public interface ODriverDataTypeHandler {
 
   public OType resolveType(String type);
+
+  /**
+   * Resolves the OrientDB type of a source column, taking into account its size and its decimal
+   * digits when the DBMS maps the same type name to different OrientDB types.
+   *
+   * @param attribute
+   * @return
+   */
+  public OType resolveType(OAttribute attribute);
+
+  /**
+   * @param type the original type of a source column
+   * @return true if the values of the column are imported as geospatial shapes
+   */
+  public boolean isGeospatial(String type);
+
+  /**
+   * Configures a statement (and its connection) before the execution of a query, so that the
+   * records are streamed from the source DB instead of being loaded in memory all at once.
+   *
+   * @param connection
+   * @param statement
+   * @param fetchSize number of rows fetched per round trip
+   * @throws SQLException
+   */
+  public void configureStreaming(Connection connection, Statement statement, int fetchSize)
+      throws SQLException;
+
+  /**
+   * @param attribute a source column whose values are bound to the queries as strings
+   * @return the SQL type the values are bound with, one of the java.sql.Types constants
+   */
+  public int getStringParameterType(OAttribute attribute);
 }
@@ -21,11 +21,17 @@
 package com.orientechnologies.teleporter.persistence.handler;
 
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.teleporter.model.dbschema.OAttribute;
+import com.orientechnologies.teleporter.persistence.util.OWKBReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
- * Handler that executes type conversions from MySQL DBMS to the OrientDB types. No Geospatial
+ * Handler that executes type conversions from MySQL DBMS to the OrientDB types. Geospatial
  * implemented.
  *
  * @author Gabriele Ponzi
@@ -33,10 +39,64 @@ import java.util.Map;
  */
 public class OMySQLDataTypeHandler extends ODBMSDataTypeHandler {
 
+  private static final String[] GEOMETRY_TYPES = {
+    "geometry",
+    "point",
+    "linestring",
+    "polygon",
+    "multipoint",
+    "multilinestring",
+    "multipolygon",
+    "geometrycollection",
+    "geomcollection"
+  };
+
   public OMySQLDataTypeHandler() {
     this.dbmsType2OrientType = this.fillTypesMap();
     super.jsonImplemented = true;
-    super.geospatialImplemented = false;
+    super.geospatialImplemented = true;
+    super.largeTextTypes.add("text");
+    for (String type : GEOMETRY_TYPES) {
+      super.geospatialTypes.add(type);
+    }
+  }
+
+  /**
+   * Spatial values are returned by the driver in the internal MySQL format: a 4 bytes SRID followed
+   * by the WKB of the geometry.
+   */
+  @Override
+  protected OColumnExtractor buildGeospatialExtractor(String originalType) {
+    return (record, column) -> {
+      byte[] value = record.getBytes(column);
+      return value != null ? OWKBReader.read(value, 4) : null;
+    };
+  }
+
+  /**
+   * Connector/J ignores the fetch size and buffers the whole result set, unless the connection uses
+   * server-side cursors ("useCursorFetch=true"). Otherwise the result set is streamed row by row,
+   * which is requested through a fetch size equal to Integer.MIN_VALUE on a forward-only,
+   * read-only statement.
+   */
+  @Override
+  public void configureStreaming(Connection connection, Statement statement, int fetchSize)
+      throws SQLException {
+    String url = connection.getMetaData().getURL();
+    if (url != null && url.toLowerCase(Locale.ENGLISH).contains("usecursorfetch=true")) {
+      statement.setFetchSize(fetchSize);
+    } else {
+      statement.setFetchSize(Integer.MIN_VALUE);
+    }
+  }
+
+  /** BIT(1) columns are mapped to BOOLEAN, wider BIT columns to BINARY. */
+  @Override
+  public OType resolveType(OAttribute attribute) {
+    if (attribute.getDataType().equalsIgnoreCase("bit") && attribute.getColumnSize() > 0) {
+      return attribute.getColumnSize() == 1 ? OType.BOOLEAN : OType.BINARY;
+    }
+    return super.resolveType(attribute);
   }
 
   private Map<String, OType> fillTypesMap() {
@@ -122,19 +182,12 @@ public class OMySQLDataTypeHandler extends ODBMSDataTypeHandler {
     // TODO !!!
 
     /*
-     * Geometric Types
-     * (doc at http://www.postgresql.org/docs/9.3/static/datatype-geometric.html )
+     * Spatial Types
+     * (doc at https://dev.mysql.com/doc/refman/5.7/en/spatial-type-overview.html )
      */
-    dbmsType2OrientType.put("geometry", OType.STRING);
-    dbmsType2OrientType.put("point", OType.STRING);
-    dbmsType2OrientType.put("linestring", OType.STRING);
-    dbmsType2OrientType.put("line", OType.STRING);
-    dbmsType2OrientType.put("linearRing", OType.STRING);
-    dbmsType2OrientType.put("polygon", OType.STRING);
-    dbmsType2OrientType.put("geometrycollection", OType.STRING);
-    dbmsType2OrientType.put("multipoint", OType.STRING);
-    dbmsType2OrientType.put("multilinestring", OType.STRING);
-    dbmsType2OrientType.put("multipolygon", OType.STRING);
+    for (String type : GEOMETRY_TYPES) {
+      dbmsType2OrientType.put(type, OType.EMBEDDED);
+    }
 
     /*
      * Using Data Types from Other Database Engines
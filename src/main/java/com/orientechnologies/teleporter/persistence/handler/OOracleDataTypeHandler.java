@@ -21,12 +21,22 @@
 package com.orientechnologies.teleporter.persistence.handler;
 
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
+import com.orientechnologies.teleporter.model.dbschema.OAttribute;
+import com.orientechnologies.teleporter.persistence.util.OWKBReader;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.sql.Struct;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
- * Handler that executes type conversions from Oracle DBMS to the OrientDB types. No Geospatial
- * implemented.
+ * Handler that executes type conversions from Oracle DBMS to the OrientDB types. Geospatial
+ * implemented (Oracle Spatial).
  *
  * @author Gabriele Ponzi
  * @email <g.ponzi--at--orientdb.com>
@@ -36,7 +46,137 @@ public class OOracleDataTypeHandler extends ODBMSDataTypeHandler {
   public OOracleDataTypeHandler() {
     this.dbmsType2OrientType = this.fillTypesMap();
     super.jsonImplemented = false;
-    super.geospatialImplemented = false;
+    super.geospatialImplemented = true;
+    super.geospatialTypes.add("sdo_geometry");
+    super.geospatialTypes.add("mdsys.sdo_geometry");
+  }
+
+  /**
+   * NUMBER columns without decimal digits are mapped according to their precision: up to 9 digits
+   * to INTEGER, up to 18 digits to LONG, DECIMAL otherwise. NUMBER columns with no declared
+   * precision keep the mapping of their type name.
+   */
+  @Override
+  public OType resolveType(OAttribute attribute) {
+    if (attribute.getDataType().equalsIgnoreCase("number")
+        && attribute.getDecimalDigits() == 0
+        && attribute.getColumnSize() > 0) {
+      if (attribute.getColumnSize() <= 9) {
+        return OType.INTEGER;
+      } else if (attribute.getColumnSize() <= 18) {
+        return OType.LONG;
+      }
+      return OType.DECIMAL;
+    }
+    return super.resolveType(attribute);
+  }
+
+  /**
+   * SDO_GEOMETRY values are read as structs and their ordinates converted into shapes: points,
+   * lines and polygons made of straight segments (optimized rectangles included) and their
+   * collections. Arcs and compound elements are not supported.
+   */
+  @Override
+  protected OColumnExtractor buildGeospatialExtractor(String originalType) {
+    return (record, column) -> {
+      Object value = record.getObject(column);
+      return value != null ? this.convertSdoGeometry((Struct) value) : null;
+    };
+  }
+
+  private ODocument convertSdoGeometry(Struct geometry) throws SQLException {
+
+    // SDO_GTYPE, SDO_SRID, SDO_POINT, SDO_ELEM_INFO, SDO_ORDINATES
+    Object[] attributes = geometry.getAttributes();
+    int gtype = ((Number) attributes[0]).intValue();
+    int dimensions = Math.max(gtype / 1000, 2);
+
+    if (attributes[2] != null && attributes[3] == null) {
+      Object[] point = ((Struct) attributes[2]).getAttributes();
+      List<Double> coordinates = new ArrayList<Double>(2);
+      coordinates.add(((Number) point[0]).doubleValue());
+      coordinates.add(((Number) point[1]).doubleValue());
+      return OWKBReader.newShape(OWKBReader.POINT, coordinates);
+    }
+
+    Object[] elemInfo = (Object[]) ((Array) attributes[3]).getArray();
+    Object[] ordinates = (Object[]) ((Array) attributes[4]).getArray();
+
+    // shapes of the elements, in order: a polygon is made of an exterior ring and its holes
+    List<String> shapeClasses = new ArrayList<String>();
+    List<List<?>> shapeCoordinates = new ArrayList<List<?>>();
+    List<List<List<Double>>> polygon = null;
+
+    for (int i = 0; i < elemInfo.length; i += 3) {
+      int start = ((Number) elemInfo[i]).intValue() - 1;
+      int end =
+          i + 3 < elemInfo.length ? ((Number) elemInfo[i + 3]).intValue() - 1 : ordinates.length;
+      int etype = ((Number) elemInfo[i + 1]).intValue();
+      int interpretation = ((Number) elemInfo[i + 2]).intValue();
+      List<List<Double>> points = new ArrayList<List<Double>>();
+      for (int j = start; j + 1 < end; j += dimensions) {
+        List<Double> point = new ArrayList<Double>(2);
+        point.add(((Number) ordinates[j]).doubleValue());
+        point.add(((Number) ordinates[j + 1]).doubleValue());
+        points.add(point);
+      }
+
+      if (etype == 1) {
+        for (List<Double> point : points) {
+          shapeClasses.add(OWKBReader.POINT);
+          shapeCoordinates.add(point);
+        }
+      } else if (etype == 2 && interpretation == 1) {
+        shapeClasses.add(OWKBReader.LINE_STRING);
+        shapeCoordinates.add(points);
+      } else if ((etype == 1003 || etype == 2003) && (interpretation == 1 || interpretation == 3)) {
+        if (interpretation == 3) {
+          // rectangle: lower-left and upper-right corners
+          List<Double> lowerLeft = points.get(0);
+          List<Double> upperRight = points.get(1);
+          points = new ArrayList<List<Double>>(5);
+          points.add(lowerLeft);
+          points.add(Arrays.asList(upperRight.get(0), lowerLeft.get(1)));
+          points.add(upperRight);
+          points.add(Arrays.asList(lowerLeft.get(0), upperRight.get(1)));
+          points.add(lowerLeft);
+        }
+        if (etype == 1003 || polygon == null) {
+          polygon = new ArrayList<List<List<Double>>>();
+          shapeClasses.add(OWKBReader.POLYGON);
+          shapeCoordinates.add(polygon);
+        }
+        polygon.add(points);
+      } else {
+        throw new OTeleporterRuntimeException(
+            "Not supported SDO_GEOMETRY element (etype "
+                + etype
+                + ", interpretation "
+                + interpretation
+                + ").");
+      }
+    }
+
+    switch (gtype % 100) {
+      case 1:
+      case 2:
+      case 3:
+        return OWKBReader.newShape(shapeClasses.get(0), shapeCoordinates.get(0));
+      case 5:
+        return OWKBReader.newShape(OWKBReader.MULTI_POINT, shapeCoordinates);
+      case 6:
+        return OWKBReader.newShape(OWKBReader.MULTI_LINE_STRING, shapeCoordinates);
+      case 7:
+        return OWKBReader.newShape(OWKBReader.MULTI_POLYGON, shapeCoordinates);
+      default:
+        List<ODocument> geometries = new ArrayList<ODocument>(shapeClasses.size());
+        for (int i = 0; i < shapeClasses.size(); i++) {
+          geometries.add(OWKBReader.newShape(shapeClasses.get(i), shapeCoordinates.get(i)));
+        }
+        ODocument collection = new ODocument(OWKBReader.GEOMETRY_COLLECTION);
+        collection.field("geometries", geometries);
+        return collection;
+    }
   }
 
   private Map<String, OType> fillTypesMap() {
@@ -119,6 +259,13 @@ public class OOracleDataTypeHandler extends ODBMSDataTypeHandler {
      */
     dbmsType2OrientType.put("uritype", OType.STRING);
 
+    /*
+     * Spatial Type
+     * (doc at https://docs.oracle.com/cd/B28359_01/appdev.111/b28400/sdo_objrelschema.htm )
+     */
+    dbmsType2OrientType.put("sdo_geometry", OType.EMBEDDED);
+    dbmsType2OrientType.put("mdsys.sdo_geometry", OType.EMBEDDED);
+
     /*
      * User Defined Types  (Object data types and object views)
      * (doc at http://www.postgresql.org/docs/9.3/static/rowtypes.html)
@@ -21,10 +21,21 @@
 package com.orientechnologies.teleporter.persistence.handler;
 
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.teleporter.model.dbschema.OAttribute;
+import com.orientechnologies.teleporter.persistence.util.OWKBReader;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * Handler that executes type conversions from PostgreSQL DBMS to the OrientDB types. Geospatial
@@ -35,13 +46,91 @@ import java.util.Map;
  */
 public class OPostgreSQLDataTypeHandler extends ODBMSDataTypeHandler {
 
-  private List<String> geospatialTypes;
+  // types of the character columns, compared with the values bound as VARCHAR
+  private static final Set<String> CHARACTER_TYPES =
+      new HashSet<String>(
+          Arrays.asList(
+              "text", "varchar", "character varying", "char", "character", "bpchar", "name"));
 
   public OPostgreSQLDataTypeHandler() {
     this.dbmsType2OrientType = this.fillTypesMap();
-    this.geospatialTypes = this.fillGeospatialList();
+    super.geospatialTypes.add("geometry");
+    super.geospatialTypes.add("geography");
     super.jsonImplemented = true;
-    super.geospatialImplemented = false;
+    super.geospatialImplemented = true;
+  }
+
+  /**
+   * PostGIS geometries and geographies are returned by the driver as hexadecimal extended WKB, so
+   * they are converted without any text parsing.
+   */
+  @Override
+  protected OColumnExtractor buildGeospatialExtractor(String originalType) {
+    return (record, column) -> {
+      String hexWkb = record.getString(column);
+      return hexWkb != null ? OWKBReader.read(OWKBReader.fromHex(hexWkb)) : null;
+    };
+  }
+
+  /**
+   * The PostgreSQL driver uses a cursor, fetching the records in chunks, only when the statement
+   * has a fetch size and runs within a transaction. The connection goes back to autocommit mode
+   * when it's given back to the pool.
+   */
+  @Override
+  public void configureStreaming(Connection connection, Statement statement, int fetchSize)
+      throws SQLException {
+    if (connection.getAutoCommit()) {
+      connection.setAutoCommit(false);
+    }
+    statement.setFetchSize(fetchSize);
+  }
+
+  /**
+   * PostgreSQL doesn't compare a VARCHAR parameter with a column of another type (e.g. uuid, enum
+   * or inet columns), so the values of those columns are bound with an unspecified type, which the
+   * server resolves as the type of the column.
+   */
+  @Override
+  public int getStringParameterType(OAttribute attribute) {
+    return CHARACTER_TYPES.contains(this.normalizeType(attribute.getDataType()))
+        ? Types.VARCHAR
+        : Types.OTHER;
+  }
+
+  /** Arrays are converted into embedded lists of their elements (uuids in their text form). */
+  @Override
+  public OColumnExtractor buildExtractor(
+      String propertyName, String orientdbType, String originalType) {
+    if (orientdbType.equals("EMBEDDEDLIST")) {
+      return (record, column) -> {
+        Array array = record.getArray(column);
+        if (array == null) {
+          return null;
+        }
+        try {
+          return toList((Object[]) array.getArray());
+        } finally {
+          array.free();
+        }
+      };
+    }
+    return super.buildExtractor(propertyName, orientdbType, originalType);
+  }
+
+  /** Multidimensional arrays are converted into nested lists. */
+  private static List<Object> toList(Object[] elements) {
+    List<Object> values = new ArrayList<Object>(elements.length);
+    for (Object element : elements) {
+      if (element instanceof Object[]) {
+        values.add(toList((Object[]) element));
+      } else if (element instanceof UUID) {
+        values.add(element.toString());
+      } else {
+        values.add(element);
+      }
+    }
+    return values;
   }
 
   private Map<String, OType> fillTypesMap() {
@@ -127,11 +216,11 @@ public class OPostgreSQLDataTypeHandler extends ODBMSDataTypeHandler {
     dbmsType2OrientType.put("path", OType.STRING);
     dbmsType2OrientType.put("polygon", OType.STRING);
     dbmsType2OrientType.put("circle", OType.STRING);
-    // Postgis
-    dbmsType2OrientType.put("box2d", OType.EMBEDDED);
-    dbmsType2OrientType.put("box3d", OType.EMBEDDED);
+    // Postgis: geometries as shapes, bounding boxes and dumps in their text form
+    dbmsType2OrientType.put("box2d", OType.STRING);
+    dbmsType2OrientType.put("box3d", OType.STRING);
     dbmsType2OrientType.put("geometry", OType.EMBEDDED);
-    dbmsType2OrientType.put("geometry_dump", OType.EMBEDDED);
+    dbmsType2OrientType.put("geometry_dump", OType.STRING);
     dbmsType2OrientType.put("geography", OType.EMBEDDED);
 
     /*
@@ -192,19 +281,18 @@ public class OPostgreSQLDataTypeHandler extends ODBMSDataTypeHandler {
     dbmsType2OrientType.put("tstzrange", OType.STRING);
     dbmsType2OrientType.put("daterange", OType.STRING);
 
-    return dbmsType2OrientType;
-  }
-
-  private List<String> fillGeospatialList() {
-
-    List<String> geospatialTypes = new ArrayList<String>();
-
-    geospatialTypes.add("box2d");
-    geospatialTypes.add("box3d");
-    geospatialTypes.add("geometry");
-    geospatialTypes.add("geometry_dump");
-    geospatialTypes.add("geography");
+    /*
+     *  Array Types (named after the type of their elements, with a leading underscore)
+     *  (doc at http://www.postgresql.org/docs/9.6/static/arrays.html )
+     */
+    for (String elementType :
+        new String[] {
+          "int2", "int4", "int8", "float4", "float8", "numeric", "bool", "text", "varchar",
+          "bpchar", "uuid", "date", "timestamp", "timestamptz"
+        }) {
+      dbmsType2OrientType.put("_" + elementType, OType.EMBEDDEDLIST);
+    }
 
-    return geospatialTypes;
+    return dbmsType2OrientType;
   }
 }
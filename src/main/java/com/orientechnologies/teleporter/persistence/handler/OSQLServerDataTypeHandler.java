@@ -21,7 +21,10 @@
 package com.orientechnologies.teleporter.persistence.handler;
 
 import com.orientechnologies.orient.core.metadata.schema.OType;
-import com.orientechnologies.teleporter.context.OTeleporterContext;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -38,31 +41,35 @@ public class OSQLServerDataTypeHandler extends ODBMSDataTypeHandler {
     this.dbmsType2OrientType = this.fillTypesMap();
     super.jsonImplemented = false;
     super.geospatialImplemented = false;
+    super.largeTextTypes.add("text");
   }
 
+  /**
+   * The SQLServer driver streams forward-only, read-only result sets with "adaptive" response
+   * buffering, the default only since version 2.0 of the driver: it's requested explicitly here
+   * (through reflection, the driver is not a compile time dependency).
+   */
   @Override
-  public OType resolveType(String type) {
-
-    // dropping "identity" sqlserver property
-    type = type.replace("identity", "").trim();
-
-    // Defined Types
-    if (this.dbmsType2OrientType.keySet().contains(type)) return this.dbmsType2OrientType.get(type);
-
-    // Undefined Types
-    else {
-      OTeleporterContext.getInstance()
-          .getStatistics()
-          .warningMessages
-          .add(
-              "The original type '"
-                  + type
-                  + "' is not convertible into any OrientDB type thus, in order to prevent data loss, "
-                  + "it will be converted to the OrientDB Type String.");
-      return OType.STRING;
+  public void configureStreaming(Connection connection, Statement statement, int fetchSize)
+      throws SQLException {
+    statement.setFetchSize(fetchSize);
+    try {
+      // the driver statement, as the pooled statements are handles
+      Statement target = statement.unwrap(Statement.class);
+      Method setResponseBuffering =
+          target.getClass().getMethod("setResponseBuffering", String.class);
+      setResponseBuffering.invoke(target, "adaptive");
+    } catch (ReflectiveOperationException | SQLException e) {
+      // older or different driver, the default buffering is kept
     }
   }
 
+  /** The "identity" sqlserver property is dropped. */
+  @Override
+  protected String normalizeType(String type) {
+    return type.replace("identity", "").trim();
+  }
+
   private Map<String, OType> fillTypesMap() {
 
     Map<String, OType> dbmsType2OrientType = new HashMap<String, OType>();
@@ -112,7 +119,7 @@ public class OSQLServerDataTypeHandler extends ODBMSDataTypeHandler {
      * Bit String Types
      * (doc at https://msdn.microsoft.com/en-us/library/ms177603.aspx )
      */
-    dbmsType2OrientType.put("bit", OType.STRING);
+    dbmsType2OrientType.put("bit", OType.BOOLEAN);
 
     /*
      * Date/Time Types
@@ -135,6 +142,12 @@ public class OSQLServerDataTypeHandler extends ODBMSDataTypeHandler {
     dbmsType2OrientType.put("binary varying", OType.BINARY);
     dbmsType2OrientType.put("image", OType.BINARY);
 
+    /*
+     * Uniqueidentifier Type (read in its canonical text form)
+     * (doc at https://msdn.microsoft.com/en-us/library/ms187942.aspx )
+     */
+    dbmsType2OrientType.put("uniqueidentifier", OType.STRING);
+
     return dbmsType2OrientType;
   }
 }
@@ -0,0 +1,140 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.persistence.util;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ordinals of the columns of a result set, resolved once per query from its metadata, so that the
+ * values can be read by index instead of making the driver look up the column label on each read.
+ * Labels are matched case-insensitively and the first column with a label wins, like in {@link
+ * ResultSet#findColumn(String)}.
+ *
+ * <p>The ordinals of the last result sets read by each thread are cached, so they are resolved
+ * only once even when a thread iterates a result set while querying others for each record.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OColumnOrdinals {
+
+  // number of result sets whose ordinals are cached for each thread
+  private static final int CACHED_RESULT_SETS = 4;
+
+  private static final ThreadLocal<OColumnOrdinals[]> cache =
+      ThreadLocal.withInitial(() -> new OColumnOrdinals[CACHED_RESULT_SETS]);
+  private static final ThreadLocal<int[]> nextSlot = ThreadLocal.withInitial(() -> new int[1]);
+
+  private final ResultSet resultSet;
+  private final Map<String, Integer> label2ordinal;
+  private final Map<String, Integer> lowerCaseLabel2ordinal;
+
+  private OColumnOrdinals(ResultSet resultSet) throws SQLException {
+    this.resultSet = resultSet;
+    this.label2ordinal = new HashMap<String, Integer>();
+    this.lowerCaseLabel2ordinal = new HashMap<String, Integer>();
+
+    ResultSetMetaData metaData = resultSet.getMetaData();
+    for (int ordinal = 1; ordinal <= metaData.getColumnCount(); ordinal++) {
+      String label = metaData.getColumnLabel(ordinal);
+      this.label2ordinal.putIfAbsent(label, ordinal);
+      this.lowerCaseLabel2ordinal.putIfAbsent(label.toLowerCase(Locale.ENGLISH), ordinal);
+    }
+  }
+
+  /**
+   * @param resultSet
+   * @return the ordinals of the columns of the result set
+   * @throws SQLException
+   */
+  public static OColumnOrdinals of(ResultSet resultSet) throws SQLException {
+
+    OColumnOrdinals[] cachedOrdinals = cache.get();
+    for (OColumnOrdinals ordinals : cachedOrdinals) {
+      if (ordinals != null && ordinals.resultSet == resultSet) {
+        return ordinals;
+      }
+    }
+
+    OColumnOrdinals ordinals = new OColumnOrdinals(resultSet);
+    int[] slot = nextSlot.get();
+    cachedOrdinals[slot[0]] = ordinals;
+    slot[0] = (slot[0] + 1) % CACHED_RESULT_SETS;
+    return ordinals;
+  }
+
+  /**
+   * Reads a column of the current record of a result set as a string, by its ordinal.
+   *
+   * @param record
+   * @param columnLabel
+   * @return
+   * @throws SQLException
+   */
+  public static String getString(ResultSet record, String columnLabel) throws SQLException {
+    return record.getString(of(record).getOrdinal(columnLabel));
+  }
+
+  /**
+   * @param columnLabel
+   * @return the ordinal of the column
+   * @throws SQLException if the result set has no column with the label
+   */
+  public int getOrdinal(String columnLabel) throws SQLException {
+    Integer ordinal = this.label2ordinal.get(columnLabel);
+    if (ordinal == null) {
+      ordinal = this.lowerCaseLabel2ordinal.get(columnLabel.toLowerCase(Locale.ENGLISH));
+    }
+    if (ordinal == null) {
+      // the driver raises its own error for the missing column
+      return this.resultSet.findColumn(columnLabel);
+    }
+    return ordinal;
+  }
+
+  /**
+   * @param columnLabels
+   * @return the ordinals of the columns, 0 for the ones not in the result set
+   */
+  public int[] getOrdinals(String[] columnLabels) {
+    int[] ordinals = new int[columnLabels.length];
+    for (int i = 0; i < columnLabels.length; i++) {
+      Integer ordinal = null;
+      if (columnLabels[i] != null) {
+        ordinal = this.label2ordinal.get(columnLabels[i]);
+        if (ordinal == null) {
+          ordinal = this.lowerCaseLabel2ordinal.get(columnLabels[i].toLowerCase(Locale.ENGLISH));
+        }
+      }
+      ordinals[i] = ordinal != null ? ordinal : 0;
+    }
+    return ordinals;
+  }
+
+  public ResultSet getResultSet() {
+    return this.resultSet;
+  }
+}
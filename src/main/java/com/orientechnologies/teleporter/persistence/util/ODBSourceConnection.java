@@ -20,6 +20,7 @@
 
 package com.orientechnologies.teleporter.persistence.util;
 
+import com.orientechnologies.teleporter.context.OImportSettings;
 import com.orientechnologies.teleporter.context.OTeleporterContext;
 import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
 import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
@@ -28,31 +29,36 @@ import java.net.URLClassLoader;
 import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Utility class to which connection with source DB is delegated.
+ * Utility class to which connection with source DB is delegated. Each driver is loaded and
+ * registered just once, while connections are served by a bounded pool kept for each source
+ * database.
  *
  * @author Gabriele Ponzi
  * @email <g.ponzi--at--orientdb.com>
  */
 public class ODBSourceConnection {
 
+  // driver instances loaded so far, keyed by driver class name and dependency path
+  private static final Map<String, Driver> loadedDrivers = new ConcurrentHashMap<String, Driver>();
+
+  private static final Map<OSourceDatabaseInfo, OSourceConnectionPool> connectionPools =
+      new ConcurrentHashMap<OSourceDatabaseInfo, OSourceConnectionPool>();
+
+  private static volatile int maxPoolSize = OSourceConnectionPool.DEFAULT_MAX_SIZE;
+
   public static Connection getConnection(OSourceDatabaseInfo sourceDBInfo) {
 
     Connection connection = null;
-    String driver = sourceDBInfo.getDriverName();
-    String uri = sourceDBInfo.getUrl();
-    String username = sourceDBInfo.getUsername();
-    String password = sourceDBInfo.getPassword();
 
     try {
-      URL u =
-          new URL("jar:file:" + OTeleporterContext.getInstance().getDriverDependencyPath() + "!/");
-      URLClassLoader ucl = new URLClassLoader(new URL[] {u});
-      Driver d = (Driver) Class.forName(driver, true, ucl).newInstance();
-      DriverManager.registerDriver(new ODriverShim(d));
-      connection = DriverManager.getConnection(uri, username, password);
-
+      connection = getConnectionPool(sourceDBInfo).acquire();
     } catch (Exception e) {
       String mess = "";
       OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
@@ -62,18 +68,28 @@ public class ODBSourceConnection {
     return connection;
   }
 
+  /**
+   * Opens a new unpooled connection, used for one-shot checks where no pool lifecycle is available.
+   * The driver is loaded only the first time it's requested.
+   */
   public static Connection getConnection(
       String driver, String uri, String username, String password) {
 
     Connection connection = null;
 
     try {
-      URL u =
-          new URL("jar:file:" + OTeleporterContext.getInstance().getDriverDependencyPath() + "!/");
-      URLClassLoader ucl = new URLClassLoader(new URL[] {u});
-      Driver d = (Driver) Class.forName(driver, true, ucl).newInstance();
-      DriverManager.registerDriver(new ODriverShim(d));
-      connection = DriverManager.getConnection(uri, username, password);
+      Driver d = loadDriver(driver);
+      Properties info = new Properties();
+      if (username != null) {
+        info.put("user", username);
+      }
+      if (password != null) {
+        info.put("password", password);
+      }
+      connection = d.connect(uri, info);
+      if (connection == null) {
+        connection = DriverManager.getConnection(uri, username, password);
+      }
 
     } catch (Exception e) {
       String mess = "";
@@ -83,4 +99,87 @@ public class ODBSourceConnection {
     }
     return connection;
   }
+
+  /**
+   * The pool must serve all the workers of a parallel import, each one possibly keeping two
+   * connections open at the same time (e.g. while importing hierarchies) or scanning several key
+   * ranges of a table concurrently.
+   */
+  private static int getRequiredPoolSize() {
+    OTeleporterContext context = OTeleporterContext.getInstance();
+    if (context != null && context.getImportSettings() != null) {
+      OImportSettings importSettings = context.getImportSettings();
+      return Math.max(
+          maxPoolSize, 2 * importSettings.getParallelism() * importSettings.getPartitions() + 2);
+    }
+    return maxPoolSize;
+  }
+
+  /** Returns the pool bound to the source database, building it at the first request. */
+  public static OSourceConnectionPool getConnectionPool(OSourceDatabaseInfo sourceDBInfo)
+      throws Exception {
+
+    OSourceConnectionPool pool = connectionPools.get(sourceDBInfo);
+    if (pool == null) {
+      synchronized (connectionPools) {
+        pool = connectionPools.get(sourceDBInfo);
+        if (pool == null) {
+          Driver driver = loadDriver(sourceDBInfo.getDriverName());
+          pool =
+              new OSourceConnectionPool(
+                  sourceDBInfo,
+                  driver,
+                  getRequiredPoolSize(),
+                  OSourceConnectionPool.DEFAULT_ACQUIRE_TIMEOUT);
+          connectionPools.put(sourceDBInfo, pool);
+        }
+      }
+    }
+    return pool;
+  }
+
+  /** Closes all the pools and the idle connections they hold. */
+  public static void closeAllConnectionPools() {
+    List<OSourceConnectionPool> pools;
+    synchronized (connectionPools) {
+      pools = new ArrayList<OSourceConnectionPool>(connectionPools.values());
+      connectionPools.clear();
+    }
+    for (OSourceConnectionPool pool : pools) {
+      pool.close();
+    }
+  }
+
+  public static int getMaxPoolSize() {
+    return maxPoolSize;
+  }
+
+  /** Sets the size of the pools built from now on. */
+  public static void setMaxPoolSize(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("The connection pool size must be positive.");
+    }
+    maxPoolSize = size;
+  }
+
+  private static Driver loadDriver(String driver) throws Exception {
+
+    String dependencyPath = OTeleporterContext.getInstance().getDriverDependencyPath();
+    String key = driver + "|" + dependencyPath;
+    Driver d = loadedDrivers.get(key);
+
+    if (d == null) {
+      synchronized (loadedDrivers) {
+        d = loadedDrivers.get(key);
+        if (d == null) {
+          URL u = new URL("jar:file:" + dependencyPath + "!/");
+          URLClassLoader ucl = new URLClassLoader(new URL[] {u});
+          d = (Driver) Class.forName(driver, true, ucl).newInstance();
+          DriverManager.registerDriver(new ODriverShim(d));
+          loadedDrivers.put(key, d);
+        }
+      }
+    }
+    return d;
+  }
 }
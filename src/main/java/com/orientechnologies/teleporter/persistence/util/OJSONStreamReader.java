@@ -0,0 +1,314 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.persistence.util;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a JSON object from a character stream and builds the embedded document while reading it,
+ * so the JSON text is never materialized as a whole: objects become embedded documents, arrays
+ * lists and numbers integers, longs, decimals or doubles.
+ *
+ * <p>When a max size is set, the reading of a JSON text longer than that stops as soon as the max
+ * size is exceeded and no document is returned: the text is never kept, neither while converting
+ * it nor after, so the memory used for a value is bounded by the max size.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OJSONStreamReader {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Reader reader;
+  private final int maxSize;
+  private final char[] buffer;
+  private int position;
+  private int limit;
+  private long readChars;
+
+  // reused for the strings and the numbers
+  private final StringBuilder token;
+
+  private OJSONStreamReader(Reader reader, int maxSize) {
+    this.reader = reader;
+    this.maxSize = maxSize;
+    this.buffer = new char[BUFFER_SIZE];
+    this.token = new StringBuilder();
+  }
+
+  /**
+   * @param reader the JSON text, it is not closed
+   * @param className class of the root document, null if none
+   * @param maxSize max number of chars converted into a document, 0 means no limit
+   * @return the root document, null if the text is longer than the max size
+   * @throws IOException
+   * @throws OTeleporterRuntimeException if the text is not a valid JSON object
+   */
+  public static ODocument read(Reader reader, String className, int maxSize)
+      throws IOException {
+
+    OJSONStreamReader jsonReader = new OJSONStreamReader(reader, maxSize);
+    try {
+      jsonReader.skipWhitespaces();
+      jsonReader.expect('{');
+      ODocument document = className != null ? new ODocument(className) : new ODocument();
+      jsonReader.readObject(document);
+      jsonReader.skipWhitespaces();
+      if (jsonReader.peek() != -1) {
+        throw jsonReader.notValid("unexpected content after the root object");
+      }
+      return document;
+    } catch (OMaxSizeExceededException e) {
+      return null;
+    }
+  }
+
+  private void readObject(ODocument document) throws IOException {
+
+    document.setAllowChainedAccess(false);
+    this.skipWhitespaces();
+    if (this.peek() == '}') {
+      this.next();
+      return;
+    }
+    while (true) {
+      this.skipWhitespaces();
+      this.expect('"');
+      String fieldName = this.readString();
+      this.skipWhitespaces();
+      this.expect(':');
+      document.field(fieldName, this.readValue());
+      this.skipWhitespaces();
+      int c = this.next();
+      if (c == '}') {
+        return;
+      } else if (c != ',') {
+        throw this.notValid("',' or '}' expected");
+      }
+    }
+  }
+
+  private List<Object> readArray() throws IOException {
+
+    List<Object> values = new ArrayList<Object>();
+    this.skipWhitespaces();
+    if (this.peek() == ']') {
+      this.next();
+      return values;
+    }
+    while (true) {
+      values.add(this.readValue());
+      this.skipWhitespaces();
+      int c = this.next();
+      if (c == ']') {
+        return values;
+      } else if (c != ',') {
+        throw this.notValid("',' or ']' expected");
+      }
+    }
+  }
+
+  private Object readValue() throws IOException {
+
+    this.skipWhitespaces();
+    int c = this.next();
+    switch (c) {
+      case '{':
+        ODocument embedded = new ODocument();
+        this.readObject(embedded);
+        return embedded;
+      case '[':
+        return this.readArray();
+      case '"':
+        return this.readString();
+      case 't':
+        this.expectLiteral("rue");
+        return Boolean.TRUE;
+      case 'f':
+        this.expectLiteral("alse");
+        return Boolean.FALSE;
+      case 'n':
+        this.expectLiteral("ull");
+        return null;
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          return this.readNumber((char) c);
+        }
+        throw this.notValid("value expected");
+    }
+  }
+
+  private String readString() throws IOException {
+
+    this.token.setLength(0);
+    while (true) {
+      int c = this.next();
+      if (c == '"') {
+        return this.token.toString();
+      } else if (c == '\\') {
+        c = this.next();
+        switch (c) {
+          case 'b':
+            this.token.append('\b');
+            break;
+          case 'f':
+            this.token.append('\f');
+            break;
+          case 'n':
+            this.token.append('\n');
+            break;
+          case 'r':
+            this.token.append('\r');
+            break;
+          case 't':
+            this.token.append('\t');
+            break;
+          case 'u':
+            int code = 0;
+            for (int i = 0; i < 4; i++) {
+              int digit = Character.digit(this.next(), 16);
+              if (digit < 0) {
+                throw this.notValid("not valid unicode escape");
+              }
+              code = code * 16 + digit;
+            }
+            this.token.append((char) code);
+            break;
+          case '"':
+          case '\\':
+          case '/':
+            this.token.append((char) c);
+            break;
+          default:
+            throw this.notValid("not valid escape");
+        }
+      } else if (c == -1) {
+        throw this.notValid("unterminated string");
+      } else {
+        this.token.append((char) c);
+      }
+    }
+  }
+
+  private Object readNumber(char first) throws IOException {
+
+    this.token.setLength(0);
+    this.token.append(first);
+    boolean integer = true;
+    int c;
+    while ((c = this.peek()) != -1) {
+      if (c == '.' || c == 'e' || c == 'E' || c == '+') {
+        integer = false;
+      } else if (c != '-' && (c < '0' || c > '9')) {
+        break;
+      }
+      this.token.append((char) this.next());
+    }
+
+    String number = this.token.toString();
+    try {
+      if (!integer) {
+        return Double.parseDouble(number);
+      }
+      long value = Long.parseLong(number);
+      if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+        return (int) value;
+      }
+      return value;
+    } catch (NumberFormatException e) {
+      if (integer && number.length() > 1) {
+        // out of the long range
+        return new BigDecimal(number);
+      }
+      throw this.notValid("not valid number " + number);
+    }
+  }
+
+  private void expect(char expected) throws IOException {
+    if (this.next() != expected) {
+      throw this.notValid("'" + expected + "' expected");
+    }
+  }
+
+  private void expectLiteral(String rest) throws IOException {
+    for (int i = 0; i < rest.length(); i++) {
+      if (this.next() != rest.charAt(i)) {
+        throw this.notValid("not valid literal");
+      }
+    }
+  }
+
+  private void skipWhitespaces() throws IOException {
+    int c;
+    while ((c = this.peek()) == ' ' || c == '\n' || c == '\r' || c == '\t') {
+      this.position++;
+    }
+  }
+
+  private int peek() throws IOException {
+    if (this.position == this.limit && !this.fill()) {
+      return -1;
+    }
+    return this.buffer[this.position];
+  }
+
+  private int next() throws IOException {
+    if (this.position == this.limit && !this.fill()) {
+      return -1;
+    }
+    return this.buffer[this.position++];
+  }
+
+  private boolean fill() throws IOException {
+    int read = this.reader.read(this.buffer, 0, this.buffer.length);
+    if (read <= 0) {
+      return false;
+    }
+    this.position = 0;
+    this.limit = read;
+    this.readChars += read;
+    if (this.maxSize > 0 && this.readChars > this.maxSize) {
+      throw new OMaxSizeExceededException();
+    }
+    return true;
+  }
+
+  private OTeleporterRuntimeException notValid(String reason) {
+    long offset = this.readChars - this.limit + this.position;
+    return new OTeleporterRuntimeException(
+        "Not valid JSON: " + reason + " (offset " + offset + ").");
+  }
+
+  @SuppressWarnings("serial")
+  private static class OMaxSizeExceededException extends RuntimeException {
+
+    OMaxSizeExceededException() {
+      super(null, null, false, false);
+    }
+  }
+}
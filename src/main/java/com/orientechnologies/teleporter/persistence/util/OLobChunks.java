@@ -0,0 +1,208 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.persistence.util;
+
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.record.OBlob;
+import com.orientechnologies.orient.core.record.impl.ORecordBytes;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams binary LOB values into OrientDB: the values up to a threshold are returned as byte
+ * arrays, the longer ones are split into chunk records of the threshold size, saved in the LOB
+ * cluster while the value is read, so no array larger than the threshold is ever allocated. The
+ * element links the chunks in order.
+ *
+ * <p>The chunks are saved out of the transaction writing their element, so when the element is not
+ * written (the transaction is rolled back, or the element keeps its value) they have to be deleted
+ * through {@link #deleteChunks(Object)}.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OLobChunks {
+
+  // blob cluster the chunk records are saved in
+  public static final String LOB_CLUSTER = "teleporter_lobs";
+
+  private static final int BUFFER_SIZE = 8192;
+
+  /**
+   * Creates the LOB cluster if not present. Must be called out of any transaction.
+   *
+   * @param orientGraph
+   */
+  public static void createLobCluster(ODatabaseDocument orientGraph) {
+    if (orientGraph.getClusterIdByName(LOB_CLUSTER) == -1) {
+      orientGraph.addBlobCluster(LOB_CLUSTER);
+    }
+  }
+
+  /**
+   * Reads a binary value, saving it in chunk records through the database of the current thread
+   * when longer than the threshold.
+   *
+   * @param stream the value, null for NULL values; it is closed once read
+   * @param threshold max number of bytes returned inline, also the size of the chunks
+   * @return the bytes of the value, or the chunk records in order
+   * @throws IOException
+   */
+  public static Object read(InputStream stream, int threshold) throws IOException {
+
+    if (stream == null) {
+      return null;
+    }
+    // leaving room for the byte read past the threshold
+    threshold = Math.min(threshold, Integer.MAX_VALUE - 8);
+    try (InputStream in = stream) {
+
+      // reading up to a byte more than the threshold
+      ByteArrayOutputStream head = new ByteArrayOutputStream(Math.min(threshold + 1, BUFFER_SIZE));
+      byte[] buffer = new byte[Math.min(threshold + 1, BUFFER_SIZE)];
+      int read;
+      while (head.size() <= threshold
+          && (read = in.read(buffer, 0, Math.min(buffer.length, threshold + 1 - head.size())))
+              != -1) {
+        head.write(buffer, 0, read);
+      }
+      if (head.size() <= threshold) {
+        return head.toByteArray();
+      }
+
+      ODatabaseDocumentInternal orientGraph = ODatabaseRecordThreadLocal.instance().get();
+      List<OIdentifiable> chunks = new ArrayList<OIdentifiable>();
+      byte[] headBytes = head.toByteArray();
+      chunks.add(saveChunk(orientGraph, Arrays.copyOf(headBytes, threshold)));
+
+      byte[] chunk = new byte[threshold];
+      chunk[0] = headBytes[threshold];
+      int size = 1;
+      while ((read = in.read(chunk, size, threshold - size)) != -1) {
+        size += read;
+        if (size == threshold) {
+          chunks.add(saveChunk(orientGraph, chunk));
+          chunk = new byte[threshold];
+          size = 0;
+        }
+      }
+      if (size > 0) {
+        chunks.add(saveChunk(orientGraph, Arrays.copyOf(chunk, size)));
+      }
+      return chunks;
+    }
+  }
+
+  /**
+   * Compares two binary values, each one stored inline or in chunks. The chunks are compared one
+   * at a time, so the values are never loaded as a whole.
+   *
+   * @param oldValue
+   * @param newValue
+   * @return true if the values have the same content and are stored in the same way
+   */
+  public static boolean haveSameContent(Object oldValue, Object newValue) {
+
+    if (oldValue instanceof byte[] && newValue instanceof byte[]) {
+      return Arrays.equals((byte[]) oldValue, (byte[]) newValue);
+    }
+    if (!(oldValue instanceof List && newValue instanceof List)) {
+      return false;
+    }
+    List<?> oldChunks = (List<?>) oldValue;
+    List<?> newChunks = (List<?>) newValue;
+    if (oldChunks.size() != newChunks.size()) {
+      return false;
+    }
+    for (int i = 0; i < oldChunks.size(); i++) {
+      if (!Arrays.equals(getChunkContent(oldChunks.get(i)), getChunkContent(newChunks.get(i)))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param value
+   * @return true if the value is a binary value stored in chunk records of the LOB cluster
+   */
+  public static boolean isChunked(Object value) {
+    if (!(value instanceof List) || ((List<?>) value).isEmpty()) {
+      return false;
+    }
+    int lobClusterId = ODatabaseRecordThreadLocal.instance().get().getClusterIdByName(LOB_CLUSTER);
+    for (Object chunk : (List<?>) value) {
+      if (!(chunk instanceof OIdentifiable)
+          || ((OIdentifiable) chunk).getIdentity().getClusterId() != lobClusterId) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Deletes the chunk records of a binary value, nothing is done for inline values and for values
+   * of any other type.
+   *
+   * @param value
+   */
+  public static void deleteChunks(Object value) {
+    if (isChunked(value)) {
+      ODatabaseDocumentInternal orientGraph = ODatabaseRecordThreadLocal.instance().get();
+      for (Object chunk : (List<?>) value) {
+        orientGraph.delete(((OIdentifiable) chunk).getIdentity());
+      }
+    }
+  }
+
+  /**
+   * Deletes the chunk records of the binary values of the properties of an element not written.
+   *
+   * @param properties
+   */
+  public static void deleteChunksOfProperties(Map<String, Object> properties) {
+    if (properties != null) {
+      for (Object value : properties.values()) {
+        deleteChunks(value);
+      }
+    }
+  }
+
+  private static OIdentifiable saveChunk(ODatabaseDocumentInternal orientGraph, byte[] content) {
+    return orientGraph.save(new ORecordBytes(content), LOB_CLUSTER);
+  }
+
+  private static byte[] getChunkContent(Object chunk) {
+    if (!(chunk instanceof OIdentifiable)) {
+      return null;
+    }
+    OBlob record = ((OIdentifiable) chunk).getRecord();
+    return record != null ? record.toStream() : null;
+  }
+}
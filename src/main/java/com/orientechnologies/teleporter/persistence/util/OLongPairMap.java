@@ -0,0 +1,192 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.persistence.util;
+
+/**
+ * Open addressing hash map from pairs of longs to long values, stored in primitive arrays: it keeps
+ * millions of entries without an object for each of them. Single long keys are stored as pairs
+ * with 0 as second element. A map built without values is a set of pairs, whose entries take just
+ * the space of their keys.
+ *
+ * <p>Not thread safe.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OLongPairMap {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final boolean withValues;
+
+  private long[] firsts;
+  private long[] seconds;
+  // null if the map is built without values
+  private long[] values;
+  // a bit for each slot, set if the slot is not empty
+  private long[] occupied;
+  private int size;
+
+  public OLongPairMap(boolean withValues) {
+    this.withValues = withValues;
+    this.allocate(INITIAL_CAPACITY);
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public boolean containsKey(long first, long second) {
+    return this.findSlot(first, second) >= 0;
+  }
+
+  /**
+   * @param first
+   * @param second
+   * @param defaultValue
+   * @return the value of the key, the default value if the key is not present
+   */
+  public long get(long first, long second, long defaultValue) {
+    if (!this.withValues) {
+      throw new UnsupportedOperationException("The map was built without values.");
+    }
+    int slot = this.findSlot(first, second);
+    return slot >= 0 ? this.values[slot] : defaultValue;
+  }
+
+  /**
+   * Adds a key to a map built without values.
+   *
+   * @param first
+   * @param second
+   * @return true if the key was not present
+   */
+  public boolean add(long first, long second) {
+    return this.put(first, second, 0L);
+  }
+
+  /**
+   * @param first
+   * @param second
+   * @param value ignored if the map is built without values
+   * @return true if the key was not present
+   */
+  public boolean put(long first, long second, long value) {
+    if ((this.size + 1) * 4 > this.firsts.length * 3) {
+      this.rehash();
+    }
+    int mask = this.firsts.length - 1;
+    int slot = hash(first, second) & mask;
+    while (this.isOccupied(slot)) {
+      if (this.firsts[slot] == first && this.seconds[slot] == second) {
+        if (this.withValues) {
+          this.values[slot] = value;
+        }
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    this.store(slot, first, second, value);
+    return true;
+  }
+
+  public void clear() {
+    this.allocate(INITIAL_CAPACITY);
+  }
+
+  private int findSlot(long first, long second) {
+    int mask = this.firsts.length - 1;
+    for (int slot = hash(first, second) & mask;
+        this.isOccupied(slot);
+        slot = (slot + 1) & mask) {
+      if (this.firsts[slot] == first && this.seconds[slot] == second) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isOccupied(int slot) {
+    return (this.occupied[slot >>> 6] & (1L << slot)) != 0;
+  }
+
+  private void store(int slot, long first, long second, long value) {
+    this.firsts[slot] = first;
+    this.seconds[slot] = second;
+    if (this.withValues) {
+      this.values[slot] = value;
+    }
+    this.occupied[slot >>> 6] |= 1L << slot;
+    this.size++;
+  }
+
+  private void rehash() {
+    long[] oldFirsts = this.firsts;
+    long[] oldSeconds = this.seconds;
+    long[] oldValues = this.values;
+    long[] oldOccupied = this.occupied;
+
+    this.allocate(oldFirsts.length * 2);
+    int mask = this.firsts.length - 1;
+    for (int i = 0; i < oldFirsts.length; i++) {
+      if ((oldOccupied[i >>> 6] & (1L << i)) != 0) {
+        int slot = hash(oldFirsts[i], oldSeconds[i]) & mask;
+        while (this.isOccupied(slot)) {
+          slot = (slot + 1) & mask;
+        }
+        this.store(slot, oldFirsts[i], oldSeconds[i], oldValues != null ? oldValues[i] : 0L);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    this.firsts = new long[capacity];
+    this.seconds = new long[capacity];
+    this.values = this.withValues ? new long[capacity] : null;
+    this.occupied = new long[(capacity + 63) >>> 6];
+    this.size = 0;
+  }
+
+  private static int hash(long first, long second) {
+    long h = (first * 0x9E3779B97F4A7C15L) ^ (second * 0xC2B2AE3D27D4EB4FL);
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /**
+   * Returns the value as a long if it's an integral number in its canonical form (so that two
+   * different strings are never mapped to the same long), otherwise null: string keys can then be
+   * stored in the map.
+   *
+   * @param value
+   * @return the long, null if the value is not a canonical integral number
+   */
+  public static Long toCanonicalLong(String value) {
+    if (value == null || value.isEmpty() || value.length() > 20) {
+      return null;
+    }
+    try {
+      long numericKey = Long.parseLong(value);
+      return Long.toString(numericKey).equals(value) ? numericKey : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
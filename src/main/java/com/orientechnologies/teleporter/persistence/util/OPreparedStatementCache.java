@@ -0,0 +1,252 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.persistence.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the prepared statements of a physical connection, kept across the acquisitions of the
+ * connection from the pool. A cached statement is handed out as a handle: closing the handle
+ * closes its result set, clears the parameters and gives the statement back to the cache, while
+ * the statement itself is closed only when evicted or when the cache is cleared. A statement
+ * already in use is not shared: a new uncached statement is prepared instead. The least recently
+ * used statements are evicted once the cache is full.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+class OPreparedStatementCache {
+
+  private final Connection physicalConnection;
+  private final int maxSize;
+  private final LinkedHashMap<String, OCachedStatement> statements;
+
+  OPreparedStatementCache(Connection physicalConnection, int maxSize) {
+    this.physicalConnection = physicalConnection;
+    this.maxSize = maxSize;
+    this.statements = new LinkedHashMap<String, OCachedStatement>(16, 0.75f, true);
+  }
+
+  /**
+   * @param method a prepareStatement method of the connection
+   * @param args
+   * @return true if the statements prepared through the method can be cached: only the ones
+   *     identified by the sql and optionally by the type and the concurrency of the result set
+   */
+  static boolean isCacheable(Method method, Object[] args) {
+    if (!"prepareStatement".equals(method.getName())) {
+      return false;
+    }
+    Class<?>[] types = method.getParameterTypes();
+    return (types.length == 1 && types[0] == String.class)
+        || (types.length == 3
+            && types[0] == String.class
+            && types[1] == int.class
+            && types[2] == int.class);
+  }
+
+  /**
+   * Returns a cached statement for the passed prepareStatement invocation, preparing and caching
+   * it on first use.
+   *
+   * @param connectionHandle the connection returned by {@link PreparedStatement#getConnection()}
+   * @param method
+   * @param args
+   * @return
+   * @throws SQLException
+   */
+  synchronized PreparedStatement prepare(Object connectionHandle, Method method, Object[] args)
+      throws SQLException {
+
+    String key =
+        args.length == 3
+            ? args[1] + ":" + args[2] + ":" + args[0]
+            : ResultSet.TYPE_FORWARD_ONLY + ":" + ResultSet.CONCUR_READ_ONLY + ":" + args[0];
+
+    OCachedStatement cached = this.statements.get(key);
+    if (cached != null && (cached.inUse || cached.statement.isClosed())) {
+      if (cached.inUse) {
+        return invokePrepare(this.physicalConnection, method, args);
+      }
+      this.statements.remove(key);
+      cached = null;
+    }
+
+    if (cached == null) {
+      cached = new OCachedStatement(invokePrepare(this.physicalConnection, method, args));
+      this.statements.put(key, cached);
+      this.evictExceeding();
+    }
+    cached.inUse = true;
+
+    return (PreparedStatement)
+        Proxy.newProxyInstance(
+            OPreparedStatementCache.class.getClassLoader(),
+            new Class<?>[] {PreparedStatement.class},
+            new OStatementHandler(cached, connectionHandle));
+  }
+
+  /** Closes all the cached statements. */
+  synchronized void clear() {
+    for (OCachedStatement cached : this.statements.values()) {
+      cached.evicted = true;
+      if (!cached.inUse) {
+        closeQuietly(cached.statement);
+      }
+    }
+    this.statements.clear();
+  }
+
+  synchronized int size() {
+    return this.statements.size();
+  }
+
+  private void evictExceeding() {
+    Iterator<OCachedStatement> it = this.statements.values().iterator();
+    while (this.statements.size() > this.maxSize && it.hasNext()) {
+      OCachedStatement eldest = it.next();
+      it.remove();
+      eldest.evicted = true;
+      if (!eldest.inUse) {
+        closeQuietly(eldest.statement);
+      }
+    }
+  }
+
+  private synchronized void giveBack(OCachedStatement cached) {
+    cached.inUse = false;
+    if (cached.evicted) {
+      closeQuietly(cached.statement);
+    }
+  }
+
+  private static PreparedStatement invokePrepare(
+      Connection connection, Method method, Object[] args) throws SQLException {
+    try {
+      return (PreparedStatement) method.invoke(connection, args);
+    } catch (InvocationTargetException e) {
+      if (e.getTargetException() instanceof SQLException) {
+        throw (SQLException) e.getTargetException();
+      }
+      throw new SQLException(e.getTargetException());
+    } catch (IllegalAccessException e) {
+      throw new SQLException(e);
+    }
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // nothing to do, the statement is discarded anyway
+    }
+  }
+
+  private static class OCachedStatement {
+
+    private final PreparedStatement statement;
+    private boolean inUse;
+    private boolean evicted;
+
+    OCachedStatement(PreparedStatement statement) {
+      this.statement = statement;
+    }
+  }
+
+  /** Handle bound to a single use of a cached statement. */
+  private class OStatementHandler implements InvocationHandler {
+
+    private final OCachedStatement cached;
+    private final Object connectionHandle;
+    private ResultSet lastResult;
+    private boolean closed;
+
+    OStatementHandler(OCachedStatement cached, Object connectionHandle) {
+      this.cached = cached;
+      this.connectionHandle = connectionHandle;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+      String methodName = method.getName();
+      int parameters = method.getParameterCount();
+
+      if ("close".equals(methodName) && parameters == 0) {
+        if (!this.closed) {
+          this.closed = true;
+          try {
+            if (this.lastResult != null) {
+              this.lastResult.close();
+            }
+            this.cached.statement.clearParameters();
+          } catch (SQLException e) {
+            // not reusable, dropping it from the cache
+            this.cached.evicted = true;
+          } finally {
+            this.lastResult = null;
+            giveBack(this.cached);
+          }
+        }
+        return null;
+      }
+      if ("isClosed".equals(methodName) && parameters == 0) {
+        return this.closed;
+      }
+      if ("equals".equals(methodName) && parameters == 1) {
+        return proxy == args[0];
+      }
+      if ("hashCode".equals(methodName) && parameters == 0) {
+        return System.identityHashCode(proxy);
+      }
+      if ("toString".equals(methodName) && parameters == 0) {
+        return "Cached statement " + this.cached.statement;
+      }
+      if (this.closed) {
+        throw new SQLException("The statement has already been closed.");
+      }
+      if ("getConnection".equals(methodName) && parameters == 0) {
+        return this.connectionHandle;
+      }
+
+      Object result;
+      try {
+        result = method.invoke(this.cached.statement, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+      if (result instanceof ResultSet) {
+        this.lastResult = (ResultSet) result;
+      }
+      return result;
+    }
+  }
+}
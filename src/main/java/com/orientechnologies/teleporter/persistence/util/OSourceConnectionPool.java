@@ -0,0 +1,351 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.persistence.util;
+
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterStatistics;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Bounded pool of physical connections towards a single source database. The connections handed
+ * out are lightweight handles: closing a handle gives the physical connection back to the pool,
+ * which is closed for real only when the pool itself is closed. Each physical connection keeps a
+ * cache of its prepared statements, so the queries repeated on the source database are parsed and
+ * planned once per connection.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OSourceConnectionPool {
+
+  public static final int DEFAULT_MAX_SIZE = 16;
+  public static final long DEFAULT_ACQUIRE_TIMEOUT = 60000L;
+  public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+  private final OSourceDatabaseInfo sourceDBInfo;
+  private final Driver driver;
+  private final int maxSize;
+  private final long acquireTimeout;
+  private final Deque<Connection> idleConnections;
+  private final Map<Connection, OPreparedStatementCache> statementCaches;
+  private int openConnections;
+  private boolean closed;
+
+  public OSourceConnectionPool(OSourceDatabaseInfo sourceDBInfo, Driver driver) {
+    this(sourceDBInfo, driver, DEFAULT_MAX_SIZE, DEFAULT_ACQUIRE_TIMEOUT);
+  }
+
+  public OSourceConnectionPool(
+      OSourceDatabaseInfo sourceDBInfo, Driver driver, int maxSize, long acquireTimeout) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("The connection pool size must be positive.");
+    }
+    this.sourceDBInfo = sourceDBInfo;
+    this.driver = driver;
+    this.maxSize = maxSize;
+    this.acquireTimeout = acquireTimeout;
+    this.idleConnections = new ArrayDeque<Connection>(maxSize);
+    this.statementCaches = new IdentityHashMap<Connection, OPreparedStatementCache>(maxSize);
+    this.openConnections = 0;
+    this.closed = false;
+  }
+
+  /**
+   * Returns a connection handle, reusing an idle physical connection when available. If all the
+   * connections are in use and the pool is full, the call waits until one is released.
+   */
+  public Connection acquire() throws SQLException {
+
+    Connection physicalConnection = null;
+    long deadline = System.currentTimeMillis() + this.acquireTimeout;
+
+    synchronized (this) {
+      while (physicalConnection == null) {
+        if (this.closed) {
+          throw new SQLException(
+              "Connection pool for '" + this.sourceDBInfo.getUrl() + "' is closed.");
+        }
+
+        Connection candidate = this.idleConnections.pollFirst();
+        if (candidate != null) {
+          if (isUsable(candidate)) {
+            physicalConnection = candidate;
+            this.incrementHits();
+          } else {
+            this.openConnections--;
+            this.statementCaches.remove(candidate);
+          }
+          continue;
+        }
+
+        if (this.openConnections < this.maxSize) {
+          // the slot is reserved here, the connection is opened outside the lock
+          this.openConnections++;
+          this.incrementMisses();
+          break;
+        }
+
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          throw new SQLException(
+              "Timeout while waiting for a free connection towards '"
+                  + this.sourceDBInfo.getUrl()
+                  + "' (pool size: "
+                  + this.maxSize
+                  + ").");
+        }
+        try {
+          this.wait(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new SQLException("Interrupted while waiting for a source connection.", e);
+        }
+      }
+    }
+
+    if (physicalConnection == null) {
+      try {
+        physicalConnection = this.openPhysicalConnection();
+      } catch (SQLException | RuntimeException e) {
+        synchronized (this) {
+          this.openConnections--;
+          this.notifyAll();
+        }
+        throw e;
+      }
+    }
+
+    return this.wrap(physicalConnection);
+  }
+
+  /** Gives the physical connection back to the pool, restoring its default state. */
+  private void release(Connection physicalConnection) {
+
+    boolean reusable = true;
+    try {
+      if (physicalConnection.isClosed()) {
+        reusable = false;
+      } else if (!physicalConnection.getAutoCommit()) {
+        physicalConnection.rollback();
+        physicalConnection.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      reusable = false;
+    }
+
+    synchronized (this) {
+      if (reusable && !this.closed) {
+        this.idleConnections.addFirst(physicalConnection);
+      } else {
+        this.openConnections--;
+        this.discardStatementCache(physicalConnection);
+        closeQuietly(physicalConnection);
+      }
+      this.notifyAll();
+    }
+  }
+
+  /** Closes all the idle connections and prevents further acquisitions. */
+  public synchronized void close() {
+    this.closed = true;
+    Connection connection;
+    while ((connection = this.idleConnections.pollFirst()) != null) {
+      this.openConnections--;
+      this.discardStatementCache(connection);
+      closeQuietly(connection);
+    }
+    this.notifyAll();
+  }
+
+  public synchronized int getIdleCount() {
+    return this.idleConnections.size();
+  }
+
+  public synchronized int getOpenCount() {
+    return this.openConnections;
+  }
+
+  /** @return the number of prepared statements cached for all the open connections */
+  public synchronized int getCachedStatementCount() {
+    int count = 0;
+    for (OPreparedStatementCache cache : this.statementCaches.values()) {
+      count += cache.size();
+    }
+    return count;
+  }
+
+  public int getMaxSize() {
+    return this.maxSize;
+  }
+
+  public OSourceDatabaseInfo getSourceDBInfo() {
+    return this.sourceDBInfo;
+  }
+
+  private Connection openPhysicalConnection() throws SQLException {
+    Properties info = new Properties();
+    if (this.sourceDBInfo.getUsername() != null) {
+      info.put("user", this.sourceDBInfo.getUsername());
+    }
+    if (this.sourceDBInfo.getPassword() != null) {
+      info.put("password", this.sourceDBInfo.getPassword());
+    }
+    Connection connection = this.driver.connect(this.sourceDBInfo.getUrl(), info);
+    if (connection == null) {
+      // the driver does not accept the url directly, letting the driver manager choose
+      connection =
+          DriverManager.getConnection(
+              this.sourceDBInfo.getUrl(),
+              this.sourceDBInfo.getUsername(),
+              this.sourceDBInfo.getPassword());
+    }
+    return connection;
+  }
+
+  private Connection wrap(Connection physicalConnection) {
+    return (Connection)
+        Proxy.newProxyInstance(
+            OSourceConnectionPool.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            new OPooledConnectionHandler(physicalConnection));
+  }
+
+  private synchronized OPreparedStatementCache getStatementCache(Connection physicalConnection) {
+    OPreparedStatementCache cache = this.statementCaches.get(physicalConnection);
+    if (cache == null) {
+      cache = new OPreparedStatementCache(physicalConnection, DEFAULT_STATEMENT_CACHE_SIZE);
+      this.statementCaches.put(physicalConnection, cache);
+    }
+    return cache;
+  }
+
+  private void discardStatementCache(Connection physicalConnection) {
+    OPreparedStatementCache cache = this.statementCaches.remove(physicalConnection);
+    if (cache != null) {
+      cache.clear();
+    }
+  }
+
+  private static boolean isUsable(Connection connection) {
+    try {
+      return !connection.isClosed();
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private static void closeQuietly(Connection connection) {
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      // nothing to do, the connection is discarded anyway
+    }
+  }
+
+  private void incrementHits() {
+    OTeleporterStatistics statistics = getStatistics();
+    if (statistics != null) {
+      statistics.incrementSourceConnectionPoolHits();
+    }
+  }
+
+  private void incrementMisses() {
+    OTeleporterStatistics statistics = getStatistics();
+    if (statistics != null) {
+      statistics.incrementSourceConnectionPoolMisses();
+    }
+  }
+
+  private static OTeleporterStatistics getStatistics() {
+    OTeleporterContext context = OTeleporterContext.getInstance();
+    return context != null ? context.getStatistics() : null;
+  }
+
+  /**
+   * Handle bound to a single acquisition: once closed the physical connection goes back to the
+   * pool and the handle cannot be used anymore. The statements prepared through the handle come
+   * from the statement cache of the physical connection.
+   */
+  private class OPooledConnectionHandler implements InvocationHandler {
+
+    private Connection physicalConnection;
+
+    OPooledConnectionHandler(Connection physicalConnection) {
+      this.physicalConnection = physicalConnection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+      String methodName = method.getName();
+
+      if ("close".equals(methodName) && method.getParameterCount() == 0) {
+        Connection toRelease;
+        synchronized (this) {
+          toRelease = this.physicalConnection;
+          this.physicalConnection = null;
+        }
+        if (toRelease != null) {
+          release(toRelease);
+        }
+        return null;
+      }
+      if ("isClosed".equals(methodName) && method.getParameterCount() == 0) {
+        return this.physicalConnection == null;
+      }
+      if ("equals".equals(methodName) && method.getParameterCount() == 1) {
+        return proxy == args[0];
+      }
+      if ("hashCode".equals(methodName) && method.getParameterCount() == 0) {
+        return System.identityHashCode(proxy);
+      }
+      if ("toString".equals(methodName) && method.getParameterCount() == 0) {
+        return "Pooled connection to " + sourceDBInfo.getUrl();
+      }
+
+      Connection target = this.physicalConnection;
+      if (target == null) {
+        throw new SQLException("The connection has already been closed.");
+      }
+      if (OPreparedStatementCache.isCacheable(method, args)) {
+        return getStatementCache(target).prepare(proxy, method, args);
+      }
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+    }
+  }
+}
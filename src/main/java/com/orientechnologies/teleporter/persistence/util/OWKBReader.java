@@ -0,0 +1,219 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.persistence.util;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts geometries in the Well-Known Binary format (ISO and PostGIS extended variants) into the
+ * shape documents of the OrientDB spatial module (OPoint, OLineString, OPolygon, their multi
+ * versions and OGeometryCollection). Only the x and y coordinates are kept, as the spatial module
+ * handles 2D shapes; the SRID is skipped.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OWKBReader {
+
+  public static final String POINT = "OPoint";
+  public static final String LINE_STRING = "OLineString";
+  public static final String POLYGON = "OPolygon";
+  public static final String MULTI_POINT = "OMultiPoint";
+  public static final String MULTI_LINE_STRING = "OMultiLineString";
+  public static final String MULTI_POLYGON = "OMultiPolygon";
+  public static final String GEOMETRY_COLLECTION = "OGeometryCollection";
+
+  // flags of the PostGIS extended WKB
+  private static final int EWKB_Z = 0x80000000;
+  private static final int EWKB_M = 0x40000000;
+  private static final int EWKB_SRID = 0x20000000;
+
+  private final ByteBuffer buffer;
+
+  private OWKBReader(byte[] wkb, int offset) {
+    this.buffer = ByteBuffer.wrap(wkb, offset, wkb.length - offset);
+  }
+
+  /**
+   * @param wkb
+   * @return the shape document, null for an empty point
+   * @throws OTeleporterRuntimeException if the bytes are not a valid WKB geometry
+   */
+  public static ODocument read(byte[] wkb) {
+    return read(wkb, 0);
+  }
+
+  /**
+   * @param wkb
+   * @param offset index of the first byte of the geometry (e.g. after a SRID prefix)
+   * @return the shape document, null for an empty point
+   * @throws OTeleporterRuntimeException if the bytes are not a valid WKB geometry
+   */
+  public static ODocument read(byte[] wkb, int offset) {
+    try {
+      return new OWKBReader(wkb, offset).readGeometry();
+    } catch (RuntimeException e) {
+      if (e instanceof OTeleporterRuntimeException) {
+        throw e;
+      }
+      throw new OTeleporterRuntimeException("Not valid WKB geometry.", e);
+    }
+  }
+
+  /**
+   * @param hex WKB in its hexadecimal form, as PostGIS returns geometries as text
+   * @return the bytes of the WKB
+   */
+  public static byte[] fromHex(String hex) {
+    if (hex.length() % 2 != 0) {
+      throw new OTeleporterRuntimeException("Not valid WKB geometry: odd number of hex digits.");
+    }
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      int high = Character.digit(hex.charAt(2 * i), 16);
+      int low = Character.digit(hex.charAt(2 * i + 1), 16);
+      if (high < 0 || low < 0) {
+        throw new OTeleporterRuntimeException("Not valid WKB geometry: not hex digit.");
+      }
+      bytes[i] = (byte) ((high << 4) | low);
+    }
+    return bytes;
+  }
+
+  /**
+   * @param shapeClass
+   * @param coordinates the coordinates, nested according to the shape
+   * @return the shape document
+   */
+  public static ODocument newShape(String shapeClass, List<?> coordinates) {
+    ODocument shape = new ODocument(shapeClass);
+    shape.field("coordinates", coordinates);
+    return shape;
+  }
+
+  private ODocument readGeometry() {
+
+    this.buffer.order(this.buffer.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    int type = this.buffer.getInt();
+
+    // dimensions of the coordinates, from the ISO codes or the extended flags
+    int dimensions = 2;
+    if ((type & EWKB_Z) != 0) {
+      dimensions++;
+    }
+    if ((type & EWKB_M) != 0) {
+      dimensions++;
+    }
+    if ((type & EWKB_SRID) != 0) {
+      this.buffer.getInt();
+    }
+    type &= 0x0FFFFFFF;
+    if (type > 1000) {
+      dimensions += type / 1000 == 3 ? 2 : 1;
+      type %= 1000;
+    }
+
+    switch (type) {
+      case 1:
+        List<Double> point = this.readPoint(dimensions);
+        return point != null ? newShape(POINT, point) : null;
+      case 2:
+        return newShape(LINE_STRING, this.readPoints(dimensions));
+      case 3:
+        return newShape(POLYGON, this.readRings(dimensions));
+      case 4:
+        List<List<Double>> points = new ArrayList<List<Double>>();
+        for (ODocument geometry : this.readGeometries()) {
+          points.add(geometry.field("coordinates"));
+        }
+        return newShape(MULTI_POINT, points);
+      case 5:
+        List<List<List<Double>>> lines = new ArrayList<List<List<Double>>>();
+        for (ODocument geometry : this.readGeometries()) {
+          lines.add(geometry.field("coordinates"));
+        }
+        return newShape(MULTI_LINE_STRING, lines);
+      case 6:
+        List<List<List<List<Double>>>> polygons = new ArrayList<List<List<List<Double>>>>();
+        for (ODocument geometry : this.readGeometries()) {
+          polygons.add(geometry.field("coordinates"));
+        }
+        return newShape(MULTI_POLYGON, polygons);
+      case 7:
+        ODocument collection = new ODocument(GEOMETRY_COLLECTION);
+        collection.field("geometries", this.readGeometries());
+        return collection;
+      default:
+        throw new OTeleporterRuntimeException("Not supported WKB geometry type: " + type + ".");
+    }
+  }
+
+  private List<ODocument> readGeometries() {
+    int size = this.buffer.getInt();
+    List<ODocument> geometries = new ArrayList<ODocument>(size);
+    for (int i = 0; i < size; i++) {
+      ODocument geometry = this.readGeometry();
+      if (geometry != null) {
+        geometries.add(geometry);
+      }
+    }
+    return geometries;
+  }
+
+  private List<List<List<Double>>> readRings(int dimensions) {
+    int size = this.buffer.getInt();
+    List<List<List<Double>>> rings = new ArrayList<List<List<Double>>>(size);
+    for (int i = 0; i < size; i++) {
+      rings.add(this.readPoints(dimensions));
+    }
+    return rings;
+  }
+
+  private List<List<Double>> readPoints(int dimensions) {
+    int size = this.buffer.getInt();
+    List<List<Double>> points = new ArrayList<List<Double>>(size);
+    for (int i = 0; i < size; i++) {
+      points.add(this.readPoint(dimensions));
+    }
+    return points;
+  }
+
+  /** @return the x and y coordinates of the point, null if empty (NaN coordinates) */
+  private List<Double> readPoint(int dimensions) {
+    double x = this.buffer.getDouble();
+    double y = this.buffer.getDouble();
+    for (int i = 2; i < dimensions; i++) {
+      this.buffer.getDouble();
+    }
+    if (Double.isNaN(x) && Double.isNaN(y)) {
+      return null;
+    }
+    List<Double> point = new ArrayList<Double>(2);
+    point.add(x);
+    point.add(y);
+    return point;
+  }
+}
@@ -27,26 +27,31 @@ import com.orientechnologies.teleporter.configuration.OConfigurationHandler;
 import com.orientechnologies.teleporter.configuration.api.OConfiguration;
 import com.orientechnologies.teleporter.configuration.api.OConfiguredVertexClass;
 import com.orientechnologies.teleporter.configuration.api.OSourceTable;
+import com.orientechnologies.teleporter.context.OImportSettings;
 import com.orientechnologies.teleporter.context.OTeleporterContext;
 import com.orientechnologies.teleporter.context.OTeleporterStatistics;
 import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
 import com.orientechnologies.teleporter.factory.ODataTypeHandlerFactory;
 import com.orientechnologies.teleporter.factory.ONameResolverFactory;
 import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.OKeyRange;
 import com.orientechnologies.teleporter.importengine.rdbms.graphengine.OGraphEngineForDB;
+import com.orientechnologies.teleporter.importengine.rdbms.graphengine.OVertexKey;
+import com.orientechnologies.teleporter.importengine.rdbms.graphengine.OVertexUpsertBatch;
 import com.orientechnologies.teleporter.mapper.OSource2GraphMapper;
 import com.orientechnologies.teleporter.mapper.rdbms.OER2GraphMapper;
 import com.orientechnologies.teleporter.mapper.rdbms.classmapper.OEEClassMapper;
 import com.orientechnologies.teleporter.model.OSourceInfo;
 import com.orientechnologies.teleporter.model.dbschema.*;
 import com.orientechnologies.teleporter.model.graphmodel.OEdgeType;
-import com.orientechnologies.teleporter.model.graphmodel.OModelProperty;
 import com.orientechnologies.teleporter.model.graphmodel.OVertexType;
 import com.orientechnologies.teleporter.nameresolver.ONameResolver;
 import com.orientechnologies.teleporter.persistence.handler.ODBMSDataTypeHandler;
+import com.orientechnologies.teleporter.persistence.util.OColumnOrdinals;
 import com.orientechnologies.teleporter.persistence.util.OQueryResult;
 import com.orientechnologies.teleporter.strategy.OWorkflowStrategy;
 import com.orientechnologies.teleporter.util.OFunctionsHandler;
+import com.orientechnologies.teleporter.util.OMigrationConfigManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
@@ -62,6 +67,10 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
   protected String serverInitUrl;
   protected String dbName;
 
+  // key-to-type resolvers of the hierarchical bags, loaded on first use
+  private final Map<OHierarchicalBag, OHierarchicalTypeResolver> bag2typeResolver =
+      new HashMap<OHierarchicalBag, OHierarchicalTypeResolver>();
+
   public OAbstractDBMSImportStrategy(String protocol, String serverInitUrl, String dbName) {
     this.protocol = protocol;
     this.serverInitUrl = serverInitUrl;
@@ -114,6 +123,13 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
     ONameResolver nameResolver = nameResolverFactory.buildNameResolver(nameResolverConvention);
     OTeleporterContext.getInstance().getStatistics().runningStepNumber = -1;
 
+    // the snapshot of the source database schema is kept next to the migration config
+    OTeleporterContext.getInstance()
+        .setSchemaSnapshotPath(
+            OTeleporterContext.getInstance().getImportSettings().isSchemaSnapshotEnabled()
+                ? OMigrationConfigManager.buildSchemaSnapshotPath(outOrientGraphUri)
+                : null);
+
     this.mapper =
         this.createSchemaMapper(
             sourceDBInfo,
@@ -201,6 +217,28 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
 
     OEdgeType edgeType; // for each entity in dbSchema all records are retrieved
     int numberOfAggregatedClasses = mappedEntities.size();
+    OImportSettings importSettings = OTeleporterContext.getInstance().getImportSettings();
+
+    // in the two-phase import the edges are built later, once all the vertices are imported
+    boolean edgesDeferred = importSettings.isTwoPhaseImportEnabled();
+
+    // the scan of a single table can be split in key ranges imported concurrently
+    if (numberOfAggregatedClasses == 1 && importSettings.isPartitionedScanEnabled()) {
+      List<OKeyRange> keyRanges =
+          dbQueryEngine.getKeyRanges(mappedEntities.get(0), importSettings.getPartitions());
+      if (keyRanges.size() > 1) {
+        this.importKeyRangesIntoVertexClass(
+            mappedEntities,
+            keyRanges,
+            currentOutVertexType,
+            dbQueryEngine,
+            graphEngine,
+            orientGraph);
+        currentOutVertexType.setAnalyzedInLastMigration(true);
+        return;
+      }
+    }
+
     if (numberOfAggregatedClasses == 1) {
       queryResult = dbQueryEngine.getRecordsByEntity(mappedEntities.get(0));
     } else {
@@ -208,48 +246,234 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
           dbQueryEngine.getRecordsFromMultipleEntities(mappedEntities, aggregationColumns);
     }
 
-    // if (handler.geospatialImplemented && super.hasGeospatialAttributes(entity, handler)) {
-    //  String query = handler.buildGeospatialQuery(entity);
-    //  queryResult = dbQueryEngine.executeQuery(query);
-    // }
+    try {
+      records = queryResult.getResult();
+      ResultSet currentRecord = null;
+
+      if (importSettings.isBatchImportEnabled()) {
+
+        // records are buffered and written in batches, each one within a single transaction
+        OVertexUpsertBatch batch =
+            new OVertexUpsertBatch(
+                graphEngine,
+                orientGraph,
+                currentOutVertexType,
+                currentOutVertexType.getExternalKey(),
+                edgesDeferred
+                    ? Collections.<OVertexUpsertBatch.OReachedRelationship>emptyList()
+                    : this.buildReachedRelationships(mappedEntities),
+                importSettings.getBatchSize());
+
+        while (records.next()) {
+          batch.add(records);
+
+          // Statistics updated
+          statistics.incrementAnalyzedRecords(numberOfAggregatedClasses);
+        }
+        batch.flush();
 
-    records = queryResult.getResult();
-    ResultSet currentRecord = null;
+      } else {
 
-    // each record is imported as vertex in the orient graph
-    while (records.next()) {
+        // each record is imported as vertex in the orient graph
+        while (records.next()) {
 
-      // upsert of the vertex
-      currentRecord = records;
-      OVertex currentOutVertex =
-          graphEngine.upsertVisitedVertex(
-              orientGraph,
-              currentRecord,
-              currentOutVertexType,
-              currentOutVertexType.getExternalKey());
-
-      // navigating relationships outgoing from the current mapped entities and for each of them all
-      // the correspondent edges are built
-      // and all the in-vertices are upserted in the graph database
-      this.navigateRelationshipsAndInsertReachableVertices(
-          orientGraph,
-          graphEngine,
-          mappedEntities,
-          currentRecord,
-          currentOutVertexType,
-          currentOutVertex);
-
-      // Statistics updated
-      statistics.analyzedRecords += 1 * numberOfAggregatedClasses;
-    }
+          // upsert of the vertex
+          currentRecord = records;
+          OVertex currentOutVertex =
+              graphEngine.upsertVisitedVertex(
+                  orientGraph,
+                  currentRecord,
+                  currentOutVertexType,
+                  currentOutVertexType.getExternalKey());
+
+          // navigating relationships outgoing from the current mapped entities and for each of them
+          // all the correspondent edges are built
+          // and all the in-vertices are upserted in the graph database
+          if (!edgesDeferred) {
+            this.navigateRelationshipsAndInsertReachableVertices(
+                orientGraph,
+                graphEngine,
+                mappedEntities,
+                currentRecord,
+                currentOutVertexType,
+                currentOutVertex);
+          }
 
-    // closing resultset, connection and statement
-    queryResult.closeAll();
+          // Statistics updated
+          statistics.incrementAnalyzedRecords(numberOfAggregatedClasses);
+        }
+      }
+    } finally {
+      // closing resultset, connection and statement
+      queryResult.closeAll();
+    }
 
     // setting the vertex type as 'analyzed'
     currentOutVertexType.setAnalyzedInLastMigration(true);
   }
 
+  /**
+   * It imports the records of a single entity splitting its scan in key ranges: each range is
+   * fetched and written by a different worker with its own OrientDB session. The records are
+   * written in transactional batches, so that the concurrent updates of the same reached vertices
+   * are detected and retried.
+   *
+   * @param mappedEntities
+   * @param keyRanges
+   * @param vertexType
+   * @param dbQueryEngine
+   * @param graphEngine
+   * @param orientGraph
+   */
+  protected void importKeyRangesIntoVertexClass(
+      List<OEntity> mappedEntities,
+      List<OKeyRange> keyRanges,
+      OVertexType vertexType,
+      ODBQueryEngine dbQueryEngine,
+      OGraphEngineForDB graphEngine,
+      ODatabaseDocument orientGraph) {
+
+    OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
+    OImportSettings importSettings = OTeleporterContext.getInstance().getImportSettings();
+    OEntity entity = mappedEntities.get(0);
+    List<OVertexUpsertBatch.OReachedRelationship> reachedRelationships =
+        importSettings.isTwoPhaseImportEnabled()
+            ? Collections.<OVertexUpsertBatch.OReachedRelationship>emptyList()
+            : this.buildReachedRelationships(mappedEntities);
+
+    // the ranges write disjoint visited vertices, so no class is locked among them
+    OParallelImportExecutor executor =
+        new OParallelImportExecutor(importSettings.getPartitions(), orientGraph.getName());
+    for (OKeyRange keyRange : keyRanges) {
+      executor.addTask(
+          "'" + entity.getName() + "' records in the key range " + keyRange,
+          Collections.<OVertexType>emptySet(),
+          session -> {
+            OQueryResult queryResult = dbQueryEngine.getRecordsByEntityInKeyRange(entity, keyRange);
+            try {
+              OVertexUpsertBatch batch =
+                  new OVertexUpsertBatch(
+                      graphEngine,
+                      session,
+                      vertexType,
+                      vertexType.getExternalKey(),
+                      reachedRelationships,
+                      importSettings.getBatchSize());
+              ResultSet records = queryResult.getResult();
+              while (records.next()) {
+                batch.add(records);
+
+                // Statistics updated
+                statistics.incrementAnalyzedRecords(1);
+              }
+              batch.flush();
+            } finally {
+              queryResult.closeAll();
+            }
+          });
+    }
+    executor.execute();
+  }
+
+  /**
+   * It builds the edges coming from the relationships outgoing from the mapped entities, once all
+   * the vertices are imported (second phase of the two-phase import). Only the key and the foreign
+   * key columns are fetched: both the out-vertex and the referenced in-vertices are looked up by
+   * key, no vertex is added or updated. When an edge class is empty at the start, the existence of
+   * its edges is checked through the edges seen during the migration only.
+   *
+   * @param mappedEntities
+   * @param aggregationColumns
+   * @param outVertexType
+   * @param dbQueryEngine
+   * @param graphEngine
+   * @param orientGraph
+   */
+  protected void importEdgesFromEntities(
+      List<OEntity> mappedEntities,
+      String[][] aggregationColumns,
+      OVertexType outVertexType,
+      ODBQueryEngine dbQueryEngine,
+      OGraphEngineForDB graphEngine,
+      ODatabaseDocument orientGraph)
+      throws SQLException {
+
+    List<OVertexUpsertBatch.OReachedRelationship> relationships =
+        this.buildReachedRelationships(mappedEntities);
+    if (relationships.isEmpty()) {
+      return;
+    }
+
+    OImportSettings importSettings = OTeleporterContext.getInstance().getImportSettings();
+    Set<String> externalKey = outVertexType.getExternalKey();
+
+    OQueryResult queryResult;
+    if (mappedEntities.size() == 1) {
+      Set<String> columns = new LinkedHashSet<String>();
+      for (String property : externalKey) {
+        columns.add(this.mapper.getAttributeNameByVertexTypeAndProperty(outVertexType, property));
+      }
+      for (OVertexUpsertBatch.OReachedRelationship relationship : relationships) {
+        for (OAttribute foreignAttribute : relationship.getRelationship().getFromColumns()) {
+          columns.add(foreignAttribute.getName());
+        }
+      }
+      queryResult = dbQueryEngine.getColumnsByEntity(mappedEntities.get(0), columns);
+    } else {
+      queryResult =
+          dbQueryEngine.getRecordsFromMultipleEntities(mappedEntities, aggregationColumns);
+    }
+
+    // with batching enabled the edges are written in transactions of batch size records
+    int batchSize = importSettings.getBatchSize();
+    int recordsInTransaction = 0;
+
+    try {
+      ResultSet records = queryResult.getResult();
+      while (records.next()) {
+
+        OVertexKey key = graphEngine.readExternalKey(records, outVertexType, externalKey);
+        if (key.hasNullValues()) {
+          continue;
+        }
+        OVertex outVertex = graphEngine.lookupVertex(orientGraph, key, outVertexType.getName());
+        if (outVertex == null) {
+          continue;
+        }
+
+        if (importSettings.isBatchImportEnabled() && recordsInTransaction == 0) {
+          orientGraph.begin();
+        }
+        for (OVertexUpsertBatch.OReachedRelationship relationship : relationships) {
+          graphEngine.connectToReferencedVertex(
+              orientGraph,
+              graphEngine.readForeignKey(
+                  records, relationship.getRelationship(), relationship.getInVertexType()),
+              relationship.getRelationship(),
+              outVertex,
+              relationship.getInVertexType(),
+              relationship.getEdgeTypeName());
+        }
+        if (importSettings.isBatchImportEnabled() && ++recordsInTransaction == batchSize) {
+          orientGraph.commit();
+          graphEngine.commitPending();
+          recordsInTransaction = 0;
+        }
+      }
+      if (recordsInTransaction > 0) {
+        orientGraph.commit();
+        graphEngine.commitPending();
+        recordsInTransaction = 0;
+      }
+    } finally {
+      if (recordsInTransaction > 0) {
+        orientGraph.rollback();
+        graphEngine.discardPending();
+      }
+      queryResult.closeAll();
+    }
+  }
+
   /**
    * It navigates all the relationships outgoing from the mapped entities and for each of them it
    * builds all the correspondent edges and all the in-vertices are upserted in the graph database
@@ -292,6 +516,143 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
     }
   }
 
+  /**
+   * It collects all the relationships outgoing from the mapped entities, each one with the
+   * correspondent in-vertex type and edge type.
+   *
+   * @param mappedEntities
+   * @return
+   */
+  protected List<OVertexUpsertBatch.OReachedRelationship> buildReachedRelationships(
+      List<OEntity> mappedEntities) {
+
+    List<OVertexUpsertBatch.OReachedRelationship> reachedRelationships =
+        new ArrayList<OVertexUpsertBatch.OReachedRelationship>();
+
+    for (OEntity entity : mappedEntities) {
+      for (OCanonicalRelationship currentRelationship : entity.getOutCanonicalRelationships()) {
+        OEntity currentParentEntity =
+            mapper
+                .getDataBaseSchema()
+                .getEntityByName(currentRelationship.getParentEntity().getName());
+        OVertexType currentInVertexType =
+            mapper.getVertexTypeByEntityAndRelationship(currentParentEntity, currentRelationship);
+        OEdgeType edgeType = mapper.getRelationship2edgeType().get(currentRelationship);
+        reachedRelationships.add(
+            new OVertexUpsertBatch.OReachedRelationship(
+                currentRelationship, currentInVertexType, edgeType.getName()));
+      }
+    }
+    return reachedRelationships;
+  }
+
+  /**
+   * It builds the executor of the vertex classes imports according to the import settings.
+   *
+   * @param dbName
+   * @return the executor, null if the import is sequential
+   */
+  protected OParallelImportExecutor buildParallelImportExecutor(String dbName) {
+    OImportSettings importSettings = OTeleporterContext.getInstance().getImportSettings();
+    if (importSettings.isParallelImportEnabled()) {
+      return new OParallelImportExecutor(importSettings.getParallelism(), dbName);
+    }
+    return null;
+  }
+
+  /**
+   * It builds the executor of the edges imports, run once all the vertex classes are imported.
+   *
+   * @param dbName
+   * @return the executor, null if the edges are imported together with the vertices
+   */
+  protected OParallelImportExecutor buildEdgeImportExecutor(String dbName) {
+    OImportSettings importSettings = OTeleporterContext.getInstance().getImportSettings();
+    if (importSettings.isTwoPhaseImportEnabled()) {
+      return new OParallelImportExecutor(importSettings.getParallelism(), dbName);
+    }
+    return null;
+  }
+
+  /**
+   * It schedules the import of the edges outgoing from a vertex class on the executor of the edges
+   * imports, if present (see {@link #importEdgesFromEntities}).
+   *
+   * @param edgeExecutor
+   * @param mappedEntities
+   * @param aggregationColumns
+   * @param outVertexType
+   * @param dbQueryEngine
+   * @param graphEngine
+   */
+  protected void scheduleEdgesImport(
+      OParallelImportExecutor edgeExecutor,
+      List<OEntity> mappedEntities,
+      String[][] aggregationColumns,
+      OVertexType outVertexType,
+      ODBQueryEngine dbQueryEngine,
+      OGraphEngineForDB graphEngine) {
+
+    if (edgeExecutor != null) {
+      edgeExecutor.addTask(
+          "edges outgoing from the '" + outVertexType.getName() + "' vertex class",
+          this.buildWrittenVertexTypes(mappedEntities, Collections.singleton(outVertexType)),
+          session ->
+              this.importEdgesFromEntities(
+                  mappedEntities,
+                  aggregationColumns,
+                  outVertexType,
+                  dbQueryEngine,
+                  graphEngine,
+                  session));
+    }
+  }
+
+  /**
+   * It runs the import of a vertex class: when the import is sequential (no executor) it's
+   * performed right away on the passed OrientDB session, otherwise it's scheduled on the executor.
+   *
+   * @param executor
+   * @param orientGraph
+   * @param description
+   * @param writtenVertexTypes the vertex types whose vertices are inserted or updated by the import
+   * @param body
+   * @throws Exception
+   */
+  protected void scheduleVertexClassImport(
+      OParallelImportExecutor executor,
+      ODatabaseDocument orientGraph,
+      String description,
+      Set<OVertexType> writtenVertexTypes,
+      OParallelImportExecutor.OImportTaskBody body)
+      throws Exception {
+
+    if (executor == null) {
+      body.execute(orientGraph);
+    } else {
+      executor.addTask(description, writtenVertexTypes, body);
+    }
+  }
+
+  /**
+   * It collects the vertex types written while importing records from the mapped entities: the
+   * visited ones and the ones reached through the outgoing relationships.
+   *
+   * @param mappedEntities
+   * @param visitedVertexTypes
+   * @return
+   */
+  protected Set<OVertexType> buildWrittenVertexTypes(
+      List<OEntity> mappedEntities, Collection<OVertexType> visitedVertexTypes) {
+
+    Set<OVertexType> writtenVertexTypes = new LinkedHashSet<OVertexType>(visitedVertexTypes);
+    for (OVertexUpsertBatch.OReachedRelationship reachedRelationship :
+        this.buildReachedRelationships(mappedEntities)) {
+      writtenVertexTypes.add(reachedRelationship.getInVertexType());
+    }
+    return writtenVertexTypes;
+  }
+
   /**
    * It imports all the records from a split entity into all the Vertex Classes mapped with it (so 1
    * entity mapped with several vertex classes). It's used to import all the vertices and all the
@@ -317,135 +678,109 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
     ResultSet records;
 
     queryResult = dbQueryEngine.getRecordsByEntity(entity);
-    records = queryResult.getResult();
-    ResultSet currentRecord = null;
-
-    // each record is imported as many vertices in the orient graph
-    while (records.next()) {
-
-      currentRecord = records;
-
-      // building vertices from the record
-      Map<String, OVertex> className2insertedVertex = new LinkedHashMap<String, OVertex>();
-      for (OVertexType currentVertexType : mappedVertices) {
-        OVertex currentOutVertex =
-            (OVertex)
-                graphEngine.upsertVisitedVertex(
-                    orientGraph,
-                    currentRecord,
-                    currentVertexType,
-                    currentVertexType.getExternalKey());
-
-        boolean navigate = false;
-        for (ORelationship currentRelationship : entity.getAllOutCanonicalRelationships()) {
-          OEdgeType currEdgeType = mapper.getRelationship2edgeType().get(currentRelationship);
-          if (currEdgeType != null) {
-            if (currentRelationship.getDirection().equals("direct")
-                && currentVertexType.getOutEdgesType().contains(currEdgeType)) {
-              navigate = true;
-              break;
-            } else if (currentRelationship.getDirection().equals("inverse")
-                && currentVertexType.getInEdgesType().contains(currEdgeType)) {
-              navigate = true;
-              break;
+    try {
+      records = queryResult.getResult();
+      ResultSet currentRecord = null;
+
+      // each record is imported as many vertices in the orient graph
+      while (records.next()) {
+
+        currentRecord = records;
+
+        // building vertices from the record
+        Map<String, OVertex> className2insertedVertex = new LinkedHashMap<String, OVertex>();
+        for (OVertexType currentVertexType : mappedVertices) {
+          OVertex currentOutVertex =
+              (OVertex)
+                  graphEngine.upsertVisitedVertex(
+                      orientGraph,
+                      currentRecord,
+                      currentVertexType,
+                      currentVertexType.getExternalKey());
+
+          boolean navigate = false;
+          for (ORelationship currentRelationship : entity.getAllOutCanonicalRelationships()) {
+            OEdgeType currEdgeType = mapper.getRelationship2edgeType().get(currentRelationship);
+            if (currEdgeType != null) {
+              if (currentRelationship.getDirection().equals("direct")
+                  && currentVertexType.getOutEdgesType().contains(currEdgeType)) {
+                navigate = true;
+                break;
+              } else if (currentRelationship.getDirection().equals("inverse")
+                  && currentVertexType.getInEdgesType().contains(currEdgeType)) {
+                navigate = true;
+                break;
+              }
             }
           }
-        }
 
-        // navigating relationships outgoing from the current mapped entities and for each of them
-        // all the correspondent edges are built
-        // and all the in-vertices are upserted in the graph database
-        if (navigate) {
-          this.navigateRelationshipsAndInsertReachableVertices(
-              orientGraph,
-              graphEngine,
-              mappedEntities,
-              currentRecord,
-              currentVertexType,
-              currentOutVertex);
+          // navigating relationships outgoing from the current mapped entities and for each of them
+          // all the correspondent edges are built
+          // and all the in-vertices are upserted in the graph database
+          if (navigate) {
+            this.navigateRelationshipsAndInsertReachableVertices(
+                orientGraph,
+                graphEngine,
+                mappedEntities,
+                currentRecord,
+                currentVertexType,
+                currentOutVertex);
+          }
+
+          className2insertedVertex.put(currentVertexType.getName(), currentOutVertex);
         }
 
-        className2insertedVertex.put(currentVertexType.getName(), currentOutVertex);
-      }
+        /*
+         * Adding coherently the splitting edges between the just added vertices
+         */
+
+        List<OEEClassMapper> classMappers =
+            ((OER2GraphMapper) this.mapper).getEEClassMappersByEntity(entity);
+
+        // checking that: total number of edges = number of mapped vertices -1
+        int numberOfEdges = classMappers.size();
+        int numberOfVertices = mappedVertices.size();
+        if (numberOfEdges != numberOfVertices - 1) {
+          OTeleporterContext.getInstance()
+              .getMessageHandler()
+              .error(
+                  this,
+                  "There are %s edges-type and %s vertices-type detected for the split entity %s. "
+                      + "For a correct splitting you must have: total number of edges = number of mapped vertices -1.",
+                  numberOfEdges,
+                  numberOfVertices,
+                  entity.getName());
+          throw new OTeleporterRuntimeException();
+        }
 
-      /*
-       * Adding coherently the splitting edges between the just added vertices
-       */
-
-      List<OEEClassMapper> classMappers =
-          ((OER2GraphMapper) this.mapper).getEEClassMappersByEntity(entity);
-
-      // checking that: total number of edges = number of mapped vertices -1
-      int numberOfEdges = classMappers.size();
-      int numberOfVertices = mappedVertices.size();
-      if (numberOfEdges != numberOfVertices - 1) {
-        OTeleporterContext.getInstance()
-            .getMessageHandler()
-            .error(
-                this,
-                "There are %s edges-type and %s vertices-type detected for the split entity %s. "
-                    + "For a correct splitting you must have: total number of edges = number of mapped vertices -1.",
-                numberOfEdges,
-                numberOfVertices,
-                entity.getName());
-        throw new OTeleporterRuntimeException();
-      }
+        for (OEEClassMapper classMapper : classMappers) {
+          OEdgeType currentEdgeType = classMapper.getEdgeType();
+          String currentOutVertexName = currentEdgeType.getOutVertexType().getName();
+          String currentInVertexName = currentEdgeType.getInVertexType().getName();
+          OVertex currentOutVertex = className2insertedVertex.get(currentOutVertexName);
+          OVertex currentInVertex = className2insertedVertex.get(currentInVertexName);
 
-      for (OEEClassMapper classMapper : classMappers) {
-        OEdgeType currentEdgeType = classMapper.getEdgeType();
-        String currentOutVertexName = currentEdgeType.getOutVertexType().getName();
-        String currentInVertexName = currentEdgeType.getInVertexType().getName();
-        OVertex currentOutVertex = className2insertedVertex.get(currentOutVertexName);
-        OVertex currentInVertex = className2insertedVertex.get(currentInVertexName);
-
-        Map<String, Object> properties = new LinkedHashMap<String, Object>();
-
-        // filling properties
-        for (OModelProperty currentProperty : currentEdgeType.getAllProperties()) {
-          if (currentProperty.isIncludedInMigration()) {
-            String currentPropertyName = currentProperty.getName();
-            String currentPropertyType =
-                OTeleporterContext.getInstance()
-                    .getDataTypeHandler()
-                    .resolveType(currentProperty.getOriginalType().toLowerCase(Locale.ENGLISH))
-                    .toString();
-            String currentOriginalType = currentProperty.getOriginalType();
+          // filling properties
+          Map<String, Object> properties =
+              graphEngine.getEdgeDecoder(currentEdgeType).decode(currentRecord, null, null);
 
-            try {
-              graphEngine.extractPropertiesFromRecordIntoEdge(
-                  currentRecord,
-                  properties,
-                  currentPropertyType,
-                  currentPropertyName,
-                  currentOriginalType,
-                  currentEdgeType);
-            } catch (Exception e) {
-              String mess =
-                  "Problem encountered during the extraction of the values from the records. Edge Type: "
-                      + currentEdgeType.getName()
-                      + ";\tProperty: "
-                      + currentPropertyName;
-              OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
-              OTeleporterContext.getInstance().printExceptionStackTrace(e, "debug");
-            }
-          }
+          graphEngine.upsertEdge(
+              orientGraph,
+              currentOutVertex,
+              currentInVertex,
+              currentEdgeType.getName(),
+              properties,
+              "direct");
         }
-        graphEngine.upsertEdge(
-            orientGraph,
-            currentOutVertex,
-            currentInVertex,
-            currentEdgeType.getName(),
-            properties,
-            "direct");
-      }
 
-      // Statistics updated
-      statistics.analyzedRecords += 1;
+        // Statistics updated
+        statistics.incrementAnalyzedRecords(1);
+      }
+    } finally {
+      // closing resultset, connection and statement
+      queryResult.closeAll();
     }
 
-    // closing resultset, connection and statement
-    queryResult.closeAll();
-
     // setting the vertex type as 'analyzed'
     for (OVertexType currentVertexType : mappedVertices) {
       currentVertexType.setAnalyzedInLastMigration(true);
@@ -520,104 +855,108 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
           queryResult =
               dbQueryEngine.getRecordsFromSingleTableByDiscriminatorValue(
                   bag.getDiscriminatorColumn(), currentDiscriminatorValue, physicalCurrentEntity);
-          records = queryResult.getResult();
-          ResultSet currentRecord = null;
+          try {
+            records = queryResult.getResult();
+            ResultSet currentRecord = null;
 
-          currentOutVertexType = mapper.getVertexTypeByEntity(currentEntity);
+            currentOutVertexType = mapper.getVertexTypeByEntity(currentEntity);
 
-          // each record is imported as vertex in the orient graph
-          while (records.next()) {
+            // each record is imported as vertex in the orient graph
+            while (records.next()) {
 
-            // upsert of the vertex
-            currentRecord = records;
-            currentOutVertex =
-                (OVertex)
-                    graphDBCommandEngine.upsertVisitedVertex(
-                        orientGraph,
-                        currentRecord,
-                        currentOutVertexType,
-                        currentOutVertexType.getExternalKey());
-
-            // for each attribute of the entity belonging to the primary key, correspondent
-            // relationship is
-            // built as edge and for the referenced record a vertex is built (only id)
-            for (OCanonicalRelationship currentRelation :
-                currentEntity.getAllOutCanonicalRelationships()) {
-
-              currentParentEntity =
-                  mapper
-                      .getDataBaseSchema()
-                      .getEntityByNameIgnoreCase(currentRelation.getParentEntity().getName());
-
-              // checking if parent table belongs to a hierarchical bag
-              if (currentParentEntity.getHierarchicalBag() == null) {
-                currentInVertexType =
-                    mapper.getVertexTypeByEntity(currentRelation.getParentEntity());
-              }
+              // upsert of the vertex
+              currentRecord = records;
+              currentOutVertex =
+                  (OVertex)
+                      graphDBCommandEngine.upsertVisitedVertex(
+                          orientGraph,
+                          currentRecord,
+                          currentOutVertexType,
+                          currentOutVertexType.getExternalKey());
+
+              // for each attribute of the entity belonging to the primary key, correspondent
+              // relationship is
+              // built as edge and for the referenced record a vertex is built (only id)
+              for (OCanonicalRelationship currentRelation :
+                  currentEntity.getAllOutCanonicalRelationships()) {
+
+                currentParentEntity =
+                    mapper
+                        .getDataBaseSchema()
+                        .getEntityByNameIgnoreCase(currentRelation.getParentEntity().getName());
 
-              // if the parent entity belongs to hierarchical bag, we need to know which is it the
-              // more stringent subclass of the record with a certain id
-              else {
-                String[] propertyOfKey = new String[currentRelation.getFromColumns().size()];
-                String[] valueOfKey = new String[currentRelation.getFromColumns().size()];
-
-                int index = 0;
-                for (OAttribute foreignAttribute : currentRelation.getFromColumns()) {
-                  propertyOfKey[index] = currentRelation.getToColumns().get(index).getName();
-                  valueOfKey[index] = currentRecord.getString((foreignAttribute.getName()));
-                  index++;
+                // checking if parent table belongs to a hierarchical bag
+                if (currentParentEntity.getHierarchicalBag() == null) {
+                  currentInVertexType =
+                      mapper.getVertexTypeByEntity(currentRelation.getParentEntity());
                 }
 
-                // search is performed only if all the values in the foreign key are different from
-                // null (the relationship is inherited and is also consistent)
-                boolean ok = true;
+                // if the parent entity belongs to hierarchical bag, we need to know which is it the
+                // more stringent subclass of the record with a certain id
+                else {
+                  String[] propertyOfKey = new String[currentRelation.getFromColumns().size()];
+                  String[] valueOfKey = new String[currentRelation.getFromColumns().size()];
 
-                for (int j = 0; j < valueOfKey.length; j++) {
-                  if (valueOfKey[j] == null) {
-                    ok = false;
-                    break;
+                  int index = 0;
+                  for (OAttribute foreignAttribute : currentRelation.getFromColumns()) {
+                    propertyOfKey[index] = currentRelation.getToColumns().get(index).getName();
+                    valueOfKey[index] =
+                        OColumnOrdinals.getString(currentRecord, foreignAttribute.getName());
+                    index++;
+                  }
+
+                  // search is performed only if all the values in the foreign key are different
+                  // from null (the relationship is inherited and is also consistent)
+                  boolean ok = true;
+
+                  for (int j = 0; j < valueOfKey.length; j++) {
+                    if (valueOfKey[j] == null) {
+                      ok = false;
+                      break;
+                    }
+                  }
+                  if (ok) {
+                    it =
+                        currentParentEntity
+                            .getHierarchicalBag()
+                            .getDepth2entities()
+                            .get(0)
+                            .iterator();
+                    OEntity physicalArrivalEntity = it.next();
+                    String currentArrivalEntityName =
+                        searchParentEntityType(
+                            currentParentEntity,
+                            propertyOfKey,
+                            valueOfKey,
+                            physicalArrivalEntity,
+                            dbQueryEngine);
+                    OEntity currentArrivalEntity =
+                        mapper.getDataBaseSchema().getEntityByName(currentArrivalEntityName);
+                    currentInVertexType = mapper.getVertexTypeByEntity(currentArrivalEntity);
                   }
                 }
-                if (ok) {
-                  it =
-                      currentParentEntity
-                          .getHierarchicalBag()
-                          .getDepth2entities()
-                          .get(0)
-                          .iterator();
-                  OEntity physicalArrivalEntity = it.next();
-                  String currentArrivalEntityName =
-                      searchParentEntityType(
-                          currentParentEntity,
-                          propertyOfKey,
-                          valueOfKey,
-                          physicalArrivalEntity,
-                          dbQueryEngine);
-                  OEntity currentArrivalEntity =
-                      mapper.getDataBaseSchema().getEntityByName(currentArrivalEntityName);
-                  currentInVertexType = mapper.getVertexTypeByEntity(currentArrivalEntity);
+
+                // if currentInVertexType is null then there isn't a relationship between to
+                // records, thus the edge will not be added.
+                if (currentInVertexType != null) {
+                  edgeType = mapper.getRelationship2edgeType().get(currentRelation);
+                  graphDBCommandEngine.upsertReachedVertexWithEdge(
+                      orientGraph,
+                      currentRecord,
+                      currentRelation,
+                      currentOutVertex,
+                      currentInVertexType,
+                      edgeType.getName());
                 }
               }
 
-              // if currentInVertexType is null then there isn't a relationship between to records,
-              // thus the edge will not be added.
-              if (currentInVertexType != null) {
-                edgeType = mapper.getRelationship2edgeType().get(currentRelation);
-                graphDBCommandEngine.upsertReachedVertexWithEdge(
-                    orientGraph,
-                    currentRecord,
-                    currentRelation,
-                    currentOutVertex,
-                    currentInVertexType,
-                    edgeType.getName());
-              }
+              // Statistics updated
+              statistics.incrementAnalyzedRecords(1);
             }
-
-            // Statistics updated
-            statistics.analyzedRecords++;
+          } finally {
+            // closing resultset, connection and statement
+            queryResult.closeAll();
           }
-          // closing resultset, connection and statement
-          queryResult.closeAll();
         }
       }
       statistics.notifyListeners();
@@ -656,8 +995,6 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
 
       OTeleporterStatistics statistics = OTeleporterContext.getInstance().getStatistics();
 
-      ResultSet aggregateTableRecords = null;
-
       OEntity currentParentEntity = null;
 
       OVertexType currentOutVertexType = null;
@@ -665,148 +1002,124 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
       OVertex currentOutVertex = null;
       OEdgeType edgeType = null;
       ResultSet records;
-      ResultSet currentRecord;
       ResultSet fullRecord;
 
-      OQueryResult queryResult1 = null;
-      OQueryResult queryResult2 = null;
+      OQueryResult queryResult = null;
 
       Iterator<OEntity> it = bag.getDepth2entities().get(0).iterator();
       OEntity rootEntity = it.next();
 
+      String[] aggregateTablePropertyOfKey =
+          new String[rootEntity.getPrimaryKey().getInvolvedAttributes().size()];
+      for (int k = 0; k < aggregateTablePropertyOfKey.length; k++) {
+        aggregateTablePropertyOfKey[k] =
+            rootEntity.getPrimaryKey().getInvolvedAttributes().get(k).getName();
+      }
+
       for (int i = bag.getDepth2entities().size() - 1; i >= 0; i--) {
         for (OEntity currentEntity : bag.getDepth2entities().get(i)) {
 
-          // for each entity in dbSchema all records are retrieved
-          queryResult1 = dbQueryEngine.getRecordsByEntity(currentEntity);
-          records = queryResult1.getResult();
-          currentRecord = null;
-
-          currentOutVertexType = mapper.getVertexTypeByEntity(currentEntity);
-
-          // each record is imported as vertex in the orient graph
-          while (records.next()) {
-            queryResult2 = dbQueryEngine.buildAggregateTableFromHierarchicalBag(bag);
-            aggregateTableRecords = queryResult2.getResult();
-
-            // upsert of the vertex
-            currentRecord = records;
-
-            // lookup in the aggregateTable
-            String[] propertyOfKey =
-                new String[rootEntity.getPrimaryKey().getInvolvedAttributes().size()];
-            String[] valueOfKey =
-                new String[rootEntity.getPrimaryKey().getInvolvedAttributes().size()];
-            String[] aggregateTablePropertyOfKey =
-                new String[rootEntity.getPrimaryKey().getInvolvedAttributes().size()];
-
-            for (int k = 0; k < propertyOfKey.length; k++) {
-              propertyOfKey[k] =
-                  currentEntity.getPrimaryKey().getInvolvedAttributes().get(k).getName();
-            }
+          // the records of the entity are fetched already joined with the other tables of the
+          // hierarchy, so each one is a full record of the aggregate table
+          queryResult = dbQueryEngine.buildAggregateTableFromHierarchicalBag(bag, currentEntity);
+          try {
+            records = queryResult.getResult();
 
-            for (int k = 0; k < propertyOfKey.length; k++) {
-              valueOfKey[k] = currentRecord.getString(propertyOfKey[k]);
-            }
-
-            for (int k = 0; k < aggregateTablePropertyOfKey.length; k++) {
-              aggregateTablePropertyOfKey[k] =
-                  rootEntity.getPrimaryKey().getInvolvedAttributes().get(k).getName();
-            }
-            // lookup
-            fullRecord =
-                this.getFullRecordByAggregateTable(
-                    aggregateTableRecords, aggregateTablePropertyOfKey, valueOfKey);
-
-            // record imported if is not present in OrientDB
+            currentOutVertexType = mapper.getVertexTypeByEntity(currentEntity);
             Set<String> propertiesOfIndex =
                 this.transformAggregateTablePropertyOfKey(
                     aggregateTablePropertyOfKey, currentEntity);
 
-            if (!graphDBCommandEngine.alreadyFullImportedInOrient(
-                orientGraph, fullRecord, currentOutVertexType, propertiesOfIndex)) {
+            // each record is imported as vertex in the orient graph
+            while (records.next()) {
 
-              currentOutVertex =
-                  (OVertex)
-                      graphDBCommandEngine.upsertVisitedVertex(
-                          orientGraph, fullRecord, currentOutVertexType, propertiesOfIndex);
+              fullRecord = records;
 
-              // for each attribute of the entity belonging to the primary key, correspondent
-              // relationship is
-              // built as edge and for the referenced record a vertex is built (only id)
-              for (OCanonicalRelationship currentRelation :
-                  currentEntity.getAllOutCanonicalRelationships()) {
+              // record imported if is not present in OrientDB
+              if (!graphDBCommandEngine.alreadyFullImportedInOrient(
+                  orientGraph, fullRecord, currentOutVertexType, propertiesOfIndex)) {
 
-                currentParentEntity =
-                    mapper
-                        .getDataBaseSchema()
-                        .getEntityByNameIgnoreCase(currentRelation.getParentEntity().getName());
-                currentInVertexType = null; // reset for the current iteration
+                currentOutVertex =
+                    (OVertex)
+                        graphDBCommandEngine.upsertVisitedVertex(
+                            orientGraph, fullRecord, currentOutVertexType, propertiesOfIndex);
 
-                // checking if parent table belongs to a hierarchical bag
-                if (currentParentEntity.getHierarchicalBag() == null) {
-                  currentInVertexType =
-                      mapper.getVertexTypeByEntity(currentRelation.getParentEntity());
-                }
+                // for each attribute of the entity belonging to the primary key, correspondent
+                // relationship is
+                // built as edge and for the referenced record a vertex is built (only id)
+                for (OCanonicalRelationship currentRelation :
+                    currentEntity.getAllOutCanonicalRelationships()) {
 
-                // if the parent entity belongs to hierarchical bag, we need to know which is it the
-                // more stringent subclass of the record with a certain id
-                else if (!currentEntity
-                    .getHierarchicalBag()
-                    .equals(currentParentEntity.getHierarchicalBag())) {
-                  propertyOfKey = new String[currentRelation.getFromColumns().size()];
-                  valueOfKey = new String[currentRelation.getFromColumns().size()];
+                  currentParentEntity =
+                      mapper
+                          .getDataBaseSchema()
+                          .getEntityByNameIgnoreCase(currentRelation.getParentEntity().getName());
+                  currentInVertexType = null; // reset for the current iteration
 
-                  int index = 0;
-                  for (OAttribute foreignAttribute : currentRelation.getFromColumns()) {
-                    propertyOfKey[index] = currentRelation.getToColumns().get(index).getName();
-                    valueOfKey[index] = fullRecord.getString((foreignAttribute.getName()));
-                    index++;
+                  // checking if parent table belongs to a hierarchical bag
+                  if (currentParentEntity.getHierarchicalBag() == null) {
+                    currentInVertexType =
+                        mapper.getVertexTypeByEntity(currentRelation.getParentEntity());
                   }
 
-                  // search is performed only if all the values in the foreign key are different
-                  // from null (the relationship is inherited and is also consistent)
-                  boolean ok = true;
+                  // if the parent entity belongs to hierarchical bag, we need to know which is it
+                  // the more stringent subclass of the record with a certain id
+                  else if (!currentEntity
+                      .getHierarchicalBag()
+                      .equals(currentParentEntity.getHierarchicalBag())) {
+                    String[] propertyOfKey = new String[currentRelation.getFromColumns().size()];
+                    String[] valueOfKey = new String[currentRelation.getFromColumns().size()];
+
+                    int index = 0;
+                    for (OAttribute foreignAttribute : currentRelation.getFromColumns()) {
+                      propertyOfKey[index] = currentRelation.getToColumns().get(index).getName();
+                      valueOfKey[index] =
+                          OColumnOrdinals.getString(fullRecord, foreignAttribute.getName());
+                      index++;
+                    }
 
-                  for (int j = 0; j < valueOfKey.length; j++) {
-                    if (valueOfKey[j] == null) {
-                      ok = false;
-                      break;
+                    // search is performed only if all the values in the foreign key are different
+                    // from null (the relationship is inherited and is also consistent)
+                    boolean ok = true;
+
+                    for (int j = 0; j < valueOfKey.length; j++) {
+                      if (valueOfKey[j] == null) {
+                        ok = false;
+                        break;
+                      }
+                    }
+                    if (ok) {
+                      String currentArrivalEntityName =
+                          searchParentEntityType(
+                              currentParentEntity, propertyOfKey, valueOfKey, null, dbQueryEngine);
+                      OEntity currentArrivalEntity =
+                          mapper.getDataBaseSchema().getEntityByName(currentArrivalEntityName);
+                      currentInVertexType = mapper.getVertexTypeByEntity(currentArrivalEntity);
                     }
                   }
-                  if (ok) {
-                    String currentArrivalEntityName =
-                        searchParentEntityType(
-                            currentParentEntity, propertyOfKey, valueOfKey, null, dbQueryEngine);
-                    OEntity currentArrivalEntity =
-                        mapper.getDataBaseSchema().getEntityByName(currentArrivalEntityName);
-                    currentInVertexType = mapper.getVertexTypeByEntity(currentArrivalEntity);
-                  }
-                }
 
-                // if currentInVertexType is null then there isn't a relationship between to
-                // records, thus the edge will not be added.
-                if (currentInVertexType != null) {
-                  edgeType = mapper.getRelationship2edgeType().get(currentRelation);
-                  graphDBCommandEngine.upsertReachedVertexWithEdge(
-                      orientGraph,
-                      fullRecord,
-                      currentRelation,
-                      currentOutVertex,
-                      currentInVertexType,
-                      edgeType.getName());
+                  // if currentInVertexType is null then there isn't a relationship between to
+                  // records, thus the edge will not be added.
+                  if (currentInVertexType != null) {
+                    edgeType = mapper.getRelationship2edgeType().get(currentRelation);
+                    graphDBCommandEngine.upsertReachedVertexWithEdge(
+                        orientGraph,
+                        fullRecord,
+                        currentRelation,
+                        currentOutVertex,
+                        currentInVertexType,
+                        edgeType.getName());
+                  }
                 }
               }
-            }
-
-            // closing aggregateTable result
-            queryResult2.closeAll();
 
-            // Statistics updated
-            statistics.analyzedRecords++;
+              // Statistics updated
+              statistics.incrementAnalyzedRecords(1);
+            }
+          } finally {
+            // closing resultset, connection and statement
+            queryResult.closeAll();
           }
-          // closing resultset, connection and statement
-          queryResult1.closeAll();
         }
       }
       statistics.notifyListeners();
@@ -859,113 +1172,115 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
 
           // for each entity in dbSchema all records are retrieved
           queryResult = dbQueryEngine.getRecordsByEntity(currentEntity);
-          records = queryResult.getResult();
-          currentRecord = null;
-
-          currentOutVertexType = mapper.getVertexTypeByEntity(currentEntity);
-
-          // each record is imported as vertex in the orient graph
-          while (records.next()) {
-
-            // upsert of the vertex
-            currentRecord = records;
-
-            // record imported if is not present in OrientDB
-            String[] propertyOfKey =
-                new String[currentEntity.getPrimaryKey().getInvolvedAttributes().size()];
-
-            for (int k = 0; k < propertyOfKey.length; k++) {
-              propertyOfKey[k] =
-                  currentEntity.getPrimaryKey().getInvolvedAttributes().get(k).getName();
-            }
-
-            Set<String> propertiesOfIndex =
-                this.transformAggregateTablePropertyOfKey(
-                    propertyOfKey,
-                    currentEntity); // we need the key of original table, because we are working on
-            // it
+          try {
+            records = queryResult.getResult();
+            currentRecord = null;
 
-            if (!graphDBCommandEngine.alreadyFullImportedInOrient(
-                orientGraph, currentRecord, currentOutVertexType, propertiesOfIndex)) {
+            currentOutVertexType = mapper.getVertexTypeByEntity(currentEntity);
 
-              currentOutVertex =
-                  (OVertex)
-                      graphDBCommandEngine.upsertVisitedVertex(
-                          orientGraph, currentRecord, currentOutVertexType, propertiesOfIndex);
+            // each record is imported as vertex in the orient graph
+            while (records.next()) {
 
-              // for each attribute of the entity belonging to the primary key, correspondent
-              // relationship is
-              // built as edge and for the referenced record a vertex is built (only id)
-              for (OCanonicalRelationship currentRelation :
-                  currentEntity.getAllOutCanonicalRelationships()) {
-
-                currentParentEntity =
-                    mapper
-                        .getDataBaseSchema()
-                        .getEntityByNameIgnoreCase(currentRelation.getParentEntity().getName());
-                currentInVertexType = null; // reset for the current iteration
+              // upsert of the vertex
+              currentRecord = records;
 
-                // checking if parent table belongs to a hierarchical bag
-                if (currentParentEntity.getHierarchicalBag() == null) {
-                  currentInVertexType =
-                      mapper.getVertexTypeByEntity(currentRelation.getParentEntity());
-                }
+              // record imported if is not present in OrientDB
+              String[] propertyOfKey =
+                  new String[currentEntity.getPrimaryKey().getInvolvedAttributes().size()];
 
-                // if the parent entity belongs to hierarchical bag, we need to know which is it the
-                // more stringent subclass of the record with a certain id
-                else if (!currentEntity
-                    .getHierarchicalBag()
-                    .equals(currentParentEntity.getHierarchicalBag())) {
-                  propertyOfKey = new String[currentRelation.getFromColumns().size()];
-                  String[] valueOfKey = new String[currentRelation.getFromColumns().size()];
+              for (int k = 0; k < propertyOfKey.length; k++) {
+                propertyOfKey[k] =
+                    currentEntity.getPrimaryKey().getInvolvedAttributes().get(k).getName();
+              }
 
-                  int index = 0;
-                  for (OAttribute foreignAttribute : currentRelation.getFromColumns()) {
-                    propertyOfKey[index] = currentRelation.getToColumns().get(index).getName();
-                    valueOfKey[index] = currentRecord.getString((foreignAttribute.getName()));
-                    index++;
+              // we need the key of original table, because we are working on it
+              Set<String> propertiesOfIndex =
+                  this.transformAggregateTablePropertyOfKey(propertyOfKey, currentEntity);
+
+              if (!graphDBCommandEngine.alreadyFullImportedInOrient(
+                  orientGraph, currentRecord, currentOutVertexType, propertiesOfIndex)) {
+
+                currentOutVertex =
+                    (OVertex)
+                        graphDBCommandEngine.upsertVisitedVertex(
+                            orientGraph, currentRecord, currentOutVertexType, propertiesOfIndex);
+
+                // for each attribute of the entity belonging to the primary key, correspondent
+                // relationship is
+                // built as edge and for the referenced record a vertex is built (only id)
+                for (OCanonicalRelationship currentRelation :
+                    currentEntity.getAllOutCanonicalRelationships()) {
+
+                  currentParentEntity =
+                      mapper
+                          .getDataBaseSchema()
+                          .getEntityByNameIgnoreCase(currentRelation.getParentEntity().getName());
+                  currentInVertexType = null; // reset for the current iteration
+
+                  // checking if parent table belongs to a hierarchical bag
+                  if (currentParentEntity.getHierarchicalBag() == null) {
+                    currentInVertexType =
+                        mapper.getVertexTypeByEntity(currentRelation.getParentEntity());
                   }
 
-                  // search is performed only if all the values in the foreign key are different
-                  // from null (the relationship is inherited and is also consistent)
-                  boolean ok = true;
+                  // if the parent entity belongs to hierarchical bag, we need to know which is it
+                  // the more stringent subclass of the record with a certain id
+                  else if (!currentEntity
+                      .getHierarchicalBag()
+                      .equals(currentParentEntity.getHierarchicalBag())) {
+                    propertyOfKey = new String[currentRelation.getFromColumns().size()];
+                    String[] valueOfKey = new String[currentRelation.getFromColumns().size()];
+
+                    int index = 0;
+                    for (OAttribute foreignAttribute : currentRelation.getFromColumns()) {
+                      propertyOfKey[index] = currentRelation.getToColumns().get(index).getName();
+                      valueOfKey[index] =
+                          OColumnOrdinals.getString(currentRecord, foreignAttribute.getName());
+                      index++;
+                    }
 
-                  for (int j = 0; j < valueOfKey.length; j++) {
-                    if (valueOfKey[j] == null) {
-                      ok = false;
-                      break;
+                    // search is performed only if all the values in the foreign key are different
+                    // from null (the relationship is inherited and is also consistent)
+                    boolean ok = true;
+
+                    for (int j = 0; j < valueOfKey.length; j++) {
+                      if (valueOfKey[j] == null) {
+                        ok = false;
+                        break;
+                      }
+                    }
+                    if (ok) {
+                      String currentArrivalEntityName =
+                          searchParentEntityType(
+                              currentParentEntity, propertyOfKey, valueOfKey, null, dbQueryEngine);
+                      OEntity currentArrivalEntity =
+                          mapper.getDataBaseSchema().getEntityByName(currentArrivalEntityName);
+                      currentInVertexType = mapper.getVertexTypeByEntity(currentArrivalEntity);
                     }
                   }
-                  if (ok) {
-                    String currentArrivalEntityName =
-                        searchParentEntityType(
-                            currentParentEntity, propertyOfKey, valueOfKey, null, dbQueryEngine);
-                    OEntity currentArrivalEntity =
-                        mapper.getDataBaseSchema().getEntityByName(currentArrivalEntityName);
-                    currentInVertexType = mapper.getVertexTypeByEntity(currentArrivalEntity);
-                  }
-                }
 
-                // if currentInVertexType is null then there isn't a relationship between to
-                // records, thus the edge will not be added.
-                if (currentInVertexType != null) {
-                  edgeType = mapper.getRelationship2edgeType().get(currentRelation);
-                  graphDBCommandEngine.upsertReachedVertexWithEdge(
-                      orientGraph,
-                      currentRecord,
-                      currentRelation,
-                      currentOutVertex,
-                      currentInVertexType,
-                      edgeType.getName());
+                  // if currentInVertexType is null then there isn't a relationship between to
+                  // records, thus the edge will not be added.
+                  if (currentInVertexType != null) {
+                    edgeType = mapper.getRelationship2edgeType().get(currentRelation);
+                    graphDBCommandEngine.upsertReachedVertexWithEdge(
+                        orientGraph,
+                        currentRecord,
+                        currentRelation,
+                        currentOutVertex,
+                        currentInVertexType,
+                        edgeType.getName());
+                  }
                 }
               }
-            }
 
-            // Statistics updated
-            statistics.analyzedRecords++;
+              // Statistics updated
+              statistics.incrementAnalyzedRecords(1);
+            }
+          } finally {
+            // closing resultset, connection and statement
+            queryResult.closeAll();
           }
-          // closing resultset, connection and statement
-          queryResult.closeAll();
         }
       }
       statistics.notifyListeners();
@@ -1012,6 +1327,13 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
       OEntity physicalArrivalEntity,
       ODBQueryEngine dbQueryEngine) {
 
+    OHierarchicalTypeResolver typeResolver =
+        this.getTypeResolver(currentParentEntity.getHierarchicalBag(), dbQueryEngine);
+    if (typeResolver != null) {
+      return typeResolver.resolve(currentParentEntity, propertyOfKey, valueOfKey);
+    }
+
+    // too many keys to be loaded, the type of each record is queried
     switch (currentParentEntity.getHierarchicalBag().getInheritancePattern()) {
       case "table-per-hierarchy":
         return searchParentEntityTypeFromSingleTable(
@@ -1029,6 +1351,36 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
     return null;
   }
 
+  /**
+   * It returns the key-to-type resolver of the bag, loading it on first use.
+   *
+   * @param bag
+   * @param dbQueryEngine
+   * @return the resolver, null if the keys of the bag can't be loaded
+   */
+  private synchronized OHierarchicalTypeResolver getTypeResolver(
+      OHierarchicalBag bag, ODBQueryEngine dbQueryEngine) {
+
+    OHierarchicalTypeResolver typeResolver = this.bag2typeResolver.get(bag);
+    if (typeResolver == null) {
+      int maxKeys =
+          OTeleporterContext.getInstance().getImportSettings().getTypeResolverCacheSize();
+      typeResolver = new OHierarchicalTypeResolver(bag, maxKeys);
+      if (maxKeys > 0) {
+        try {
+          typeResolver.load(dbQueryEngine);
+        } catch (SQLException e) {
+          String mess = "Problem encountered while loading the keys of a hierarchy.";
+          OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
+          OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
+          throw new OTeleporterRuntimeException(e);
+        }
+      }
+      this.bag2typeResolver.put(bag, typeResolver);
+    }
+    return typeResolver.isLoaded() ? typeResolver : null;
+  }
+
   /**
    * @param currentParentEntity
    * @param valueOfKey
@@ -1053,9 +1405,14 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
       OQueryResult queryResult =
           dbQueryEngine.getEntityTypeFromSingleTable(
               discriminatorColumn, physicalEntity, propertyOfKey, valueOfKey);
-      ResultSet result = queryResult.getResult();
-      result.next();
-      String discriminatorValue = result.getString(discriminatorColumn);
+      String discriminatorValue;
+      try {
+        ResultSet result = queryResult.getResult();
+        result.next();
+        discriminatorValue = result.getString(discriminatorColumn);
+      } finally {
+        queryResult.closeAll();
+      }
 
       for (String currentEntityName : hierarchicalBag.getEntityName2discriminatorValue().keySet()) {
         if (hierarchicalBag
@@ -1108,15 +1465,21 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
           }
 
           queryResult = dbQueryEngine.getRecordById(currentEntity, propertyOfKey, valueOfKey);
-          result = queryResult.getResult();
+          boolean found;
+          try {
+            result = queryResult.getResult();
+            found = result.next();
+          } finally {
+            queryResult.closeAll();
+          }
 
-          if (result != null) {
+          if (found) {
             entityName = currentEntity.getName();
             break;
           }
         }
 
-        if (result != null) {
+        if (entityName != null) {
           break;
         }
       }
@@ -1162,15 +1525,21 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
           }
 
           queryResult = dbQueryEngine.getRecordById(currentEntity, propertyOfKey, valueOfKey);
-          result = queryResult.getResult();
+          boolean found;
+          try {
+            result = queryResult.getResult();
+            found = result.next();
+          } finally {
+            queryResult.closeAll();
+          }
 
-          if (result != null) {
+          if (found) {
             entityName = currentEntity.getName();
             break;
           }
         }
 
-        if (result != null) {
+        if (entityName != null) {
           break;
         }
       }
@@ -1185,50 +1554,6 @@ public abstract class OAbstractDBMSImportStrategy implements OWorkflowStrategy {
     return entityName;
   }
 
-  /**
-   * @param aggregateTableRecords
-   * @param aggregateTablePropertyOfKey
-   * @param valueOfKey
-   * @return
-   */
-  private ResultSet getFullRecordByAggregateTable(
-      ResultSet aggregateTableRecords, String[] aggregateTablePropertyOfKey, String[] valueOfKey) {
-
-    ResultSet fullRecord = null;
-    String[] currentValueOfKey = new String[aggregateTablePropertyOfKey.length];
-    boolean equals;
-
-    try {
-
-      while (aggregateTableRecords.next()) {
-
-        for (int i = 0; i < aggregateTablePropertyOfKey.length; i++) {
-          currentValueOfKey[i] = aggregateTableRecords.getString(aggregateTablePropertyOfKey[i]);
-        }
-
-        equals = true;
-        for (int j = 0; j < valueOfKey.length; j++) {
-          if (!valueOfKey[j].equals(currentValueOfKey[j])) {
-            equals = false;
-            break;
-          }
-        }
-
-        if (equals) {
-          fullRecord = aggregateTableRecords;
-          return fullRecord;
-        }
-      }
-    } catch (Exception e) {
-      String mess = "";
-      OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
-      OTeleporterContext.getInstance().printExceptionStackTrace(e, "error");
-      throw new OTeleporterRuntimeException(e);
-    }
-
-    return fullRecord;
-  }
-
   protected boolean hasGeospatialAttributes(OEntity entity, ODBMSDataTypeHandler handler) {
 
     for (OAttribute currentAttribute : entity.getAllAttributes()) {
@@ -44,9 +44,13 @@ import com.orientechnologies.teleporter.persistence.util.OQueryResult;
 import com.orientechnologies.teleporter.writer.OGraphModelWriter;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A strategy that performs a "naive" import of the data source. The data source schema is
@@ -181,11 +185,15 @@ public class ODBMSNaiveAggregationStrategy extends OAbstractDBMSImportStrategy {
       super.importEntitiesBelongingToHierarchies(dbQueryEngine, graphEngine, orientGraph);
 
       // Importing from Entities NOT belonging to hierarchical bags NOR corresponding to join tables
+      // (in parallel when enabled)
+      OParallelImportExecutor executor = super.buildParallelImportExecutor(dbName);
+      OParallelImportExecutor edgeExecutor = super.buildEdgeImportExecutor(dbName);
+      Set<OEntity> scheduledSplitEntities = new HashSet<OEntity>();
       for (OVertexType currentOutVertexType : mapper.getVertexType2EVClassMappers().keySet()) {
 
         List<OEVClassMapper> classMappersByVertex =
             ((OER2GraphMapper) super.mapper).getEVClassMappersByVertex(currentOutVertexType);
-        List<OEntity> mappedEntities = new LinkedList<OEntity>();
+        final List<OEntity> mappedEntities = new LinkedList<OEntity>();
 
         // checking condition
         boolean allEntitiesNotAggregableAndNotBelongingToHierarchies = true;
@@ -201,22 +209,34 @@ public class ODBMSNaiveAggregationStrategy extends OAbstractDBMSImportStrategy {
 
         if (allEntitiesNotAggregableAndNotBelongingToHierarchies) {
 
-          String[][] aggregationColumns = null;
-
           //  classes' aggregation case
           if (mappedEntities.size() > 1) {
             OConfiguredVertexClass configuredVertex =
                 mapper.getMigrationConfig().getVertexByMappedEntities(mappedEntities);
-            aggregationColumns =
+            final String[][] currentAggregationColumns =
                 super.buildAggregationColumnsFromAggregatedVertex(configuredVertex);
             if (!currentOutVertexType.isAnalyzedInLastMigration()) {
-              super.importRecordsFromEntitiesIntoVertexClass(
+              super.scheduleVertexClassImport(
+                  executor,
+                  orientGraph,
+                  "'" + currentOutVertexType.getName() + "' vertex class",
+                  super.buildWrittenVertexTypes(
+                      mappedEntities, Collections.singleton(currentOutVertexType)),
+                  session ->
+                      super.importRecordsFromEntitiesIntoVertexClass(
+                          mappedEntities,
+                          currentAggregationColumns,
+                          currentOutVertexType,
+                          dbQueryEngine,
+                          graphEngine,
+                          session));
+              super.scheduleEdgesImport(
+                  edgeExecutor,
                   mappedEntities,
-                  aggregationColumns,
+                  currentAggregationColumns,
                   currentOutVertexType,
                   dbQueryEngine,
-                  graphEngine,
-                  orientGraph);
+                  graphEngine);
             }
           } else if (mappedEntities.size() == 1) {
 
@@ -226,37 +246,68 @@ public class ODBMSNaiveAggregationStrategy extends OAbstractDBMSImportStrategy {
             // 1-1 mapping
             if (classMappersByEntity.size() == 1) {
               if (!currentOutVertexType.isAnalyzedInLastMigration()) {
-                super.importRecordsFromEntitiesIntoVertexClass(
+                super.scheduleVertexClassImport(
+                    executor,
+                    orientGraph,
+                    "'" + currentOutVertexType.getName() + "' vertex class",
+                    super.buildWrittenVertexTypes(
+                        mappedEntities, Collections.singleton(currentOutVertexType)),
+                    session ->
+                        super.importRecordsFromEntitiesIntoVertexClass(
+                            mappedEntities,
+                            null,
+                            currentOutVertexType,
+                            dbQueryEngine,
+                            graphEngine,
+                            session));
+                super.scheduleEdgesImport(
+                    edgeExecutor,
                     mappedEntities,
-                    aggregationColumns,
+                    null,
                     currentOutVertexType,
                     dbQueryEngine,
-                    graphEngine,
-                    orientGraph);
+                    graphEngine);
               }
             }
 
             // splitting case (1-N)
             else if (classMappersByEntity.size() > 1) {
-              List<OVertexType> mappedVertices = new LinkedList<OVertexType>();
-              for (OEVClassMapper classMapper : classMappersByVertex) {
+              final List<OVertexType> mappedVertices = new LinkedList<OVertexType>();
+              for (OEVClassMapper classMapper : classMappersByEntity) {
                 mappedVertices.add(classMapper.getVertexType());
               }
-              if (!currentOutVertexType.isAnalyzedInLastMigration()) {
-                super.importRecordsFromSplitEntityIntoVertexClasses(
-                    mappedEntities, mappedVertices, dbQueryEngine, graphEngine, orientGraph);
+              // the entity is imported once into all its vertex classes: in parallel mode they are
+              // marked as analyzed only when the task runs, so the entity is tracked when scheduled
+              if (!currentOutVertexType.isAnalyzedInLastMigration()
+                  && scheduledSplitEntities.add(mappedEntities.get(0))) {
+                super.scheduleVertexClassImport(
+                    executor,
+                    orientGraph,
+                    "'" + mappedEntities.get(0).getName() + "' split entity",
+                    super.buildWrittenVertexTypes(mappedEntities, mappedVertices),
+                    session ->
+                        super.importRecordsFromSplitEntityIntoVertexClasses(
+                            mappedEntities, mappedVertices, dbQueryEngine, graphEngine, session));
               }
             }
           }
         }
       }
+      if (executor != null) {
+        executor.execute();
+      }
+
+      // two-phase import: the edges are built once all the vertices are imported
+      if (edgeExecutor != null) {
+        edgeExecutor.execute();
+      }
 
       // Importing from Entities NOT belonging to hierarchical bags and corresponding to join tables
       for (OVertexType currentOutVertexType : mapper.getVertexType2EVClassMappers().keySet()) {
 
         List<OEVClassMapper> classMappers =
             ((OER2GraphMapper) super.mapper).getEVClassMappersByVertex(currentOutVertexType);
-        List<OEntity> mappedEntities = new LinkedList<OEntity>();
+        final List<OEntity> mappedEntities = new LinkedList<OEntity>();
 
         // checking condition
         boolean allEntitiesAggregableAndNotBelongingToHierarchies = true;
@@ -283,10 +334,27 @@ public class ODBMSNaiveAggregationStrategy extends OAbstractDBMSImportStrategy {
         }
 
         if (allEntitiesAggregableAndNotBelongingToHierarchies) {
-          this.importJoinTableRecordIntoEdgeClass(
-              mappedEntities, dbQueryEngine, graphEngine, orientGraph);
+          OAggregatorEdge aggregatorEdge =
+              this.mapper.getAggregatorEdgeByJoinVertexTypeName(
+                  this.mapper.getVertexTypeByEntity(mappedEntities.get(0)).getName());
+          Set<OVertexType> writtenVertexTypes = new LinkedHashSet<OVertexType>();
+          writtenVertexTypes.add(
+              mapper.getGraphModel().getVertexTypeByName(aggregatorEdge.getOutVertexClassName()));
+          writtenVertexTypes.add(
+              mapper.getGraphModel().getVertexTypeByName(aggregatorEdge.getInVertexClassName()));
+          super.scheduleVertexClassImport(
+              executor,
+              orientGraph,
+              "'" + mappedEntities.get(0).getName() + "' join table",
+              writtenVertexTypes,
+              session ->
+                  this.importJoinTableRecordIntoEdgeClass(
+                      mappedEntities, dbQueryEngine, graphEngine, session));
         }
       }
+      if (executor != null) {
+        executor.execute();
+      }
 
       statistics.notifyListeners();
       statistics.runningStepNumber = -1;
@@ -335,7 +403,7 @@ public class ODBMSNaiveAggregationStrategy extends OAbstractDBMSImportStrategy {
       graphEngine.upsertAggregatorEdge(orientGraph, currentRecord, joinTable, aggregatorEdge);
 
       // Statistics updated
-      statistics.analyzedRecords++;
+      statistics.incrementAnalyzedRecords(1);
     }
     // closing resultset, connection and statement
     queryResult.closeAll();
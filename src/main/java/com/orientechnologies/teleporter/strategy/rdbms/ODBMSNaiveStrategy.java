@@ -40,9 +40,12 @@ import com.orientechnologies.teleporter.model.graphmodel.OVertexType;
 import com.orientechnologies.teleporter.nameresolver.ONameResolver;
 import com.orientechnologies.teleporter.persistence.handler.ODBMSDataTypeHandler;
 import com.orientechnologies.teleporter.writer.OGraphModelWriter;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A strategy that performs a "naive" import of the data source. The data source schema is
@@ -163,12 +166,15 @@ public class ODBMSNaiveStrategy extends OAbstractDBMSImportStrategy {
       // Importing from Entities belonging to hierarchical bags
       super.importEntitiesBelongingToHierarchies(dbQueryEngine, graphEngine, orientGraph);
 
-      // Importing from Entities NOT belonging to hierarchical bags
+      // Importing from Entities NOT belonging to hierarchical bags (in parallel when enabled)
+      OParallelImportExecutor executor = super.buildParallelImportExecutor(dbName);
+      OParallelImportExecutor edgeExecutor = super.buildEdgeImportExecutor(dbName);
+      Set<OEntity> scheduledSplitEntities = new HashSet<OEntity>();
       for (OVertexType currentOutVertexType : mapper.getVertexType2EVClassMappers().keySet()) {
 
         List<OEVClassMapper> classMappersByVertex =
             ((OER2GraphMapper) super.mapper).getEVClassMappersByVertex(currentOutVertexType);
-        List<OEntity> mappedEntities = new LinkedList<OEntity>();
+        final List<OEntity> mappedEntities = new LinkedList<OEntity>();
 
         // checking condition
         boolean allEntitiesNotBelongingToHierarchies = true;
@@ -184,22 +190,34 @@ public class ODBMSNaiveStrategy extends OAbstractDBMSImportStrategy {
 
         if (allEntitiesNotBelongingToHierarchies) {
 
-          String[][] aggregationColumns = null;
-
           //  classes' aggregation case
           if (mappedEntities.size() > 1) {
             OConfiguredVertexClass configuredVertex =
                 mapper.getMigrationConfig().getVertexByMappedEntities(mappedEntities);
-            aggregationColumns =
+            final String[][] currentAggregationColumns =
                 super.buildAggregationColumnsFromAggregatedVertex(configuredVertex);
             if (!currentOutVertexType.isAnalyzedInLastMigration()) {
-              super.importRecordsFromEntitiesIntoVertexClass(
+              super.scheduleVertexClassImport(
+                  executor,
+                  orientGraph,
+                  "'" + currentOutVertexType.getName() + "' vertex class",
+                  super.buildWrittenVertexTypes(
+                      mappedEntities, Collections.singleton(currentOutVertexType)),
+                  session ->
+                      super.importRecordsFromEntitiesIntoVertexClass(
+                          mappedEntities,
+                          currentAggregationColumns,
+                          currentOutVertexType,
+                          dbQueryEngine,
+                          graphEngine,
+                          session));
+              super.scheduleEdgesImport(
+                  edgeExecutor,
                   mappedEntities,
-                  aggregationColumns,
+                  currentAggregationColumns,
                   currentOutVertexType,
                   dbQueryEngine,
-                  graphEngine,
-                  orientGraph);
+                  graphEngine);
             }
           } else if (mappedEntities.size() == 1) {
 
@@ -209,30 +227,61 @@ public class ODBMSNaiveStrategy extends OAbstractDBMSImportStrategy {
             // 1-1 mapping
             if (classMappersByEntity.size() == 1) {
               if (!currentOutVertexType.isAnalyzedInLastMigration()) {
-                super.importRecordsFromEntitiesIntoVertexClass(
+                super.scheduleVertexClassImport(
+                    executor,
+                    orientGraph,
+                    "'" + currentOutVertexType.getName() + "' vertex class",
+                    super.buildWrittenVertexTypes(
+                        mappedEntities, Collections.singleton(currentOutVertexType)),
+                    session ->
+                        super.importRecordsFromEntitiesIntoVertexClass(
+                            mappedEntities,
+                            null,
+                            currentOutVertexType,
+                            dbQueryEngine,
+                            graphEngine,
+                            session));
+                super.scheduleEdgesImport(
+                    edgeExecutor,
                     mappedEntities,
-                    aggregationColumns,
+                    null,
                     currentOutVertexType,
                     dbQueryEngine,
-                    graphEngine,
-                    orientGraph);
+                    graphEngine);
               }
             }
 
             // splitting case (1-N)
             else if (classMappersByEntity.size() > 1) {
-              List<OVertexType> mappedVertices = new LinkedList<OVertexType>();
+              final List<OVertexType> mappedVertices = new LinkedList<OVertexType>();
               for (OEVClassMapper classMapper : classMappersByEntity) {
                 mappedVertices.add(classMapper.getVertexType());
               }
-              if (!currentOutVertexType.isAnalyzedInLastMigration()) {
-                super.importRecordsFromSplitEntityIntoVertexClasses(
-                    mappedEntities, mappedVertices, dbQueryEngine, graphEngine, orientGraph);
+              // the entity is imported once into all its vertex classes: in parallel mode they are
+              // marked as analyzed only when the task runs, so the entity is tracked when scheduled
+              if (!currentOutVertexType.isAnalyzedInLastMigration()
+                  && scheduledSplitEntities.add(mappedEntities.get(0))) {
+                super.scheduleVertexClassImport(
+                    executor,
+                    orientGraph,
+                    "'" + mappedEntities.get(0).getName() + "' split entity",
+                    super.buildWrittenVertexTypes(mappedEntities, mappedVertices),
+                    session ->
+                        super.importRecordsFromSplitEntityIntoVertexClasses(
+                            mappedEntities, mappedVertices, dbQueryEngine, graphEngine, session));
               }
             }
           }
         }
       }
+      if (executor != null) {
+        executor.execute();
+      }
+
+      // two-phase import: the edges are built once all the vertices are imported
+      if (edgeExecutor != null) {
+        edgeExecutor.execute();
+      }
 
       statistics.notifyListeners();
       statistics.runningStepNumber = -1;
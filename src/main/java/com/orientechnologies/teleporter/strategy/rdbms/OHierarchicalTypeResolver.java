@@ -0,0 +1,312 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.strategy.rdbms;
+
+import com.orientechnologies.orient.output.OOutputStreamManager;
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
+import com.orientechnologies.teleporter.model.dbschema.OAttribute;
+import com.orientechnologies.teleporter.model.dbschema.OEntity;
+import com.orientechnologies.teleporter.model.dbschema.OHierarchicalBag;
+import com.orientechnologies.teleporter.persistence.util.OColumnOrdinals;
+import com.orientechnologies.teleporter.persistence.util.OLongPairMap;
+import com.orientechnologies.teleporter.persistence.util.OQueryResult;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the most specific entity of a hierarchical bag containing the record with a given key.
+ * All the keys of the bag are loaded at once, with a single scan of the discriminator column for
+ * the "table per hierarchy" pattern and a scan of the key columns of each table for the other
+ * patterns, instead of querying the source database for each resolved key.
+ *
+ * <p>The loaded keys are bounded in number: when the bag contains more keys the resolver is not
+ * loaded and the keys must be resolved by querying the source database.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OHierarchicalTypeResolver {
+
+  // separates the values of composite keys
+  private static final char KEY_SEPARATOR = '\u0000';
+
+  private final OHierarchicalBag bag;
+  private final int maxKeys;
+
+  // the entities are stored in the maps by their position in this list
+  private final List<String> entityNames;
+  private final OLongPairMap numericKey2entity;
+  private final Map<String, Short> key2entity;
+  private boolean loaded;
+
+  public OHierarchicalTypeResolver(OHierarchicalBag bag, int maxKeys) {
+    this.bag = bag;
+    this.maxKeys = maxKeys;
+    this.entityNames = new ArrayList<String>();
+    this.numericKey2entity = new OLongPairMap(true);
+    this.key2entity = new HashMap<String, Short>();
+    this.loaded = false;
+  }
+
+  /**
+   * Loads all the keys of the bag, unless they are more than the max number of keys.
+   *
+   * @param dbQueryEngine
+   * @return true if the keys were loaded
+   * @throws SQLException
+   */
+  public boolean load(ODBQueryEngine dbQueryEngine) throws SQLException {
+
+    boolean complete;
+    if ("table-per-hierarchy".equals(this.bag.getInheritancePattern())) {
+      complete = this.loadFromSingleTable(dbQueryEngine);
+    } else {
+      complete = this.loadFromEntityTables(dbQueryEngine);
+    }
+
+    if (!complete) {
+      this.numericKey2entity.clear();
+      this.key2entity.clear();
+      if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+          == OOutputStreamManager.DEBUG_LEVEL) {
+        OTeleporterContext.getInstance()
+            .getMessageHandler()
+            .debug(
+                this,
+                "\nMore than %s keys in the hierarchy of '%s', types resolved record by record.\n",
+                this.maxKeys,
+                this.getRootEntity().getName());
+      }
+    }
+    this.loaded = complete;
+    return complete;
+  }
+
+  public boolean isLoaded() {
+    return this.loaded;
+  }
+
+  /**
+   * @param entity the entity of the bag referenced by the key, whose primary key attributes give
+   *     the order of the key values
+   * @param propertyOfKey the attributes of the key
+   * @param valueOfKey
+   * @return the name of the most specific entity containing the key, null if not present
+   */
+  public String resolve(OEntity entity, String[] propertyOfKey, String[] valueOfKey) {
+
+    // the keys of a single table are loaded in the order of the physical table's primary key
+    OEntity keyEntity = entity;
+    if ("table-per-hierarchy".equals(this.bag.getInheritancePattern())
+        || entity.getPrimaryKey() == null) {
+      keyEntity = this.getRootEntity();
+    }
+    List<OAttribute> keyAttributes = keyEntity.getPrimaryKey().getInvolvedAttributes();
+
+    String[] orderedValueOfKey = new String[valueOfKey.length];
+    for (int i = 0; i < valueOfKey.length; i++) {
+      orderedValueOfKey[i] = valueOfKey[i];
+      if (i < keyAttributes.size()) {
+        for (int j = 0; j < propertyOfKey.length; j++) {
+          if (keyAttributes.get(i).getName().equalsIgnoreCase(propertyOfKey[j])) {
+            orderedValueOfKey[i] = valueOfKey[j];
+            break;
+          }
+        }
+      }
+    }
+
+    int entityIndex;
+    Long numericKey = toNumericKey(orderedValueOfKey);
+    if (numericKey != null) {
+      entityIndex = (int) this.numericKey2entity.get(numericKey, 0L, -1L);
+    } else {
+      Short index = this.key2entity.get(toKey(orderedValueOfKey));
+      entityIndex = index != null ? index : -1;
+    }
+    return entityIndex >= 0 ? this.entityNames.get(entityIndex) : null;
+  }
+
+  private boolean loadFromSingleTable(ODBQueryEngine dbQueryEngine) throws SQLException {
+
+    OEntity physicalEntity = this.getRootEntity();
+    String discriminatorColumn = this.bag.getDiscriminatorColumn();
+
+    Map<String, Short> discriminatorValue2entity = new HashMap<String, Short>();
+    for (Map.Entry<String, String> entry :
+        this.bag.getEntityName2discriminatorValue().entrySet()) {
+      discriminatorValue2entity.put(entry.getValue(), this.getEntityIndex(entry.getKey()));
+    }
+
+    List<String> keyColumns = getKeyColumns(physicalEntity);
+    Set<String> columns = new LinkedHashSet<String>(keyColumns);
+    columns.add(discriminatorColumn);
+
+    OQueryResult queryResult = dbQueryEngine.getColumnsByEntity(physicalEntity, columns);
+    try {
+      ResultSet records = queryResult.getResult();
+      OColumnOrdinals ordinals = OColumnOrdinals.of(records);
+      int discriminatorOrdinal = ordinals.getOrdinal(discriminatorColumn);
+      int[] keyOrdinals = getOrdinals(ordinals, keyColumns);
+      String[] valueOfKey = new String[keyColumns.size()];
+      while (records.next()) {
+        Short entityIndex = discriminatorValue2entity.get(records.getString(discriminatorOrdinal));
+        if (entityIndex != null && readKey(records, keyOrdinals, valueOfKey)) {
+          if (!this.putIfAbsent(valueOfKey, entityIndex)) {
+            return false;
+          }
+        }
+      }
+    } finally {
+      queryResult.closeAll();
+    }
+    return true;
+  }
+
+  private boolean loadFromEntityTables(ODBQueryEngine dbQueryEngine) throws SQLException {
+
+    // the deepest entities are scanned first, so the most specific entity wins
+    for (int i = this.bag.getDepth2entities().size() - 1; i >= 0; i--) {
+      for (OEntity currentEntity : this.bag.getDepth2entities().get(i)) {
+
+        short entityIndex = this.getEntityIndex(currentEntity.getName());
+        List<String> keyColumns = getKeyColumns(currentEntity);
+
+        OQueryResult queryResult = dbQueryEngine.getColumnsByEntity(currentEntity, keyColumns);
+        try {
+          ResultSet records = queryResult.getResult();
+          int[] keyOrdinals = getOrdinals(OColumnOrdinals.of(records), keyColumns);
+          String[] valueOfKey = new String[keyColumns.size()];
+          while (records.next()) {
+            if (readKey(records, keyOrdinals, valueOfKey)) {
+              if (!this.putIfAbsent(valueOfKey, entityIndex)) {
+                return false;
+              }
+            }
+          }
+        } finally {
+          queryResult.closeAll();
+        }
+      }
+    }
+    return true;
+  }
+
+  /** @return false if the key can't be added because the max number of keys is reached */
+  private boolean putIfAbsent(String[] valueOfKey, short entityIndex) {
+
+    Long numericKey = toNumericKey(valueOfKey);
+    if (numericKey != null) {
+      if (this.numericKey2entity.containsKey(numericKey, 0L)) {
+        return true;
+      }
+      if (this.size() >= this.maxKeys) {
+        return false;
+      }
+      this.numericKey2entity.put(numericKey, 0L, entityIndex);
+    } else {
+      String key = toKey(valueOfKey);
+      if (this.key2entity.containsKey(key)) {
+        return true;
+      }
+      if (this.size() >= this.maxKeys) {
+        return false;
+      }
+      this.key2entity.put(key, entityIndex);
+    }
+    return true;
+  }
+
+  private int size() {
+    return this.numericKey2entity.size() + this.key2entity.size();
+  }
+
+  private short getEntityIndex(String entityName) {
+    int index = this.entityNames.indexOf(entityName);
+    if (index < 0) {
+      index = this.entityNames.size();
+      this.entityNames.add(entityName);
+    }
+    return (short) index;
+  }
+
+  private OEntity getRootEntity() {
+    return this.bag.getDepth2entities().get(0).iterator().next();
+  }
+
+  private static List<String> getKeyColumns(OEntity entity) {
+    List<String> keyColumns = new ArrayList<String>();
+    for (OAttribute attribute : entity.getPrimaryKey().getInvolvedAttributes()) {
+      keyColumns.add(attribute.getName());
+    }
+    return keyColumns;
+  }
+
+  private static int[] getOrdinals(OColumnOrdinals ordinals, List<String> columns)
+      throws SQLException {
+    int[] columnOrdinals = new int[columns.size()];
+    for (int i = 0; i < columnOrdinals.length; i++) {
+      columnOrdinals[i] = ordinals.getOrdinal(columns.get(i));
+    }
+    return columnOrdinals;
+  }
+
+  /** @return false if a value of the key is null */
+  private static boolean readKey(ResultSet record, int[] keyOrdinals, String[] valueOfKey)
+      throws SQLException {
+    for (int i = 0; i < valueOfKey.length; i++) {
+      valueOfKey[i] = record.getString(keyOrdinals[i]);
+      if (valueOfKey[i] == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String toKey(String[] valueOfKey) {
+    if (valueOfKey.length == 1) {
+      return valueOfKey[0];
+    }
+    StringBuilder key = new StringBuilder();
+    for (String value : valueOfKey) {
+      key.append(value).append(KEY_SEPARATOR);
+    }
+    return key.toString();
+  }
+
+  /**
+   * Returns the value as a long if the key is a single integral number in its canonical form,
+   * otherwise null.
+   */
+  static Long toNumericKey(String[] valueOfKey) {
+    if (valueOfKey.length != 1) {
+      return null;
+    }
+    return OLongPairMap.toCanonicalLong(valueOfKey[0]);
+  }
+}
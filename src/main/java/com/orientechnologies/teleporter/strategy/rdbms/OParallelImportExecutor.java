@@ -0,0 +1,223 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.strategy.rdbms;
+
+import com.orientechnologies.orient.core.db.ODatabasePool;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.output.OOutputStreamManager;
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
+import com.orientechnologies.teleporter.model.graphmodel.OElementType;
+import com.orientechnologies.teleporter.model.graphmodel.OVertexType;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the import tasks of several vertex classes on a pool of workers, each one with its own
+ * OrientDB session taken from a pool. Each task declares the vertex classes it writes (the visited
+ * ones and the reached ones): two tasks writing a class of the same hierarchy never run at the same
+ * time, so the upsert of visited and reached vertices keeps working as in the sequential import.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OParallelImportExecutor {
+
+  private final int parallelism;
+  private final String dbName;
+  private final List<OImportTask> tasks;
+
+  // guarded by "this"
+  private final Set<String> lockedClasses;
+  private int runningTasks;
+  private Exception failure;
+
+  public OParallelImportExecutor(int parallelism, String dbName) {
+    this.parallelism = parallelism;
+    this.dbName = dbName;
+    this.tasks = new LinkedList<OImportTask>();
+    this.lockedClasses = new HashSet<String>();
+    this.runningTasks = 0;
+    this.failure = null;
+  }
+
+  /**
+   * Adds a task to execute.
+   *
+   * @param description used in the log messages
+   * @param writtenVertexTypes the vertex types whose vertices are inserted or updated by the task
+   * @param body the import to perform
+   */
+  public void addTask(
+      String description, Set<OVertexType> writtenVertexTypes, OImportTaskBody body) {
+    Set<String> writtenClasses = new LinkedHashSet<String>();
+    for (OVertexType vertexType : writtenVertexTypes) {
+      if (vertexType != null) {
+        writtenClasses.add(getHierarchyRootName(vertexType));
+      }
+    }
+    this.tasks.add(new OImportTask(description, writtenClasses, body));
+  }
+
+  /**
+   * Executes all the added tasks and waits for their completion.
+   *
+   * @throws OTeleporterRuntimeException if a task failed: the tasks not yet started are skipped
+   */
+  public void execute() {
+
+    if (this.tasks.isEmpty()) {
+      return;
+    }
+
+    ExecutorService workers = Executors.newFixedThreadPool(this.parallelism);
+    ODatabasePool sessionPool =
+        new ODatabasePool(
+            OTeleporterContext.getInstance().getOrientDBInstance(), this.dbName, "admin", "admin");
+
+    try {
+      synchronized (this) {
+        List<OImportTask> pending = new ArrayList<OImportTask>(this.tasks);
+
+        while ((!pending.isEmpty() && this.failure == null) || this.runningTasks > 0) {
+
+          // starting all the tasks not conflicting with the running ones
+          Iterator<OImportTask> it = pending.iterator();
+          while (it.hasNext()
+              && this.runningTasks < this.parallelism
+              && this.failure == null) {
+            OImportTask task = it.next();
+            if (!this.isLocked(task)) {
+              it.remove();
+              this.lockedClasses.addAll(task.writtenClasses);
+              this.runningTasks++;
+              workers.execute(() -> this.run(task, sessionPool));
+            }
+          }
+
+          try {
+            this.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (this.failure == null) {
+              this.failure = e;
+            }
+            break;
+          }
+        }
+      }
+    } finally {
+      workers.shutdown();
+      try {
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      sessionPool.close();
+      this.tasks.clear();
+    }
+
+    if (this.failure != null) {
+      if (this.failure instanceof OTeleporterRuntimeException) {
+        throw (OTeleporterRuntimeException) this.failure;
+      }
+      throw new OTeleporterRuntimeException(this.failure);
+    }
+  }
+
+  private void run(OImportTask task, ODatabasePool sessionPool) {
+
+    Exception taskFailure = null;
+    ODatabaseDocument orientGraph = null;
+
+    try {
+      if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+          == OOutputStreamManager.DEBUG_LEVEL) {
+        OTeleporterContext.getInstance()
+            .getMessageHandler()
+            .debug(this, "\nImporting %s on %s...\n", task.description, Thread.currentThread());
+      }
+      orientGraph = sessionPool.acquire();
+      task.body.execute(orientGraph);
+    } catch (Exception e) {
+      String mess = "Problem encountered during the import of " + task.description + ".";
+      OTeleporterContext.getInstance().printExceptionMessage(e, mess, "error");
+      OTeleporterContext.getInstance().printExceptionStackTrace(e, "debug");
+      taskFailure = e;
+    } finally {
+      if (orientGraph != null) {
+        orientGraph.close();
+      }
+      synchronized (this) {
+        this.lockedClasses.removeAll(task.writtenClasses);
+        this.runningTasks--;
+        if (taskFailure != null && this.failure == null) {
+          this.failure = taskFailure;
+        }
+        this.notifyAll();
+      }
+    }
+  }
+
+  private boolean isLocked(OImportTask task) {
+    for (String writtenClass : task.writtenClasses) {
+      if (this.lockedClasses.contains(writtenClass)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String getHierarchyRootName(OElementType elementType) {
+    OElementType root = elementType;
+    while (root.getParentType() != null) {
+      root = root.getParentType();
+    }
+    return root.getName();
+  }
+
+  /** The import performed by a task, on the session of the worker running it. */
+  @FunctionalInterface
+  public interface OImportTaskBody {
+    void execute(ODatabaseDocument orientGraph) throws Exception;
+  }
+
+  private static class OImportTask {
+
+    private final String description;
+    private final Set<String> writtenClasses;
+    private final OImportTaskBody body;
+
+    OImportTask(String description, Set<String> writtenClasses, OImportTaskBody body) {
+      this.description = description;
+      this.writtenClasses = writtenClasses;
+      this.body = body;
+    }
+  }
+}
@@ -351,8 +351,8 @@ public class OProgressMonitor implements OStatisticsListener {
       String progressBarWork,
       long elapsedTime,
       int occurredWarnings,
-      int importedRecords,
-      int totalRecords) {
+      long importedRecords,
+      long totalRecords) {
 
     String format;
     if (importedRecords == -1 && totalRecords == -1) format = "\r%s %3d%% %s %s %s %s %s %s %s";
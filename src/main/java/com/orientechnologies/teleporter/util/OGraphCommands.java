@@ -21,8 +21,13 @@
 package com.orientechnologies.teleporter.util;
 
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.OVertex;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import java.util.ArrayList;
+import java.util.List;
 
 /** Collects several commands executable on a OrientDb database. */
 public class OGraphCommands {
@@ -40,36 +45,100 @@ public class OGraphCommands {
    * @return
    */
   public static OVertex getVertexByIndexedKey(
-      ODatabaseDocument orientGraph, String[] keys, String[] values, String vertexClassName) {
+      ODatabaseDocument orientGraph, String[] keys, Object[] values, String vertexClassName) {
 
-    OVertex vertex = null;
-
-    final OResultSet vertices = getVertices(orientGraph, vertexClassName, keys, values);
-
-    if (vertices.hasNext()) {
-      vertex = vertices.next().getVertex().orElse(null);
-    }
+    ORID rid = getVertexRidByIndexedKey(orientGraph, keys, values, vertexClassName);
+    return rid != null ? loadVertex(orientGraph, rid) : null;
+  }
 
-    vertices.close();
+  /**
+   * The method performs a lookup as {@link #getVertexByIndexedKey(ODatabaseDocument, String[],
+   * Object[], String)}, through the index on the key properties when present, without loading the
+   * vertex.
+   *
+   * @param orientGraph
+   * @param keys
+   * @param values
+   * @param vertexClassName
+   * @return the identity of the vertex, null if not present
+   */
+  public static ORID getVertexRidByIndexedKey(
+      ODatabaseDocument orientGraph, String[] keys, Object[] values, String vertexClassName) {
+    return OVertexLookup.of(orientGraph, vertexClassName, keys).getRid(orientGraph, values);
+  }
 
-    return vertex;
+  /**
+   * @param orientGraph
+   * @param vertexClassName
+   * @param keys
+   * @param values
+   * @return the identities of all the vertices of the class having the key
+   */
+  public static List<ORID> getVertexRids(
+      ODatabaseDocument orientGraph, String vertexClassName, String[] keys, Object[] values) {
+    return OVertexLookup.of(orientGraph, vertexClassName, keys).getRids(orientGraph, values);
   }
 
   public static OResultSet getVertices(
-      ODatabaseDocument orientGraph, String vertexClassName, String[] keys, String[] values) {
+      ODatabaseDocument orientGraph, String vertexClassName, String[] keys, Object[] values) {
 
-    Object[] params = new Object[values.length];
+    String query = OVertexLookup.of(orientGraph, vertexClassName, keys).getSelectQuery();
+    return orientGraph.command(query, values);
+  }
 
-    for (int i = 0; i < params.length; i++) {
-      params[i] = values[i];
+  /**
+   * @param orientGraph
+   * @param rid
+   * @return the vertex with the identity, null if not present or not a vertex
+   */
+  public static OVertex loadVertex(ODatabaseDocument orientGraph, ORID rid) {
+    ORecord record = orientGraph.load(rid);
+    if (record instanceof OElement) {
+      return ((OElement) record).asVertex().orElse(null);
     }
+    return null;
+  }
+
+  /**
+   * The method performs a single lookup on the passed ODatabaseDocument for all the vertices of a
+   * class matching one of the passed keys. Values must be already converted to the type of the
+   * correspondent properties.
+   *
+   * @param orientGraph
+   * @param vertexClassName
+   * @param keys
+   * @param values a list of key values, each one with the same length of keys
+   * @return
+   */
+  public static OResultSet getVerticesByIndexedKeys(
+      ODatabaseDocument orientGraph, String vertexClassName, String[] keys, List<Object[]> values) {
 
     String query = "select * from " + vertexClassName + " where ";
-    query += keys[0] + " = ?";
+    Object[] params;
 
-    int i;
-    for (i = 1; i < keys.length; i++) {
-      query += " and " + keys[i] + " = ?";
+    if (keys.length == 1) {
+      List<Object> singleValues = new ArrayList<Object>(values.size());
+      for (Object[] value : values) {
+        singleValues.add(value[0]);
+      }
+      query += keys[0] + " in ?";
+      params = new Object[] {singleValues};
+    } else {
+      params = new Object[values.size() * keys.length];
+      int p = 0;
+      for (int v = 0; v < values.size(); v++) {
+        if (v > 0) {
+          query += " or ";
+        }
+        query += "(" + keys[0] + " = ?";
+        for (int i = 1; i < keys.length; i++) {
+          query += " and " + keys[i] + " = ?";
+        }
+        query += ")";
+        for (int i = 0; i < keys.length; i++) {
+          params[p++] = values.get(v)[i];
+        }
+      }
     }
     return orientGraph.command(query, params);
   }
@@ -42,6 +42,8 @@ public class OMigrationConfigManager {
   // ORIENTDB_HOME/<db-name>/teleporter-config/migration-config.json
   private static final String sourceInfoFileName = "sources-access-info.json"; // path
   // ORIENTDB_HOME/<db-name>/teleporter-config/sources-access-info.json
+  private static final String schemaSnapshotFileName = "schema-snapshot.json"; // path
+  // ORIENTDB_HOME/<db-name>/teleporter-config/schema-snapshot.json
   private static boolean configPresentInDB;
 
   /**
@@ -102,6 +104,18 @@ public class OMigrationConfigManager {
     return outDBConfigPath;
   }
 
+  /**
+   * @param outOrientGraphUri
+   * @return the path of the snapshot of the source database schema, null if the target database
+   *     is not on the local filesystem
+   */
+  public static String buildSchemaSnapshotPath(String outOrientGraphUri) {
+    if (!outOrientGraphUri.startsWith("plocal:") && !outOrientGraphUri.startsWith("embedded:")) {
+      return null;
+    }
+    return buildConfigurationFilePath(outOrientGraphUri, schemaSnapshotFileName);
+  }
+
   /*public static void copyConfigurationInDatabase(ODocument config, String configurationPath, String outDBConfigPath) {
 
     // if we have config in input and it is not present in the DB then we copy it in the <db-path>/teleporter-config/ path
@@ -269,4 +283,8 @@ public class OMigrationConfigManager {
   public static String getSourceInfoFileName() {
     return sourceInfoFileName;
   }
+
+  public static String getSchemaSnapshotFileName() {
+    return schemaSnapshotFileName;
+  }
 }
@@ -0,0 +1,243 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.util;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.teleporter.model.dbschema.OAttribute;
+import com.orientechnologies.teleporter.model.dbschema.OCanonicalRelationship;
+import com.orientechnologies.teleporter.model.dbschema.ODataBaseSchema;
+import com.orientechnologies.teleporter.model.dbschema.OEntity;
+import com.orientechnologies.teleporter.model.dbschema.OForeignKey;
+import com.orientechnologies.teleporter.model.dbschema.OKey;
+import com.orientechnologies.teleporter.model.dbschema.OPrimaryKey;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves and loads the snapshot of a source database schema: entities, attributes, primary keys
+ * and canonical relationships, together with the fingerprint of the source schema they were
+ * discovered from. A snapshot is loaded only if its fingerprint matches the current one, so the
+ * source schema is discovered again as soon as it changes.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OSchemaSnapshotManager {
+
+  // version of the snapshot format, snapshots of other versions are ignored
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * @param parts the values the fingerprint is computed from, in a stable order
+   * @return the SHA-256 digest of the parts, in hexadecimal form
+   */
+  public static String buildFingerprint(List<String> parts) {
+
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(String.valueOf(FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+      for (String part : parts) {
+        // separator not allowed in the values, so different parts can't produce the same digest
+        digest.update((byte) 0);
+        digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+      }
+      StringBuilder fingerprint = new StringBuilder();
+      for (byte b : digest.digest()) {
+        fingerprint.append(String.format("%02x", b));
+      }
+      return fingerprint.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Writes the snapshot of a source database schema, replacing the previous one.
+   *
+   * @param schema
+   * @param fingerprint
+   * @param totalNumberOfRecords records of the tables of the schema, restored with the snapshot,
+   *     null if not all counted yet (then not kept)
+   * @param snapshotPath
+   * @throws IOException
+   */
+  public static void writeSnapshot(
+      ODataBaseSchema schema, String fingerprint, Long totalNumberOfRecords, String snapshotPath)
+      throws IOException {
+
+    ODocument snapshot = new ODocument();
+    snapshot.field("formatVersion", FORMAT_VERSION);
+    snapshot.field("fingerprint", fingerprint);
+    if (totalNumberOfRecords != null) {
+      snapshot.field("totalNumberOfRecords", totalNumberOfRecords);
+    }
+
+    List<ODocument> entities = new ArrayList<ODocument>();
+    for (OEntity entity : schema.getEntities()) {
+      ODocument entityDoc = new ODocument();
+      entityDoc.field("name", entity.getName());
+      entityDoc.field("schema", entity.getSchemaName());
+
+      List<ODocument> attributes = new ArrayList<ODocument>();
+      for (OAttribute attribute : entity.getAttributes()) {
+        ODocument attributeDoc = new ODocument();
+        attributeDoc.field("name", attribute.getName());
+        attributeDoc.field("ordinalPosition", attribute.getOrdinalPosition());
+        attributeDoc.field("dataType", attribute.getDataType());
+        attributeDoc.field("columnSize", attribute.getColumnSize());
+        attributeDoc.field("decimalDigits", attribute.getDecimalDigits());
+        attributes.add(attributeDoc);
+      }
+      entityDoc.field("attributes", attributes);
+      entityDoc.field("primaryKey", getAttributeNames(entity.getPrimaryKey()));
+      entities.add(entityDoc);
+    }
+    snapshot.field("entities", entities);
+
+    List<ODocument> relationships = new ArrayList<ODocument>();
+    for (OCanonicalRelationship relationship : schema.getCanonicalRelationships()) {
+      ODocument relationshipDoc = new ODocument();
+      relationshipDoc.field("foreignEntity", relationship.getForeignEntity().getName());
+      relationshipDoc.field("parentEntity", relationship.getParentEntity().getName());
+      relationshipDoc.field("foreignKey", getAttributeNames(relationship.getForeignKey()));
+      relationships.add(relationshipDoc);
+    }
+    snapshot.field("relationships", relationships);
+
+    OFileManager.writeFileFromText(snapshot.toJSON("prettyPrint"), snapshotPath, false);
+  }
+
+  /**
+   * @param snapshotPath
+   * @param fingerprint the fingerprint of the current source schema
+   * @return the snapshot, null if not present or taken from a different source schema
+   * @throws IOException
+   */
+  public static ODocument loadSnapshot(String snapshotPath, String fingerprint)
+      throws IOException {
+
+    ODocument snapshot = OFileManager.buildJsonFromFile(snapshotPath);
+    if (snapshot == null
+        || !Integer.valueOf(FORMAT_VERSION).equals(snapshot.field("formatVersion"))
+        || !fingerprint.equals(snapshot.field("fingerprint"))) {
+      return null;
+    }
+    return snapshot;
+  }
+
+  /**
+   * Restores the entities, their foreign keys and the canonical relationships of a snapshot in an
+   * empty schema, in the order they were discovered. The in-relationships are not connected.
+   *
+   * @param snapshot
+   * @param schema
+   * @param sourceDBInfo
+   * @throws IllegalStateException if the snapshot is not consistent
+   */
+  public static void restoreSchema(
+      ODocument snapshot, ODataBaseSchema schema, OSourceDatabaseInfo sourceDBInfo) {
+
+    List<ODocument> entities = snapshot.field("entities");
+    for (ODocument entityDoc : entities) {
+      OEntity entity =
+          new OEntity(entityDoc.field("name"), entityDoc.field("schema"), sourceDBInfo);
+      List<ODocument> attributes = entityDoc.field("attributes");
+      for (ODocument attributeDoc : attributes) {
+        OAttribute attribute =
+            new OAttribute(
+                attributeDoc.field("name"),
+                attributeDoc.<Number>field("ordinalPosition").intValue(),
+                attributeDoc.field("dataType"),
+                entity);
+        attribute.setColumnSize(attributeDoc.<Number>field("columnSize").intValue());
+        attribute.setDecimalDigits(attributeDoc.<Number>field("decimalDigits").intValue());
+        entity.addAttribute(attribute);
+      }
+      OPrimaryKey primaryKey = new OPrimaryKey(entity);
+      addAttributes(primaryKey, entity, entityDoc.field("primaryKey"));
+      entity.setPrimaryKey(primaryKey);
+      schema.getEntities().add(entity);
+    }
+
+    List<ODocument> relationships = snapshot.field("relationships");
+    if (relationships == null) {
+      // empty lists may be not kept in the JSON document
+      return;
+    }
+    for (ODocument relationshipDoc : relationships) {
+      OEntity foreignEntity = getEntity(schema, relationshipDoc.field("foreignEntity"));
+      OEntity parentEntity = getEntity(schema, relationshipDoc.field("parentEntity"));
+      OForeignKey foreignKey = new OForeignKey(foreignEntity);
+      addAttributes(foreignKey, foreignEntity, relationshipDoc.field("foreignKey"));
+
+      OCanonicalRelationship relationship =
+          new OCanonicalRelationship(
+              foreignEntity, parentEntity, foreignKey, parentEntity.getPrimaryKey());
+      foreignEntity.getForeignKeys().add(foreignKey);
+      foreignEntity.getOutCanonicalRelationships().add(relationship);
+      schema.getCanonicalRelationships().add(relationship);
+    }
+  }
+
+  /**
+   * @param snapshot
+   * @return the records of the tables of the schema when the snapshot was taken, null if not kept
+   */
+  public static Long getTotalNumberOfRecords(ODocument snapshot) {
+    Number totalNumberOfRecords = snapshot.field("totalNumberOfRecords");
+    return totalNumberOfRecords != null ? totalNumberOfRecords.longValue() : null;
+  }
+
+  private static List<String> getAttributeNames(OKey key) {
+    List<String> names = new ArrayList<String>();
+    for (OAttribute attribute : key.getInvolvedAttributes()) {
+      names.add(attribute.getName());
+    }
+    return names;
+  }
+
+  private static void addAttributes(OKey key, OEntity entity, List<String> names) {
+    if (names == null) {
+      return;
+    }
+    for (String name : names) {
+      OAttribute attribute = entity.getAttributeByName(name);
+      if (attribute == null) {
+        throw new IllegalStateException(
+            "Attribute " + name + " of the entity " + entity.getName() + " not in the snapshot.");
+      }
+      key.addAttribute(attribute);
+    }
+  }
+
+  private static OEntity getEntity(ODataBaseSchema schema, String name) {
+    OEntity entity = schema.getEntityByName(name);
+    if (entity == null) {
+      throw new IllegalStateException("Entity " + name + " not in the snapshot.");
+    }
+    return entity;
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.util;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Lookup of the vertices of a class by key, prepared once per database, class and key properties.
+ * When the class defines an index on exactly the key properties (the ".pkey" index written by
+ * Teleporter, or any other one) the index is queried directly, skipping the parsing and the
+ * planning of a query, and only the identities of the vertices are returned: the records are
+ * loaded by the caller only when needed. Without such an index a query projecting the identities
+ * is executed, its text built once. As the indexes of a class cover its subclasses, the lookup is
+ * polymorphic like the query.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class OVertexLookup {
+
+  private static final ConcurrentMap<String, OVertexLookup> lookups =
+      new ConcurrentHashMap<String, OVertexLookup>();
+
+  private final String className;
+  private final String[] keys;
+  private final String selectQuery;
+  private final String ridQuery;
+
+  // index on the key properties, null until resolved
+  private volatile OIndexPlan indexPlan;
+
+  private OVertexLookup(String className, String[] keys) {
+    this.className = className;
+    this.keys = keys.clone();
+
+    StringBuilder condition = new StringBuilder(" where ").append(keys[0]).append(" = ?");
+    for (int i = 1; i < keys.length; i++) {
+      condition.append(" and ").append(keys[i]).append(" = ?");
+    }
+    this.selectQuery = "select * from " + className + condition;
+    this.ridQuery = "select @rid as rid from " + className + condition;
+  }
+
+  /**
+   * @param orientGraph
+   * @param className
+   * @param keys
+   * @return the lookup of the vertices of the class by the key properties
+   */
+  public static OVertexLookup of(ODatabaseDocument orientGraph, String className, String[] keys) {
+    String lookupKey =
+        orientGraph.getName() + '\u0000' + className + '\u0000' + String.join(",", keys);
+    OVertexLookup lookup = lookups.get(lookupKey);
+    if (lookup == null) {
+      lookup = new OVertexLookup(className, keys);
+      OVertexLookup present = lookups.putIfAbsent(lookupKey, lookup);
+      if (present != null) {
+        lookup = present;
+      }
+    }
+    return lookup;
+  }
+
+  /**
+   * Discards all the prepared lookups, called when a job ends: the lookups of the next jobs are
+   * prepared again, on their databases.
+   */
+  public static void clear() {
+    lookups.clear();
+  }
+
+  /** @return the query selecting the vertices by key, the values passed as parameters */
+  public String getSelectQuery() {
+    return this.selectQuery;
+  }
+
+  /**
+   * @param orientGraph
+   * @return true if the vertices are looked up through an index on the key properties
+   */
+  public boolean isIndexed(ODatabaseDocument orientGraph) {
+    return this.getIndexPlan(orientGraph) != null;
+  }
+
+  /**
+   * @param orientGraph
+   * @return the name of the index the vertices are looked up through, null if they are queried
+   */
+  public String getIndexName(ODatabaseDocument orientGraph) {
+    OIndexPlan plan = this.getIndexPlan(orientGraph);
+    return plan != null ? plan.index.getName() : null;
+  }
+
+  /**
+   * @param orientGraph
+   * @param values the values of the key, in the order of the key properties
+   * @return the identity of a vertex having the key, null if not present
+   */
+  public ORID getRid(ODatabaseDocument orientGraph, Object[] values) {
+
+    // null values never match, as in the query
+    if (hasNullValues(values)) {
+      return null;
+    }
+    OIndexPlan plan = this.getIndexPlan(orientGraph);
+    if (plan != null) {
+      Object key = plan.buildKey(values);
+      if (key != null) {
+        try (Stream<ORID> rids = plan.index.getInternal().getRids(key)) {
+          return rids.findFirst().orElse(null);
+        }
+      }
+    }
+
+    try (OResultSet result = orientGraph.query(this.ridQuery, values)) {
+      return result.hasNext() ? toRid(result.next().getProperty("rid")) : null;
+    }
+  }
+
+  /**
+   * @param orientGraph
+   * @param values the values of the key, in the order of the key properties
+   * @return the identities of all the vertices having the key
+   */
+  public List<ORID> getRids(ODatabaseDocument orientGraph, Object[] values) {
+
+    if (hasNullValues(values)) {
+      return Collections.<ORID>emptyList();
+    }
+    OIndexPlan plan = this.getIndexPlan(orientGraph);
+    if (plan != null) {
+      Object key = plan.buildKey(values);
+      if (key != null) {
+        try (Stream<ORID> rids = plan.index.getInternal().getRids(key)) {
+          return rids.collect(Collectors.toList());
+        }
+      }
+    }
+
+    List<ORID> rids = new ArrayList<ORID>();
+    try (OResultSet result = orientGraph.query(this.ridQuery, values)) {
+      while (result.hasNext()) {
+        ORID rid = toRid(result.next().getProperty("rid"));
+        if (rid != null) {
+          rids.add(rid);
+        }
+      }
+    }
+    return rids;
+  }
+
+  /**
+   * @return the index on the key properties, resolved again if dropped in the meantime; null if
+   *     the class has no such index
+   */
+  private OIndexPlan getIndexPlan(ODatabaseDocument orientGraph) {
+
+    OClass vertexClass = orientGraph.getClass(this.className);
+    if (vertexClass == null) {
+      return null;
+    }
+    OIndexPlan plan = this.indexPlan;
+    if (plan != null) {
+      OIndex index = vertexClass.getClassIndex(plan.index.getName());
+      if (index != null) {
+        return index == plan.index ? plan : new OIndexPlan(index, plan.keyPositions);
+      }
+    }
+
+    // the ".pkey" index is preferred to the other ones on the same properties
+    plan = null;
+    for (OIndex index : vertexClass.getClassIndexes()) {
+      int[] positions = this.getKeyPositions(index.getDefinition().getFields());
+      if (positions != null
+          && (plan == null || index.getName().equals(this.className + ".pkey"))) {
+        plan = new OIndexPlan(index, positions);
+      }
+    }
+    this.indexPlan = plan;
+    return plan;
+  }
+
+  /** @return the position of the key property of each field, null if the fields are different */
+  private int[] getKeyPositions(List<String> fields) {
+    if (fields.size() != this.keys.length) {
+      return null;
+    }
+    int[] positions = new int[fields.size()];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = -1;
+      for (int j = 0; j < this.keys.length; j++) {
+        if (this.keys[j].equalsIgnoreCase(fields.get(i))) {
+          positions[i] = j;
+          break;
+        }
+      }
+      if (positions[i] < 0) {
+        return null;
+      }
+    }
+    return positions;
+  }
+
+  private static boolean hasNullValues(Object[] values) {
+    for (Object value : values) {
+      if (value == null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static ORID toRid(Object value) {
+    return value instanceof OIdentifiable ? ((OIdentifiable) value).getIdentity() : null;
+  }
+
+  private static class OIndexPlan {
+
+    private final OIndex index;
+    // position of the key property of each field of the index
+    private final int[] keyPositions;
+
+    OIndexPlan(OIndex index, int[] keyPositions) {
+      this.index = index;
+      this.keyPositions = keyPositions;
+    }
+
+    /** @return the key of the index converted to the types of the fields, null if not possible */
+    Object buildKey(Object[] values) {
+      Object[] fieldValues = new Object[this.keyPositions.length];
+      for (int i = 0; i < this.keyPositions.length; i++) {
+        fieldValues[i] = values[this.keyPositions[i]];
+      }
+      return this.index.getDefinition().createValue(fieldValues);
+    }
+  }
+}
@@ -28,6 +28,7 @@ import com.orientechnologies.orient.core.metadata.schema.*;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
 import com.orientechnologies.orient.output.OOutputStreamManager;
 import com.orientechnologies.teleporter.configuration.api.OConfiguration;
+import com.orientechnologies.teleporter.context.OImportSettings;
 import com.orientechnologies.teleporter.context.OTeleporterContext;
 import com.orientechnologies.teleporter.context.OTeleporterStatistics;
 import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
@@ -37,6 +38,7 @@ import com.orientechnologies.teleporter.model.dbschema.ODataBaseSchema;
 import com.orientechnologies.teleporter.model.dbschema.OLogicalRelationship;
 import com.orientechnologies.teleporter.model.graphmodel.*;
 import com.orientechnologies.teleporter.persistence.handler.ODriverDataTypeHandler;
+import com.orientechnologies.teleporter.persistence.util.OLobChunks;
 import java.util.*;
 
 /**
@@ -142,6 +144,11 @@ public class OGraphModelWriter {
     // orient graph schema
     OSchema orientSchema = orientGraph.getMetadata().getSchema();
 
+    // cluster of the chunk records of the LOB values
+    if (this.isChunkedLobMode()) {
+      OLobChunks.createLobCluster(orientGraph);
+    }
+
     int numberOfVertices = graphModel.getVerticesType().size();
     statistics.totalNumberOfVertexTypes = numberOfVertices;
     int numberOfEdges = graphModel.getEdgesType().size();
@@ -224,6 +231,7 @@ public class OGraphModelWriter {
                 } else {
                   type = this.resolveOrientDBType(currentProperty.getOrientdbType());
                 }
+                type = this.getDeclaredType(type, currentProperty, handler);
                 if (type != null) {
                   String propertyName = currentProperty.getName();
                   OProperty orientdbProperty = newVertexType.createProperty(propertyName, type);
@@ -322,6 +330,7 @@ public class OGraphModelWriter {
                 } else {
                   type = this.resolveOrientDBType(currentProperty.getOrientdbType());
                 }
+                type = this.getDeclaredType(type, currentProperty, handler);
                 if (type != null) {
                   OProperty orientdbProperty =
                       newEdgeType.createProperty(currentProperty.getName(), type);
@@ -414,6 +423,20 @@ public class OGraphModelWriter {
           statistics.wroteIndexes++;
         }
 
+        /*
+         *  Writing spatial indexes on geospatial properties
+         */
+
+        for (OVertexType currentVertexType : graphModel.getVerticesType()) {
+          for (OModelProperty currentProperty : currentVertexType.getProperties()) {
+            if (currentProperty.isIncludedInMigration()
+                && this.isGeospatialProperty(currentProperty, handler)) {
+              this.buildSpatialIndex(
+                  orientGraph, currentVertexType, currentProperty.getName(), indexManager);
+            }
+          }
+        }
+
         /*
          *  Writing indexes on properties involved in Logical Relationships
          */
@@ -746,7 +769,16 @@ public class OGraphModelWriter {
                   currentModelProperty.getOriginalType().toLowerCase(Locale.ENGLISH));
         }
 
-        if (orientSchemaProperty != null) {
+        newResolvedType =
+            this.getDeclaredType(newResolvedType, currentModelProperty, handler);
+
+        if (newResolvedType == null) {
+          // not declared in the schema
+          if (orientSchemaProperty != null) {
+            orientElementType.dropProperty(currentModelProperty.getName());
+            updated = true;
+          }
+        } else if (orientSchemaProperty != null) {
           // property present in orientdb schema, check if is it equal (type check), in case it's
           // modified
           actualOrientType = orientSchemaProperty.getType();
@@ -820,6 +852,89 @@ public class OGraphModelWriter {
     return false;
   }
 
+  /**
+   * Geospatial properties are declared as embedded, so they can be indexed. Binary properties are
+   * not declared in chunked LOB mode: their values are either byte arrays or links to chunk
+   * records.
+   *
+   * @param type the type resolved for the property
+   * @param property
+   * @param handler
+   * @return the type the property is declared with in the schema, null if not declared
+   */
+  private OType getDeclaredType(
+      OType type, OModelProperty property, ODriverDataTypeHandler handler) {
+    if (this.isGeospatialProperty(property, handler)) {
+      return OType.EMBEDDED;
+    }
+    if (type == OType.BINARY && this.isChunkedLobMode()) {
+      return null;
+    }
+    return type;
+  }
+
+  /**
+   * @param property
+   * @param handler
+   * @return true if the values of the property are geospatial shapes
+   */
+  private boolean isGeospatialProperty(OModelProperty property, ODriverDataTypeHandler handler) {
+    return handler.isGeospatial(property.getOriginalType())
+        && (property.getOrientdbType() == null
+            || property.getOrientdbType().equalsIgnoreCase("embedded"));
+  }
+
+  /**
+   * Builds the spatial index on a geospatial property, if the OrientDB spatial module is installed.
+   *
+   * @param orientGraph
+   * @param currentVertexType
+   * @param propertyName
+   * @param indexManager
+   */
+  private void buildSpatialIndex(
+      ODatabaseDocument orientGraph,
+      OVertexType currentVertexType,
+      String propertyName,
+      OIndexManagerProxy indexManager) {
+
+    String indexName = currentVertexType.getName() + "." + propertyName;
+    if (indexManager.existsIndex(indexName)) {
+      return;
+    }
+    if (!orientGraph.getMetadata().getSchema().existsClass("OShape")) {
+      OTeleporterContext.getInstance()
+          .getStatistics()
+          .warningMessages
+          .add(
+              "The OrientDB spatial module is not installed, thus no spatial index was built on "
+                  + "the geospatial properties.");
+      return;
+    }
+
+    String statement =
+        "create index `"
+            + indexName
+            + "` on `"
+            + currentVertexType.getName()
+            + "` ("
+            + propertyName
+            + ") spatial engine lucene";
+    orientGraph.command(new OCommandSQL(statement)).execute();
+
+    if (OTeleporterContext.getInstance().getMessageHandler().getOutputManagerLevel()
+        == OOutputStreamManager.DEBUG_LEVEL) {
+      OTeleporterContext.getInstance()
+          .getMessageHandler()
+          .debug(this, "\nSpatial index %s built.\n", indexName);
+    }
+  }
+
+  private boolean isChunkedLobMode() {
+    OImportSettings importSettings = OTeleporterContext.getInstance().getImportSettings();
+    return importSettings != null && importSettings.getLobMode() == OImportSettings.LobMode.CHUNKED;
+  }
+
   public OType resolveOrientDBType(String orientdbTypeName) {
     orientdbTypeName = orientdbTypeName.toLowerCase(Locale.ENGLISH);
     return this.orientdbTypeName2orientdbType.get(orientdbTypeName);
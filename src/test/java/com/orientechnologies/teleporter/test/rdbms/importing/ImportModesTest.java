@@ -0,0 +1,375 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.importing;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.teleporter.context.OImportSettings;
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterMessageHandler;
+import com.orientechnologies.teleporter.context.OTeleporterStatistics;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
+import com.orientechnologies.teleporter.importengine.rdbms.graphengine.OGraphEngineForDB;
+import com.orientechnologies.teleporter.importengine.rdbms.graphengine.OVertexUpsertBatch;
+import com.orientechnologies.teleporter.mapper.rdbms.OER2GraphMapper;
+import com.orientechnologies.teleporter.model.dbschema.OEntity;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.model.graphmodel.OVertexType;
+import com.orientechnologies.teleporter.nameresolver.OJavaConventionNameResolver;
+import com.orientechnologies.teleporter.persistence.handler.OHSQLDBDataTypeHandler;
+import com.orientechnologies.teleporter.persistence.util.OQueryResult;
+import com.orientechnologies.teleporter.strategy.rdbms.ODBMSNaiveStrategy;
+import com.orientechnologies.teleporter.util.OFileManager;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Imports of the same source database with different import settings, compared with the import
+ * done with the default ones. The employees reference their department and their manager, an
+ * employee too: some managers come before their employees, some after.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class ImportModesTest {
+
+  private static final String[] CLASSES = {
+    "V", "Department", "Employee", "E", "HasDepartment", "HasManager"
+  };
+
+  private static final int EMPLOYEES = 40;
+
+  private OTeleporterContext context;
+  private String driver = "org.hsqldb.jdbc.JDBCDriver";
+  private String jurl = "jdbc:hsqldb:mem:mydb";
+  private String username = "SA";
+  private String password = "";
+  private String baselineDbName = "testOrientDBBaseline";
+  private String dbName = "testOrientDBMode";
+  private String outParentDirectory = "embedded:target/";
+  private OSourceDatabaseInfo sourceDBInfo;
+  private Connection connection;
+  private Statement st;
+
+  @Before
+  public void init() throws Exception {
+    this.context = OTeleporterContext.newInstance(this.outParentDirectory);
+    this.context.initOrientDBInstance(this.outParentDirectory);
+    this.context.setDbQueryEngine(new ODBQueryEngine(this.driver));
+    this.context.setMessageHandler(new OTeleporterMessageHandler(0));
+    this.context.setNameResolver(new OJavaConventionNameResolver());
+    this.context.setDataTypeHandler(new OHSQLDBDataTypeHandler());
+    this.sourceDBInfo =
+        new OSourceDatabaseInfo("source", this.driver, this.jurl, this.username, this.password);
+
+    Class.forName(this.driver);
+    this.connection = DriverManager.getConnection(this.jurl, this.username, this.password);
+    this.st = this.connection.createStatement();
+    this.buildSourceDatabase();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+
+    // Dropping Source DB Schema
+    this.st.execute("set database referential integrity true");
+    this.st.execute("drop schema public cascade");
+    this.connection.close();
+
+    // closing OrientDB instance
+    this.context.closeOrientDBInstance();
+
+    // Deleting database directories
+    String directory = this.outParentDirectory.replace("embedded:", "");
+    OFileManager.deleteResource(directory + this.baselineDbName);
+    OFileManager.deleteResource(directory + this.dbName);
+  }
+
+  @Test
+  /*
+   * The records written in batches are the same written one at a time, also when a record reaches
+   * a vertex of its own class inserted in the same batch, or visited later in it.
+   */
+  public void batchImportTest() {
+
+    this.importSourceDatabase(this.baselineDbName, new OImportSettings());
+    this.assertExpectedGraph(this.baselineDbName);
+
+    OImportSettings settings = new OImportSettings();
+    settings.setBatchSize(7);
+    this.importSourceDatabase(this.dbName, settings);
+    this.assertSameGraph();
+  }
+
+  @Test
+  /*
+   * The records of the tables scanned in key ranges by concurrent workers are the same imported by
+   * a single scan: the departments and the managers reached from several ranges are not duplicated.
+   */
+  public void partitionedImportTest() {
+
+    this.importSourceDatabase(this.baselineDbName, new OImportSettings());
+    this.assertExpectedGraph(this.baselineDbName);
+    long baselineAnalyzedRecords = this.context.getStatistics().analyzedRecords;
+
+    OImportSettings settings = new OImportSettings();
+    settings.setPartitions(4);
+    settings.setParallelism(4);
+    settings.setBatchSize(5);
+    this.importSourceDatabase(this.dbName, settings);
+    assertEquals(baselineAnalyzedRecords, this.context.getStatistics().analyzedRecords);
+    this.assertSameGraph();
+  }
+
+  @Test
+  /*
+   * A batch conflicting with a concurrent writer is rolled back and written again: the updates of
+   * the concurrent writer are overwritten and no vertex is duplicated.
+   */
+  public void batchRetryTest() throws Exception {
+
+    this.importSourceDatabase(this.dbName, new OImportSettings());
+
+    // the source records change, so all the vertices are updated by the next import
+    this.st.execute("update EMPLOYEE set NAME = NAME || '!'");
+
+    OER2GraphMapper mapper = new OER2GraphMapper(this.sourceDBInfo, null, null, null);
+    mapper.buildSourceDatabaseSchema();
+    mapper.buildGraphModel(new OJavaConventionNameResolver());
+    OEntity employee = mapper.getDataBaseSchema().getEntityByName("EMPLOYEE");
+    OVertexType employeeType = mapper.getVertexTypeByEntity(employee);
+
+    // the first vertex written is updated by another session before the batch is committed
+    AtomicInteger writes = new AtomicInteger();
+    AtomicInteger interferences = new AtomicInteger();
+    OGraphEngineForDB graphEngine =
+        new OGraphEngineForDB(mapper, new OHSQLDBDataTypeHandler()) {
+          @Override
+          public OVertex writeVisitedVertex(
+              ODatabaseDocument orientGraph,
+              OVertexType vertexType,
+              Set<String> propertiesOfIndex,
+              OVertex vertex,
+              Map<String, Object> currentProperties) {
+            writes.incrementAndGet();
+            if (vertex != null && interferences.getAndIncrement() == 0) {
+              ODatabaseDocument concurrentGraph =
+                  context.getOrientDBInstance().open(dbName, "admin", "admin");
+              OVertex concurrentVertex = concurrentGraph.load(vertex.getIdentity());
+              concurrentVertex.setProperty("name", "concurrent update");
+              concurrentVertex.save();
+              concurrentGraph.close();
+              orientGraph.activateOnCurrentThread();
+            }
+            return super.writeVisitedVertex(
+                orientGraph, vertexType, propertiesOfIndex, vertex, currentProperties);
+          }
+        };
+
+    this.context.setStatistics(new OTeleporterStatistics());
+    ODatabaseDocument orientGraph =
+        this.context.getOrientDBInstance().open(this.dbName, "admin", "admin");
+    OQueryResult queryResult = this.context.getDbQueryEngine().getRecordsByEntity(employee);
+    try {
+      OVertexUpsertBatch batch =
+          new OVertexUpsertBatch(
+              graphEngine,
+              orientGraph,
+              employeeType,
+              employeeType.getExternalKey(),
+              Collections.<OVertexUpsertBatch.OReachedRelationship>emptyList(),
+              10);
+      ResultSet records = queryResult.getResult();
+      while (records.next()) {
+        batch.add(records);
+      }
+      batch.flush();
+
+      // the first batch is written twice
+      assertEquals(EMPLOYEES + 10, writes.get());
+
+      orientGraph.activateOnCurrentThread();
+      assertEquals(EMPLOYEES, orientGraph.countClass("Employee"));
+      for (ODocument vertex : orientGraph.browseClass("Employee")) {
+        assertTrue(vertex.<String>field("name").endsWith("!"));
+      }
+    } finally {
+      queryResult.closeAll();
+      orientGraph.activateOnCurrentThread();
+      orientGraph.close();
+    }
+  }
+
+  @Test
+  /*
+   * Importing all the vertices first and then the edges builds the same graph built importing the
+   * edges together with the vertices.
+   */
+  public void twoPhaseImportTest() {
+
+    this.importSourceDatabase(this.baselineDbName, new OImportSettings());
+    this.assertExpectedGraph(this.baselineDbName);
+
+    OImportSettings settings = new OImportSettings();
+    settings.setTwoPhaseImport(true);
+    this.importSourceDatabase(this.dbName, settings);
+    this.assertSameGraph();
+  }
+
+  @Test
+  /*
+   * A foreign key referencing a record not present in the source database: importing the edges
+   * together with the vertices a vertex is added for the referenced key, while in the two-phase
+   * import the edge is skipped with a warning.
+   */
+  public void danglingForeignKeyTest() throws Exception {
+
+    this.st.execute("set database referential integrity false");
+    this.st.execute(
+        "insert into EMPLOYEE (ID,NAME,DEPARTMENT,MANAGER) values (99,'Employee 99',1,1000)");
+    this.st.execute("set database referential integrity true");
+
+    this.importSourceDatabase(this.baselineDbName, new OImportSettings());
+    ODatabaseDocument orientGraph =
+        this.context.getOrientDBInstance().open(this.baselineDbName, "admin", "admin");
+    try {
+      assertEquals(EMPLOYEES + 2, orientGraph.countClass("Employee"));
+      assertEquals(EMPLOYEES, orientGraph.countClass("HasManager"));
+    } finally {
+      orientGraph.close();
+    }
+
+    OImportSettings settings = new OImportSettings();
+    settings.setTwoPhaseImport(true);
+    this.importSourceDatabase(this.dbName, settings);
+    orientGraph = this.context.getOrientDBInstance().open(this.dbName, "admin", "admin");
+    try {
+      assertEquals(EMPLOYEES + 1, orientGraph.countClass("Employee"));
+      assertEquals(EMPLOYEES - 1, orientGraph.countClass("HasManager"));
+      assertEquals(EMPLOYEES + 1, orientGraph.countClass("HasDepartment"));
+    } finally {
+      orientGraph.close();
+    }
+    assertTrue(
+        this.context
+            .getStatistics()
+            .warningMessages
+            .contains(
+                "Edges of the class 'HasManager' towards not present 'Employee' vertices were"
+                    + " skipped."));
+  }
+
+  private void importSourceDatabase(String dbName, OImportSettings importSettings) {
+    this.context.setStatistics(new OTeleporterStatistics());
+    this.context.setImportSettings(importSettings);
+    ODBMSNaiveStrategy importStrategy =
+        new ODBMSNaiveStrategy("embedded", this.outParentDirectory, dbName);
+    importStrategy.executeStrategy(
+        this.sourceDBInfo,
+        this.outParentDirectory + dbName,
+        "basicDBMapper",
+        null,
+        "java",
+        null,
+        null,
+        null);
+  }
+
+  /** Asserts the vertices and edges imported from the source database. */
+  private void assertExpectedGraph(String dbName) {
+    ODatabaseDocument orientGraph =
+        this.context.getOrientDBInstance().open(dbName, "admin", "admin");
+    try {
+      assertEquals(3, orientGraph.countClass("Department"));
+      assertEquals(EMPLOYEES, orientGraph.countClass("Employee"));
+      assertEquals(EMPLOYEES, orientGraph.countClass("HasDepartment"));
+      assertEquals(EMPLOYEES - 1, orientGraph.countClass("HasManager"));
+    } finally {
+      orientGraph.close();
+    }
+  }
+
+  /** Asserts that each class has the same number of records in the two imported graphs. */
+  private void assertSameGraph() {
+    ODatabaseDocument baselineGraph =
+        this.context.getOrientDBInstance().open(this.baselineDbName, "admin", "admin");
+    ODatabaseDocument orientGraph =
+        this.context.getOrientDBInstance().open(this.dbName, "admin", "admin");
+    try {
+      for (String className : CLASSES) {
+        baselineGraph.activateOnCurrentThread();
+        long baselineCount = baselineGraph.countClass(className);
+        orientGraph.activateOnCurrentThread();
+        assertEquals(className, baselineCount, orientGraph.countClass(className));
+      }
+    } finally {
+      baselineGraph.activateOnCurrentThread();
+      baselineGraph.close();
+      orientGraph.activateOnCurrentThread();
+      orientGraph.close();
+    }
+  }
+
+  private void buildSourceDatabase() throws Exception {
+
+    // Tables Building
+
+    this.st.execute(
+        "create memory table DEPARTMENT (ID integer not null, NAME varchar(256),"
+            + " primary key (ID))");
+    this.st.execute(
+        "create memory table EMPLOYEE (ID integer not null, NAME varchar(256),"
+            + " DEPARTMENT integer not null, MANAGER integer, primary key (ID),"
+            + " foreign key (DEPARTMENT) references DEPARTMENT(ID),"
+            + " foreign key (MANAGER) references EMPLOYEE(ID))");
+
+    // Records Inserting: the managers of the odd employees come after them
+
+    this.st.execute(
+        "insert into DEPARTMENT (ID,NAME) values ((1,'Sales'),(2,'Research'),(3,'Support'))");
+    this.st.execute("set database referential integrity false");
+    for (int i = 1; i <= EMPLOYEES; i++) {
+      String manager = "null";
+      if (i % 2 == 0) {
+        manager = String.valueOf(i / 2);
+      } else if (i < EMPLOYEES - 1) {
+        manager = String.valueOf(i + 2);
+      }
+      this.st.execute(
+          String.format(
+              "insert into EMPLOYEE (ID,NAME,DEPARTMENT,MANAGER) values (%d,'Employee %d',%d,%s)",
+              i, i, i % 3 + 1, manager));
+    }
+    this.st.execute("set database referential integrity true");
+  }
+}
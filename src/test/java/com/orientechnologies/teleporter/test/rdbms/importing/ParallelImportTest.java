@@ -0,0 +1,435 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.importing;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterMessageHandler;
+import com.orientechnologies.teleporter.context.OTeleporterStatistics;
+import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.nameresolver.OJavaConventionNameResolver;
+import com.orientechnologies.teleporter.persistence.handler.OHSQLDBDataTypeHandler;
+import com.orientechnologies.teleporter.strategy.rdbms.ODBMSNaiveStrategy;
+import com.orientechnologies.teleporter.strategy.rdbms.OParallelImportExecutor;
+import com.orientechnologies.teleporter.util.OFileManager;
+import com.orientechnologies.teleporter.util.OMigrationConfigManager;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class ParallelImportTest {
+
+  private static final String[] CLASSES = {
+    "V", "Director", "Category", "Film", "Actor", "FilmActor",
+    "E", "HasDirector", "HasCategory", "HasFilm", "HasActor"
+  };
+
+  private static final String[] SPLITTING_CLASSES = {
+    "V", "Employee", "Project", "Department", "ChiefOfficer",
+    "E", "WorksAt", "HasProject", "IsChiefForProject"
+  };
+
+  private final String splittingConfigPath =
+      "src/test/resources/configuration-mapping/splitting-into2tables-mapping.json";
+
+  private OTeleporterContext context;
+  private String driver = "org.hsqldb.jdbc.JDBCDriver";
+  private String jurl = "jdbc:hsqldb:mem:mydb";
+  private String username = "SA";
+  private String password = "";
+  private String serialDbName = "testOrientDBSerial";
+  private String parallelDbName = "testOrientDBParallel";
+  private String outParentDirectory = "embedded:target/";
+  private OSourceDatabaseInfo sourceDBInfo;
+
+  @Before
+  public void init() {
+    this.context = OTeleporterContext.newInstance(this.outParentDirectory);
+    this.context.initOrientDBInstance(this.outParentDirectory);
+    this.context.setDbQueryEngine(new ODBQueryEngine(this.driver));
+    this.context.setMessageHandler(new OTeleporterMessageHandler(0));
+    this.context.setNameResolver(new OJavaConventionNameResolver());
+    this.context.setDataTypeHandler(new OHSQLDBDataTypeHandler());
+    this.sourceDBInfo =
+        new OSourceDatabaseInfo("source", this.driver, this.jurl, this.username, this.password);
+  }
+
+  @After
+  public void tearDown() {
+
+    // closing OrientDB instance
+    this.context.closeOrientDBInstance();
+
+    try {
+
+      // Deleting database directories
+      OFileManager.deleteResource(this.outParentDirectory.replace("embedded:", "") + serialDbName);
+      OFileManager.deleteResource(
+          this.outParentDirectory.replace("embedded:", "") + parallelDbName);
+
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /** The vertices and edges imported by parallel workers are the same of a serial import. */
+  @Test
+  public void parallelImportTest() {
+
+    Connection connection = null;
+    Statement st = null;
+    ODatabaseDocument serialGraph = null;
+    ODatabaseDocument parallelGraph = null;
+
+    try {
+
+      Class.forName(this.driver);
+      connection = DriverManager.getConnection(this.jurl, this.username, this.password);
+      st = connection.createStatement();
+      this.buildSourceDatabase(st);
+
+      this.importSourceDatabase(this.serialDbName, 1);
+      assertEquals(29, this.context.getStatistics().orientAddedVertices);
+      assertEquals(24, this.context.getStatistics().orientAddedEdges);
+
+      this.importSourceDatabase(this.parallelDbName, 4);
+      assertEquals(29, this.context.getStatistics().orientAddedVertices);
+      assertEquals(24, this.context.getStatistics().orientAddedEdges);
+
+      serialGraph =
+          this.context.getOrientDBInstance().open(this.serialDbName, "admin", "admin");
+      parallelGraph =
+          this.context.getOrientDBInstance().open(this.parallelDbName, "admin", "admin");
+      for (String className : CLASSES) {
+        serialGraph.activateOnCurrentThread();
+        long serialCount = serialGraph.countClass(className);
+        parallelGraph.activateOnCurrentThread();
+        assertEquals(className, serialCount, parallelGraph.countClass(className));
+      }
+      assertEquals(29, parallelGraph.countClass("V"));
+      assertEquals(24, parallelGraph.countClass("E"));
+
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail();
+    } finally {
+      try {
+
+        // Dropping Source DB Schema and OrientGraph
+        String dbDropping = "drop schema public cascade";
+        st.execute(dbDropping);
+        connection.close();
+      } catch (Exception e) {
+        e.printStackTrace();
+        fail();
+      }
+      if (serialGraph != null) {
+        serialGraph.activateOnCurrentThread();
+        serialGraph.close();
+      }
+      if (parallelGraph != null) {
+        parallelGraph.activateOnCurrentThread();
+        parallelGraph.close();
+      }
+    }
+  }
+
+  /**
+   * A table split into several vertex classes is imported once by a single task, as in the serial
+   * import, and not once for each of its vertex classes.
+   */
+  @Test
+  public void splitEntityImportTest() {
+
+    Connection connection = null;
+    Statement st = null;
+
+    try {
+
+      Class.forName(this.driver);
+      connection = DriverManager.getConnection(this.jurl, this.username, this.password);
+      st = connection.createStatement();
+      this.buildSplittingSourceDatabase(st);
+
+      // the source tables of the migration config belong to the 'hsqldb' source
+      OSourceDatabaseInfo splittingSourceDBInfo =
+          new OSourceDatabaseInfo("hsqldb", this.driver, this.jurl, this.username, this.password);
+
+      this.importSourceDatabase(
+          this.serialDbName,
+          1,
+          splittingSourceDBInfo,
+          OMigrationConfigManager.loadMigrationConfigFromFile(this.splittingConfigPath));
+      OTeleporterStatistics serialStatistics = this.context.getStatistics();
+      assertEquals(12, serialStatistics.analyzedRecords);
+
+      this.importSourceDatabase(
+          this.parallelDbName,
+          4,
+          splittingSourceDBInfo,
+          OMigrationConfigManager.loadMigrationConfigFromFile(this.splittingConfigPath));
+      OTeleporterStatistics parallelStatistics = this.context.getStatistics();
+      assertEquals(serialStatistics.analyzedRecords, parallelStatistics.analyzedRecords);
+      assertEquals(serialStatistics.orientAddedVertices, parallelStatistics.orientAddedVertices);
+      assertEquals(serialStatistics.orientAddedEdges, parallelStatistics.orientAddedEdges);
+
+      this.assertSameClassCounts(SPLITTING_CLASSES);
+
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail();
+    } finally {
+      try {
+
+        // Dropping Source DB Schema and OrientGraph
+        String dbDropping = "drop schema public cascade";
+        st.execute(dbDropping);
+        connection.close();
+      } catch (Exception e) {
+        e.printStackTrace();
+        fail();
+      }
+    }
+  }
+
+  /** A failed task is rethrown by the executor and the tasks not yet started are skipped. */
+  @Test
+  public void taskFailureTest() {
+
+    Connection connection = null;
+    Statement st = null;
+
+    try {
+
+      Class.forName(this.driver);
+      connection = DriverManager.getConnection(this.jurl, this.username, this.password);
+      st = connection.createStatement();
+      this.buildSourceDatabase(st);
+
+      // importing the source db, so the target db is available to the workers
+      this.importSourceDatabase(this.parallelDbName, 2);
+
+      AtomicInteger executedTasks = new AtomicInteger();
+      OParallelImportExecutor executor = new OParallelImportExecutor(1, this.parallelDbName);
+      executor.addTask(
+          "failing task",
+          Collections.emptySet(),
+          orientGraph -> {
+            executedTasks.incrementAndGet();
+            throw new IllegalStateException("Task failure.");
+          });
+      executor.addTask(
+          "following task", Collections.emptySet(), orientGraph -> executedTasks.incrementAndGet());
+
+      try {
+        executor.execute();
+        fail("The failure of the task should be rethrown.");
+      } catch (OTeleporterRuntimeException e) {
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertEquals("Task failure.", e.getCause().getMessage());
+      }
+      // a single worker: the second task is never started
+      assertEquals(1, executedTasks.get());
+
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail();
+    } finally {
+      try {
+
+        // Dropping Source DB Schema and OrientGraph
+        String dbDropping = "drop schema public cascade";
+        st.execute(dbDropping);
+        connection.close();
+      } catch (Exception e) {
+        e.printStackTrace();
+        fail();
+      }
+    }
+  }
+
+  private void importSourceDatabase(String dbName, int parallelism) {
+    this.importSourceDatabase(dbName, parallelism, this.sourceDBInfo, null);
+  }
+
+  private void importSourceDatabase(
+      String dbName,
+      int parallelism,
+      OSourceDatabaseInfo sourceDBInfo,
+      ODocument migrationConfigDoc) {
+    this.context.setStatistics(new OTeleporterStatistics());
+    this.context.getImportSettings().setParallelism(parallelism);
+    ODBMSNaiveStrategy importStrategy =
+        new ODBMSNaiveStrategy("embedded", this.outParentDirectory, dbName);
+    importStrategy.executeStrategy(
+        sourceDBInfo,
+        this.outParentDirectory + dbName,
+        "basicDBMapper",
+        null,
+        "java",
+        null,
+        null,
+        migrationConfigDoc);
+  }
+
+  private void assertSameClassCounts(String[] classNames) {
+    ODatabaseDocument serialGraph =
+        this.context.getOrientDBInstance().open(this.serialDbName, "admin", "admin");
+    ODatabaseDocument parallelGraph =
+        this.context.getOrientDBInstance().open(this.parallelDbName, "admin", "admin");
+    try {
+      for (String className : classNames) {
+        serialGraph.activateOnCurrentThread();
+        long serialCount = serialGraph.countClass(className);
+        parallelGraph.activateOnCurrentThread();
+        assertEquals(className, serialCount, parallelGraph.countClass(className));
+      }
+    } finally {
+      serialGraph.activateOnCurrentThread();
+      serialGraph.close();
+      parallelGraph.activateOnCurrentThread();
+      parallelGraph.close();
+    }
+  }
+
+  private void buildSplittingSourceDatabase(Statement st) throws Exception {
+
+    // Tables Building
+
+    st.execute(
+        "create memory table EMPLOYEE_PROJECT (FIRST_NAME varchar(256) not null,"
+            + " LAST_NAME varchar(256) not null, SALARY double not null,"
+            + " DEPARTMENT varchar(256) not null, PROJECT varchar(256) not null,"
+            + " BALANCE double not null, ROLE varchar(256),"
+            + " primary key (FIRST_NAME,LAST_NAME,PROJECT))");
+    st.execute(
+        "create memory table DEPARTMENT (ID varchar(256), NAME varchar(256) not null,"
+            + " LOCATION varchar(256) not null, UPDATED_ON date not null, primary key (ID))");
+    st.execute(
+        "create memory table CHIEF_OFFICER (FIRST_NAME varchar(256) not null,"
+            + " LAST_NAME varchar(256) not null, PROJECT varchar(256) not null,"
+            + " primary key (FIRST_NAME,LAST_NAME))");
+
+    // Records Inserting
+
+    st.execute(
+        "insert into EMPLOYEE_PROJECT"
+            + " (FIRST_NAME,LAST_NAME,SALARY,DEPARTMENT,PROJECT,BALANCE,ROLE) values ("
+            + "('Joe','Black','20000','D001','Mars','12000','T'),"
+            + "('Thomas','Anderson','35000','D002','Venus','15000','T'),"
+            + "('Tyler','Durden','35000','D001','Iuppiter','20000','A'),"
+            + "('John','McClanenei','25000','D001','Venus','15000','S'),"
+            + "('Marty','McFly','40000','D002','Mars','12000','M'),"
+            + "('Marty','McFly','40000','D002','Mercury','5000','M'))");
+    st.execute(
+        "insert into DEPARTMENT (ID,NAME,LOCATION,UPDATED_ON) values ("
+            + "('D001','Data Migration','London','2016-05-10'),"
+            + "('D002','Contracts Update','Glasgow','2016-05-10'))");
+    st.execute(
+        "insert into CHIEF_OFFICER (FIRST_NAME,LAST_NAME,PROJECT) values ("
+            + "('Tim','Cook','Mars'),"
+            + "('Sundar','Pichai','Venus'),"
+            + "('Satya','Nadella','Iuppiter'),"
+            + "('Chuck','Robbins','Mercury'))");
+  }
+
+  private void buildSourceDatabase(Statement st) throws Exception {
+
+    // Tables Building
+
+    st.execute(
+        "create memory table DIRECTOR (ID varchar(256) not null, NAME  varchar(256),"
+            + " SURNAME varchar(256) not null, primary key (ID))");
+    st.execute(
+        "create memory table CATEGORY (ID varchar(256) not null, NAME  varchar(256),"
+            + " primary key (ID))");
+    st.execute(
+        "create memory table FILM (ID varchar(256) not null,"
+            + " TITLE varchar(256) not null, DIRECTOR varchar(256) not null,"
+            + " CATEGORY varchar(256) not null, primary key (ID),"
+            + " foreign key (DIRECTOR) references DIRECTOR(ID),"
+            + " foreign key (CATEGORY) references CATEGORY(ID))");
+    st.execute(
+        "create memory table ACTOR (ID varchar(256) not null, NAME  varchar(256),"
+            + " SURNAME varchar(256) not null, primary key (ID))");
+    st.execute(
+        "create memory table FILM_ACTOR (FILM_ID varchar(256) not null,"
+            + " ACTOR_ID  varchar(256), primary key (FILM_ID,ACTOR_ID),"
+            + " foreign key (FILM_ID) references FILM(ID),"
+            + " foreign key (ACTOR_ID) references ACTOR(ID))");
+
+    // Records Inserting
+
+    st.execute(
+        "insert into DIRECTOR (ID,NAME,SURNAME) values ("
+            + "('D001','Quentin','Tarantino'),"
+            + "('D002','Martin','Scorsese'))");
+    st.execute(
+        "insert into CATEGORY (ID,NAME) values ("
+            + "('C001','Thriller'),"
+            + "('C002','Action'),"
+            + "('C003','Sci-Fi'),"
+            + "('C004','Fantasy'),"
+            + "('C005','Comedy'),"
+            + "('C006','Drama'),"
+            + "('C007','War'))");
+    st.execute(
+        "insert into FILM (ID,TITLE,DIRECTOR,CATEGORY) values ("
+            + "('F001','Pulp Fiction','D001','C002'),"
+            + "('F002','Shutter Island','D002','C001'),"
+            + "('F003','The Departed','D002','C001'))");
+    st.execute(
+        "insert into ACTOR (ID,NAME,SURNAME) values ("
+            + "('A001','John','Travolta'),"
+            + "('A002','Samuel','Lee Jackson'),"
+            + "('A003','Bruce','Willis'),"
+            + "('A004','Leonardo','Di Caprio'),"
+            + "('A005','Ben','Kingsley'),"
+            + "('A006','Mark','Ruffalo'),"
+            + "('A007','Jack','Nicholson'),"
+            + "('A008','Matt','Damon'))");
+    st.execute(
+        "insert into FILM_ACTOR (FILM_ID,ACTOR_ID) values ("
+            + "('F001','A001'),"
+            + "('F001','A002'),"
+            + "('F001','A003'),"
+            + "('F002','A004'),"
+            + "('F002','A005'),"
+            + "('F002','A006'),"
+            + "('F003','A004'),"
+            + "('F003','A007'),"
+            + "('F003','A008'))");
+  }
+}
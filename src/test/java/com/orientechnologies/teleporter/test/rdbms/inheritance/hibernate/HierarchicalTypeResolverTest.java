@@ -0,0 +1,280 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.inheritance.hibernate;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OEdge;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import com.orientechnologies.teleporter.context.OImportSettings;
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterMessageHandler;
+import com.orientechnologies.teleporter.context.OTeleporterStatistics;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.nameresolver.OJavaConventionNameResolver;
+import com.orientechnologies.teleporter.persistence.handler.OHSQLDBDataTypeHandler;
+import com.orientechnologies.teleporter.strategy.rdbms.ODBMSNaiveStrategy;
+import com.orientechnologies.teleporter.util.OFileManager;
+import com.orientechnologies.teleporter.util.OGraphCommands;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Iterator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The manager referenced by an employee is a project manager: the reached vertex must be of the
+ * most specific class of the hierarchical bag, both when the keys of the bag are preloaded by the
+ * type resolver and when they are looked up record by record (type resolver cache disabled).
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class HierarchicalTypeResolverTest {
+
+  private OTeleporterContext context;
+  private String driver = "org.hsqldb.jdbc.JDBCDriver";
+  private String jurl = "jdbc:hsqldb:mem:mydb";
+  private String username = "SA";
+  private String password = "";
+  private String dbName = "testOrientDB";
+  private String outParentDirectory = "embedded:target/";
+  private OSourceDatabaseInfo sourceDBInfo;
+
+  private static final String XML_TABLE_PER_CLASS =
+      "src/test/resources/inheritance/hibernate/tablePerClassHierarchyImportTest.xml";
+  private static final String XML_TABLE_PER_SUBCLASS =
+      "src/test/resources/inheritance/hibernate/tablePerSubclassImportTest1.xml";
+  private static final String XML_TABLE_PER_CONCRETE_CLASS =
+      "src/test/resources/inheritance/hibernate/tablePerConcreteClassImportTest.xml";
+
+  private static final int[] CACHE_SIZES = {OImportSettings.DEFAULT_TYPE_RESOLVER_CACHE_SIZE, 0};
+
+  @Before
+  public void init() {
+    this.context = OTeleporterContext.newInstance(this.outParentDirectory);
+    this.context.initOrientDBInstance(this.outParentDirectory);
+    this.context.setDbQueryEngine(new ODBQueryEngine(this.driver));
+    this.context.setMessageHandler(new OTeleporterMessageHandler(0));
+    this.context.setNameResolver(new OJavaConventionNameResolver());
+    this.context.setDataTypeHandler(new OHSQLDBDataTypeHandler());
+    this.sourceDBInfo =
+        new OSourceDatabaseInfo("source", this.driver, this.jurl, this.username, this.password);
+  }
+
+  @After
+  public void tearDown() {
+
+    // closing OrientDB instance
+    this.context.closeOrientDBInstance();
+
+    try {
+
+      // Deleting database directories
+      for (int cacheSize : CACHE_SIZES) {
+        OFileManager.deleteResource(
+            this.outParentDirectory.replace("embedded:", "") + this.dbName + cacheSize);
+      }
+
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /** "table-per-hierarchy" bags: the type is given by the discriminator column. */
+  @Test
+  public void singleTableTest() {
+
+    this.importAndCheck(
+        XML_TABLE_PER_CLASS,
+        "create memory table RESIDENCE(ID varchar(256) not null, CITY varchar(256),"
+            + " COUNTRY varchar(256), primary key (ID))",
+        "create memory table MANAGER(ID varchar(256) not null, TYPE varchar(256),"
+            + " NAME varchar(256), PROJECT varchar(256), primary key (ID))",
+        "create memory table EMPLOYEE (ID varchar(256) not null, TYPE varchar(256),"
+            + " NAME varchar(256), SALARY decimal(10,2), BONUS decimal(10,0),"
+            + " PAY_PER_HOUR decimal(10,2), CONTRACT_DURATION varchar(256),"
+            + " RESIDENCE varchar(256), MANAGER varchar(256), primary key (ID),"
+            + " foreign key (RESIDENCE) references RESIDENCE(ID),"
+            + " foreign key (MANAGER) references MANAGER(ID))",
+        "insert into RESIDENCE (ID,CITY,COUNTRY) values (('R001','Rome','Italy'))",
+        "insert into MANAGER (ID,TYPE,NAME,PROJECT) values ("
+            + "('M001','prj_mgr','Bill Right','New World'),"
+            + "('M002','mgr','Tom Gray',NULL))",
+        "insert into EMPLOYEE (ID,TYPE,NAME,SALARY,BONUS,PAY_PER_HOUR,CONTRACT_DURATION,"
+            + "RESIDENCE,MANAGER) values ("
+            + "('E001','emp','John Black',NULL,NULL,NULL,NULL,'R001','M002'),"
+            + "('E002','reg_emp','Andrew Brown','1000.00','10',NULL,NULL,'R001','M001'))");
+  }
+
+  /** "table-per-type" bags: the type is given by the deepest table containing the key. */
+  @Test
+  public void tablePerTypeTest() {
+
+    this.importAndCheck(
+        XML_TABLE_PER_SUBCLASS,
+        "create memory table RESIDENCE(ID varchar(256) not null, CITY varchar(256),"
+            + " COUNTRY varchar(256), primary key (ID))",
+        "create memory table MANAGER(ID varchar(256) not null, NAME varchar(256),"
+            + " primary key (ID))",
+        "create memory table PROJECT_MANAGER(EID varchar(256) not null, PROJECT varchar(256),"
+            + " primary key (EID), foreign key (EID) references MANAGER(ID))",
+        "create memory table EMPLOYEE (ID varchar(256) not null, NAME varchar(256),"
+            + " RESIDENCE varchar(256), MANAGER varchar(256), primary key (ID),"
+            + " foreign key (RESIDENCE) references RESIDENCE(ID),"
+            + " foreign key (MANAGER) references MANAGER(ID))",
+        "create memory table REGULAR_EMPLOYEE (EID varchar(256) not null,"
+            + " SALARY decimal(10,2), BONUS decimal(10,0), primary key (EID),"
+            + " foreign key (EID) references EMPLOYEE(ID))",
+        "create memory table CONTRACT_EMPLOYEE (EID varchar(256) not null,"
+            + " PAY_PER_HOUR decimal(10,2), CONTRACT_DURATION varchar(256), primary key (EID),"
+            + " foreign key (EID) references EMPLOYEE(ID))",
+        "insert into RESIDENCE (ID,CITY,COUNTRY) values (('R001','Rome','Italy'))",
+        "insert into MANAGER (ID,NAME) values (('M001','Bill Right'),('M002','Tom Gray'))",
+        "insert into PROJECT_MANAGER (EID,PROJECT) values (('M001','New World'))",
+        "insert into EMPLOYEE (ID,NAME,RESIDENCE,MANAGER) values ("
+            + "('E001','John Black','R001','M002'),"
+            + "('E002','Andrew Brown','R001','M001'))",
+        "insert into REGULAR_EMPLOYEE (EID,SALARY,BONUS) values (('E002','1000.00','10'))");
+  }
+
+  /** "table-per-concrete-type" bags: the type is given by the table containing the key. */
+  @Test
+  public void tablePerConcreteTypeTest() {
+
+    this.importAndCheck(
+        XML_TABLE_PER_CONCRETE_CLASS,
+        "create memory table RESIDENCE(ID varchar(256) not null, CITY varchar(256),"
+            + " COUNTRY varchar(256), primary key (ID))",
+        "create memory table MANAGER(ID varchar(256) not null, NAME varchar(256),"
+            + " primary key (ID))",
+        "create memory table PROJECT_MANAGER(ID varchar(256) not null, NAME varchar(256),"
+            + " PROJECT varchar(256), primary key (ID))",
+        "create memory table EMPLOYEE (ID varchar(256) not null, NAME varchar(256),"
+            + " RESIDENCE varchar(256), MANAGER varchar(256), primary key (ID),"
+            + " foreign key (RESIDENCE) references RESIDENCE(ID),"
+            + " foreign key (MANAGER) references MANAGER(ID))",
+        "create memory table REGULAR_EMPLOYEE (ID varchar(256) not null, NAME varchar(256),"
+            + " RESIDENCE varchar(256), MANAGER varchar(256), SALARY decimal(10,2),"
+            + " BONUS decimal(10,0), primary key (ID))",
+        "create memory table CONTRACT_EMPLOYEE (ID varchar(256) not null, NAME varchar(256),"
+            + " RESIDENCE varchar(256), MANAGER varchar(256), PAY_PER_HOUR decimal(10,2),"
+            + " CONTRACT_DURATION varchar(256), primary key (ID))",
+        "insert into RESIDENCE (ID,CITY,COUNTRY) values (('R001','Rome','Italy'))",
+        "insert into MANAGER (ID,NAME) values (('M001','Bill Right'),('M002','Tom Gray'))",
+        "insert into PROJECT_MANAGER (ID,NAME,PROJECT) values (('M001','Bill Right','New World'))",
+        "insert into EMPLOYEE (ID,NAME,RESIDENCE,MANAGER) values ("
+            + "('E001','John Black','R001','M002'),"
+            + "('E002','Andrew Brown','R001','M001'))",
+        "insert into REGULAR_EMPLOYEE (ID,NAME,RESIDENCE,MANAGER,SALARY,BONUS) values ("
+            + "('E002','Andrew Brown','R001','M001','1000.00','10'))");
+  }
+
+  /**
+   * Builds the source database and imports it with the type resolver and without it, checking the
+   * class of the reached managers.
+   */
+  private void importAndCheck(String xmlPath, String... sourceStatements) {
+
+    Connection connection = null;
+    Statement st = null;
+
+    try {
+
+      Class.forName(this.driver);
+      connection = DriverManager.getConnection(this.jurl, this.username, this.password);
+      st = connection.createStatement();
+      for (String statement : sourceStatements) {
+        st.execute(statement);
+      }
+
+      for (int cacheSize : CACHE_SIZES) {
+
+        String currentDbName = this.dbName + cacheSize;
+        this.context.setStatistics(new OTeleporterStatistics());
+        this.context.getImportSettings().setTypeResolverCacheSize(cacheSize);
+        ODBMSNaiveStrategy importStrategy =
+            new ODBMSNaiveStrategy("embedded", this.outParentDirectory, currentDbName);
+        importStrategy.executeStrategy(
+            this.sourceDBInfo,
+            this.outParentDirectory + currentDbName,
+            "hibernate",
+            xmlPath,
+            "java",
+            null,
+            null,
+            null);
+
+        ODatabaseDocument orientGraph =
+            this.context.getOrientDBInstance().open(currentDbName, "admin", "admin");
+        try {
+
+          // no manager vertex is added while reaching the managers from the employees
+          assertEquals(2, orientGraph.countClass("Manager"));
+          assertEquals(1, orientGraph.countClass("ProjectManager"));
+          assertEquals(2, orientGraph.countClass("HasManager"));
+
+          assertEquals("ProjectManager", this.getManagerClassName(orientGraph, "E002"));
+          assertEquals("Manager", this.getManagerClassName(orientGraph, "E001"));
+        } finally {
+          orientGraph.close();
+        }
+      }
+
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail();
+    } finally {
+      try {
+
+        // Dropping Source DB Schema and OrientGraph
+        String dbDropping = "drop schema public cascade";
+        st.execute(dbDropping);
+        connection.close();
+      } catch (Exception e) {
+        e.printStackTrace();
+        fail();
+      }
+    }
+  }
+
+  private String getManagerClassName(ODatabaseDocument orientGraph, String employeeId) {
+
+    String[] keys = {"id"};
+    String[] values = {employeeId};
+    OResultSet result = OGraphCommands.getVertices(orientGraph, "Employee", keys, values);
+    assertTrue(result.hasNext());
+    OVertex employee = result.next().getVertex().get();
+    result.close();
+
+    Iterator<OEdge> edgesIt = employee.getEdges(ODirection.OUT, "HasManager").iterator();
+    assertTrue(edgesIt.hasNext());
+    OVertex manager = edgesIt.next().getVertex(ODirection.IN);
+    assertFalse(edgesIt.hasNext());
+    return manager.getSchemaType().get().getName();
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.inheritance.hibernate;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterMessageHandler;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.nameresolver.OJavaConventionNameResolver;
+import com.orientechnologies.teleporter.persistence.handler.OHSQLDBDataTypeHandler;
+import com.orientechnologies.teleporter.strategy.rdbms.ODBMSNaiveStrategy;
+import com.orientechnologies.teleporter.util.OFileManager;
+import com.orientechnologies.teleporter.util.OGraphCommands;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Import of a "table-per-type" hierarchy: the records of each subclass are read by a join of the
+ * root table restricted to the keys present in the table of the subclass.
+ *
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class TablePerTypeImportTest {
+
+  private OTeleporterContext context;
+  private ODBMSNaiveStrategy importStrategy;
+  private String driver = "org.hsqldb.jdbc.JDBCDriver";
+  private String jurl = "jdbc:hsqldb:mem:mydb";
+  private String username = "SA";
+  private String password = "";
+  private String dbName = "testOrientDB";
+  private String outParentDirectory = "embedded:target/";
+  private String outOrientGraphUri = this.outParentDirectory + this.dbName;
+  private OSourceDatabaseInfo sourceDBInfo;
+
+  private static final String XML_TABLE_PER_SUBCLASS =
+      "src/test/resources/inheritance/hibernate/tablePerSubclassImportTest1.xml";
+
+  @Before
+  public void init() {
+    this.context = OTeleporterContext.newInstance(this.outParentDirectory);
+    this.context.initOrientDBInstance(this.outParentDirectory);
+    this.context.setDbQueryEngine(new ODBQueryEngine(this.driver));
+    this.context.setMessageHandler(new OTeleporterMessageHandler(0));
+    this.context.setNameResolver(new OJavaConventionNameResolver());
+    this.context.setDataTypeHandler(new OHSQLDBDataTypeHandler());
+    this.importStrategy = new ODBMSNaiveStrategy("embedded", this.outParentDirectory, this.dbName);
+    this.sourceDBInfo =
+        new OSourceDatabaseInfo("source", this.driver, this.jurl, this.username, this.password);
+  }
+
+  @After
+  public void tearDown() {
+
+    // closing OrientDB instance
+    this.context.closeOrientDBInstance();
+
+    try {
+
+      // Deleting database directory
+      OFileManager.deleteResource(this.outOrientGraphUri.replace("embedded:", ""));
+
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Test
+  public void tablePerTypeImportTest() {
+
+    Connection connection = null;
+    Statement st = null;
+    ODatabaseDocument orientGraph = null;
+
+    try {
+
+      Class.forName(this.driver);
+      connection = DriverManager.getConnection(this.jurl, this.username, this.password);
+      st = connection.createStatement();
+
+      st.execute(
+          "create memory table RESIDENCE(ID varchar(256) not null, CITY varchar(256),"
+              + " COUNTRY varchar(256), primary key (ID))");
+      st.execute(
+          "create memory table MANAGER(ID varchar(256) not null, NAME varchar(256),"
+              + " primary key (ID))");
+      st.execute(
+          "create memory table PROJECT_MANAGER(EID varchar(256) not null, PROJECT varchar(256),"
+              + " primary key (EID), foreign key (EID) references MANAGER(ID))");
+      st.execute(
+          "create memory table EMPLOYEE (ID varchar(256) not null, NAME varchar(256),"
+              + " RESIDENCE varchar(256), MANAGER varchar(256), primary key (ID),"
+              + " foreign key (RESIDENCE) references RESIDENCE(ID),"
+              + " foreign key (MANAGER) references MANAGER(ID))");
+      st.execute(
+          "create memory table REGULAR_EMPLOYEE (EID varchar(256) not null,"
+              + " SALARY decimal(10,2), BONUS decimal(10,0), primary key (EID),"
+              + " foreign key (EID) references EMPLOYEE(ID))");
+      st.execute(
+          "create memory table CONTRACT_EMPLOYEE (EID varchar(256) not null,"
+              + " PAY_PER_HOUR decimal(10,2), CONTRACT_DURATION varchar(256), primary key (EID),"
+              + " foreign key (EID) references EMPLOYEE(ID))");
+
+      st.execute(
+          "insert into RESIDENCE (ID,CITY,COUNTRY) values ("
+              + "('R001','Rome','Italy'),"
+              + "('R002','Milan','Italy'))");
+      st.execute("insert into MANAGER (ID,NAME) values (('M001','Bill Right'))");
+      st.execute("insert into PROJECT_MANAGER (EID,PROJECT) values (('M001','New World'))");
+      st.execute(
+          "insert into EMPLOYEE (ID,NAME,RESIDENCE,MANAGER) values ("
+              + "('E001','John Black','R001',NULL),"
+              + "('E002','Andrew Brown','R001','M001'),"
+              + "('E003','Jack Johnson','R002',NULL),"
+              + "('E004','Ann Smith','R002',NULL))");
+      st.execute(
+          "insert into REGULAR_EMPLOYEE (EID,SALARY,BONUS) values ("
+              + "('E002','1000.00','10'),"
+              + "('E004','1200.00','20'))");
+      st.execute(
+          "insert into CONTRACT_EMPLOYEE (EID,PAY_PER_HOUR,CONTRACT_DURATION) values ("
+              + "('E003','50.00','6'))");
+
+      this.importStrategy.executeStrategy(
+          this.sourceDBInfo,
+          this.outOrientGraphUri,
+          "hibernate",
+          XML_TABLE_PER_SUBCLASS,
+          "java",
+          null,
+          null,
+          null);
+
+      assertEquals(11, this.context.getStatistics().totalNumberOfRecords);
+      assertEquals(7, this.context.getStatistics().orientAddedVertices);
+      assertEquals(5, this.context.getStatistics().orientAddedEdges);
+
+      orientGraph = this.context.getOrientDBInstance().open(this.dbName, "admin", "admin");
+
+      // each record of the root is imported once, into the class of the most specific table
+      assertEquals(7, orientGraph.countClass("V"));
+      assertEquals(4, orientGraph.countClass("Employee"));
+      assertEquals(2, orientGraph.countClass("RegularEmployee"));
+      assertEquals(1, orientGraph.countClass("ContractEmployee"));
+      assertEquals(1, orientGraph.countClass("Manager"));
+      assertEquals(1, orientGraph.countClass("ProjectManager"));
+      assertEquals(2, orientGraph.countClass("Residence"));
+      assertEquals(4, orientGraph.countClass("HasResidence"));
+      assertEquals(1, orientGraph.countClass("HasManager"));
+
+      this.checkEmployee(orientGraph, "E001", "Employee", null);
+      this.checkEmployee(orientGraph, "E002", "RegularEmployee", "1000.00");
+      this.checkEmployee(orientGraph, "E003", "ContractEmployee", null);
+      this.checkEmployee(orientGraph, "E004", "RegularEmployee", "1200.00");
+
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail();
+    } finally {
+      try {
+
+        // Dropping Source DB Schema and OrientGraph
+        String dbDropping = "drop schema public cascade";
+        st.execute(dbDropping);
+        connection.close();
+      } catch (Exception e) {
+        e.printStackTrace();
+        fail();
+      }
+      if (orientGraph != null) {
+        orientGraph.close();
+      }
+    }
+  }
+
+  private void checkEmployee(
+      ODatabaseDocument orientGraph, String id, String className, String salary) {
+
+    String[] keys = {"id"};
+    String[] values = {id};
+    OResultSet result = OGraphCommands.getVertices(orientGraph, "Employee", keys, values);
+    assertTrue(result.hasNext());
+    OVertex v = result.next().getVertex().get();
+    assertFalse(result.hasNext());
+    result.close();
+
+    assertEquals(className, v.getSchemaType().get().getName());
+    if (salary != null) {
+      assertEquals(salary, v.getProperty("salary").toString());
+    } else {
+      assertNull(v.getProperty("salary"));
+    }
+  }
+}
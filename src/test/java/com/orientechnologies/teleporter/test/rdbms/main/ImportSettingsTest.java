@@ -0,0 +1,187 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.main;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.teleporter.context.OImportSettings;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class ImportSettingsTest {
+
+  @Test
+  public void settingsFromArgumentsTest() {
+
+    Map<String, String> arguments = new HashMap<String, String>();
+    OImportSettings settings = OImportSettings.fromArguments(arguments);
+    assertEquals(OImportSettings.DEFAULT_BATCH_SIZE, settings.getBatchSize());
+    assertFalse(settings.isBatchImportEnabled());
+
+    arguments.put("-batchsize", "1000");
+    settings = OImportSettings.fromArguments(arguments);
+    assertEquals(1000, settings.getBatchSize());
+    assertTrue(settings.isBatchImportEnabled());
+
+    arguments.put("-batchsize", "0");
+    try {
+      OImportSettings.fromArguments(arguments);
+      fail("A not positive batch size should be rejected.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    arguments.put("-batchsize", "many");
+    try {
+      OImportSettings.fromArguments(arguments);
+      fail("A not numeric batch size should be rejected.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    arguments.remove("-batchsize");
+    settings = OImportSettings.fromArguments(arguments);
+    assertEquals(OImportSettings.DEFAULT_PARALLELISM, settings.getParallelism());
+    assertFalse(settings.isParallelImportEnabled());
+
+    arguments.put("-parallelism", "4");
+    settings = OImportSettings.fromArguments(arguments);
+    assertEquals(4, settings.getParallelism());
+    assertTrue(settings.isParallelImportEnabled());
+
+    assertFalse(settings.isPartitionedScanEnabled());
+    arguments.put("-partitions", "16");
+    settings = OImportSettings.fromArguments(arguments);
+    assertEquals(16, settings.getPartitions());
+    assertTrue(settings.isPartitionedScanEnabled());
+
+    assertFalse(settings.isTwoPhaseImportEnabled());
+    arguments.put("-twophase", "true");
+    settings = OImportSettings.fromArguments(arguments);
+    assertTrue(settings.isTwoPhaseImportEnabled());
+
+    assertEquals(OImportSettings.LobMode.INLINE, settings.getLobMode());
+    arguments.put("-lobmode", "Chunked");
+    arguments.put("-lobthreshold", "65536");
+    settings = OImportSettings.fromArguments(arguments);
+    assertEquals(OImportSettings.LobMode.CHUNKED, settings.getLobMode());
+    assertEquals(65536, settings.getLobThreshold());
+
+    arguments.put("-lobmode", "lazy");
+    try {
+      OImportSettings.fromArguments(arguments);
+      fail("A not valid LOB mode should be rejected.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    arguments.remove("-lobmode");
+
+    assertEquals(OImportSettings.RecordCountMode.ESTIMATED, settings.getRecordCountMode());
+    arguments.put("-recordcount", "background");
+    settings = OImportSettings.fromArguments(arguments);
+    assertEquals(OImportSettings.RecordCountMode.BACKGROUND, settings.getRecordCountMode());
+
+    arguments.put("-recordcount", "guessed");
+    try {
+      OImportSettings.fromArguments(arguments);
+      fail("A not valid record count mode should be rejected.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    arguments.remove("-recordcount");
+
+    assertFalse(settings.isSchemaSnapshotEnabled());
+    arguments.put("-schemasnapshot", "true");
+    settings = OImportSettings.fromArguments(arguments);
+    assertTrue(settings.isSchemaSnapshotEnabled());
+
+    arguments.put("-twophase", "yes");
+    try {
+      OImportSettings.fromArguments(arguments);
+      fail("A not boolean two-phase flag should be rejected.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void settingsFromConfigurationTest() {
+
+    ODocument cfg = new ODocument();
+    OImportSettings settings = OImportSettings.fromConfiguration(cfg);
+    assertEquals(OImportSettings.DEFAULT_BATCH_SIZE, settings.getBatchSize());
+
+    cfg.field("batchSize", 500);
+    settings = OImportSettings.fromConfiguration(cfg);
+    assertEquals(500, settings.getBatchSize());
+
+    cfg.field("batchSize", "250");
+    settings = OImportSettings.fromConfiguration(cfg);
+    assertEquals(250, settings.getBatchSize());
+
+    cfg.field("parallelism", 8);
+    settings = OImportSettings.fromConfiguration(cfg);
+    assertEquals(8, settings.getParallelism());
+
+    assertEquals(OImportSettings.DEFAULT_FETCH_SIZE, settings.getFetchSize());
+    cfg.field("fetchSize", 5000);
+    settings = OImportSettings.fromConfiguration(cfg);
+    assertEquals(5000, settings.getFetchSize());
+
+    cfg.field("keyCacheSize", 0);
+    settings = OImportSettings.fromConfiguration(cfg);
+    assertEquals(0, settings.getKeyCacheSize());
+
+    assertEquals(
+        OImportSettings.DEFAULT_TYPE_RESOLVER_CACHE_SIZE, settings.getTypeResolverCacheSize());
+    cfg.field("typeResolverCacheSize", 0);
+    settings = OImportSettings.fromConfiguration(cfg);
+    assertEquals(0, settings.getTypeResolverCacheSize());
+
+    assertEquals(OImportSettings.DEFAULT_EDGE_SET_SIZE, settings.getEdgeSetSize());
+    cfg.field("edgeSetSize", 0);
+    settings = OImportSettings.fromConfiguration(cfg);
+    assertEquals(0, settings.getEdgeSetSize());
+
+    assertEquals(OImportSettings.DEFAULT_MAX_JSON_SIZE, settings.getMaxJsonSize());
+    cfg.field("maxJsonSize", 1024);
+    settings = OImportSettings.fromConfiguration(cfg);
+    assertEquals(1024, settings.getMaxJsonSize());
+
+    cfg.field("twoPhaseImport", true);
+    settings = OImportSettings.fromConfiguration(cfg);
+    assertTrue(settings.isTwoPhaseImportEnabled());
+
+    cfg.field("recordCount", "EXACT");
+    settings = OImportSettings.fromConfiguration(cfg);
+    assertEquals(OImportSettings.RecordCountMode.EXACT, settings.getRecordCountMode());
+
+    cfg.field("schemaSnapshot", "true");
+    settings = OImportSettings.fromConfiguration(cfg);
+    assertTrue(settings.isSchemaSnapshotEnabled());
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.mapper;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.teleporter.configuration.OConfigurationHandler;
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterMessageHandler;
+import com.orientechnologies.teleporter.context.OTeleporterStatistics;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
+import com.orientechnologies.teleporter.mapper.rdbms.OER2GraphMapper;
+import com.orientechnologies.teleporter.model.dbschema.OAttribute;
+import com.orientechnologies.teleporter.model.dbschema.OCanonicalRelationship;
+import com.orientechnologies.teleporter.model.dbschema.OEntity;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.nameresolver.OJavaConventionNameResolver;
+import com.orientechnologies.teleporter.persistence.handler.OHSQLDBDataTypeHandler;
+import com.orientechnologies.teleporter.persistence.util.ODBSourceConnection;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class ParallelSchemaBuildingTest {
+
+  private static final int TABLES = 12;
+
+  private OTeleporterContext context;
+  private String driver = "org.hsqldb.jdbc.JDBCDriver";
+  private String jurl = "jdbc:hsqldb:mem:mydb";
+  private String username = "SA";
+  private String password = "";
+  private OSourceDatabaseInfo sourceDBInfo;
+  private String outParentDirectory = "embedded:target/";
+
+  @Before
+  public void init() throws Exception {
+    this.context = OTeleporterContext.newInstance(this.outParentDirectory);
+    this.context.setDbQueryEngine(new ODBQueryEngine(this.driver));
+    this.context.setMessageHandler(new OTeleporterMessageHandler(0));
+    this.context.setDataTypeHandler(new OHSQLDBDataTypeHandler());
+    this.context.setStatistics(new OTeleporterStatistics());
+    this.sourceDBInfo =
+        new OSourceDatabaseInfo("source", this.driver, this.jurl, this.username, this.password);
+
+    // a chain of tables, each one referencing the previous one, with a growing number of records
+    Class.forName(this.driver);
+    try (Connection connection =
+            DriverManager.getConnection(this.jurl, this.username, this.password);
+        Statement st = connection.createStatement()) {
+      for (int i = 0; i < TABLES; i++) {
+        st.execute(
+            String.format(
+                "create memory table TABLE_%d (ID integer not null, NAME varchar(%d),"
+                    + " AMOUNT decimal(10,%d)%s, primary key (ID)%s)",
+                i,
+                10 + i,
+                i % 4,
+                i > 0 ? ", PREVIOUS integer" : "",
+                i > 0 ? ", foreign key (PREVIOUS) references TABLE_" + (i - 1) + "(ID)" : ""));
+        for (int j = 0; j <= i; j++) {
+          st.execute(
+              String.format(
+                  "insert into TABLE_%d values (%d, 'name%d', %d%s)",
+                  i, j, j, j, i > 0 ? ", 0" : ""));
+        }
+      }
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    ODBSourceConnection.closeAllConnectionPools();
+    try (Connection connection =
+            DriverManager.getConnection(this.jurl, this.username, this.password);
+        Statement st = connection.createStatement()) {
+      st.execute("drop schema public cascade");
+    }
+  }
+
+  @Test
+  /*
+   * The schema and the configuration built with the tables read concurrently are the same built
+   * reading the tables one at a time: entities in the same order, same attributes, primary keys
+   * and relationships, and the same number of records.
+   */
+  public void parallelSchemaBuildingTest() throws Exception {
+
+    this.context.getImportSettings().setParallelism(1);
+    OER2GraphMapper serialMapper = this.buildMapper();
+    String serialSchema = describe(serialMapper);
+    String serialConfiguration = configuration(serialMapper);
+    long serialRecords = this.context.getStatistics().totalNumberOfRecords;
+
+    this.context.setStatistics(new OTeleporterStatistics());
+    this.context.getImportSettings().setParallelism(4);
+    OER2GraphMapper parallelMapper = this.buildMapper();
+
+    assertEquals(TABLES, parallelMapper.getDataBaseSchema().getEntities().size());
+    assertEquals(TABLES * (TABLES + 1) / 2, serialRecords);
+    assertEquals(serialSchema, describe(parallelMapper));
+    assertEquals(serialConfiguration, configuration(parallelMapper));
+    assertEquals(serialRecords, this.context.getStatistics().totalNumberOfRecords);
+  }
+
+  private OER2GraphMapper buildMapper() {
+    OER2GraphMapper mapper = new OER2GraphMapper(this.sourceDBInfo, null, null, null);
+    mapper.buildSourceDatabaseSchema();
+    mapper.buildGraphModel(new OJavaConventionNameResolver());
+    return mapper;
+  }
+
+  /** @return the entities in order, each one with its attributes, primary key and relationships */
+  private static String describe(OER2GraphMapper mapper) {
+    StringBuilder description = new StringBuilder();
+    for (OEntity entity : mapper.getDataBaseSchema().getEntities()) {
+      description.append(entity.getName()).append(" (");
+      for (OAttribute attribute : entity.getAttributes()) {
+        description
+            .append(attribute.getName())
+            .append(' ')
+            .append(attribute.getOrdinalPosition())
+            .append(' ')
+            .append(attribute.getDataType())
+            .append(' ')
+            .append(attribute.getColumnSize())
+            .append(' ')
+            .append(attribute.getDecimalDigits())
+            .append(", ");
+      }
+      description.append(") pk ").append(names(entity.getPrimaryKey().getInvolvedAttributes()));
+      for (OCanonicalRelationship relationship : entity.getOutCanonicalRelationships()) {
+        description
+            .append(" -> ")
+            .append(relationship.getParentEntity().getName())
+            .append(names(relationship.getFromColumns()))
+            .append(names(relationship.getToColumns()));
+      }
+      description.append('\n');
+    }
+    return description.toString();
+  }
+
+  private static List<String> names(List<OAttribute> attributes) {
+    List<String> names = new ArrayList<String>();
+    for (OAttribute attribute : attributes) {
+      names.add(attribute.getName());
+    }
+    return names;
+  }
+
+  private static String configuration(OER2GraphMapper mapper) {
+    OConfigurationHandler configurationHandler = new OConfigurationHandler(false);
+    return configurationHandler
+        .buildJSONDocFromConfiguration(configurationHandler.buildConfigurationFromMapper(mapper))
+        .toJSON();
+  }
+}
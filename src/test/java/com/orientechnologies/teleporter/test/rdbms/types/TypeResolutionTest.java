@@ -0,0 +1,146 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterMessageHandler;
+import com.orientechnologies.teleporter.context.OTeleporterStatistics;
+import com.orientechnologies.teleporter.model.dbschema.OAttribute;
+import com.orientechnologies.teleporter.persistence.handler.OColumnExtractor;
+import com.orientechnologies.teleporter.persistence.handler.OOracleDataTypeHandler;
+import com.orientechnologies.teleporter.persistence.handler.OPostgreSQLDataTypeHandler;
+import com.orientechnologies.teleporter.persistence.handler.OSQLServerDataTypeHandler;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Types;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class TypeResolutionTest {
+
+  private OTeleporterContext context;
+
+  @Before
+  public void init() {
+    this.context = OTeleporterContext.newInstance("embedded:target/");
+    this.context.setMessageHandler(new OTeleporterMessageHandler(0));
+  }
+
+  @Test
+  /*
+   * Mapped types are resolved after normalization, a not convertible type is reported with a
+   * single warning and its values are counted as they are converted, not its resolutions.
+   */
+  public void typeResolutionTest() throws Exception {
+
+    OSQLServerDataTypeHandler handler = new OSQLServerDataTypeHandler();
+    OTeleporterStatistics statistics = this.context.getStatistics();
+
+    assertEquals(OType.INTEGER, handler.resolveType("int identity"));
+    assertEquals(OType.INTEGER, handler.resolveType("int identity"));
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(OType.STRING, handler.resolveType("unknowntype"));
+    }
+    assertEquals(1, statistics.warningMessages.size());
+    assertEquals(1, statistics.notConvertibleTypes.size());
+    assertEquals(0, statistics.notConvertibleTypes.get("unknowntype").sum());
+
+    // 2 values and a NULL extracted
+    OColumnExtractor extractor = handler.buildExtractor("value", "STRING", "UnknownType");
+    ResultSet record = strings("a", "b", null);
+    assertEquals("a", extractor.extract(record, 1));
+    assertEquals("b", extractor.extract(record, 2));
+    assertNull(extractor.extract(record, 3));
+    assertEquals(1, statistics.warningMessages.size());
+    assertEquals(2, statistics.notConvertibleTypes.get("unknowntype").sum());
+
+    // mapped types are not counted
+    handler.buildExtractor("name", "STRING", "varchar").extract(record, 1);
+    assertEquals(1, statistics.notConvertibleTypes.size());
+  }
+
+  @Test
+  /*
+   * Oracle NUMBER columns without decimal digits are resolved by their precision.
+   */
+  public void numberPrecisionTest() {
+
+    OOracleDataTypeHandler handler = new OOracleDataTypeHandler();
+
+    assertEquals(OType.INTEGER, handler.resolveType(number(9, 0)));
+    assertEquals(OType.LONG, handler.resolveType(number(18, 0)));
+    assertEquals(OType.DECIMAL, handler.resolveType(number(38, 0)));
+    assertEquals(OType.DOUBLE, handler.resolveType(number(10, 2)));
+    assertEquals(OType.DOUBLE, handler.resolveType(number(-1, -1)));
+  }
+
+  @Test
+  /*
+   * Key values bound as strings keep the VARCHAR type, but on PostgreSQL the columns of not
+   * character types (uuid, enum, inet...) are bound with an unspecified type.
+   */
+  public void stringParameterTypeTest() {
+
+    OPostgreSQLDataTypeHandler postgreSQLHandler = new OPostgreSQLDataTypeHandler();
+    assertEquals(Types.VARCHAR, postgreSQLHandler.getStringParameterType(column("varchar")));
+    assertEquals(Types.VARCHAR, postgreSQLHandler.getStringParameterType(column("BPCHAR")));
+    assertEquals(Types.OTHER, postgreSQLHandler.getStringParameterType(column("uuid")));
+    assertEquals(Types.OTHER, postgreSQLHandler.getStringParameterType(column("mood")));
+
+    OSQLServerDataTypeHandler sqlServerHandler = new OSQLServerDataTypeHandler();
+    assertEquals(
+        Types.VARCHAR, sqlServerHandler.getStringParameterType(column("uniqueidentifier")));
+  }
+
+  private OAttribute column(String type) {
+    return new OAttribute("KEY", 1, type, null);
+  }
+
+  /** @return a record whose columns hold the values, read through getString */
+  private ResultSet strings(String... values) {
+    return (ResultSet)
+        Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> {
+              if (method.getName().equals("getString") && args[0] instanceof Integer) {
+                return values[(Integer) args[0] - 1];
+              }
+              throw new UnsupportedOperationException(method.getName());
+            });
+  }
+
+  private OAttribute number(int columnSize, int decimalDigits) {
+    OAttribute attribute = new OAttribute("AMOUNT", 1, "NUMBER", null);
+    attribute.setColumnSize(columnSize);
+    attribute.setDecimalDigits(decimalDigits);
+    return attribute;
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.teleporter.persistence.util.OColumnOrdinals;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class ColumnOrdinalsTest {
+
+  private final String driver = "org.hsqldb.jdbc.JDBCDriver";
+  private final String jurl = "jdbc:hsqldb:mem:mydb";
+  private final String username = "SA";
+  private final String password = "";
+
+  @Test
+  /*
+   * Ordinals are resolved case-insensitively, the first column with a label wins and the values
+   * read by ordinal are the ones read by label.
+   */
+  public void ordinalsTest() throws Exception {
+
+    Class.forName(this.driver);
+    Connection connection = DriverManager.getConnection(this.jurl, this.username, this.password);
+    try {
+      Statement st = connection.createStatement();
+      st.execute("create memory table COLUMNS_TABLE (ID varchar(256) not null, NAME varchar(256))");
+      st.execute("insert into COLUMNS_TABLE (ID,NAME) values ('1','Joe')");
+
+      ResultSet result = st.executeQuery("select ID, NAME, NAME as NAME from COLUMNS_TABLE");
+      assertTrue(result.next());
+
+      OColumnOrdinals ordinals = OColumnOrdinals.of(result);
+      assertSame(ordinals, OColumnOrdinals.of(result));
+      assertEquals(1, ordinals.getOrdinal("ID"));
+      assertEquals(2, ordinals.getOrdinal("name"));
+      assertArrayEquals(
+          new int[] {2, 1, 0}, ordinals.getOrdinals(new String[] {"Name", "id", "X"}));
+      assertEquals(result.getString("NAME"), OColumnOrdinals.getString(result, "name"));
+
+      try {
+        ordinals.getOrdinal("X");
+        fail();
+      } catch (SQLException e) {
+        // expected: the driver's own error for a missing column
+      }
+
+      st.execute("drop table COLUMNS_TABLE");
+      st.close();
+    } finally {
+      connection.close();
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
+import com.orientechnologies.teleporter.persistence.util.OJSONStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class JSONStreamReaderTest {
+
+  private final String json =
+      "{\"name\": \"Joe \\\"Jr\\\" \\u00e8\", \"age\": 30, \"id\": 4294967296, \"rate\": 1.5e2,"
+          + " \"active\": true, \"note\": null, \"tags\": [\"a\", [1, 2]],"
+          + " \"address\": {\"city.name\": \"Rome\", \"zip\": {}}}";
+
+  @Test
+  /*
+   * Objects become embedded documents, arrays lists, numbers the narrowest type; dots in the names
+   * are not navigated.
+   */
+  public void documentBuildingTest() throws Exception {
+
+    ODocument document = (ODocument) OJSONStreamReader.read(new StringReader(this.json), null, 0);
+
+    assertEquals("Joe \"Jr\" \u00e8", document.field("name"));
+    assertEquals(Integer.valueOf(30), document.field("age"));
+    assertEquals(Long.valueOf(4294967296L), document.field("id"));
+    assertEquals(Double.valueOf(150), document.field("rate"));
+    assertEquals(Boolean.TRUE, document.field("active"));
+    assertTrue(document.containsField("note"));
+    assertNull(document.field("note"));
+
+    List<Object> tags = document.field("tags");
+    assertEquals(Arrays.asList("a", Arrays.asList(1, 2)), tags);
+
+    ODocument address = document.field("address");
+    assertEquals("Rome", address.rawField("city.name"));
+    assertEquals(0, ((ODocument) address.field("zip")).fields());
+  }
+
+  @Test
+  /*
+   * A JSON text longer than the max size is not converted, a not valid one is rejected.
+   */
+  public void maxSizeAndErrorsTest() throws Exception {
+
+    assertTrue(
+        OJSONStreamReader.read(new StringReader(this.json), null, this.json.length())
+            instanceof ODocument);
+    assertNull(OJSONStreamReader.read(new StringReader(this.json), null, this.json.length() - 1));
+
+    for (String notValid : new String[] {"[1]", "{\"a\": 1", "{\"a\": tru}", "{} {}"}) {
+      try {
+        OJSONStreamReader.read(new StringReader(notValid), null, 0);
+        fail(notValid + " should be rejected.");
+      } catch (OTeleporterRuntimeException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  /*
+   * The reading of a value over the max size stops once the max size is exceeded: an endless JSON
+   * text is read just past the max size, and is neither converted nor kept.
+   */
+  public void overMaxSizeNotHeldTest() throws Exception {
+
+    int maxSize = 100000;
+    EndlessJSONReader reader = new EndlessJSONReader();
+
+    assertNull(OJSONStreamReader.read(reader, null, maxSize));
+    assertTrue(reader.readChars > maxSize);
+    assertTrue(reader.readChars <= maxSize + 8192);
+  }
+
+  /** Reads {"values": [1, 1, 1, ... without an end, counting the chars read. */
+  private static class EndlessJSONReader extends Reader {
+
+    private static final String HEAD = "{\"values\": [1";
+    private long readChars;
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      for (int i = 0; i < length; i++, this.readChars++) {
+        buffer[offset + i] =
+            this.readChars < HEAD.length()
+                ? HEAD.charAt((int) this.readChars)
+                : ", 1".charAt((int) ((this.readChars - HEAD.length()) % 3));
+      }
+      return length;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
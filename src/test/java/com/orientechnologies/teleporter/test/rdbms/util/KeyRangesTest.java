@@ -0,0 +1,71 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class KeyRangesTest {
+
+  @Test
+  public void integralKeyCutPointsTest() {
+
+    List<Object> cutPoints = ODBQueryEngine.interpolateCutPoints(1, 100, 4);
+    assertEquals(3, cutPoints.size());
+    assertEquals(25L, cutPoints.get(0));
+    assertEquals(50L, cutPoints.get(1));
+    assertEquals(75L, cutPoints.get(2));
+
+    // fewer keys than partitions: no duplicated cut points
+    cutPoints = ODBQueryEngine.interpolateCutPoints(1, 3, 8);
+    assertEquals(2, cutPoints.size());
+    assertEquals(1L, cutPoints.get(0));
+    assertEquals(2L, cutPoints.get(1));
+
+    cutPoints = ODBQueryEngine.interpolateCutPoints(7, 7, 4);
+    assertTrue(cutPoints.isEmpty());
+  }
+
+  @Test
+  public void decimalAndTemporalKeyCutPointsTest() {
+
+    List<Object> cutPoints =
+        ODBQueryEngine.interpolateCutPoints(new BigDecimal("0.0"), new BigDecimal("1.0"), 2);
+    assertEquals(1, cutPoints.size());
+    assertEquals(0, new BigDecimal("0.5").compareTo((BigDecimal) cutPoints.get(0)));
+
+    cutPoints = ODBQueryEngine.interpolateCutPoints(new Timestamp(0L), new Timestamp(1000L), 2);
+    assertEquals(1, cutPoints.size());
+    assertEquals(new Timestamp(500L), cutPoints.get(0));
+
+    // keys not splittable
+    assertTrue(ODBQueryEngine.interpolateCutPoints("a", "z", 4).isEmpty());
+  }
+}
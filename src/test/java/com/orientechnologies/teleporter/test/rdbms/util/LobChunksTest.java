@@ -0,0 +1,159 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.record.OBlob;
+import com.orientechnologies.teleporter.persistence.util.OLobChunks;
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class LobChunksTest {
+
+  private static final int THRESHOLD = 4;
+
+  private OrientDB orientDB;
+  private ODatabaseDocument orientGraph;
+
+  @Before
+  public void init() {
+    this.orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+    this.orientDB.execute(
+        "create database lobChunksTest memory users ( admin identified by 'admin' role admin)");
+    this.orientGraph = this.orientDB.open("lobChunksTest", "admin", "admin");
+    OLobChunks.createLobCluster(this.orientGraph);
+  }
+
+  @After
+  public void tearDown() {
+    this.orientGraph.close();
+    this.orientDB.drop("lobChunksTest");
+    this.orientDB.close();
+  }
+
+  @Test
+  /*
+   * Values up to the threshold are returned inline, a byte more is enough to split them in chunks.
+   */
+  public void thresholdTest() throws Exception {
+
+    assertNull(OLobChunks.read(null, THRESHOLD));
+    assertArrayEquals(new byte[0], (byte[]) OLobChunks.read(stream(0), THRESHOLD));
+    assertArrayEquals(bytes(0, THRESHOLD), (byte[]) OLobChunks.read(stream(THRESHOLD), THRESHOLD));
+
+    List<?> chunks = (List<?>) OLobChunks.read(stream(THRESHOLD + 1), THRESHOLD);
+    assertEquals(2, chunks.size());
+    assertArrayEquals(bytes(0, THRESHOLD), content(chunks.get(0)));
+    assertArrayEquals(bytes(THRESHOLD, 1), content(chunks.get(1)));
+    assertTrue(OLobChunks.isChunked(chunks));
+    assertFalse(OLobChunks.isChunked(bytes(0, THRESHOLD)));
+  }
+
+  @Test
+  /*
+   * Longer values are split in chunks of the threshold size, in order, the last one holding the
+   * remaining bytes.
+   */
+  public void multiChunkTest() throws Exception {
+
+    List<?> chunks = (List<?>) OLobChunks.read(stream(2 * THRESHOLD), THRESHOLD);
+    assertEquals(2, chunks.size());
+    assertArrayEquals(bytes(0, THRESHOLD), content(chunks.get(0)));
+    assertArrayEquals(bytes(THRESHOLD, THRESHOLD), content(chunks.get(1)));
+
+    chunks = (List<?>) OLobChunks.read(stream(3 * THRESHOLD + 2), THRESHOLD);
+    assertEquals(4, chunks.size());
+    for (int i = 0; i < 3; i++) {
+      assertArrayEquals(bytes(i * THRESHOLD, THRESHOLD), content(chunks.get(i)));
+    }
+    assertArrayEquals(bytes(3 * THRESHOLD, 2), content(chunks.get(3)));
+  }
+
+  @Test
+  /*
+   * Values are compared by content, chunk by chunk, and must be stored in the same way.
+   */
+  public void sameContentTest() throws Exception {
+
+    assertTrue(OLobChunks.haveSameContent(bytes(0, THRESHOLD), bytes(0, THRESHOLD)));
+    assertFalse(OLobChunks.haveSameContent(bytes(0, THRESHOLD), bytes(1, THRESHOLD)));
+
+    Object chunks = OLobChunks.read(stream(3 * THRESHOLD), THRESHOLD);
+    Object sameChunks = OLobChunks.read(stream(3 * THRESHOLD), THRESHOLD);
+    Object longerChunks = OLobChunks.read(stream(3 * THRESHOLD + 1), THRESHOLD);
+    byte[] changed = bytes(0, 3 * THRESHOLD);
+    changed[2 * THRESHOLD] = -1;
+    Object changedChunks = OLobChunks.read(new ByteArrayInputStream(changed), THRESHOLD);
+
+    assertFalse(chunks.equals(sameChunks));
+    assertTrue(OLobChunks.haveSameContent(chunks, sameChunks));
+    assertFalse(OLobChunks.haveSameContent(chunks, longerChunks));
+    assertFalse(OLobChunks.haveSameContent(chunks, changedChunks));
+    assertFalse(OLobChunks.haveSameContent(bytes(0, THRESHOLD), chunks));
+  }
+
+  @Test
+  /*
+   * The chunk records of a value are deleted, inline values and values of other types are ignored.
+   */
+  public void deleteChunksTest() throws Exception {
+
+    List<?> chunks = (List<?>) OLobChunks.read(stream(2 * THRESHOLD + 1), THRESHOLD);
+    long lobs = this.orientGraph.countClusterElements(OLobChunks.LOB_CLUSTER);
+    assertEquals(3, lobs);
+
+    OLobChunks.deleteChunks(bytes(0, THRESHOLD));
+    OLobChunks.deleteChunks(Arrays.asList("a", "b"));
+    OLobChunks.deleteChunks(chunks);
+    assertEquals(0, this.orientGraph.countClusterElements(OLobChunks.LOB_CLUSTER));
+  }
+
+  /** @return the bytes from the start value on, increasing by one */
+  private static byte[] bytes(int start, int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (start + i);
+    }
+    return bytes;
+  }
+
+  private static ByteArrayInputStream stream(int length) {
+    return new ByteArrayInputStream(bytes(0, length));
+  }
+
+  private static byte[] content(Object chunk) {
+    OBlob record = ((OIdentifiable) chunk).getRecord();
+    return record.toStream();
+  }
+}
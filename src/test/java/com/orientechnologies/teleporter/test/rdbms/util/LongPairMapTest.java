@@ -0,0 +1,116 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.teleporter.persistence.util.OLongPairMap;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class LongPairMapTest {
+
+  @Test
+  public void pairSetTest() {
+
+    OLongPairMap set = new OLongPairMap(false);
+    assertTrue(set.add(0L, 0L));
+    assertTrue(set.add(17L << 48 | 3L, 18L << 48 | 42L));
+    assertFalse(set.add(0L, 0L));
+    assertEquals(2, set.size());
+
+    assertTrue(set.containsKey(0L, 0L));
+    assertTrue(set.containsKey(17L << 48 | 3L, 18L << 48 | 42L));
+
+    // the pairs are ordered
+    assertFalse(set.containsKey(18L << 48 | 42L, 17L << 48 | 3L));
+    assertFalse(set.containsKey(0L, 1L));
+
+    // growing beyond the initial capacity
+    for (long i = 1; i <= 10000; i++) {
+      set.add(i, i * 31);
+    }
+    assertEquals(10002, set.size());
+    for (long i = 1; i <= 10000; i++) {
+      assertTrue(set.containsKey(i, i * 31));
+      assertFalse(set.containsKey(i, i * 31 + 1));
+    }
+
+    try {
+      set.get(0L, 0L, -1L);
+      fail("A set has no values.");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void mapTest() {
+
+    OLongPairMap map = new OLongPairMap(true);
+    assertEquals(-1L, map.get(42L, 0L, -1L));
+
+    // single keys, negative ones and 0 included
+    assertTrue(map.put(42L, 0L, 7L));
+    assertTrue(map.put(-42L, 0L, 8L));
+    assertTrue(map.put(0L, 0L, 9L));
+    assertEquals(7L, map.get(42L, 0L, -1L));
+    assertEquals(8L, map.get(-42L, 0L, -1L));
+    assertEquals(9L, map.get(0L, 0L, -1L));
+
+    // the value of a present key is replaced
+    assertFalse(map.put(42L, 0L, 10L));
+    assertEquals(10L, map.get(42L, 0L, -1L));
+    assertEquals(3, map.size());
+
+    for (long i = -5000; i <= 5000; i++) {
+      map.put(i, 1L, i * 3);
+    }
+    assertEquals(10004, map.size());
+    for (long i = -5000; i <= 5000; i++) {
+      assertEquals(i * 3, map.get(i, 1L, -1L));
+    }
+    assertEquals(10L, map.get(42L, 0L, -1L));
+
+    map.clear();
+    assertEquals(0, map.size());
+    assertFalse(map.containsKey(42L, 0L));
+  }
+
+  @Test
+  public void canonicalLongTest() {
+    assertEquals(Long.valueOf(42L), OLongPairMap.toCanonicalLong("42"));
+    assertEquals(Long.valueOf(-42L), OLongPairMap.toCanonicalLong("-42"));
+    assertEquals(
+        Long.valueOf(Long.MIN_VALUE), OLongPairMap.toCanonicalLong("-9223372036854775808"));
+
+    // not canonical strings can't be mapped to a long, or "042" and "42" would be the same key
+    assertNull(OLongPairMap.toCanonicalLong("042"));
+    assertNull(OLongPairMap.toCanonicalLong("+42"));
+    assertNull(OLongPairMap.toCanonicalLong("4.2"));
+    assertNull(OLongPairMap.toCanonicalLong("9223372036854775808"));
+    assertNull(OLongPairMap.toCanonicalLong(""));
+    assertNull(OLongPairMap.toCanonicalLong(null));
+  }
+}
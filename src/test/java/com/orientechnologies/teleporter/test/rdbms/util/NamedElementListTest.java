@@ -0,0 +1,126 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.teleporter.model.dbschema.ODataBaseSchema;
+import com.orientechnologies.teleporter.model.dbschema.OEntity;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.model.graphmodel.OGraphModel;
+import com.orientechnologies.teleporter.model.graphmodel.OModelProperty;
+import com.orientechnologies.teleporter.model.graphmodel.OVertexType;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class NamedElementListTest {
+
+  @Test
+  public void entityLookupTest() {
+
+    OSourceDatabaseInfo sourceInfo =
+        new OSourceDatabaseInfo(
+            "hsqldb", "org.hsqldb.jdbc.JDBCDriver", "jdbc:hsqldb:mem:mydb", "SA", "");
+    ODataBaseSchema schema = new ODataBaseSchema();
+    OEntity employee = new OEntity("EMPLOYEE", null, sourceInfo);
+    OEntity employeeLower = new OEntity("employee", null, sourceInfo);
+    OEntity department = new OEntity("DEPARTMENT", null, sourceInfo);
+    schema.getEntities().add(employee);
+    schema.getEntities().add(employeeLower);
+    schema.getEntities().add(department);
+
+    // the first entity with the name in the order of the list
+    assertSame(employeeLower, schema.getEntityByName("employee"));
+    assertSame(employee, schema.getEntityByNameIgnoreCase("Employee"));
+    assertNull(schema.getEntityByName("Employee"));
+    assertNull(schema.getEntityByName(null));
+
+    // removals and renames are reflected by the lookups
+    schema.getEntities().remove(employee);
+    assertSame(employeeLower, schema.getEntityByNameIgnoreCase("EMPLOYEE"));
+    department.setName("DEPT");
+    assertNull(schema.getEntityByName("DEPARTMENT"));
+    assertSame(department, schema.getEntityByName("DEPT"));
+
+    OEntity replacement = new OEntity("DEPT", null, sourceInfo);
+    schema.getEntities().set(1, replacement);
+    assertSame(replacement, schema.getEntityByName("DEPT"));
+  }
+
+  @Test
+  public void graphModelLookupTest() {
+
+    OGraphModel graphModel = new OGraphModel();
+    OVertexType employee = new OVertexType("Employee");
+    graphModel.getVerticesType().add(employee);
+    assertSame(employee, graphModel.getVertexTypeByNameIgnoreCase("EMPLOYEE"));
+
+    OModelProperty name = new OModelProperty("name", 1, "VARCHAR", false, employee);
+    employee.getProperties().add(name);
+    assertSame(name, employee.getPropertyByName("name"));
+    assertSame(name, employee.getPropertyByNameAmongAll("name"));
+
+    // renaming a vertex type and a property as done by the migration config
+    employee.setName("Person");
+    name.setName("fullName");
+    assertNull(graphModel.getVertexTypeByName("Employee"));
+    assertSame(employee, graphModel.getVertexTypeByName("Person"));
+    assertNull(employee.getPropertyByName("name"));
+    assertSame(name, employee.getPropertyByName("fullName"));
+    assertSame(name, employee.getPropertyByNameAmongAll("fullName"));
+
+    assertTrue(graphModel.removeVertexTypeByName("Person"));
+    assertNull(graphModel.getVertexTypeByName("Person"));
+  }
+
+  @Test
+  /*
+   * A property inherited by a type is indexed by the lists of both the types, a rename is reflected
+   * by all of them, while the lookups of the other models keep working.
+   */
+  public void sharedElementRenameTest() {
+
+    OVertexType person = new OVertexType("Person");
+    OVertexType employee = new OVertexType("Employee");
+    OModelProperty name = new OModelProperty("name", 1, "VARCHAR", false, person);
+    person.getProperties().add(name);
+    employee.getInheritedProperties().add(name);
+    assertSame(name, person.getPropertyByName("name"));
+    assertSame(name, employee.getInheritedPropertyByName("name"));
+    assertSame(name, employee.getPropertyByNameAmongAll("name"));
+
+    OGraphModel otherModel = new OGraphModel();
+    OVertexType other = new OVertexType("Other");
+    otherModel.getVerticesType().add(other);
+    assertSame(other, otherModel.getVertexTypeByName("Other"));
+
+    name.setName("fullName");
+    assertNull(person.getPropertyByName("name"));
+    assertSame(name, person.getPropertyByName("fullName"));
+    assertNull(employee.getInheritedPropertyByName("name"));
+    assertSame(name, employee.getInheritedPropertyByName("fullName"));
+    assertSame(name, employee.getPropertyByNameAmongAll("fullName"));
+    assertSame(other, otherModel.getVertexTypeByName("Other"));
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.teleporter.context.OImportSettings;
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterMessageHandler;
+import com.orientechnologies.teleporter.importengine.rdbms.dbengine.ODBQueryEngine;
+import com.orientechnologies.teleporter.importengine.rdbms.graphengine.ORowDecoder;
+import com.orientechnologies.teleporter.mapper.rdbms.OER2GraphMapper;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.model.graphmodel.OVertexType;
+import com.orientechnologies.teleporter.nameresolver.OJavaConventionNameResolver;
+import com.orientechnologies.teleporter.persistence.handler.OHSQLDBDataTypeHandler;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class RowDecoderTest {
+
+  private OTeleporterContext context;
+  private String driver = "org.hsqldb.jdbc.JDBCDriver";
+  private String jurl = "jdbc:hsqldb:mem:mydb";
+  private String username = "SA";
+  private String password = "";
+  private OSourceDatabaseInfo sourceDBInfo;
+  private String outParentDirectory = "embedded:target/";
+
+  private Connection connection;
+  private Statement st;
+  private OER2GraphMapper mapper;
+
+  @Before
+  public void init() throws Exception {
+    this.context = OTeleporterContext.newInstance(this.outParentDirectory);
+    this.context.setDbQueryEngine(new ODBQueryEngine(this.driver));
+    this.context.setMessageHandler(new OTeleporterMessageHandler(0));
+    this.context.setDataTypeHandler(new OHSQLDBDataTypeHandler());
+    this.sourceDBInfo =
+        new OSourceDatabaseInfo("source", this.driver, this.jurl, this.username, this.password);
+
+    Class.forName(this.driver);
+    this.connection = DriverManager.getConnection(this.jurl, this.username, this.password);
+    this.st = this.connection.createStatement();
+    this.st.execute(
+        "create memory table ITEM (ID integer not null, NAME varchar(256), ACTIVE boolean,"
+            + " QUANTITY integer, PICTURE blob, primary key (ID))");
+    this.st.execute(
+        "insert into ITEM (ID,NAME,ACTIVE,QUANTITY,PICTURE) values ("
+            + "(1,'Chair',true,10,X'0102'),"
+            + "(2,NULL,false,NULL,NULL),"
+            + "(3,'Table',NULL,0,NULL))");
+
+    this.mapper = new OER2GraphMapper(this.sourceDBInfo, null, null, null);
+    this.mapper.buildSourceDatabaseSchema();
+    this.mapper.buildGraphModel(new OJavaConventionNameResolver());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    // Dropping Source DB Schema
+    this.st.execute("drop schema public cascade");
+    this.connection.close();
+  }
+
+  @Test
+  public void extractorsTest() throws Exception {
+
+    OVertexType itemType = this.mapper.getGraphModel().getVertexTypeByName("Item");
+    ORowDecoder decoder =
+        ORowDecoder.forVertexType(itemType, this.mapper, new OHSQLDBDataTypeHandler());
+
+    assertEquals("INTEGER", decoder.getPropertyType("id"));
+    assertEquals("BOOLEAN", decoder.getPropertyType("active"));
+    assertEquals("BINARY", decoder.getPropertyType("picture"));
+    assertEquals("QUANTITY", decoder.getColumnName("quantity"));
+    assertNull(decoder.getPropertyType("price"));
+
+    ResultSet records = this.st.executeQuery("select * from ITEM order by ID");
+
+    assertTrue(records.next());
+    Map<String, Object> properties = decoder.decode(records, "Record", 1);
+    assertEquals(Integer.valueOf(1), properties.get("id"));
+    assertEquals("Chair", properties.get("name"));
+    assertEquals(Boolean.TRUE, properties.get("active"));
+    assertEquals(Integer.valueOf(10), properties.get("quantity"));
+    assertArrayEquals(new byte[] {1, 2}, (byte[]) properties.get("picture"));
+
+    // NULL values are decoded as null, not as the default of the primitive type
+    assertTrue(records.next());
+    properties = decoder.decode(records, "Record", 2);
+    assertEquals(5, properties.size());
+    assertNull(properties.get("name"));
+    assertEquals(Boolean.FALSE, properties.get("active"));
+    assertNull(properties.get("quantity"));
+    assertNull(properties.get("picture"));
+
+    assertTrue(records.next());
+    properties = decoder.decode(records, "Record", 3);
+    assertNull(properties.get("active"));
+    assertEquals(Integer.valueOf(0), properties.get("quantity"));
+
+    records.close();
+  }
+
+  @Test
+  public void excludedLobTest() throws Exception {
+
+    this.context.getImportSettings().setLobMode(OImportSettings.LobMode.EXCLUDE);
+    OVertexType itemType = this.mapper.getGraphModel().getVertexTypeByName("Item");
+    ORowDecoder decoder =
+        ORowDecoder.forVertexType(itemType, this.mapper, new OHSQLDBDataTypeHandler());
+
+    // the excluded column is still known, but never read
+    assertEquals("BINARY", decoder.getPropertyType("picture"));
+
+    ResultSet records = this.st.executeQuery("select * from ITEM where ID = 1");
+    assertTrue(records.next());
+    Map<String, Object> properties = decoder.decode(records, "Record", 1);
+    assertEquals(4, properties.size());
+    assertFalse(properties.containsKey("picture"));
+    assertEquals("Chair", properties.get("name"));
+    records.close();
+  }
+
+  @Test
+  public void missingColumnTest() throws Exception {
+
+    OVertexType itemType = this.mapper.getGraphModel().getVertexTypeByName("Item");
+    ORowDecoder decoder =
+        ORowDecoder.forVertexType(itemType, this.mapper, new OHSQLDBDataTypeHandler());
+
+    // a column not in the result set is reported and skipped, the other ones are decoded
+    ResultSet records = this.st.executeQuery("select ID, NAME, ACTIVE from ITEM where ID = 1");
+    assertTrue(records.next());
+    Map<String, Object> properties = decoder.decode(records, "Record", 1);
+    assertEquals(3, properties.size());
+    assertEquals(Integer.valueOf(1), properties.get("id"));
+    assertEquals("Chair", properties.get("name"));
+    assertEquals(Boolean.TRUE, properties.get("active"));
+    assertFalse(properties.containsKey("quantity"));
+    records.close();
+
+    // the ordinals are resolved again for a different result set
+    records = this.st.executeQuery("select * from ITEM where ID = 1");
+    assertTrue(records.next());
+    properties = decoder.decode(records, "Record", 1);
+    assertEquals(Integer.valueOf(10), properties.get("quantity"));
+    records.close();
+  }
+}
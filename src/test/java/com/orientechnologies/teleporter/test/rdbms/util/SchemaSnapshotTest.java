@@ -0,0 +1,180 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.teleporter.model.dbschema.OAttribute;
+import com.orientechnologies.teleporter.model.dbschema.OCanonicalRelationship;
+import com.orientechnologies.teleporter.model.dbschema.ODataBaseSchema;
+import com.orientechnologies.teleporter.model.dbschema.OEntity;
+import com.orientechnologies.teleporter.model.dbschema.OForeignKey;
+import com.orientechnologies.teleporter.model.dbschema.OPrimaryKey;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.util.OFileManager;
+import com.orientechnologies.teleporter.util.OSchemaSnapshotManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class SchemaSnapshotTest {
+
+  private static final String SNAPSHOT_PATH = "target/snapshot-test/schema-snapshot.json";
+
+  private OSourceDatabaseInfo sourceDBInfo =
+      new OSourceDatabaseInfo(
+          "source", "org.hsqldb.jdbc.JDBCDriver", "jdbc:hsqldb:mem:mydb", "SA", "");
+
+  @After
+  public void tearDown() throws Exception {
+    OFileManager.deleteResource("target/snapshot-test/");
+  }
+
+  @Test
+  /*
+   * The schema restored from the snapshot has the same entities, in the same order, with the same
+   * attributes, primary keys and relationships of the written one.
+   */
+  public void roundTripTest() throws Exception {
+
+    ODataBaseSchema schema = new ODataBaseSchema();
+    OEntity department = this.addEntity(schema, "DEPARTMENT", "ID", "NAME");
+    OEntity employee = this.addEntity(schema, "EMPLOYEE", "FIRST_NAME", "LAST_NAME", "SALARY");
+    employee.getAttributeByName("SALARY").setColumnSize(10);
+    employee.getAttributeByName("SALARY").setDecimalDigits(2);
+    OAttribute departmentId = new OAttribute("DEPARTMENT_ID", 4, "INTEGER", employee);
+    employee.addAttribute(departmentId);
+    this.addRelationship(schema, employee, department, departmentId);
+
+    String fingerprint = OSchemaSnapshotManager.buildFingerprint(Arrays.asList("a", "b"));
+    OSchemaSnapshotManager.writeSnapshot(schema, fingerprint, 3000000000L, SNAPSHOT_PATH);
+
+    ODocument snapshot = OSchemaSnapshotManager.loadSnapshot(SNAPSHOT_PATH, fingerprint);
+    assertNotNull(snapshot);
+    // a number of records not fitting an int is kept
+    assertEquals(
+        Long.valueOf(3000000000L), OSchemaSnapshotManager.getTotalNumberOfRecords(snapshot));
+
+    ODataBaseSchema restoredSchema = new ODataBaseSchema();
+    OSchemaSnapshotManager.restoreSchema(snapshot, restoredSchema, this.sourceDBInfo);
+
+    assertEquals(schema.getEntities().size(), restoredSchema.getEntities().size());
+    for (int i = 0; i < schema.getEntities().size(); i++) {
+      OEntity entity = schema.getEntities().get(i);
+      OEntity restoredEntity = restoredSchema.getEntities().get(i);
+      assertEquals(entity.getName(), restoredEntity.getName());
+      assertEquals(entity.getSchemaName(), restoredEntity.getSchemaName());
+
+      assertEquals(entity.getAttributes().size(), restoredEntity.getAttributes().size());
+      Iterator<OAttribute> restoredAttributes = restoredEntity.getAttributes().iterator();
+      for (OAttribute attribute : entity.getAttributes()) {
+        OAttribute restoredAttribute = restoredAttributes.next();
+        assertEquals(attribute.getName(), restoredAttribute.getName());
+        assertEquals(attribute.getOrdinalPosition(), restoredAttribute.getOrdinalPosition());
+        assertEquals(attribute.getDataType(), restoredAttribute.getDataType());
+        assertEquals(attribute.getColumnSize(), restoredAttribute.getColumnSize());
+        assertEquals(attribute.getDecimalDigits(), restoredAttribute.getDecimalDigits());
+        assertSame(restoredEntity, restoredAttribute.getBelongingEntity());
+      }
+      assertEquals(
+          names(entity.getPrimaryKey().getInvolvedAttributes()),
+          names(restoredEntity.getPrimaryKey().getInvolvedAttributes()));
+      assertEquals(
+          entity.getOutCanonicalRelationships().size(),
+          restoredEntity.getOutCanonicalRelationships().size());
+      assertEquals(entity.getForeignKeys().size(), restoredEntity.getForeignKeys().size());
+    }
+
+    assertEquals(1, restoredSchema.getCanonicalRelationships().size());
+    OCanonicalRelationship restoredRelationship = restoredSchema.getCanonicalRelationships().get(0);
+    assertSame(restoredSchema.getEntities().get(1), restoredRelationship.getForeignEntity());
+    assertSame(restoredSchema.getEntities().get(0), restoredRelationship.getParentEntity());
+    assertEquals(Arrays.asList("DEPARTMENT_ID"), names(restoredRelationship.getFromColumns()));
+    assertEquals(Arrays.asList("ID"), names(restoredRelationship.getToColumns()));
+    assertSame(
+        restoredSchema.getEntities().get(0).getPrimaryKey(), restoredRelationship.getPrimaryKey());
+  }
+
+  @Test
+  /*
+   * A snapshot is not loaded with a different fingerprint, and the records are not kept when not
+   * passed.
+   */
+  public void fingerprintAndRecordsTest() throws Exception {
+
+    ODataBaseSchema schema = new ODataBaseSchema();
+    this.addEntity(schema, "DEPARTMENT", "ID", "NAME");
+
+    String fingerprint = OSchemaSnapshotManager.buildFingerprint(Arrays.asList("a", "b"));
+    String otherFingerprint = OSchemaSnapshotManager.buildFingerprint(Arrays.asList("ab"));
+    assertFalse(fingerprint.equals(otherFingerprint));
+
+    OSchemaSnapshotManager.writeSnapshot(schema, fingerprint, null, SNAPSHOT_PATH);
+
+    assertNull(OSchemaSnapshotManager.loadSnapshot(SNAPSHOT_PATH, otherFingerprint));
+    ODocument snapshot = OSchemaSnapshotManager.loadSnapshot(SNAPSHOT_PATH, fingerprint);
+    assertNotNull(snapshot);
+    assertNull(OSchemaSnapshotManager.getTotalNumberOfRecords(snapshot));
+  }
+
+  /** Adds an entity with the passed attributes, the first one is the primary key. */
+  private OEntity addEntity(ODataBaseSchema schema, String name, String... attributeNames) {
+    OEntity entity = new OEntity(name, "PUBLIC", this.sourceDBInfo);
+    for (int i = 0; i < attributeNames.length; i++) {
+      OAttribute attribute = new OAttribute(attributeNames[i], i + 1, "VARCHAR", entity);
+      attribute.setColumnSize(20 + i);
+      entity.addAttribute(attribute);
+    }
+    OPrimaryKey primaryKey = new OPrimaryKey(entity);
+    primaryKey.addAttribute(entity.getAttributeByName(attributeNames[0]));
+    entity.setPrimaryKey(primaryKey);
+    schema.getEntities().add(entity);
+    return entity;
+  }
+
+  private void addRelationship(
+      ODataBaseSchema schema, OEntity foreignEntity, OEntity parentEntity, OAttribute attribute) {
+    OForeignKey foreignKey = new OForeignKey(foreignEntity);
+    foreignKey.addAttribute(attribute);
+    OCanonicalRelationship relationship =
+        new OCanonicalRelationship(
+            foreignEntity, parentEntity, foreignKey, parentEntity.getPrimaryKey());
+    foreignEntity.getForeignKeys().add(foreignKey);
+    foreignEntity.getOutCanonicalRelationships().add(relationship);
+    schema.getCanonicalRelationships().add(relationship);
+  }
+
+  private static List<String> names(List<OAttribute> attributes) {
+    List<String> names = new ArrayList<String>();
+    for (OAttribute attribute : attributes) {
+      names.add(attribute.getName());
+    }
+    return names;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.teleporter.importengine.rdbms.graphengine.OSeenEdges;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class SeenEdgesTest {
+
+  @Test
+  public void disabledTrackingTest() {
+
+    OSeenEdges seenEdges = new OSeenEdges(0);
+    assertFalse(seenEdges.isEnabled());
+
+    // no class is complete, so the existence of the edges is always checked on the graph
+    assertFalse(seenEdges.isComplete(null, "HasEmployee"));
+  }
+
+  @Test
+  public void globalBoundTest() {
+
+    OrientDB orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+    orientDB.execute(
+        "create database seenEdgesTest memory users ( admin identified by 'admin' role admin)");
+
+    try (ODatabaseDocument orientGraph = orientDB.open("seenEdgesTest", "admin", "admin")) {
+
+      orientGraph.createVertexClass("Person");
+      orientGraph.createEdgeClass("Knows");
+      orientGraph.createEdgeClass("Likes");
+      OVertex john = orientGraph.newVertex("Person");
+      john.save();
+      OVertex jane = orientGraph.newVertex("Person");
+      jane.save();
+
+      // a single bound of two edges for all the classes
+      OSeenEdges seenEdges = new OSeenEdges(2);
+      seenEdges.track(orientGraph, "Knows");
+      seenEdges.track(orientGraph, "Likes");
+
+      seenEdges.add(orientGraph, "Knows", john, jane);
+      seenEdges.add(orientGraph, "Knows", jane, john);
+      assertEquals(2, seenEdges.size());
+      assertTrue(seenEdges.isComplete(orientGraph, "Knows"));
+      assertTrue(seenEdges.isComplete(orientGraph, "Likes"));
+
+      // the bound is reached: the class receiving the edge goes back to the scan of the edges
+      seenEdges.add(orientGraph, "Likes", john, jane);
+      assertEquals(2, seenEdges.size());
+      assertFalse(seenEdges.isComplete(orientGraph, "Likes"));
+      assertFalse(seenEdges.contains("Likes", john, jane));
+      assertTrue(seenEdges.isComplete(orientGraph, "Knows"));
+      assertTrue(seenEdges.contains("Knows", john, jane));
+    } finally {
+      orientDB.drop("seenEdgesTest");
+      orientDB.close();
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.teleporter.context.OTeleporterContext;
+import com.orientechnologies.teleporter.context.OTeleporterMessageHandler;
+import com.orientechnologies.teleporter.model.dbschema.OSourceDatabaseInfo;
+import com.orientechnologies.teleporter.persistence.util.ODBSourceConnection;
+import com.orientechnologies.teleporter.persistence.util.OSourceConnectionPool;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class SourceConnectionPoolTest {
+
+  private OTeleporterContext context;
+  private OSourceDatabaseInfo sourceDBInfo;
+  private final String driver = "org.hsqldb.jdbc.JDBCDriver";
+  private final String jurl = "jdbc:hsqldb:mem:mydb";
+  private final String username = "SA";
+  private final String password = "";
+
+  @Before
+  public void init() {
+    this.context = OTeleporterContext.newInstance("embedded:target/");
+    this.context.setMessageHandler(new OTeleporterMessageHandler(0));
+    this.sourceDBInfo =
+        new OSourceDatabaseInfo("hsqldb", this.driver, this.jurl, this.username, this.password);
+  }
+
+  @After
+  public void tearDown() {
+    ODBSourceConnection.closeAllConnectionPools();
+    this.context.closeOrientDBInstance();
+  }
+
+  @Test
+  public void connectionReuseTest() {
+
+    try {
+      Connection connection = ODBSourceConnection.getConnection(this.sourceDBInfo);
+      assertFalse(connection.isClosed());
+      connection.close();
+      assertTrue(connection.isClosed());
+
+      Connection secondConnection = ODBSourceConnection.getConnection(this.sourceDBInfo);
+      assertFalse(secondConnection.isClosed());
+      secondConnection.close();
+
+      OSourceConnectionPool pool = ODBSourceConnection.getConnectionPool(this.sourceDBInfo);
+      assertEquals(1, pool.getOpenCount());
+      assertEquals(1, pool.getIdleCount());
+      assertEquals(1, this.context.getStatistics().sourceConnectionPoolMisses);
+      assertEquals(1, this.context.getStatistics().sourceConnectionPoolHits);
+
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail(e.getMessage());
+    }
+  }
+
+  @Test
+  public void boundedPoolTest() {
+
+    OSourceConnectionPool pool = null;
+    try {
+      Driver jdbcDriver = (Driver) Class.forName(this.driver).newInstance();
+      pool = new OSourceConnectionPool(this.sourceDBInfo, jdbcDriver, 1, 100L);
+
+      Connection connection = pool.acquire();
+      try {
+        pool.acquire();
+        fail("The pool should not hand out more connections than its size.");
+      } catch (SQLException e) {
+        // expected, the only available connection is still in use
+      }
+      connection.close();
+
+      Connection secondConnection = pool.acquire();
+      assertFalse(secondConnection.isClosed());
+      secondConnection.close();
+      assertEquals(1, pool.getOpenCount());
+
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail(e.getMessage());
+    } finally {
+      if (pool != null) {
+        pool.close();
+      }
+    }
+  }
+
+  @Test
+  public void statementCacheTest() {
+
+    OSourceConnectionPool pool = null;
+    String query = "select USER_NAME from INFORMATION_SCHEMA.SYSTEM_USERS where USER_NAME = ?";
+    try {
+      Driver jdbcDriver = (Driver) Class.forName(this.driver).newInstance();
+      pool = new OSourceConnectionPool(this.sourceDBInfo, jdbcDriver, 1, 100L);
+
+      Connection connection = pool.acquire();
+      PreparedStatement statement = connection.prepareStatement(query);
+      statement.setString(1, this.username);
+      ResultSet result = statement.executeQuery();
+      assertTrue(result.next());
+
+      // the cached statement is in use, so a new one is prepared
+      PreparedStatement concurrentStatement = connection.prepareStatement(query);
+      concurrentStatement.setString(1, "nobody");
+      assertFalse(concurrentStatement.executeQuery().next());
+      concurrentStatement.close();
+
+      statement.close();
+      assertTrue(statement.isClosed());
+      assertTrue(result.isClosed());
+      connection.close();
+      assertEquals(1, pool.getCachedStatementCount());
+
+      // the statement is reused by the next acquisition, with its parameters cleared
+      Connection secondConnection = pool.acquire();
+      PreparedStatement secondStatement = secondConnection.prepareStatement(query);
+      assertFalse(secondStatement.isClosed());
+      secondStatement.setString(1, this.username);
+      assertTrue(secondStatement.executeQuery().next());
+      secondStatement.close();
+      secondConnection.close();
+      assertEquals(1, pool.getCachedStatementCount());
+
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail(e.getMessage());
+    } finally {
+      if (pool != null) {
+        pool.close();
+      }
+    }
+    assertEquals(0, pool.getCachedStatementCount());
+  }
+}
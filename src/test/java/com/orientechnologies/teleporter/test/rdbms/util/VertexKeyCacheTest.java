@@ -0,0 +1,112 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.teleporter.importengine.rdbms.graphengine.OVertexKeyCache;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class VertexKeyCacheTest {
+
+  @Test
+  public void lookupTest() {
+
+    OVertexKeyCache cache = new OVertexKeyCache(100);
+    String[] id = new String[] {"id"};
+
+    cache.put("Employee", id, new String[] {"42"}, new ORecordId(17, 3));
+    assertEquals(new ORecordId(17, 3), cache.get("Employee", id, new String[] {"42"}));
+    assertNull(cache.get("Employee", id, new String[] {"042"}));
+    assertNull(cache.get("Department", id, new String[] {"42"}));
+    assertNull(cache.get("Employee", new String[] {"code"}, new String[] {"42"}));
+
+    // composite keys are found whatever the order of their properties
+    cache.put("Project", new String[] {"a", "b"}, new String[] {"x", "1"}, new ORecordId(18, 0));
+    assertEquals(
+        new ORecordId(18, 0),
+        cache.get("Project", new String[] {"b", "a"}, new String[] {"1", "x"}));
+
+    // temporary identities and null values are not cached
+    cache.put("Employee", id, new String[] {"43"}, new ORecordId(17, -2));
+    assertNull(cache.get("Employee", id, new String[] {"43"}));
+    cache.put("Employee", id, new String[] {null}, new ORecordId(17, 4));
+    assertNull(cache.get("Employee", id, new String[] {null}));
+  }
+
+  @Test
+  public void boundedSizeTest() {
+
+    OVertexKeyCache cache = new OVertexKeyCache(10);
+    String[] id = new String[] {"id"};
+
+    for (int i = 0; i < 1000; i++) {
+      cache.put("Employee", id, new String[] {String.valueOf(i)}, new ORecordId(17, i));
+      cache.put("Customer", id, new String[] {"c" + i}, new ORecordId(18, i));
+    }
+
+    // the most recent entries are kept, the oldest ones evicted
+    assertEquals(new ORecordId(17, 999), cache.get("Employee", id, new String[] {"999"}));
+    assertNull(cache.get("Employee", id, new String[] {"0"}));
+    assertEquals(new ORecordId(18, 999), cache.get("Customer", id, new String[] {"c999"}));
+    assertNull(cache.get("Customer", id, new String[] {"c0"}));
+
+    // the bound is shared by all the classes
+    assertTrue(cache.size() <= 10);
+
+    OVertexKeyCache disabledCache = new OVertexKeyCache(0);
+    disabledCache.put("Employee", id, new String[] {"1"}, new ORecordId(17, 1));
+    assertNull(disabledCache.get("Employee", id, new String[] {"1"}));
+  }
+
+  @Test
+  public void globalBoundTest() {
+
+    OVertexKeyCache cache = new OVertexKeyCache(100);
+    String[] id = new String[] {"id"};
+
+    for (int i = 0; i < 1000; i++) {
+      cache.put("Class" + i, id, new String[] {"1"}, new ORecordId(17, i));
+      cache.put("Class" + i, id, new String[] {"k"}, new ORecordId(18, i));
+    }
+    assertTrue(cache.size() <= 100);
+    assertEquals(new ORecordId(18, 999), cache.get("Class999", id, new String[] {"k"}));
+    assertNull(cache.get("Class0", id, new String[] {"1"}));
+
+    // an entry found in the previous generation is promoted, so it survives the next eviction
+    cache.clear();
+    cache.put("Employee", id, new String[] {"1"}, new ORecordId(17, 1));
+    for (int i = 0; i < 50; i++) {
+      cache.put("Customer", id, new String[] {String.valueOf(i)}, new ORecordId(18, i));
+    }
+    assertEquals(new ORecordId(17, 1), cache.get("Employee", id, new String[] {"1"}));
+    for (int i = 50; i < 99; i++) {
+      cache.put("Customer", id, new String[] {String.valueOf(i)}, new ORecordId(18, i));
+    }
+    assertEquals(new ORecordId(17, 1), cache.get("Employee", id, new String[] {"1"}));
+    assertNull(cache.get("Customer", id, new String[] {"0"}));
+  }
+}
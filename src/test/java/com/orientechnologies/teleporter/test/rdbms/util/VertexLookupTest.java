@@ -0,0 +1,157 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.teleporter.util.OVertexLookup;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+public class VertexLookupTest {
+
+  private static final String[] KEY = {"id"};
+
+  private OrientDB orientDB;
+  private ODatabaseDocument orientGraph;
+  private OClass person;
+
+  @Before
+  public void init() {
+    this.orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+    this.orientDB.execute(
+        "create database vertexLookupTest memory users ( admin identified by 'admin' role admin)");
+    this.orientGraph = this.orientDB.open("vertexLookupTest", "admin", "admin");
+    this.person = this.orientGraph.createVertexClass("Person");
+    this.person.createProperty("id", OType.INTEGER);
+    this.person.createProperty("name", OType.STRING);
+    OVertexLookup.clear();
+  }
+
+  @After
+  public void tearDown() {
+    OVertexLookup.clear();
+    this.orientGraph.close();
+    this.orientDB.drop("vertexLookupTest");
+    this.orientDB.close();
+  }
+
+  @Test
+  /*
+   * Without an index on the key the vertices are queried, once the index is created they are
+   * looked up through it, with the same results.
+   */
+  public void indexAndQueryTest() {
+
+    ORID john = this.addPerson(1, "John");
+    ORID jane = this.addPerson(2, "Jane");
+    ORID janeHomonym = this.addPerson(2, "Jane");
+
+    OVertexLookup lookup = OVertexLookup.of(this.orientGraph, "Person", KEY);
+    assertFalse(lookup.isIndexed(this.orientGraph));
+    assertEquals(john, lookup.getRid(this.orientGraph, new Object[] {1}));
+    assertEquals(
+        new HashSet<ORID>(Arrays.asList(jane, janeHomonym)),
+        new HashSet<ORID>(lookup.getRids(this.orientGraph, new Object[] {2})));
+    assertNull(lookup.getRid(this.orientGraph, new Object[] {3}));
+    assertNull(lookup.getRid(this.orientGraph, new Object[] {null}));
+
+    this.person.createIndex("Person.id", OClass.INDEX_TYPE.NOTUNIQUE, "id");
+    assertTrue(lookup.isIndexed(this.orientGraph));
+    assertEquals("Person.id", lookup.getIndexName(this.orientGraph));
+    // the key values are converted to the type of the indexed property
+    assertEquals(john, lookup.getRid(this.orientGraph, new Object[] {1L}));
+    assertEquals(
+        new HashSet<ORID>(Arrays.asList(jane, janeHomonym)),
+        new HashSet<ORID>(lookup.getRids(this.orientGraph, new Object[] {2})));
+    assertNull(lookup.getRid(this.orientGraph, new Object[] {3}));
+    assertTrue(lookup.getRids(this.orientGraph, new Object[] {null}).isEmpty());
+
+    // indexes on other properties are not used
+    OVertexLookup nameLookup = OVertexLookup.of(this.orientGraph, "Person", new String[] {"name"});
+    assertFalse(nameLookup.isIndexed(this.orientGraph));
+    assertEquals(2, nameLookup.getRids(this.orientGraph, new Object[] {"Jane"}).size());
+  }
+
+  @Test
+  /*
+   * The ".pkey" index is preferred to the other indexes on the key, whatever their creation order;
+   * when it's dropped the lookup falls back to the other index, then to the query.
+   */
+  public void pkeyPreferenceAndDropTest() {
+
+    ORID john = this.addPerson(1, "John");
+
+    this.person.createIndex("Person.byId", OClass.INDEX_TYPE.NOTUNIQUE, "id");
+    this.person.createIndex("Person.pkey", OClass.INDEX_TYPE.UNIQUE, "id");
+    this.person.createIndex("Person.zId", OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX, "id");
+
+    OVertexLookup lookup = OVertexLookup.of(this.orientGraph, "Person", KEY);
+    assertEquals("Person.pkey", lookup.getIndexName(this.orientGraph));
+    assertEquals(john, lookup.getRid(this.orientGraph, new Object[] {1}));
+
+    this.orientGraph.command("drop index Person.pkey").close();
+    String indexName = lookup.getIndexName(this.orientGraph);
+    assertTrue("Person.byId".equals(indexName) || "Person.zId".equals(indexName));
+    assertEquals(john, lookup.getRid(this.orientGraph, new Object[] {1}));
+
+    this.orientGraph.command("drop index Person.byId").close();
+    this.orientGraph.command("drop index Person.zId").close();
+    assertNull(lookup.getIndexName(this.orientGraph));
+    assertEquals(john, lookup.getRid(this.orientGraph, new Object[] {1}));
+  }
+
+  @Test
+  /*
+   * The lookups are prepared once per database, class and key, until they are cleared at the end
+   * of the job.
+   */
+  public void preparedLookupsTest() {
+
+    OVertexLookup lookup = OVertexLookup.of(this.orientGraph, "Person", KEY);
+    assertSame(lookup, OVertexLookup.of(this.orientGraph, "Person", new String[] {"id"}));
+    assertNotSame(lookup, OVertexLookup.of(this.orientGraph, "Person", new String[] {"name"}));
+
+    OVertexLookup.clear();
+    assertNotSame(lookup, OVertexLookup.of(this.orientGraph, "Person", KEY));
+  }
+
+  private ORID addPerson(int id, String name) {
+    OVertex vertex = this.orientGraph.newVertex("Person");
+    vertex.setProperty("id", id);
+    vertex.setProperty("name", name);
+    return vertex.save().getIdentity();
+  }
+}
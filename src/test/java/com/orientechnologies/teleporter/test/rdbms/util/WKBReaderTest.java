@@ -0,0 +1,88 @@
+/*
+ *
+ *  *  Copyright 2010-2017 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.teleporter.test.rdbms.util;
+
+import static org.junit.Assert.*;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.teleporter.exception.OTeleporterRuntimeException;
+import com.orientechnologies.teleporter.persistence.util.OWKBReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * @author Gabriele Ponzi
+ * @email <g.ponzi--at--orientdb.com>
+ */
+
+  @Test
+  /*
+   * PostGIS extended WKB in its hex form: the SRID is skipped.
+   */
+  public void extendedPointTest() {
+
+    ODocument point =
+        OWKBReader.read(
+            OWKBReader.fromHex("0101000020E6100000000000000000F03F0000000000000040"));
+
+    assertEquals(OWKBReader.POINT, point.getClassName());
+    assertEquals(Arrays.asList(1.0, 2.0), point.field("coordinates"));
+  }
+
+  @Test
+  /*
+   * Byte order set per geometry, ISO Z coordinates reduced to 2D.
+   */
+  public void multiPointAndPolygonTest() {
+
+    ByteBuffer buffer = ByteBuffer.allocate(128).order(ByteOrder.BIG_ENDIAN);
+    buffer.put((byte) 0).putInt(4).putInt(2);
+    buffer.put((byte) 0).putInt(1).putDouble(1).putDouble(2);
+    buffer.put((byte) 1).order(ByteOrder.LITTLE_ENDIAN).putInt(1).putDouble(3).putDouble(4);
+    ODocument multiPoint = OWKBReader.read(Arrays.copyOf(buffer.array(), buffer.position()));
+
+    assertEquals(OWKBReader.MULTI_POINT, multiPoint.getClassName());
+    assertEquals(
+        Arrays.asList(Arrays.asList(1.0, 2.0), Arrays.asList(3.0, 4.0)),
+        multiPoint.field("coordinates"));
+
+    buffer = ByteBuffer.allocate(128).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put((byte) 1).putInt(1003).putInt(1).putInt(4);
+    double[][] ring = {{0, 0}, {1, 0}, {1, 1}, {0, 0}};
+    for (double[] coordinates : ring) {
+      buffer.putDouble(coordinates[0]).putDouble(coordinates[1]).putDouble(10);
+    }
+    ODocument polygon = OWKBReader.read(Arrays.copyOf(buffer.array(), buffer.position()));
+
+    assertEquals(OWKBReader.POLYGON, polygon.getClassName());
+    List<List<List<Double>>> rings = polygon.field("coordinates");
+    assertEquals(1, rings.size());
+    assertEquals(Arrays.asList(1.0, 1.0), rings.get(0).get(2));
+  }
+
+  @Test(expected = OTeleporterRuntimeException.class)
+  public void notValidGeometryTest() {
+    OWKBReader.read(OWKBReader.fromHex("0101000000"));
+  }
+}